@@ -3,19 +3,23 @@ package com.zendesk.maxwell;
 import com.djdch.log4j.StaticShutdownCallbackRegistry;
 import com.zendesk.maxwell.bootstrap.AbstractBootstrapper;
 import com.zendesk.maxwell.producer.AbstractProducer;
+import com.zendesk.maxwell.recovery.HeartbeatIndex;
 import com.zendesk.maxwell.recovery.Recovery;
 import com.zendesk.maxwell.recovery.RecoveryInfo;
 import com.zendesk.maxwell.replication.BinlogConnectorReplicator;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.replication.Replicator;
 import com.zendesk.maxwell.row.HeartbeatRowMap;
-import com.zendesk.maxwell.schema.MysqlPositionStore;
+import com.zendesk.maxwell.schema.LocalSchemaStore;
 import com.zendesk.maxwell.schema.MysqlSchemaStore;
+import com.zendesk.maxwell.schema.PositionStore;
+import com.zendesk.maxwell.schema.SchemaStore;
 import com.zendesk.maxwell.schema.SchemaStoreSchema;
 import com.zendesk.maxwell.util.Logging;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.net.URISyntaxException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -58,7 +62,7 @@ public class Maxwell implements Runnable {
 
 	private Position attemptMasterRecovery() throws Exception {
 		HeartbeatRowMap recoveredHeartbeat = null;
-		MysqlPositionStore positionStore = this.context.getPositionStore();
+		PositionStore positionStore = this.context.getPositionStore();
 		RecoveryInfo recoveryInfo = positionStore.getRecoveryInfo(config);
 
 		if ( recoveryInfo != null ) {
@@ -67,7 +71,9 @@ public class Maxwell implements Runnable {
 				config.databaseName,
 				this.context.getReplicationConnectionPool(),
 				this.context.getCaseSensitivity(),
-				recoveryInfo
+				recoveryInfo,
+				config.masterRecoveryThreads,
+				new HeartbeatIndex(this.context.getMaxwellConnectionPool())
 			);
 
 			recoveredHeartbeat = masterRecovery.recover();
@@ -168,18 +174,26 @@ public class Maxwell implements Runnable {
 	}
 
 	private void startInner() throws Exception {
-		try ( Connection connection = this.context.getReplicationConnection();
-		      Connection rawConnection = this.context.getRawMaxwellConnection() ) {
-			MaxwellMysqlStatus.ensureReplicationMysqlState(connection);
-			MaxwellMysqlStatus.ensureMaxwellMysqlState(rawConnection);
-			if (config.gtidMode) {
-				MaxwellMysqlStatus.ensureGtidMysqlState(connection);
+		try ( Connection connection = this.context.getReplicationConnection() ) {
+			// replaying local binlog files doesn't need anything from the replication server
+			if ( config.binlogFiles == null ) {
+				MaxwellMysqlStatus.ensureReplicationMysqlState(connection);
+				if (config.gtidMode) {
+					MaxwellMysqlStatus.ensureGtidMysqlState(connection);
+				}
 			}
+		}
+
+		// with a local store there's no maxwell database to set up
+		if ( this.context.getLocalStore() == null ) {
+			try ( Connection rawConnection = this.context.getRawMaxwellConnection() ) {
+				MaxwellMysqlStatus.ensureMaxwellMysqlState(rawConnection);
 
-			SchemaStoreSchema.ensureMaxwellSchema(rawConnection, this.config.databaseName);
+				SchemaStoreSchema.ensureMaxwellSchema(rawConnection, this.config.databaseName);
 
-			try ( Connection schemaConnection = this.context.getMaxwellConnection() ) {
-				SchemaStoreSchema.upgradeSchemaStoreSchema(schemaConnection);
+				try ( Connection schemaConnection = this.context.getMaxwellConnection() ) {
+					SchemaStoreSchema.upgradeSchemaStoreSchema(schemaConnection);
+				}
 			}
 		}
 
@@ -190,16 +204,25 @@ public class Maxwell implements Runnable {
 		logBanner(producer, initPosition);
 		this.context.setPosition(initPosition);
 
-		MysqlSchemaStore mysqlSchemaStore = new MysqlSchemaStore(this.context, initPosition);
-
-		if (config.recaptureSchema) {
-			mysqlSchemaStore.captureAndSaveSchema();
+		SchemaStore schemaStore;
+		if ( this.context.getLocalStore() != null ) {
+			LocalSchemaStore localSchemaStore = new LocalSchemaStore(this.context, this.context.getLocalStore(), initPosition);
+			if (config.recaptureSchema) {
+				localSchemaStore.captureAndSaveSchema();
+			}
+			schemaStore = localSchemaStore;
+		} else {
+			MysqlSchemaStore mysqlSchemaStore = new MysqlSchemaStore(this.context, initPosition);
+			if (config.recaptureSchema) {
+				mysqlSchemaStore.captureAndSaveSchema();
+			}
+			schemaStore = mysqlSchemaStore;
 		}
 
-		mysqlSchemaStore.getSchema(); // trigger schema to load / capture before we start the replicator.
+		schemaStore.getSchema(); // trigger schema to load / capture before we start the replicator.
 
 		this.replicator = new BinlogConnectorReplicator(
-			mysqlSchemaStore,
+			schemaStore,
 			producer,
 			bootstrapper,
 			config.replicationMysql,
@@ -207,12 +230,20 @@ public class Maxwell implements Runnable {
 			config.databaseName,
 			context.getMetrics(),
 			initPosition,
-			false,
+			config.binlogFiles != null,
 			config.clientID,
 			context.getHeartbeatNotifier(),
 			config.scripting,
 			context.getFilter(),
-			config.outputConfig
+			config.outputConfig,
+			config.decodeThreads,
+			context.getDecodeExecutor(),
+			config.eventQueueSize,
+			config.eventQueueWaitStrategy,
+			config.transactionStreamThreshold,
+			config.diskBufferConfig,
+			config.binlogFiles == null ? null : new File(config.binlogFiles),
+			config.pipelineConfig
 		);
 
 		bootstrapper.resume(producer, replicator);
@@ -232,6 +263,21 @@ public class Maxwell implements Runnable {
 			if ( config.log_level != null )
 				Logging.setLevel(config.log_level);
 
+			if ( !config.sources.isEmpty() ) {
+				final MultiSourceMaxwell multiSource = new MultiSourceMaxwell(config);
+
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+					@Override
+					public void run() {
+						multiSource.terminate();
+						StaticShutdownCallbackRegistry.invoke();
+					}
+				});
+
+				multiSource.start();
+				return;
+			}
+
 			final Maxwell maxwell = new Maxwell(config);
 
 			Runtime.getRuntime().addShutdownHook(new Thread() {
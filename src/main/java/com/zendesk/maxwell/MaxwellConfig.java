@@ -9,10 +9,15 @@ import com.zendesk.maxwell.monitoring.MaxwellDiagnosticContext;
 import com.zendesk.maxwell.producer.EncryptionMode;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.producer.ProducerFactory;
+import com.zendesk.maxwell.replication.BinlogConnectorReplicator;
 import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.PipelineConfig;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.scripting.Scripting;
 import com.zendesk.maxwell.util.AbstractConfig;
+import com.zendesk.maxwell.util.DiskBufferConfig;
+import com.zendesk.maxwell.util.OffHeapBufferPool;
+import com.zendesk.maxwell.util.RingBuffer;
 import joptsimple.BuiltinHelpFormatter;
 import joptsimple.OptionDescriptor;
 import joptsimple.OptionParser;
@@ -22,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -100,9 +106,22 @@ public class MaxwellConfig extends AbstractConfig {
 
 	public Position initPosition;
 	public boolean replayMode;
+	public String binlogFiles;
+	public final List<MaxwellConfig> sources = new ArrayList<>();
 	public boolean masterRecovery;
+	public int masterRecoveryThreads;
 	public boolean ignoreProducerError;
 	public boolean recaptureSchema;
+	public String schemaCacheDir;
+	public String localStoreDir;
+	public int schemaCompactionChainLength;
+	public int schemaCaptureThreads;
+	public int decodeThreads;
+	public long transactionStreamThreshold;
+	public DiskBufferConfig diskBufferConfig;
+	public int eventQueueSize;
+	public RingBuffer.WaitStrategy eventQueueWaitStrategy;
+	public PipelineConfig pipelineConfig;
 
 	public String rabbitmqUser;
 	public String rabbitmqPass;
@@ -241,10 +260,28 @@ public class MaxwellConfig extends AbstractConfig {
 		parser.accepts( "max_schemas", "[deprecated]" ).withRequiredArg();
 		parser.accepts( "init_position", "initial binlog position, given as BINLOG_FILE:POSITION[:HEARTBEAT]" ).withRequiredArg();
 		parser.accepts( "replay", "replay mode, don't store any information to the server" ).withOptionalArg();
+		parser.accepts( "binlog_files", "read events from local binlog files (a file, or a directory of them) instead of the replication server, and exit at the end" ).withRequiredArg();
+		parser.accepts( "sources", "comma separated list of config files, one per server to replicate from in this process" ).withRequiredArg();
 		parser.accepts( "master_recovery", "(experimental) enable master position recovery code" ).withOptionalArg();
+		parser.accepts( "master_recovery_threads", "number of binlog files master recovery scans at once.  default: 4" ).withRequiredArg();
 		parser.accepts( "gtid_mode", "(experimental) enable gtid mode" ).withOptionalArg();
 		parser.accepts( "ignore_producer_error", "Maxwell will be terminated on kafka/kinesis errors when false. Otherwise, those producer errors are only logged. Default to true" ).withOptionalArg();
 		parser.accepts( "recapture_schema", "recapture the latest schema" ).withOptionalArg();
+		parser.accepts( "schema_cache_dir", "keep a local copy of the current schema in this directory, for faster restarts" ).withRequiredArg();
+		parser.accepts( "local_store_dir", "keep schemas and binlog positions in a log file in this directory instead of the maxwell database" ).withRequiredArg();
+		parser.accepts( "schema_capture_threads", "number of connections capturing the initial schema at once.  default: 4" ).withRequiredArg();
+		parser.accepts( "schema_compaction_chain_length", "snapshot the schema once this many DDL changes are chained onto the last snapshot, 0 to never.  default: 100" ).withRequiredArg();
+		parser.accepts( "decode_threads", "number of threads used to convert binlog rows into json.  default: 1" ).withRequiredArg();
+		parser.accepts( "binlog_event_queue_size", "number of binlog events buffered between the binlog reader and the replicator.  default: 256" ).withRequiredArg();
+		parser.accepts( "binlog_event_queue_wait", "how threads wait on the binlog event queue: park|yield|spin.  default: park" ).withRequiredArg();
+		parser.accepts( "transaction_stream_threshold", "stream out the rows of transactions larger than N rows before they commit, followed by a commit marker.  default: 0 (never)" ).withRequiredArg();
+		parser.accepts( "buffer_spill_compression", "compress transaction buffers spilled to disk: none|lz4.  default: none" ).withRequiredArg();
+		parser.accepts( "buffer_offheap_bytes", "bytes of direct memory large transactions may use before spilling to disk.  default: 0 (spill straight to disk)" ).withRequiredArg();
+		parser.accepts( "buffer_spill_read", "how spilled transaction buffers are read back: stream|mmap.  default: stream" ).withRequiredArg();
+		parser.accepts( "pipeline", "run the transform (javascript), serialize and publish stages on their own threads.  default: false" ).withOptionalArg();
+		parser.accepts( "pipeline_queue_size", "number of rows each pipeline stage holds.  default: 256" ).withRequiredArg();
+		parser.accepts( "serialize_threads", "number of threads in the pipeline's serialize stage.  default: 1" ).withRequiredArg();
+		parser.accepts( "lazy_column_conversion", "only convert binlog values to json when a column is actually read.  default: false" ).withOptionalArg();
 
 		parser.accepts( "__separator_7" );
 
@@ -347,6 +384,12 @@ public class MaxwellConfig extends AbstractConfig {
 
 		setup(options, properties);
 
+		String sourceFiles = fetchOption("sources", options, properties, null);
+		if ( sourceFiles != null ) {
+			for ( String filename : sourceFiles.split(",") )
+				this.sources.add(buildSourceConfig(options, properties, filename.trim()));
+		}
+
 		List<?> arguments = options.nonOptionArguments();
 		if(!arguments.isEmpty()) {
 			usage("Unknown argument(s): " + arguments);
@@ -362,6 +405,10 @@ public class MaxwellConfig extends AbstractConfig {
 		this.gtidMode           = fetchBooleanOption("gtid_mode", options, properties, System.getenv(GTID_MODE_ENV) != null);
 
 		this.databaseName       = fetchOption("schema_database", options, properties, "maxwell");
+		this.schemaCacheDir     = fetchOption("schema_cache_dir", options, properties, null);
+		this.localStoreDir      = fetchOption("local_store_dir", options, properties, null);
+		this.schemaCaptureThreads = Integer.parseInt(fetchOption("schema_capture_threads", options, properties, "4"));
+		this.schemaCompactionChainLength = Integer.parseInt(fetchOption("schema_compaction_chain_length", options, properties, "100"));
 		this.maxwellMysql.database = this.databaseName;
 
 		this.producerFactory    = fetchProducerFactory(options, properties);
@@ -501,9 +548,52 @@ public class MaxwellConfig extends AbstractConfig {
 		}
 
 		this.replayMode =     fetchBooleanOption("replay", options, null, false);
+		this.binlogFiles =    fetchOption("binlog_files", options, null, null);
 		this.masterRecovery = fetchBooleanOption("master_recovery", options, properties, false);
+		this.masterRecoveryThreads = Integer.parseInt(fetchOption("master_recovery_threads", options, properties, "4"));
 		this.ignoreProducerError = fetchBooleanOption("ignore_producer_error", options, properties, true);
 		this.recaptureSchema = fetchBooleanOption("recapture_schema", options, null, false);
+		this.decodeThreads = Integer.parseInt(fetchOption("decode_threads", options, properties, "1"));
+		this.transactionStreamThreshold = fetchLongOption("transaction_stream_threshold", options, properties, 0L);
+
+		this.diskBufferConfig = new DiskBufferConfig();
+		String spillCompression = fetchOption("buffer_spill_compression", options, properties, "none");
+		switch ( spillCompression ) {
+			case "none":
+				this.diskBufferConfig.compress = false;
+				break;
+			case "lz4":
+				this.diskBufferConfig.compress = true;
+				break;
+			default:
+				usageForOptions("please specify --buffer_spill_compression=none|lz4", "--buffer_spill_compression");
+		}
+
+		long offHeapBytes = fetchLongOption("buffer_offheap_bytes", options, properties, 0L);
+		if ( offHeapBytes < 0 )
+			usageForOptions("please specify --buffer_offheap_bytes=N, where N is 0 (disabled) or a number of bytes", "--buffer_offheap_bytes");
+		else if ( offHeapBytes > 0 )
+			this.diskBufferConfig.offHeapPool = new OffHeapBufferPool(offHeapBytes, (int) Math.min(offHeapBytes, OffHeapBufferPool.DEFAULT_CHUNK_BYTES));
+
+		String spillRead = fetchOption("buffer_spill_read", options, properties, "stream");
+		try {
+			this.diskBufferConfig.readMode = DiskBufferConfig.ReadMode.fromString(spillRead);
+		} catch ( IllegalArgumentException e ) {
+			usageForOptions("please specify --buffer_spill_read=stream|mmap", "--buffer_spill_read");
+		}
+		this.eventQueueSize = Integer.parseInt(fetchOption("binlog_event_queue_size", options, properties, String.valueOf(BinlogConnectorReplicator.DEFAULT_EVENT_QUEUE_SIZE)));
+
+		String eventQueueWait = fetchOption("binlog_event_queue_wait", options, properties, "park");
+		try {
+			this.eventQueueWaitStrategy = RingBuffer.WaitStrategy.fromString(eventQueueWait);
+		} catch ( IllegalArgumentException e ) {
+			usageForOptions("please specify --binlog_event_queue_wait=park|yield|spin", "--binlog_event_queue_wait");
+		}
+
+		this.pipelineConfig = new PipelineConfig();
+		this.pipelineConfig.enabled = fetchBooleanOption("pipeline", options, properties, false);
+		this.pipelineConfig.queueSize = Integer.parseInt(fetchOption("pipeline_queue_size", options, properties, "256"));
+		this.pipelineConfig.serializeThreads = Integer.parseInt(fetchOption("serialize_threads", options, properties, "1"));
 
 		outputConfig.includesBinlogPosition = fetchBooleanOption("output_binlog_position", options, properties, false);
 		outputConfig.includesGtidPosition = fetchBooleanOption("output_gtid_position", options, properties, false);
@@ -516,6 +606,7 @@ public class MaxwellConfig extends AbstractConfig {
 		outputConfig.includesRowQuery = fetchBooleanOption("output_row_query", options, properties, false);
 		outputConfig.outputDDL	= fetchBooleanOption("output_ddl", options, properties, false);
 		outputConfig.zeroDatesAsNull = fetchBooleanOption("output_null_zerodates", options, properties, false);
+		outputConfig.lazyColumnConversion = fetchBooleanOption("lazy_column_conversion", options, properties, false);
 		this.excludeColumns     = fetchOption("exclude_columns", options, properties, null);
 
 		String encryptionMode = fetchOption("encrypt", options, properties, "none");
@@ -540,6 +631,22 @@ public class MaxwellConfig extends AbstractConfig {
 
 	}
 
+	/*
+	   a source's settings are its own file laid over ours; command line options
+	   still apply to every source.  Sources report into our metric registries.
+	 */
+	private MaxwellConfig buildSourceConfig(OptionSet options, Properties properties, String filename) {
+		Properties sourceProperties = new Properties();
+		sourceProperties.putAll(properties);
+		sourceProperties.putAll(parseFile(filename, true));
+
+		MaxwellConfig source = new MaxwellConfig();
+		source.setup(options, sourceProperties);
+		source.metricRegistry = this.metricRegistry;
+		source.healthCheckRegistry = this.healthCheckRegistry;
+		return source;
+	}
+
 	private Properties parseFile(String filename, Boolean abortOnMissing) {
 		Properties p = readPropertiesFile(filename, abortOnMissing);
 
@@ -686,6 +793,22 @@ public class MaxwellConfig extends AbstractConfig {
 			usageForOptions("There is no need to perform master_recovery under gtid_mode", "--gtid_mode");
 		}
 
+		if ( this.masterRecoveryThreads < 1 ) {
+			usageForOptions("please specify --master_recovery_threads=N, where N is at least 1", "--master_recovery_threads");
+		}
+
+		if ( this.schemaCaptureThreads < 1 ) {
+			usageForOptions("please specify --schema_capture_threads=N, where N is at least 1", "--schema_capture_threads");
+		}
+
+		if ( this.schemaCompactionChainLength < 0 ) {
+			usageForOptions("please specify --schema_compaction_chain_length=N, where N is 0 or more", "--schema_compaction_chain_length");
+		}
+
+		if ( this.localStoreDir != null && masterRecovery ) {
+			usageForOptions("master_recovery needs heartbeats written to the maxwell database, and can't be used with local_store_dir", "--master_recovery", "--local_store_dir");
+		}
+
 		if (outputConfig.includesGtidPosition && !gtidMode) {
 			usageForOptions("output_gtid_position is only support with gtid mode.", "--output_gtid_position");
 		}
@@ -727,6 +850,52 @@ public class MaxwellConfig extends AbstractConfig {
 			this.bootstrapperType = "none";
 		}
 
+		if ( this.localStoreDir != null && !this.bootstrapperType.equals("none") ) {
+			LOGGER.warn("disabling bootstrapping; it needs the maxwell database, which local_store_dir does without.");
+			this.bootstrapperType = "none";
+		}
+
+		if ( this.binlogFiles != null && !new File(this.binlogFiles).exists() ) {
+			usageForOptions("--binlog_files: no such file or directory: " + this.binlogFiles, "--binlog_files");
+		}
+
+		// the files needn't come from the server the stores belong to, so leave those alone
+		if ( this.binlogFiles != null && !this.replayMode ) {
+			LOGGER.info("--binlog_files implies --replay: not storing a binlog position or schema changes.");
+			this.replayMode = true;
+		}
+
+		if ( !this.sources.isEmpty() ) {
+			if ( this.binlogFiles != null )
+				usageForOptions("--binlog_files can't be combined with --sources", "--binlog_files", "--sources");
+
+			Set<String> clientIDs = new HashSet<>();
+			for ( MaxwellConfig source : this.sources ) {
+				if ( !clientIDs.add(source.clientID) )
+					usageForOptions("each source needs its own client_id, but '" + source.clientID + "' is used more than once", "--sources", "--client_id");
+			}
+		}
+
+		if ( this.decodeThreads < 1 ) {
+			usageForOptions("please specify --decode_threads=N, where N is at least 1", "--decode_threads");
+		}
+
+		if ( this.transactionStreamThreshold < 0 ) {
+			usageForOptions("please specify --transaction_stream_threshold=N, where N is 0 (disabled) or a number of rows", "--transaction_stream_threshold");
+		}
+
+		if ( this.eventQueueSize < 1 ) {
+			usageForOptions("please specify --binlog_event_queue_size=N, where N is at least 1", "--binlog_event_queue_size");
+		}
+
+		if ( this.pipelineConfig.queueSize < 1 ) {
+			usageForOptions("please specify --pipeline_queue_size=N, where N is at least 1", "--pipeline_queue_size");
+		}
+
+		if ( this.pipelineConfig.serializeThreads < 1 ) {
+			usageForOptions("please specify --serialize_threads=N, where N is at least 1", "--serialize_threads");
+		}
+
 		if ( this.javascriptFile != null ) {
 			try {
 				this.scripting = new Scripting(this.javascriptFile);
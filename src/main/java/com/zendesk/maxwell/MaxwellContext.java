@@ -10,23 +10,30 @@ import com.zendesk.maxwell.producer.*;
 import com.zendesk.maxwell.recovery.RecoveryInfo;
 import com.zendesk.maxwell.replication.*;
 import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.errors.DuplicateProcessException;
+import com.zendesk.maxwell.schema.LocalStore;
 import com.zendesk.maxwell.schema.MysqlPositionStore;
+import com.zendesk.maxwell.schema.PositionStore;
 import com.zendesk.maxwell.schema.PositionStoreThread;
 import com.zendesk.maxwell.schema.ReadOnlyMysqlPositionStore;
 import com.zendesk.maxwell.util.StoppableTask;
 import com.zendesk.maxwell.util.TaskManager;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import snaq.db.ConnectionPool;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MaxwellContext {
@@ -36,9 +43,12 @@ public class MaxwellContext {
 	private final ConnectionPool maxwellConnectionPool;
 	private final ConnectionPool rawMaxwellConnectionPool;
 	private final ConnectionPool schemaConnectionPool;
+	private final boolean ownsMaxwellConnectionPools;
 	private final MaxwellConfig config;
-	private final MaxwellMetrics metrics;
-	private final MysqlPositionStore positionStore;
+	private final MaxwellContext parent;
+	private final Metrics metrics;
+	private final PositionStore positionStore;
+	private final LocalStore localStore;
 	private PositionStoreThread positionStoreThread;
 	private Long serverID;
 	private Position initialPosition;
@@ -54,11 +64,28 @@ public class MaxwellContext {
 	private final HeartbeatNotifier heartbeatNotifier;
 	private final MaxwellDiagnosticContext diagnosticContext;
 
+	/* shared between the sources of a multi-source maxwell, owned by their parent */
+	private ExecutorService decodeExecutor;
+	private KafkaProducer<String, String> sharedKafkaClient;
+
 	public MaxwellContext(MaxwellConfig config) throws SQLException, URISyntaxException {
+		this(config, null);
+	}
+
+	/**
+	 * @param config the configuration of this context's replicator
+	 * @param parent for one of several sources replicating in the same process, the context
+	 *               whose producer client, maxwell connections, decode threads and metrics it shares.
+	 */
+	public MaxwellContext(MaxwellConfig config, MaxwellContext parent) throws SQLException, URISyntaxException {
 		this.config = config;
+		this.parent = parent;
 		this.config.validate();
 		this.taskManager = new TaskManager();
-		this.metrics = new MaxwellMetrics(config);
+		if ( parent == null )
+			this.metrics = new MaxwellMetrics(config);
+		else
+			this.metrics = new SourceMetrics(parent.getMetrics(), config.clientID);
 
 		this.replicationConnectionPool = new ConnectionPool("ReplicationConnectionPool", 10, 0, 10,
 				config.replicationMysql.getConnectionURI(false), config.replicationMysql.user, config.replicationMysql.password);
@@ -76,25 +103,55 @@ public class MaxwellContext {
 					config.schemaMysql.password);
 		}
 
-		this.rawMaxwellConnectionPool = new ConnectionPool("RawMaxwellConnectionPool", 1, 2, 100,
-			config.maxwellMysql.getConnectionURI(false), config.maxwellMysql.user, config.maxwellMysql.password);
+		if ( parent != null && config.maxwellMysql.equals(parent.config.maxwellMysql) ) {
+			this.rawMaxwellConnectionPool = parent.rawMaxwellConnectionPool;
+			this.maxwellConnectionPool = parent.maxwellConnectionPool;
+			this.ownsMaxwellConnectionPools = false;
+		} else {
+			this.rawMaxwellConnectionPool = new ConnectionPool("RawMaxwellConnectionPool", 1, 2, 100,
+				config.maxwellMysql.getConnectionURI(false), config.maxwellMysql.user, config.maxwellMysql.password);
 
-		this.maxwellConnectionPool = new ConnectionPool("MaxwellConnectionPool", 10, 0, 10,
-					config.maxwellMysql.getConnectionURI(), config.maxwellMysql.user, config.maxwellMysql.password);
-		this.maxwellConnectionPool.setCaching(false);
+			this.maxwellConnectionPool = new ConnectionPool("MaxwellConnectionPool", 10, 0, 10,
+						config.maxwellMysql.getConnectionURI(), config.maxwellMysql.user, config.maxwellMysql.password);
+			this.maxwellConnectionPool.setCaching(false);
+			this.ownsMaxwellConnectionPools = true;
+		}
 
 		if ( this.config.initPosition != null )
 			this.initialPosition = this.config.initPosition;
 
-		if ( this.config.replayMode ) {
+		// a multi-source parent doesn't replicate, its sources open their own stores
+		if ( this.config.localStoreDir != null && this.config.sources.isEmpty() ) {
+			this.localStore = openLocalStore();
+			this.positionStore = this.localStore;
+		} else if ( this.config.replayMode ) {
+			this.localStore = null;
 			this.positionStore = new ReadOnlyMysqlPositionStore(this.getMaxwellConnectionPool(), this.getServerID(), this.config.clientID, config.gtidMode);
 		} else {
+			this.localStore = null;
 			this.positionStore = new MysqlPositionStore(this.getMaxwellConnectionPool(), this.getServerID(), this.config.clientID, config.gtidMode);
 		}
 
 		this.heartbeatNotifier = new HeartbeatNotifier();
-		List<MaxwellDiagnostic> diagnostics = new ArrayList<>(Collections.singletonList(new BinlogConnectorDiagnostic(this)));
-		this.diagnosticContext = new MaxwellDiagnosticContext(config.diagnosticConfig, diagnostics);
+		if ( parent != null ) {
+			// sources report through their parent's http server
+			this.diagnosticContext = parent.diagnosticContext;
+			this.diagnosticContext.diagnostics.add(new BinlogConnectorDiagnostic(this));
+		} else {
+			List<MaxwellDiagnostic> diagnostics = new CopyOnWriteArrayList<>();
+			if ( config.sources.isEmpty() )
+				diagnostics.add(new BinlogConnectorDiagnostic(this));
+			this.diagnosticContext = new MaxwellDiagnosticContext(config.diagnosticConfig, diagnostics);
+		}
+	}
+
+	private LocalStore openLocalStore() throws SQLException {
+		File file = new File(config.localStoreDir, config.clientID + ".log");
+		try {
+			return new LocalStore(file, getServerID(), config.gtidMode, getCaseSensitivity(), config.replayMode);
+		} catch ( IOException | DuplicateProcessException e ) {
+			throw new RuntimeException("Could not open local store " + file + ": " + e.getMessage(), e);
+		}
 	}
 
 	public MaxwellConfig getConfig() {
@@ -125,7 +182,10 @@ public class MaxwellContext {
 	}
 
 	public void start() throws IOException {
-		MaxwellHTTPServer.startIfRequired(this);
+		if ( parent == null )
+			MaxwellHTTPServer.startIfRequired(this);
+		else
+			MaxwellHTTPServer.registerSource(this);
 		getPositionStoreThread(); // boot up thread explicitly.
 	}
 
@@ -163,9 +223,19 @@ public class MaxwellContext {
 	private void shutdown(AtomicBoolean complete) {
 		try {
 			taskManager.stop(this.error);
+			if ( this.localStore != null )
+				this.localStore.close();
 			this.replicationConnectionPool.release();
-			this.maxwellConnectionPool.release();
-			this.rawMaxwellConnectionPool.release();
+			if ( this.ownsMaxwellConnectionPools ) {
+				this.maxwellConnectionPool.release();
+				this.rawMaxwellConnectionPool.release();
+			}
+			synchronized ( this ) {
+				if ( this.decodeExecutor != null )
+					this.decodeExecutor.shutdownNow();
+				if ( this.sharedKafkaClient != null )
+					this.sharedKafkaClient.close();
+			}
 			complete.set(true);
 		} catch (Exception e) {
 			LOGGER.error("Exception occurred during shutdown:", e);
@@ -218,7 +288,8 @@ public class MaxwellContext {
 		}
 
 		if (taskManager.requestStop()) {
-			if (this.error == null && this.replicator != null) {
+			// a local store's heartbeats never reach the binlog for the replicator to stop at
+			if (this.error == null && this.replicator != null && this.localStore == null) {
 				sendFinalHeartbeat();
 			}
 			this.terminationThread = spawnTerminateThread();
@@ -269,10 +340,17 @@ public class MaxwellContext {
 		return this.getPositionStoreThread().getPosition();
 	}
 
-	public MysqlPositionStore getPositionStore() {
+	public PositionStore getPositionStore() {
 		return this.positionStore;
 	}
 
+	/**
+	 * @return where schemas and positions are kept under --local_store_dir, or null when they're in mysql
+	 */
+	public LocalStore getLocalStore() {
+		return this.localStore;
+	}
+
 	public Long getServerID() throws SQLException {
 		if ( this.serverID != null)
 			return this.serverID;
@@ -417,7 +495,8 @@ public class MaxwellContext {
 	}
 
 	public void probeConnections() throws SQLException, URISyntaxException {
-		probePool(this.rawMaxwellConnectionPool, this.config.maxwellMysql.getConnectionURI(false));
+		if ( this.config.localStoreDir == null )
+			probePool(this.rawMaxwellConnectionPool, this.config.maxwellMysql.getConnectionURI(false));
 
 		if ( this.maxwellConnectionPool != this.replicationConnectionPool )
 			probePool(this.replicationConnectionPool, this.config.replicationMysql.getConnectionURI());
@@ -432,6 +511,38 @@ public class MaxwellContext {
 		return metrics;
 	}
 
+	/**
+	 * @return the decode pool a source's replicator shares with the other sources, or null
+	 *         when each replicator (there's only one) manages its own.
+	 */
+	public synchronized ExecutorService getDecodeExecutor() {
+		if ( parent != null )
+			return parent.getDecodeExecutor();
+
+		if ( config.sources.isEmpty() || config.decodeThreads <= 1 )
+			return null;
+
+		if ( decodeExecutor == null )
+			decodeExecutor = ParallelRowDecoder.newExecutor(config.decodeThreads);
+		return decodeExecutor;
+	}
+
+	/**
+	 * @return a kafka client shared by every source whose kafka settings match the parent's,
+	 *         or null if the producer should build its own.  Shared clients are closed by the parent.
+	 */
+	public synchronized KafkaProducer<String, String> getSharedKafkaClient(Properties kafkaProperties) {
+		if ( parent != null )
+			return parent.getSharedKafkaClient(kafkaProperties);
+
+		if ( config.sources.isEmpty() || !config.getKafkaProperties().equals(kafkaProperties) )
+			return null;
+
+		if ( sharedKafkaClient == null )
+			sharedKafkaClient = new KafkaProducer<>(kafkaProperties, new StringSerializer(), new StringSerializer());
+		return sharedKafkaClient;
+	}
+
 	public HeartbeatNotifier getHeartbeatNotifier() {
 		return heartbeatNotifier;
 	}
@@ -0,0 +1,89 @@
+package com.zendesk.maxwell;
+
+import com.zendesk.maxwell.monitoring.MaxwellHTTPServer;
+import com.zendesk.maxwell.schema.SchemaStoreSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+   runs one replicator per configured source in a single process.
+
+   every source is a full Maxwell with its own client_id, schema store and
+   position store; what they share lives in the parent context -- the
+   maxwell database's connection pools, the kafka client, the decode thread
+   pool, the metric registries and the http server.  If any source dies, we
+   take the others down with it.
+ */
+public class MultiSourceMaxwell {
+	static final Logger LOGGER = LoggerFactory.getLogger(MultiSourceMaxwell.class);
+
+	private final MaxwellContext context;
+	private final List<Maxwell> sources = new ArrayList<>();
+
+	public MultiSourceMaxwell(MaxwellConfig config) throws SQLException, URISyntaxException {
+		this.context = new MaxwellContext(config);
+		this.context.probeConnections();
+
+		for ( MaxwellConfig sourceConfig : config.sources )
+			sources.add(new Maxwell(new MaxwellContext(sourceConfig, context)));
+	}
+
+	public void start() throws Exception {
+		// do the one-time setup up front, instead of having every source race through it
+		if ( context.getConfig().localStoreDir == null ) {
+			try ( Connection rawConnection = context.getRawMaxwellConnection() ) {
+				MaxwellMysqlStatus.ensureMaxwellMysqlState(rawConnection);
+				SchemaStoreSchema.ensureMaxwellSchema(rawConnection, context.getConfig().databaseName);
+
+				try ( Connection schemaConnection = context.getMaxwellConnection() ) {
+					SchemaStoreSchema.upgradeSchemaStoreSchema(schemaConnection);
+				}
+			}
+		}
+
+		MaxwellHTTPServer.startIfRequired(context);
+		LOGGER.info("starting " + sources.size() + " sources");
+
+		List<Thread> threads = new ArrayList<>();
+		for ( final Maxwell maxwell : sources ) {
+			Thread thread = new Thread(() -> {
+				maxwell.run();
+				if ( maxwell.context.getError() != null )
+					terminate();
+			}, "maxwell-source-" + maxwell.config.clientID);
+			thread.start();
+			threads.add(thread);
+		}
+
+		for ( Thread thread : threads )
+			thread.join();
+
+		terminate();
+
+		for ( Maxwell maxwell : sources ) {
+			Exception error = maxwell.context.getError();
+			if ( error != null )
+				throw error;
+		}
+	}
+
+	public void terminate() {
+		for ( Maxwell maxwell : sources )
+			maxwell.terminate();
+
+		Thread terminationThread = context.terminate();
+		if ( terminationThread != null ) {
+			try {
+				terminationThread.join();
+			} catch ( InterruptedException e ) {
+				// ignore
+			}
+		}
+	}
+}
@@ -57,4 +57,9 @@ public abstract class AbstractBootstrapper {
 	public abstract boolean isRunning();
 
 	public abstract void work(RowMap row, AbstractProducer producer, Replicator replicator) throws Exception;
+
+	/*
+	   called as the replicator stops; release anything held on disk.
+	 */
+	public void shutdown() throws IOException { }
 }
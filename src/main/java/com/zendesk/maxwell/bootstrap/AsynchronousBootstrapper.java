@@ -30,7 +30,7 @@ public class AsynchronousBootstrapper extends AbstractBootstrapper {
 
 	public AsynchronousBootstrapper( MaxwellContext context ) throws IOException {
 		super(context);
-		skippedRows = new RowMapBufferByTable();
+		skippedRows = new RowMapBufferByTable(context.getConfig().diskBufferConfig);
 	}
 
 	protected SynchronousBootstrapper getSynchronousBootstrapper( ) {
@@ -135,6 +135,7 @@ public class AsynchronousBootstrapper extends AbstractBootstrapper {
 			if ( bootstrapStartBinlogPosition == null || row.getPosition().getBinlogPosition().newerThan(bootstrapStartBinlogPosition) )
 				producer.push(row);
 		}
+		skippedRows.close(databaseName, tableName);
 		LOGGER.info("async bootstrapping: replay complete");
 	}
 
@@ -168,6 +169,11 @@ public class AsynchronousBootstrapper extends AbstractBootstrapper {
 		return thread != null || queue.size() > 0;
 	}
 
+	@Override
+	public void shutdown() throws IOException {
+		skippedRows.close();
+	}
+
 	@Override
 	public void work(RowMap row, AbstractProducer producer, Replicator replicator) throws Exception {
 		if ( isStartBootstrapRow(row) ) {
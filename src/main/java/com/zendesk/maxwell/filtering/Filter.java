@@ -71,6 +71,18 @@ public class Filter {
 		return false;
 	}
 
+	/*
+		like the above, but for when we don't know the table's columns;
+		true if any column filter could include rows from this table.
+	 */
+	public boolean couldIncludeFromColumnFilters(String database, String table) {
+		for ( FilterPattern p : patterns ) {
+			if ( p.couldIncludeColumn(database, table) )
+				return true;
+		}
+		return false;
+	}
+
 
 	public boolean isTableBlacklisted(String database, String table) {
 		if ( isSystemBlacklisted(database, table) )
@@ -124,6 +136,25 @@ public class Filter {
 		}
 	}
 
+	/**
+	 * Is there no row in this table that the filter could ever output?
+	 *
+	 * This is decided from the names alone, before we know anything about the
+	 * table's schema or its row data, so it errs on the side of keeping rows.
+	 */
+	public static boolean rejectsTable(Filter filter, String database, String table) {
+		if ( isSystemBlacklisted(database, table) )
+			return true;
+		else if ( filter == null || filter.isSystemWhitelisted(database, table) )
+			return false;
+		else if ( filter.isTableBlacklisted(database, table) )
+			return true;
+		else if ( filter.includes(database, table) )
+			return false;
+		else
+			return !filter.couldIncludeFromColumnFilters(database, table);
+	}
+
 	public static boolean couldIncludeFromColumnFilters(Filter filter, String database, String table, Set<String> columnNames) {
 		if (filter == null) {
 			return false;
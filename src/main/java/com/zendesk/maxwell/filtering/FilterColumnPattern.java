@@ -62,6 +62,12 @@ public class FilterColumnPattern extends FilterPattern {
 			&& columns.contains(columnName);
 	}
 
+	@Override
+	public boolean couldIncludeColumn(String database, String table) {
+		return type == FilterPatternType.INCLUDE
+			&& appliesTo(database, table);
+	}
+
 	@Override
 	public String toString() {
 		String filterString = super.toString();
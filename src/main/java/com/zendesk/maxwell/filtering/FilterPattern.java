@@ -73,4 +73,8 @@ public class FilterPattern {
 	public boolean couldIncludeColumn(String database, String table, Set<String> columns) {
 		return false;
 	}
+
+	public boolean couldIncludeColumn(String database, String table) {
+		return false;
+	}
 }
@@ -0,0 +1,138 @@
+package com.zendesk.maxwell.monitoring;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+   a dropwizard Reservoir backed by an HdrHistogram, so that timers report
+   accurate high percentiles instead of a sample of ~1000 values.
+
+   recording is a lock-free write into a Recorder.  Snapshots cover the values
+   recorded in the current window plus the whole previous one, so every reader
+   (reporters, /metrics, /prometheus) sees the same recent history no matter
+   how often they look.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+	private static final int SIGNIFICANT_DIGITS = 3;
+	private static final long DEFAULT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+	private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+	private final long windowNanos;
+
+	private Histogram interval;
+	private Histogram current = new Histogram(SIGNIFICANT_DIGITS);
+	private Histogram previous = new Histogram(SIGNIFICANT_DIGITS);
+	private long windowStartedAt = System.nanoTime();
+
+	public HdrHistogramReservoir() {
+		this(DEFAULT_WINDOW_NANOS);
+	}
+
+	public HdrHistogramReservoir(long windowNanos) {
+		this.windowNanos = windowNanos;
+	}
+
+	@Override
+	public void update(long value) {
+		recorder.recordValue(Math.max(0L, value));
+	}
+
+	@Override
+	public int size() {
+		return getSnapshot().size();
+	}
+
+	@Override
+	public synchronized Snapshot getSnapshot() {
+		interval = recorder.getIntervalHistogram(interval);
+		current.add(interval);
+
+		long now = System.nanoTime();
+		if ( now - windowStartedAt >= windowNanos ) {
+			previous = current;
+			current = new Histogram(SIGNIFICANT_DIGITS);
+			windowStartedAt = now;
+		}
+
+		Histogram merged = previous.copy();
+		merged.add(current);
+		return new HdrSnapshot(merged);
+	}
+
+	static class HdrSnapshot extends Snapshot {
+		private final Histogram histogram;
+
+		HdrSnapshot(Histogram histogram) {
+			this.histogram = histogram;
+		}
+
+		@Override
+		public double getValue(double quantile) {
+			return histogram.getValueAtPercentile(quantile * 100.0);
+		}
+
+		/**
+		 * one entry per distinct (bucketed) value recorded, not per recording
+		 */
+		@Override
+		public long[] getValues() {
+			long[] values = new long[(int) Math.min(Integer.MAX_VALUE, countDistinct())];
+			int i = 0;
+			for ( HistogramIterationValue v : histogram.recordedValues() ) {
+				if ( i == values.length )
+					break;
+				values[i++] = v.getValueIteratedTo();
+			}
+			return values;
+		}
+
+		private long countDistinct() {
+			long n = 0;
+			for ( HistogramIterationValue v : histogram.recordedValues() )
+				n++;
+			return n;
+		}
+
+		@Override
+		public int size() {
+			return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+		}
+
+		@Override
+		public long getMax() {
+			return histogram.getMaxValue();
+		}
+
+		@Override
+		public double getMean() {
+			return histogram.getMean();
+		}
+
+		@Override
+		public long getMin() {
+			return histogram.getMinValue();
+		}
+
+		@Override
+		public double getStdDev() {
+			return histogram.getStdDeviation();
+		}
+
+		@Override
+		public void dump(OutputStream output) {
+			try ( PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)) ) {
+				for ( long value : getValues() )
+					out.printf("%d%n", value);
+			}
+		}
+	}
+}
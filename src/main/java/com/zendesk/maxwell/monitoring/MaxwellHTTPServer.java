@@ -50,13 +50,23 @@ public class MaxwellHTTPServer {
 		MaxwellConfig config = context.getConfig();
 		String reportingType = config.metricsReportingType;
 		if (reportingType != null && reportingType.contains(reportingTypeHttp)) {
-			config.healthCheckRegistry.register("MaxwellHealth", new MaxwellHealthCheck(context.getProducer()));
+			// with several sources, each one registers its own health check
+			if (config.sources.isEmpty())
+				config.healthCheckRegistry.register("MaxwellHealth", new MaxwellHealthCheck(context.getProducer()));
 			return new MaxwellMetrics.Registries(config.metricRegistry, config.healthCheckRegistry);
 		} else {
 			return null;
 		}
 	}
 
+	public static void registerSource(MaxwellContext context) throws IOException {
+		MaxwellConfig config = context.getConfig();
+		String reportingType = config.metricsReportingType;
+		if (reportingType != null && reportingType.contains(reportingTypeHttp)) {
+			config.healthCheckRegistry.register("MaxwellHealth." + config.clientID, new MaxwellHealthCheck(context.getProducer()));
+		}
+	}
+
 	private static MaxwellDiagnosticContext getDiagnosticContext(MaxwellContext context) {
 		MaxwellDiagnosticContext.Config diagnosticConfig = context.getConfig().diagnosticConfig;
 		if (diagnosticConfig.enable) {
@@ -0,0 +1,36 @@
+package com.zendesk.maxwell.monitoring;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+/*
+   the metrics of one source in a multi-source maxwell: they go to the shared
+   registry (and so the shared reporters), named <prefix>.<client_id>.<metric>.
+ */
+public class SourceMetrics implements Metrics {
+	private final Metrics parent;
+	private final String source;
+
+	public SourceMetrics(Metrics parent, String source) {
+		this.parent = parent;
+		this.source = source;
+	}
+
+	@Override
+	public String metricName(String... names) {
+		String[] sourceNames = new String[names.length + 1];
+		sourceNames[0] = source;
+		System.arraycopy(names, 0, sourceNames, 1, names.length);
+		return parent.metricName(sourceNames);
+	}
+
+	@Override
+	public MetricRegistry getRegistry() {
+		return parent.getRegistry();
+	}
+
+	@Override
+	public <T extends Metric> void register(String name, T metric) throws IllegalArgumentException {
+		parent.register(name, metric);
+	}
+}
@@ -0,0 +1,113 @@
+package com.zendesk.maxwell.monitoring;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.zendesk.maxwell.row.RowMap;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+   where a row's time goes, as HdrHistogram-backed timers:
+
+     latency.queue               received from mysql -> picked up by the replicator
+     latency.decode              picked up -> converted to a RowMap and filtered
+     latency.serialize           converted -> rendered as JSON (includes javascript and pipeline waits)
+     latency.<producer>.send     rendered -> handed to the producer's client
+     latency.<producer>.ack      handed over -> acknowledged by the destination
+     latency.<producer>.end_to_end  written to the binlog -> acknowledged.  Binlog timestamps only
+                                    have second resolution, so this one is +/- 500ms.
+
+   the replicator and pipeline record queue, decode and serialize as they
+   take those marks, whatever the producer.  Only async producers have an
+   ack to measure against, so they keep a StageLatency.Producer for the rest.
+
+   `latency.receive` (binlog -> received by maxwell) is recorded by the binlog listener.
+ */
+public class StageLatency {
+	private final Timer queue, decode, serialize;
+
+	public StageLatency(Metrics metrics) {
+		this.queue = timer(metrics, "latency", "queue");
+		this.decode = timer(metrics, "latency", "decode");
+		this.serialize = timer(metrics, "latency", "serialize");
+	}
+
+	/**
+	 * find or register an HdrHistogram-backed timer.
+	 */
+	public static Timer timer(Metrics metrics, String... names) {
+		MetricRegistry registry = metrics.getRegistry();
+		String name = metrics.metricName(names);
+
+		synchronized ( registry ) {
+			Timer timer = registry.getTimers().get(name);
+			if ( timer == null )
+				timer = registry.register(name, new Timer(new HdrHistogramReservoir()));
+			return timer;
+		}
+	}
+
+	/**
+	 * record latency.queue and latency.decode for a freshly decoded row.
+	 */
+	public void decoded(RowMap row) {
+		update(queue, row.getReceivedAtNanos(), row.getDequeuedAtNanos());
+		update(decode, row.getDequeuedAtNanos(), row.getDecodedAtNanos());
+	}
+
+	/**
+	 * record latency.serialize, once the row has been rendered.  Rows that weren't are skipped.
+	 */
+	public void serialized(RowMap row) {
+		update(serialize, row.getDecodedAtNanos(), row.getSerializedAtNanos());
+	}
+
+	/**
+	 * A row's marks, copied out when it's handed to the producer's client
+	 * so that we don't hold on to the row until it's acknowledged.
+	 */
+	public static class Sample {
+		private final long eventTimeMS, serializedAt;
+		private volatile long sentAt;
+
+		public Sample(RowMap row) {
+			this.eventTimeMS = row.getTimestampMillis();
+			this.serializedAt = row.getSerializedAtNanos();
+		}
+
+		/**
+		 * mark the row as handed to the client; only the first call counts.
+		 */
+		public void sent() {
+			if ( sentAt == 0 )
+				sentAt = System.nanoTime();
+		}
+	}
+
+	/* the timers that need an acknowledgement from the destination */
+	public static class Producer {
+		private final Timer send, ack, endToEnd;
+
+		public Producer(Metrics metrics, String producer) {
+			this.send = timer(metrics, "latency", producer, "send");
+			this.ack = timer(metrics, "latency", producer, "ack");
+			this.endToEnd = timer(metrics, "latency", producer, "end_to_end");
+		}
+
+		public void acked(Sample s) {
+			long ackedAt = System.nanoTime();
+			// an ack can beat the send mark when the client answers before returning
+			long sentAt = s.sentAt;
+
+			update(send, s.serializedAt, sentAt);
+			update(ack, sentAt, ackedAt);
+			endToEnd.update(Math.max(0L, System.currentTimeMillis() - s.eventTimeMS - 500L), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/* rows that skipped a stage (bootstrap rows, DDL...) leave its marks at 0 */
+	private static void update(Timer timer, long from, long to) {
+		if ( from != 0 && to != 0 )
+			timer.update(Math.max(0L, to - from), TimeUnit.NANOSECONDS);
+	}
+}
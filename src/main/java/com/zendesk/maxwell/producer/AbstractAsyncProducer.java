@@ -3,12 +3,19 @@ package com.zendesk.maxwell.producer;
 import com.codahale.metrics.Gauge;
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.monitoring.Metrics;
+import com.zendesk.maxwell.monitoring.StageLatency;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.RowMap;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractAsyncProducer extends AbstractProducer {
+	// rows handed to sendAsyncBatch() at once; well under InflightMessageList's capacity,
+	// since we hold a slot for each row until the batch goes out
+	private static final int SEND_BATCH_SIZE = 100;
 
 	public class CallbackCompleter {
 		private InflightMessageList inflightMessages;
@@ -16,17 +23,33 @@ public abstract class AbstractAsyncProducer extends AbstractProducer {
 		private final Position position;
 		private final boolean isTXCommit;
 		private final long messageID;
+		private final StageLatency.Sample latencySample;
 
 		public CallbackCompleter(InflightMessageList inflightMessages, Position position, boolean isTXCommit, MaxwellContext context, long messageID) {
+			this(inflightMessages, position, isTXCommit, context, messageID, null);
+		}
+
+		public CallbackCompleter(InflightMessageList inflightMessages, Position position, boolean isTXCommit, MaxwellContext context, long messageID, StageLatency.Sample latencySample) {
 			this.inflightMessages = inflightMessages;
 			this.context = context;
 			this.position = position;
 			this.isTXCommit = isTXCommit;
 			this.messageID = messageID;
+			this.latencySample = latencySample;
+		}
+
+		/**
+		 * the row has been handed to the producer's client.
+		 */
+		public void markSent() {
+			if ( latencySample != null )
+				latencySample.sent();
 		}
 
 		public void markCompleted() {
 			inflightMessages.freeSlot(messageID);
+			if ( latencySample != null )
+				stageLatency.acked(latencySample);
 			if(isTXCommit) {
 				InflightMessageList.InflightMessage message = inflightMessages.completeMessage(position);
 
@@ -41,6 +64,7 @@ public abstract class AbstractAsyncProducer extends AbstractProducer {
 	}
 
 	private InflightMessageList inflightMessages;
+	private final StageLatency.Producer stageLatency;
 
 	public AbstractAsyncProducer(MaxwellContext context) {
 		super(context);
@@ -48,37 +72,90 @@ public abstract class AbstractAsyncProducer extends AbstractProducer {
 		this.inflightMessages = new InflightMessageList(context);
 
 		Metrics metrics = context.getMetrics();
+		String producerType = context.getConfig().producerType;
+		this.stageLatency = new StageLatency.Producer(metrics, producerType == null ? "custom" : producerType);
+
 		String gaugeName = metrics.metricName("inflightmessages", "count");
 		metrics.register(gaugeName, (Gauge<Long>) () -> (long) inflightMessages.size());
 	}
 
 	public abstract void sendAsync(RowMap r, CallbackCompleter cc) throws Exception;
 
+	/**
+	 * Send a run of rows, each with its own completer.  Producers whose
+	 * client can take several messages in one request should override this.
+	 */
+	protected void sendAsyncBatch(List<RowMap> rows, List<CallbackCompleter> callbacks) throws Exception {
+		for ( int i = 0; i < rows.size(); i++ ) {
+			sendAsync(rows.get(i), callbacks.get(i));
+			callbacks.get(i).markSent();
+		}
+	}
+
 	@Override
 	public final void push(RowMap r) throws Exception {
-		Position position = r.getNextPosition();
-		// Rows that do not get sent to a target will be automatically marked as complete.
-		// We will attempt to commit a checkpoint up to the current row.
-		if(!r.shouldOutput(outputConfig)) {
-			inflightMessages.addMessage(position, r.getTimestampMillis(), 0L);
-
-			InflightMessageList.InflightMessage completed = inflightMessages.completeMessage(position);
-			if(completed != null) {
-				context.setPosition(completed.position);
+		pushBatch(Collections.singletonList(r));
+	}
+
+	@Override
+	public final void pushBatch(List<RowMap> rows) throws Exception {
+		List<RowMap> sends = new ArrayList<>();
+		List<CallbackCompleter> callbacks = new ArrayList<>();
+		Position completedPosition = null;
+
+		for ( RowMap r : rows ) {
+			Position position = r.getNextPosition();
+			// Rows that do not get sent to a target will be automatically marked as complete.
+			// We will attempt to commit a checkpoint up to the current row.
+			if(!r.shouldOutput(outputConfig)) {
+				inflightMessages.addMessage(position, r.getTimestampMillis(), 0L);
+
+				InflightMessageList.InflightMessage completed = inflightMessages.completeMessage(position);
+				if(completed != null) {
+					completedPosition = completed.position;
+				}
+				continue;
 			}
-			return;
-		}
 
-		// back-pressure from slow producers
+			if ( sends.size() == SEND_BATCH_SIZE ) {
+				completedPosition = storePosition(completedPosition);
+				sendBatch(sends, callbacks);
+				sends = new ArrayList<>();
+				callbacks = new ArrayList<>();
+			}
+
+			// back-pressure from slow producers
+
+			long messageID = inflightMessages.waitForSlot();
 
-		long messageID = inflightMessages.waitForSlot();
+			if(r.isTXCommit()) {
+				inflightMessages.addMessage(position, r.getTimestampMillis(), messageID);
+			}
+
+			// render now, so the send latency doesn't count serialization; sendAsync() gets the cached JSON
+			r.prerender(outputConfig);
+			StageLatency.Sample sample = new StageLatency.Sample(r);
 
-		if(r.isTXCommit()) {
-			inflightMessages.addMessage(position, r.getTimestampMillis(), messageID);
+			sends.add(r);
+			callbacks.add(new CallbackCompleter(inflightMessages, position, r.isTXCommit(), context, messageID, sample));
 		}
 
-		CallbackCompleter cc = new CallbackCompleter(inflightMessages, position, r.isTXCommit(), context, messageID);
+		// store before sending, so that a fast acknowledgement can't be overwritten by an older position
+		storePosition(completedPosition);
+		if ( !sends.isEmpty() )
+			sendBatch(sends, callbacks);
+	}
+
+	/* rows the batch didn't mark as sent one by one are sent once it returns */
+	private void sendBatch(List<RowMap> rows, List<CallbackCompleter> callbacks) throws Exception {
+		sendAsyncBatch(rows, callbacks);
+		for ( CallbackCompleter cc : callbacks )
+			cc.markSent();
+	}
 
-		sendAsync(r, cc);
+	private Position storePosition(Position position) {
+		if ( position != null )
+			context.setPosition(position);
+		return null;
 	}
 }
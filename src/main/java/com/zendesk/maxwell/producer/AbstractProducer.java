@@ -10,6 +10,8 @@ import com.zendesk.maxwell.monitoring.Metrics;
 import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.util.StoppableTask;
 
+import java.util.List;
+
 public abstract class AbstractProducer {
 	protected final MaxwellContext context;
 	protected final MaxwellOutputConfig outputConfig;
@@ -37,6 +39,16 @@ public abstract class AbstractProducer {
 
 	abstract public void push(RowMap r) throws Exception;
 
+	/**
+	 * Push a run of rows, in order.  Producers that can send several
+	 * messages (or store a position) at once should override this;
+	 * by default it's just push() for each row.
+	 */
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		for ( RowMap r : rows )
+			push(r);
+	}
+
 	public StoppableTask getStoppableTask() {
 		return null;
 	}
@@ -3,6 +3,7 @@ package com.zendesk.maxwell.producer;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.List;
 
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.row.RowMap;
@@ -29,4 +30,28 @@ public class FileProducer extends AbstractProducer {
 
 		context.setPosition(r);
 	}
+
+	/**
+	 * write the batch with a single flush, then store the position of its last transaction once.
+	 */
+	@Override
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		RowMap lastCommit = null;
+
+		for ( RowMap r : rows ) {
+			String output = r.toJSON(outputConfig);
+
+			if ( output != null ) {
+				this.fileWriter.write(output);
+				this.fileWriter.write('\n');
+			}
+
+			if ( r.isTXCommit() )
+				lastCommit = r;
+		}
+		this.fileWriter.flush();
+
+		if ( lastCommit != null )
+			context.setPosition(lastCommit);
+	}
 }
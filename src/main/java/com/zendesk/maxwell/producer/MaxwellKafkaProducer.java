@@ -20,6 +20,8 @@ import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeoutException;
@@ -114,6 +116,7 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 	static final Logger LOGGER = LoggerFactory.getLogger(MaxwellKafkaProducer.class);
 
 	private final KafkaProducer<String, String> kafka;
+	private final boolean ownsKafka;
 	private String topic;
 	private final String ddlTopic;
 	private final MaxwellKafkaPartitioner partitioner;
@@ -141,7 +144,9 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 		}
 
 		this.interpolateTopic = this.topic.contains("%{");
-		this.kafka = new KafkaProducer<>(kafkaProperties, new StringSerializer(), new StringSerializer());
+		KafkaProducer<String, String> shared = context.getSharedKafkaClient(kafkaProperties);
+		this.ownsKafka = shared == null;
+		this.kafka = ownsKafka ? new KafkaProducer<>(kafkaProperties, new StringSerializer(), new StringSerializer()) : shared;
 
 		String hash = context.getConfig().kafkaPartitionHash;
 		String partitionKey = context.getConfig().producerPartitionKey;
@@ -166,12 +171,14 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 		this.thread = Thread.currentThread();
 		while ( true ) {
 			try {
-				RowMap row = queue.take();
+				List<RowMap> rows = new ArrayList<>();
+				rows.add(queue.take());
+				queue.drainTo(rows);
 				if (!taskState.isRunning()) {
 					taskState.stopped();
 					return;
 				}
-				this.push(row);
+				this.pushBatch(rows);
 			} catch ( Exception e ) {
 				taskState.stopped();
 				context.terminate(e);
@@ -236,7 +243,10 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 	public void requestStop() {
 		taskState.requestStop();
 		// TODO: set a timeout once we drop support for kafka 0.8
-		kafka.close();
+		if ( ownsKafka )
+			kafka.close();
+		else
+			kafka.flush(); // other sources are still using it
 	}
 
 	@Override
@@ -20,6 +20,7 @@ public class MaxwellOutputConfig {
 	public EncryptionMode encryptionMode;
 	public String secretKey;
 	public boolean zeroDatesAsNull;
+	public boolean lazyColumnConversion;
 
 	public MaxwellOutputConfig() {
 		this.includesBinlogPosition = false;
@@ -32,6 +33,7 @@ public class MaxwellOutputConfig {
 		this.includesRowQuery = false;
 		this.outputDDL = false;
 		this.zeroDatesAsNull = false;
+		this.lazyColumnConversion = false;
 		this.excludeColumns = new ArrayList<>();
 		this.encryptionMode = EncryptionMode.ENCRYPT_NONE;
 		this.secretKey = null;
@@ -21,6 +21,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -159,12 +161,14 @@ class MaxwellPubsubProducerWorker
     this.thread = Thread.currentThread();
     while ( true ) {
       try {
-        RowMap row = queue.take();
+        List<RowMap> rows = new ArrayList<>();
+        rows.add(queue.take());
+        queue.drainTo(rows);
         if ( !taskState.isRunning() ) {
           taskState.stopped();
           return;
         }
-        this.push(row);
+        this.pushBatch(rows);
       } catch ( Exception e ) {
         taskState.stopped();
         context.terminate(e);
@@ -1,13 +1,19 @@
 package com.zendesk.maxwell.producer;
 
 import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.util.StoppableTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class MaxwellRedisProducer extends AbstractProducer implements StoppableTask {
 	private static final Logger logger = LoggerFactory.getLogger(MaxwellRedisProducer.class);
 	private final String channel;
@@ -32,62 +38,87 @@ public class MaxwellRedisProducer extends AbstractProducer implements StoppableT
 		}
 	}
 
-	private void sendToRedis(String msg) {
-		switch (redistype) {
-			case "lpush":
-				jedis.lpush(this.listkey, msg);
-				break;
-			case "pubsub":
-			default:
-				jedis.publish(this.channel, msg);
-				break;
+	private void sendToRedis(List<String> msgs) {
+		Pipeline pipeline = jedis.pipelined();
+		for ( String msg : msgs ) {
+			switch (redistype) {
+				case "lpush":
+					pipeline.lpush(this.listkey, msg);
+					break;
+				case "pubsub":
+				default:
+					pipeline.publish(this.channel, msg);
+					break;
+			}
 		}
-		this.succeededMessageCount.inc();
-		this.succeededMessageMeter.mark();
+		pipeline.sync();
+		this.succeededMessageCount.inc(msgs.size());
+		this.succeededMessageMeter.mark(msgs.size());
 	}
 
 	@Override
 	public void push(RowMap r) throws Exception {
-		if ( !r.shouldOutput(outputConfig) ) {
-			context.setPosition(r.getNextPosition());
-			return;
+		pushBatch(Collections.singletonList(r));
+	}
+
+	/**
+	 * send the batch in one pipelined round-trip, then store the position
+	 * of its last transaction once.
+	 */
+	@Override
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		List<String> msgs = new ArrayList<>(rows.size());
+		Position position = null;
+
+		for ( RowMap r : rows ) {
+			if ( !r.shouldOutput(outputConfig) ) {
+				position = r.getNextPosition();
+				continue;
+			}
+
+			msgs.add(r.toJSON(outputConfig));
+			if ( r.isTXCommit() )
+				position = r.getNextPosition();
 		}
 
-		String msg = r.toJSON(outputConfig);
-		for (int cxErrors = 0; cxErrors < 2; cxErrors++) {
-			try {
-				sendToRedis(msg);
-				break;
-			} catch (Exception e) {
-				if (e instanceof JedisConnectionException) {
-					logger.warn("lost connection to server, trying to reconnect...", e);
-					jedis.disconnect();
-					jedis.connect();
-				} else {
-					this.failedMessageCount.inc();
-					this.failedMessageMeter.mark();
-					logger.error("Exception during put", e);
-
-					if (!context.getConfig().ignoreProducerError) {
-						throw new RuntimeException(e);
+		if ( !msgs.isEmpty() ) {
+			for (int cxErrors = 0; cxErrors < 2; cxErrors++) {
+				try {
+					sendToRedis(msgs);
+					break;
+				} catch (Exception e) {
+					if (e instanceof JedisConnectionException) {
+						logger.warn("lost connection to server, trying to reconnect...", e);
+						jedis.disconnect();
+						jedis.connect();
+					} else {
+						this.failedMessageCount.inc(msgs.size());
+						this.failedMessageMeter.mark(msgs.size());
+						logger.error("Exception during put", e);
+
+						if (!context.getConfig().ignoreProducerError) {
+							throw new RuntimeException(e);
+						}
 					}
 				}
 			}
 		}
 
-		if (r.isTXCommit()) {
-			context.setPosition(r.getNextPosition());
+		if ( position != null ) {
+			context.setPosition(position);
 		}
 
 		if (logger.isDebugEnabled()) {
-			switch (redistype) {
-				case "lpush":
-					logger.debug("->  queue:" + listkey + ", msg:" + msg);
-					break;
-				case "pubsub":
-				default:
-					logger.debug("->  channel:" + channel + ", msg:" + msg);
-					break;
+			for ( String msg : msgs ) {
+				switch (redistype) {
+					case "lpush":
+						logger.debug("->  queue:" + listkey + ", msg:" + msg);
+						break;
+					case "pubsub":
+					default:
+						logger.debug("->  channel:" + channel + ", msg:" + msg);
+						break;
+				}
 			}
 		}
 	}
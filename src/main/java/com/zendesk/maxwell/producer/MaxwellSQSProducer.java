@@ -7,13 +7,25 @@ import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.sqs.AmazonSQSAsync;
 import com.amazonaws.services.sqs.AmazonSQSAsyncClient;
 import com.amazonaws.services.sqs.AmazonSQSAsyncClientBuilder;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.RowMap;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 public class MaxwellSQSProducer extends AbstractAsyncProducer {
+	/* SQS takes up to 10 messages, 256KB in all, per SendMessageBatch call */
+	private static final int MAX_BATCH_ENTRIES = 10;
+	private static final int MAX_BATCH_BYTES = 256 * 1024;
 
 	private AmazonSQSAsync client;
 	private String queueUri;
@@ -26,12 +38,44 @@ public class MaxwellSQSProducer extends AbstractAsyncProducer {
 
 	@Override
 	public void sendAsync(RowMap r, CallbackCompleter cc) throws Exception {
-		String value = r.toJSON();
+		String value = r.toJSON(outputConfig);
 		SendMessageRequest messageRequest = new SendMessageRequest(queueUri, value);
 		SQSCallback callback = new SQSCallback(cc, r.getNextPosition(), value, context);
 		client.sendMessageAsync(messageRequest, callback);
 	}
 
+	@Override
+	protected void sendAsyncBatch(List<RowMap> rows, List<CallbackCompleter> callbacks) throws Exception {
+		List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+		List<CallbackCompleter> entryCallbacks = new ArrayList<>();
+		int batchBytes = 0;
+
+		for ( int i = 0; i < rows.size(); i++ ) {
+			RowMap r = rows.get(i);
+			String value = r.toJSON(outputConfig);
+			int bytes = value.getBytes(StandardCharsets.UTF_8).length;
+
+			if ( entries.size() == MAX_BATCH_ENTRIES || ( !entries.isEmpty() && batchBytes + bytes > MAX_BATCH_BYTES ) ) {
+				sendBatch(entries, entryCallbacks);
+				entries = new ArrayList<>();
+				entryCallbacks = new ArrayList<>();
+				batchBytes = 0;
+			}
+
+			entries.add(new SendMessageBatchRequestEntry(Integer.toString(entries.size()), value));
+			entryCallbacks.add(callbacks.get(i));
+			batchBytes += bytes;
+		}
+
+		if ( !entries.isEmpty() )
+			sendBatch(entries, entryCallbacks);
+	}
+
+	private void sendBatch(List<SendMessageBatchRequestEntry> entries, List<CallbackCompleter> callbacks) {
+		SendMessageBatchRequest request = new SendMessageBatchRequest(queueUri, entries);
+		client.sendMessageBatchAsync(request, new SQSBatchCallback(callbacks, context));
+	}
+
 }
 
 class SQSCallback implements AsyncHandler<SendMessageRequest, SendMessageResult> {
@@ -72,3 +116,49 @@ class SQSCallback implements AsyncHandler<SendMessageRequest, SendMessageResult>
 	}
 
 }
+
+class SQSBatchCallback implements AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> {
+	public static final Logger logger = LoggerFactory.getLogger(SQSBatchCallback.class);
+
+	/* indexed by the entry ids, which are their positions in the batch */
+	private final List<AbstractAsyncProducer.CallbackCompleter> callbacks;
+	private MaxwellContext context;
+
+	public SQSBatchCallback(List<AbstractAsyncProducer.CallbackCompleter> callbacks, MaxwellContext context) {
+		this.callbacks = callbacks;
+		this.context = context;
+	}
+
+	@Override
+	public void onError(Exception t) {
+		logger.error(t.getClass().getSimpleName() + " sending batch of " + callbacks.size() + " -- ");
+		logger.error(t.getLocalizedMessage());
+		logger.error("Exception during batch put", t);
+
+		if (!context.getConfig().ignoreProducerError) {
+			context.terminate(new RuntimeException(t));
+		} else {
+			for ( AbstractAsyncProducer.CallbackCompleter cc : callbacks )
+				cc.markCompleted();
+		}
+	}
+
+	@Override
+	public void onSuccess(SendMessageBatchRequest request, SendMessageBatchResult result) {
+		for ( BatchResultErrorEntry failed : result.getFailed() ) {
+			logger.error("-> Message " + failed.getId() + " failed: " + failed.getCode() + " " + failed.getMessage());
+			if (!context.getConfig().ignoreProducerError) {
+				context.terminate(new RuntimeException("SQS rejected message: " + failed.getCode() + " " + failed.getMessage()));
+				return;
+			}
+			callbacks.get(Integer.parseInt(failed.getId())).markCompleted();
+		}
+
+		for ( SendMessageBatchResultEntry entry : result.getSuccessful() ) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("-> Message id:" + entry.getMessageId() + ", sequence number:" + entry.getSequenceNumber());
+			}
+			callbacks.get(Integer.parseInt(entry.getId())).markCompleted();
+		}
+	}
+}
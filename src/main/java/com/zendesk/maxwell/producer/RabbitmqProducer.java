@@ -5,11 +5,13 @@ import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.MessageProperties;
 import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.RowMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 public class RabbitmqProducer extends AbstractProducer {
@@ -59,6 +61,36 @@ public class RabbitmqProducer extends AbstractProducer {
 		}
 	}
 
+	/**
+	 * publish the batch, then store the position of its last transaction once.
+	 */
+	@Override
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		Position position = null;
+
+		for ( RowMap r : rows ) {
+			if ( !r.shouldOutput(outputConfig) ) {
+				position = r.getNextPosition();
+				continue;
+			}
+
+			String value = r.toJSON(outputConfig);
+			String routingKey = getRoutingKeyFromTemplate(r);
+
+			channel.basicPublish(exchangeName, routingKey, props, value.getBytes());
+			if ( r.isTXCommit() ) {
+				position = r.getNextPosition();
+			}
+			if ( LOGGER.isDebugEnabled()) {
+				LOGGER.debug("->  routing key:" + routingKey + ", partition:" + value);
+			}
+		}
+
+		if ( position != null ) {
+			context.setPosition(position);
+		}
+	}
+
 	private String getRoutingKeyFromTemplate(RowMap r) {
 		return context
 				.getConfig()
@@ -0,0 +1,122 @@
+package com.zendesk.maxwell.recovery;
+
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.row.HeartbeatRowMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import snaq.db.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Remembers where in a server's binlogs each client's heartbeats were written,
+ * in `heartbeat_index`.
+ *
+ * Recovery records every heartbeat it scans past -- for all clients, not just
+ * the one recovering -- so that the next client to recover against the same
+ * server can look its heartbeat up instead of scanning the binlogs again.
+ */
+public class HeartbeatIndex {
+	static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatIndex.class);
+	private static final int INSERT_BATCH_SIZE = 500;
+
+	private final ConnectionPool connectionPool;
+
+	public static class Entry {
+		public final String clientID;
+		public final long heartbeat;
+		public final BinlogPosition position;
+		public final BinlogPosition nextPosition;
+
+		public Entry(String clientID, long heartbeat, BinlogPosition position, BinlogPosition nextPosition) {
+			this.clientID = clientID;
+			this.heartbeat = heartbeat;
+			this.position = position;
+			this.nextPosition = nextPosition;
+		}
+	}
+
+	/**
+	 * @param connectionPool connections to the maxwell database
+	 */
+	public HeartbeatIndex(ConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+	}
+
+	/**
+	 * @return the heartbeat row as the replicator would have produced it, or null if we've never seen it.
+	 */
+	public HeartbeatRowMap find(String database, long serverID, String clientID, long heartbeat) throws SQLException {
+		try ( Connection c = connectionPool.getConnection() ) {
+			PreparedStatement s = c.prepareStatement(
+				"SELECT * from `heartbeat_index` where server_id = ? and client_id = ? and heartbeat = ?"
+			);
+			s.setLong(1, serverID);
+			s.setString(2, clientID);
+			s.setLong(3, heartbeat);
+
+			ResultSet rs = s.executeQuery();
+			if ( !rs.next() )
+				return null;
+
+			Position position = new Position(
+				BinlogPosition.at(rs.getLong("binlog_position"), rs.getString("binlog_file")),
+				heartbeat
+			);
+			Position nextPosition = new Position(
+				BinlogPosition.at(rs.getLong("next_binlog_position"), rs.getString("next_binlog_file")),
+				heartbeat
+			);
+			return HeartbeatRowMap.valueOf(database, position, nextPosition);
+		}
+	}
+
+	public void add(long serverID, List<Entry> entries) throws SQLException {
+		if ( entries.isEmpty() )
+			return;
+
+		try ( Connection c = connectionPool.getConnection() ) {
+			for ( int start = 0; start < entries.size(); start += INSERT_BATCH_SIZE ) {
+				List<Entry> batch = entries.subList(start, Math.min(entries.size(), start + INSERT_BATCH_SIZE));
+
+				StringBuilder sql = new StringBuilder(
+					"INSERT IGNORE INTO `heartbeat_index` "
+					+ "(server_id, client_id, heartbeat, binlog_file, binlog_position, next_binlog_file, next_binlog_position) VALUES "
+				);
+				for ( int i = 0; i < batch.size(); i++ )
+					sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+
+				PreparedStatement s = c.prepareStatement(sql.toString());
+				int param = 1;
+				for ( Entry e : batch ) {
+					s.setLong(param++, serverID);
+					s.setString(param++, e.clientID);
+					s.setLong(param++, e.heartbeat);
+					s.setString(param++, e.position.getFile());
+					s.setLong(param++, e.position.getOffset());
+					s.setString(param++, e.nextPosition.getFile());
+					s.setLong(param++, e.nextPosition.getOffset());
+				}
+				s.execute();
+			}
+		}
+		LOGGER.debug("indexed " + entries.size() + " heartbeats on server " + serverID);
+	}
+
+	/**
+	 * once a client has recovered, it won't look for its old heartbeats again.
+	 */
+	public void forget(long serverID, String clientID) throws SQLException {
+		try ( Connection c = connectionPool.getConnection() ) {
+			PreparedStatement s = c.prepareStatement("DELETE from `heartbeat_index` where server_id = ? and client_id = ?");
+			s.setLong(1, serverID);
+			s.setString(2, clientID);
+			s.execute();
+		}
+	}
+}
@@ -9,7 +9,6 @@ import com.zendesk.maxwell.replication.BinlogConnectorReplicator;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.HeartbeatNotifier;
 import com.zendesk.maxwell.replication.Position;
-import com.zendesk.maxwell.replication.Replicator;
 import com.zendesk.maxwell.row.HeartbeatRowMap;
 import com.zendesk.maxwell.row.RowMap;
 import org.slf4j.Logger;
@@ -21,26 +20,50 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Recovery {
 	static final Logger LOGGER = LoggerFactory.getLogger(Recovery.class);
+	public static final int DEFAULT_THREADS = 4;
 
 	private final ConnectionPool replicationConnectionPool;
 	private final RecoveryInfo recoveryInfo;
 	private final MaxwellMysqlConfig replicationConfig;
 	private final String maxwellDatabaseName;
 	private final RecoverySchemaStore schemaStore;
+	private final int threads;
+	private final HeartbeatIndex heartbeatIndex;
 
 	public Recovery(MaxwellMysqlConfig replicationConfig,
 					String maxwellDatabaseName,
 					ConnectionPool replicationConnectionPool,
 					CaseSensitivity caseSensitivity,
 					RecoveryInfo recoveryInfo) {
+		this(replicationConfig, maxwellDatabaseName, replicationConnectionPool, caseSensitivity, recoveryInfo, DEFAULT_THREADS, null);
+	}
+
+	/**
+	 * @param threads how many binlog files to scan at once
+	 * @param heartbeatIndex where to look heartbeats up before scanning, and to record the ones we scan past.  May be null.
+	 */
+	public Recovery(MaxwellMysqlConfig replicationConfig,
+					String maxwellDatabaseName,
+					ConnectionPool replicationConnectionPool,
+					CaseSensitivity caseSensitivity,
+					RecoveryInfo recoveryInfo,
+					int threads,
+					HeartbeatIndex heartbeatIndex) {
 		this.replicationConfig = replicationConfig;
 		this.replicationConnectionPool = replicationConnectionPool;
 		this.recoveryInfo = recoveryInfo;
 		this.schemaStore = new RecoverySchemaStore(replicationConnectionPool, maxwellDatabaseName, caseSensitivity);
 		this.maxwellDatabaseName = maxwellDatabaseName;
+		this.threads = Math.max(1, threads);
+		this.heartbeatIndex = heartbeatIndex;
 	}
 
 	public HeartbeatRowMap recover() throws Exception {
@@ -52,34 +75,17 @@ public class Recovery {
 
 		LOGGER.warn("attempting to recover from master-change: " + recoveryMsg);
 		List<BinlogPosition> list = getBinlogInfo();
-		for ( int i = list.size() - 1; i >= 0 ; i-- ) {
-			BinlogPosition binlogPosition = list.get(i);
-			Position position = Position.valueOf(binlogPosition, recoveryInfo.getHeartbeat());
-			Metrics metrics = new NoOpMetrics();
-
-			LOGGER.debug("scanning binlog: " + binlogPosition);
-			Replicator replicator = new BinlogConnectorReplicator(
-					this.schemaStore,
-					null,
-					null,
-					replicationConfig,
-					0L, // server-id of 0 activates "mysqlbinlog" behavior where the server will stop after each binlog
-					maxwellDatabaseName,
-					metrics,
-					position,
-					true,
-					recoveryInfo.clientID,
-					new HeartbeatNotifier(),
-					null,
-					new RecoveryFilter(this.maxwellDatabaseName),
-					new MaxwellOutputConfig()
-			);
-
-			HeartbeatRowMap h = findHeartbeat(replicator);
-			if ( h != null ) {
-				LOGGER.warn("recovered new master position: " + h.getNextPosition());
-				return h;
-			}
+		long serverID = getServerID();
+
+		HeartbeatRowMap h = lookupHeartbeat(serverID, list);
+		if ( h == null )
+			h = scanBinlogs(serverID, list);
+
+		if ( h != null ) {
+			LOGGER.warn("recovered new master position: " + h.getNextPosition());
+			if ( heartbeatIndex != null )
+				heartbeatIndex.forget(serverID, recoveryInfo.clientID);
+			return h;
 		}
 
 		LOGGER.error("Could not recover from master-change: " + recoveryMsg);
@@ -87,22 +93,181 @@ public class Recovery {
 	}
 
 	/**
-	 * try to find a given heartbeat value from the replicator.
-	 * @return A BinlogPosition where the heartbeat was found, or null if none was found.
+	 * ask the heartbeat index first; a hit only counts if the server still has the binlog.
 	 */
-	private HeartbeatRowMap findHeartbeat(Replicator r) throws Exception {
-		r.startReplicator();
-		for (RowMap row = r.getRow(); row != null ; row = r.getRow()) {
-			if (!(row instanceof HeartbeatRowMap)) {
-				continue;
+	private HeartbeatRowMap lookupHeartbeat(long serverID, List<BinlogPosition> binlogs) {
+		if ( heartbeatIndex == null )
+			return null;
+
+		try {
+			HeartbeatRowMap h = heartbeatIndex.find(maxwellDatabaseName, serverID, recoveryInfo.clientID, recoveryInfo.getHeartbeat());
+			if ( h == null )
+				return null;
+
+			String file = h.getPosition().getBinlogPosition().getFile();
+			for ( BinlogPosition binlog : binlogs ) {
+				if ( binlog.getFile().equals(file) ) {
+					LOGGER.info("found heartbeat " + recoveryInfo.getHeartbeat() + " in heartbeat index");
+					return h;
+				}
 			}
-			HeartbeatRowMap heartbeatRow = (HeartbeatRowMap) row;
-			if (heartbeatRow.getPosition().getLastHeartbeatRead() == recoveryInfo.getHeartbeat())
-				return heartbeatRow;
+		} catch ( SQLException e ) {
+			LOGGER.warn("couldn't read heartbeat index, falling back to scanning binlogs", e);
 		}
 		return null;
 	}
 
+	/**
+	 * scan up to `threads` binlog files at once.  Files are handed out newest
+	 * first, and a match in one file cancels the scans of every older file --
+	 * the newest match wins, exactly as it did when we scanned one at a time.
+	 */
+	private HeartbeatRowMap scanBinlogs(long serverID, List<BinlogPosition> binlogs) throws Exception {
+		if ( binlogs.isEmpty() )
+			return null;
+
+		AtomicInteger newestMatch = new AtomicInteger(-1);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, binlogs.size()), r -> {
+			Thread t = new Thread(r, "maxwell-recovery");
+			t.setDaemon(true);
+			return t;
+		});
+
+		try {
+			List<Future<HeartbeatRowMap>> futures = new ArrayList<>();
+			for ( int i = binlogs.size() - 1; i >= 0 ; i-- ) {
+				final int index = i;
+				futures.add(executor.submit(() -> scanBinlog(serverID, binlogs.get(index), index, newestMatch)));
+			}
+
+			for ( Future<HeartbeatRowMap> future : futures ) {
+				HeartbeatRowMap h = getResult(future);
+				if ( h != null )
+					return h;
+			}
+			return null;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private HeartbeatRowMap getResult(Future<HeartbeatRowMap> future) throws Exception {
+		try {
+			return future.get();
+		} catch ( ExecutionException e ) {
+			if ( e.getCause() instanceof Exception )
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	private HeartbeatRowMap scanBinlog(long serverID, BinlogPosition binlogPosition, int index, AtomicInteger newestMatch) throws Exception {
+		if ( newestMatch.get() > index )
+			return null;
+
+		Position position = Position.valueOf(binlogPosition, recoveryInfo.getHeartbeat());
+		Metrics metrics = new NoOpMetrics();
+
+		LOGGER.debug("scanning binlog: " + binlogPosition);
+		BinlogConnectorReplicator replicator = new BinlogConnectorReplicator(
+				this.schemaStore,
+				null,
+				null,
+				replicationConfig,
+				0L, // server-id of 0 activates "mysqlbinlog" behavior where the server will stop after each binlog
+				maxwellDatabaseName,
+				metrics,
+				position,
+				true,
+				recoveryInfo.clientID,
+				new HeartbeatNotifier(),
+				null,
+				new RecoveryFilter(this.maxwellDatabaseName),
+				new MaxwellOutputConfig()
+		);
+
+		List<HeartbeatIndex.Entry> seen = new ArrayList<>();
+		HeartbeatRowMap h = findHeartbeat(replicator, index, newestMatch, seen);
+		indexHeartbeats(serverID, seen);
+
+		if ( h != null )
+			newestMatch.accumulateAndGet(index, Math::max);
+		return h;
+	}
+
+	/**
+	 * try to find a given heartbeat value from the replicator, remembering every heartbeat we pass.
+	 * @return A BinlogPosition where the heartbeat was found, or null if none was found,
+	 *         or a newer binlog already matched.
+	 */
+	private HeartbeatRowMap findHeartbeat(BinlogConnectorReplicator r, int index, AtomicInteger newestMatch, List<HeartbeatIndex.Entry> seen) throws Exception {
+		r.startReplicator();
+		try {
+			for (RowMap row = r.getRow(); row != null ; row = r.getRow()) {
+				if ( newestMatch.get() > index )
+					return null;
+
+				HeartbeatIndex.Entry entry = indexEntry(row);
+				if ( entry != null )
+					seen.add(entry);
+
+				if (!(row instanceof HeartbeatRowMap)) {
+					continue;
+				}
+				HeartbeatRowMap heartbeatRow = (HeartbeatRowMap) row;
+				if (heartbeatRow.getPosition().getLastHeartbeatRead() == recoveryInfo.getHeartbeat())
+					return heartbeatRow;
+			}
+			return null;
+		} finally {
+			r.stopReading();
+		}
+	}
+
+	/*
+		our own heartbeats come out as HeartbeatRowMaps; other clients' are
+		left as plain rows on maxwell.heartbeats.
+	 */
+	private HeartbeatIndex.Entry indexEntry(RowMap row) {
+		if ( heartbeatIndex == null || row.getPosition() == null || row.getNextPosition() == null )
+			return null;
+
+		BinlogPosition position = row.getPosition().getBinlogPosition();
+		BinlogPosition nextPosition = row.getNextPosition().getBinlogPosition();
+
+		if ( row instanceof HeartbeatRowMap )
+			return new HeartbeatIndex.Entry(recoveryInfo.clientID, row.getPosition().getLastHeartbeatRead(), position, nextPosition);
+
+		if ( !maxwellDatabaseName.equals(row.getDatabase()) || !"heartbeats".equals(row.getTable()) )
+			return null;
+
+		Object clientID = row.getData("client_id");
+		Object heartbeat = row.getData("heartbeat");
+		if ( !(clientID instanceof String) || !(heartbeat instanceof Long) )
+			return null;
+
+		return new HeartbeatIndex.Entry((String) clientID, (Long) heartbeat, position, nextPosition);
+	}
+
+	private void indexHeartbeats(long serverID, List<HeartbeatIndex.Entry> entries) {
+		if ( heartbeatIndex == null )
+			return;
+
+		try {
+			heartbeatIndex.add(serverID, entries);
+		} catch ( SQLException e ) {
+			LOGGER.warn("couldn't update heartbeat index", e);
+		}
+	}
+
+	private long getServerID() throws SQLException {
+		try ( Connection c = replicationConnectionPool.getConnection() ) {
+			ResultSet rs = c.createStatement().executeQuery("SELECT @@server_id as server_id");
+			rs.next();
+			return rs.getLong("server_id");
+		}
+	}
+
 	/**
 	 * fetch a list of binlog positions representing the start of each binlog file
 	 *
@@ -33,7 +33,7 @@ public class RecoverySchemaStore implements SchemaStore {
 	}
 
 	@Override
-	public Schema getSchema() throws SchemaStoreException {
+	public synchronized Schema getSchema() throws SchemaStoreException {
 		if ( maxwellOnlySchema != null )
 			return maxwellOnlySchema;
 
@@ -9,24 +9,33 @@ import com.zendesk.maxwell.schema.columndef.ColumnDef;
 import java.io.Serializable;
 import java.util.*;
 
+/*
+   the envelope a binlog event travels in from the client thread to the replicator.
+
+   it only holds references; the BinlogPositions are built the first time someone
+   asks for them, which for most events (table maps, row events the filter drops,
+   BEGINs...) is never.
+ */
 public class BinlogConnectorEvent {
 	public static final String BEGIN = "BEGIN";
 	public static final String COMMIT = "COMMIT";
 	public static final String SAVEPOINT = "SAVEPOINT";
 	private final MaxwellOutputConfig outputConfig;
-	private BinlogPosition position;
-	private BinlogPosition nextPosition;
 	private final Event event;
-	private final String gtidSetStr;
+	private final String filename;
+	private final GtidSetSnapshot gtidSet;
 	private final String gtid;
+	private BinlogPosition position;
+	private BinlogPosition nextPosition;
+	private final long receivedAtNanos;
+	private long dequeuedAtNanos;
 
-	public BinlogConnectorEvent(Event event, String filename, String gtidSetStr, String gtid, MaxwellOutputConfig outputConfig) {
+	public BinlogConnectorEvent(Event event, String filename, GtidSetSnapshot gtidSet, String gtid, MaxwellOutputConfig outputConfig) {
+		this.receivedAtNanos = System.nanoTime();
 		this.event = event;
-		this.gtidSetStr = gtidSetStr;
+		this.filename = filename;
+		this.gtidSet = gtidSet;
 		this.gtid = gtid;
-		EventHeaderV4 hV4 = (EventHeaderV4) event.getHeader();
-		this.nextPosition = new BinlogPosition(gtidSetStr, gtid, hV4.getNextPosition(), filename);
-		this.position = new BinlogPosition(gtidSetStr, gtid, hV4.getPosition(), filename);
 		this.outputConfig = outputConfig;
 	}
 
@@ -59,13 +68,32 @@ public class BinlogConnectorEvent {
 	}
 
 	public BinlogPosition getPosition() {
+		if ( position == null )
+			position = new BinlogPosition(gtidSet, gtid, ((EventHeaderV4) event.getHeader()).getPosition(), filename);
 		return position;
 	}
 
 	public BinlogPosition getNextPosition() {
+		if ( nextPosition == null )
+			nextPosition = new BinlogPosition(gtidSet, gtid, ((EventHeaderV4) event.getHeader()).getNextPosition(), filename);
 		return nextPosition;
 	}
 
+	/**
+	 * @return the binlog offset of this event, without building a BinlogPosition
+	 */
+	public long getOffset() {
+		return ((EventHeaderV4) event.getHeader()).getPosition();
+	}
+
+	public long getReceivedAtNanos() {
+		return receivedAtNanos;
+	}
+
+	public void setDequeuedAtNanos(long dequeuedAtNanos) {
+		this.dequeuedAtNanos = dequeuedAtNanos;
+	}
+
 	public EventType getType() {
 		return event.getHeader().getEventType();
 	}
@@ -101,16 +129,25 @@ public class BinlogConnectorEvent {
 		return false;
 	}
 
+	private Object asJSON(ColumnDef cd, Serializable value) {
+		if ( value == null )
+			return null;
+		return cd.asJSON(value, outputConfig);
+	}
+
+	private void putData(RowMap row, ColumnDef cd, Serializable value) {
+		if ( outputConfig.lazyColumnConversion )
+			row.putRawData(cd, value, outputConfig);
+		else
+			row.putData(cd.getName(), asJSON(cd, value));
+	}
+
 	private void writeData(Table table, RowMap row, Serializable[] data, BitSet includedColumns) {
 		int dataIdx = 0, colIdx = 0;
 
 		for ( ColumnDef cd : table.getColumnList() ) {
 			if ( includedColumns.get(colIdx) ) {
-				Object json = null;
-				if ( data[dataIdx] != null ) {
-					json = cd.asJSON(data[dataIdx], outputConfig);
-				}
-				row.putData(cd.getName(), json);
+				putData(row, cd, data[dataIdx]);
 				dataIdx++;
 			}
 			colIdx++;
@@ -122,11 +159,6 @@ public class BinlogConnectorEvent {
 
 		for ( ColumnDef cd : table.getColumnList() ) {
 			if ( oldIncludedColumns.get(colIdx) ) {
-				Object json = null;
-				if ( oldData[dataIdx] != null ) {
-					json = cd.asJSON(oldData[dataIdx], outputConfig);
-				}
-
 				if (!row.hasData(cd.getName())) {
 					/*
 					   If we find a column in the BEFORE image that's *not* present in the AFTER image,
@@ -134,8 +166,13 @@ public class BinlogConnectorEvent {
 					   as a sort of WHERE clause to update rows with the new values (present in the AFTER image),
 					   In this case we should put what's in the "before" image into the "data" section, not the "old".
 					 */
-					row.putData(cd.getName(), json);
-				} else {
+					putData(row, cd, oldData[dataIdx]);
+				} else if ( !row.dataHoldsRaw(cd.getName(), oldData[dataIdx]) ) {
+					/*
+					   identical raw values can't convert to different json, so unchanged
+					   columns of a lazy row are left unconverted.
+					 */
+					Object json = asJSON(cd, oldData[dataIdx]);
 					if (!Objects.equals(row.getData(cd.getName()), json)) {
 						row.putOldData(cd.getName(), json);
 					}
@@ -158,15 +195,20 @@ public class BinlogConnectorEvent {
 			rowQuery
 		);
 
+		map.setReceivedAtNanos(receivedAtNanos);
+		map.setDequeuedAtNanos(dequeuedAtNanos);
 		writeData(table, map, data, includedColumns);
 		return map;
 	}
 
+	/**
+	 * Every row of a rows-event shares the one pair of Positions.
+	 */
 	public List<RowMap> jsonMaps(Table table, long lastHeartbeatRead, String rowQuery) {
 		ArrayList<RowMap> list = new ArrayList<>();
 
-		Position position     = Position.valueOf(this.position, lastHeartbeatRead);
-		Position nextPosition = Position.valueOf(this.nextPosition, lastHeartbeatRead);
+		Position position     = Position.valueOf(getPosition(), lastHeartbeatRead);
+		Position nextPosition = Position.valueOf(getNextPosition(), lastHeartbeatRead);
 
 		switch ( getType() ) {
 			case WRITE_ROWS:
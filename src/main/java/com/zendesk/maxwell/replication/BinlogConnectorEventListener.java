@@ -4,41 +4,46 @@ import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Timer;
 import com.github.shyiko.mysql.binlog.BinaryLogClient;
 import com.github.shyiko.mysql.binlog.event.Event;
-import com.github.shyiko.mysql.binlog.event.EventType;
-import com.github.shyiko.mysql.binlog.event.GtidEventData;
 import com.zendesk.maxwell.monitoring.Metrics;
+import com.zendesk.maxwell.monitoring.StageLatency;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.util.RingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 class BinlogConnectorEventListener implements BinaryLogClient.EventListener {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BinlogConnectorEventListener.class);
 
-	private final BlockingQueue<BinlogConnectorEvent> queue;
+	private final RingBuffer<BinlogConnectorEvent> queue;
 	private final Timer queueTimer;
+	private final Timer receiveTimer;
 	protected final AtomicBoolean mustStop = new AtomicBoolean(false);
 	private final BinaryLogClient client;
 	private final MaxwellOutputConfig outputConfig;
 	private long replicationLag;
-	private String gtid;
+	private final GtidSetTracker gtidSet;
 
 	public BinlogConnectorEventListener(
 		BinaryLogClient client,
-		BlockingQueue<BinlogConnectorEvent> q,
+		RingBuffer<BinlogConnectorEvent> q,
 		Metrics metrics,
-		MaxwellOutputConfig outputConfig
+		MaxwellOutputConfig outputConfig,
+		String initialGtidSet
 	) {
 		this.client = client;
+		this.gtidSet = new GtidSetTracker(initialGtidSet);
 		this.queue = q;
 		this.queueTimer =  metrics.getRegistry().timer(metrics.metricName("replication", "queue", "time"));
+		this.receiveTimer = StageLatency.timer(metrics, "latency", "receive");
 		this.outputConfig = outputConfig;
 
 		final BinlogConnectorEventListener self = this;
 		metrics.register(metrics.metricName("replication", "lag"), (Gauge<Long>) () -> self.replicationLag);
+		metrics.register(metrics.metricName("replication", "queue", "size"), (Gauge<Integer>) () -> self.queue.size());
+		metrics.register(metrics.metricName("replication", "queue", "capacity"), (Gauge<Integer>) () -> self.queue.capacity());
 	}
 
 	public void stop() {
@@ -50,16 +55,15 @@ class BinlogConnectorEventListener implements BinaryLogClient.EventListener {
 		long eventSeenAt = 0;
 		boolean trackMetrics = false;
 
-		if (event.getHeader().getEventType() == EventType.GTID) {
-			gtid = ((GtidEventData)event.getData()).getGtid();
-		}
+		gtidSet.update(event);
 
-		BinlogConnectorEvent ep = new BinlogConnectorEvent(event, client.getBinlogFilename(), client.getGtidSet(), gtid, outputConfig);
+		BinlogConnectorEvent ep = new BinlogConnectorEvent(event, client.getBinlogFilename(), gtidSet.getExecuted(), gtidSet.getGtid(), outputConfig);
 
 		if (ep.isCommitEvent()) {
 			trackMetrics = true;
 			eventSeenAt = System.currentTimeMillis();
 			replicationLag = eventSeenAt - event.getHeader().getTimestamp();
+			receiveTimer.update(Math.max(0L, replicationLag), TimeUnit.MILLISECONDS);
 		}
 
 		while (mustStop.get() != true) {
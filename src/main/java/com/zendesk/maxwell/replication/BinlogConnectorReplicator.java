@@ -1,6 +1,7 @@
 package com.zendesk.maxwell.replication;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.github.shyiko.mysql.binlog.BinaryLogClient;
@@ -14,11 +15,13 @@ import com.zendesk.maxwell.MaxwellMysqlConfig;
 import com.zendesk.maxwell.bootstrap.AbstractBootstrapper;
 import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.monitoring.Metrics;
+import com.zendesk.maxwell.monitoring.StageLatency;
 import com.zendesk.maxwell.producer.AbstractProducer;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.row.HeartbeatRowMap;
 import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.row.RowMapBuffer;
+import com.zendesk.maxwell.row.TransactionCommitRowMap;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.SchemaStore;
 import com.zendesk.maxwell.schema.SchemaStoreException;
@@ -26,20 +29,31 @@ import com.zendesk.maxwell.schema.Table;
 import com.zendesk.maxwell.schema.ddl.DDLMap;
 import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
 import com.zendesk.maxwell.scripting.Scripting;
+import com.zendesk.maxwell.util.DiskBufferConfig;
+import com.zendesk.maxwell.util.OffHeapBufferPool;
+import com.zendesk.maxwell.util.RingBuffer;
 import com.zendesk.maxwell.util.RunLoopProcess;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class BinlogConnectorReplicator extends RunLoopProcess implements Replicator {
 	static final Logger LOGGER = LoggerFactory.getLogger(BinlogConnectorReplicator.class);
 	private static final long MAX_TX_ELEMENTS = 10000;
+	private static final int EVENT_BATCH_SIZE = 64;
+	private static final int ROW_BATCH_SIZE = 100;
+	public static final int DEFAULT_EVENT_QUEUE_SIZE = 256;
 	public static final int BAD_BINLOG_ERROR_CODE = 1236;
 
 	private final String clientID;
@@ -48,7 +62,8 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 	protected final BinaryLogClient client;
 	private BinlogConnectorEventListener binlogEventListener;
 	private BinlogConnectorLifecycleListener binlogLifecycleListener;
-	private final LinkedBlockingDeque<BinlogConnectorEvent> queue = new LinkedBlockingDeque<>(20);
+	private final RingBuffer<BinlogConnectorEvent> queue;
+	private final ArrayDeque<BinlogConnectorEvent> pendingEvents = new ArrayDeque<>(EVENT_BATCH_SIZE);
 	private final TableCache tableCache;
 	private final Scripting scripting;
 	private ServerException lastCommError;
@@ -64,6 +79,16 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 	private final AbstractBootstrapper bootstrapper;
 	private final AbstractProducer producer;
 	private RowMapBuffer rowBuffer;
+	private final DiskBufferConfig diskBufferConfig;
+	private final ParallelRowDecoder rowDecoder;
+	private final RowPipeline pipeline;
+	private final StageLatency stageLatency;
+
+	/* transactions with more than this many rows are streamed out before their COMMIT; 0 disables */
+	private final long transactionStreamThreshold;
+	private BinlogConnectorEvent streamingTransaction;
+	private RowMap lastStreamedRow;
+	private RowMap pendingCommit;
 
 	private final Counter rowCounter;
 	private final Meter rowMeter;
@@ -94,6 +119,56 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		Scripting scripting,
 		Filter filter,
 		MaxwellOutputConfig outputConfig
+	) {
+		this(
+			schemaStore,
+			producer,
+			bootstrapper,
+			mysqlConfig,
+			replicaServerID,
+			maxwellSchemaDatabaseName,
+			metrics,
+			start,
+			stopOnEOF,
+			clientID,
+			heartbeatNotifier,
+			scripting,
+			filter,
+			outputConfig,
+			1,
+			null,
+			DEFAULT_EVENT_QUEUE_SIZE,
+			RingBuffer.WaitStrategy.PARK,
+			0L,
+			new DiskBufferConfig(),
+			null,
+			new PipelineConfig()
+		);
+	}
+
+	public BinlogConnectorReplicator(
+		SchemaStore schemaStore,
+		AbstractProducer producer,
+		AbstractBootstrapper bootstrapper,
+		MaxwellMysqlConfig mysqlConfig,
+		Long replicaServerID,
+		String maxwellSchemaDatabaseName,
+		Metrics metrics,
+		Position start,
+		boolean stopOnEOF,
+		String clientID,
+		HeartbeatNotifier heartbeatNotifier,
+		Scripting scripting,
+		Filter filter,
+		MaxwellOutputConfig outputConfig,
+		int decodeThreads,
+		ExecutorService decodeExecutor,
+		int eventQueueSize,
+		RingBuffer.WaitStrategy eventQueueWaitStrategy,
+		long transactionStreamThreshold,
+		DiskBufferConfig diskBufferConfig,
+		File binlogFiles,
+		PipelineConfig pipelineConfig
 	) {
 		this.clientID = clientID;
 		this.bootstrapper = bootstrapper;
@@ -107,6 +182,25 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		this.tableCache = new TableCache(maxwellSchemaDatabaseName);
 		this.filter = filter;
 		this.lastCommError = null;
+		this.queue = new RingBuffer<>(eventQueueSize, eventQueueWaitStrategy);
+		this.transactionStreamThreshold = transactionStreamThreshold;
+		this.diskBufferConfig = diskBufferConfig;
+
+		/* with a single decode thread (and no pool shared between sources) we convert rows inline on the replicator thread */
+		if ( decodeExecutor != null )
+			this.rowDecoder = new ParallelRowDecoder(decodeExecutor, decodeThreads);
+		else if ( decodeThreads > 1 )
+			this.rowDecoder = new ParallelRowDecoder(decodeThreads);
+		else
+			this.rowDecoder = null;
+
+		this.stageLatency = new StageLatency(metrics);
+
+		/* with the pipeline on, rows leave the replicator thread once they're decoded and filtered */
+		if ( pipelineConfig.enabled )
+			this.pipeline = new RowPipeline(pipelineConfig, metrics, scripting, outputConfig, this::publishRow);
+		else
+			this.pipeline = null;
 
 		/* setup metrics */
 		rowCounter = metrics.getRegistry().counter(
@@ -120,10 +214,25 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		transactionRowCount = metrics.getRegistry().histogram(metrics.metricName("transaction", "row_count"));
 		transactionExecutionTime = metrics.getRegistry().histogram(metrics.metricName("transaction", "execution_time"));
 
+		if ( rowDecoder != null ) {
+			metrics.register(metrics.metricName("replication", "stage", "decode", "queue", "size"), (Gauge<Integer>) rowDecoder::size);
+			metrics.register(metrics.metricName("replication", "stage", "decode", "queue", "capacity"), (Gauge<Integer>) rowDecoder::capacity);
+		}
+
+		final OffHeapBufferPool offHeapPool = diskBufferConfig.offHeapPool;
+		if ( offHeapPool != null ) {
+			metrics.register(metrics.metricName("transaction", "buffer", "offheap", "used"), (Gauge<Long>) offHeapPool::getUsedBytes);
+			metrics.register(metrics.metricName("transaction", "buffer", "offheap", "budget"), (Gauge<Long>) offHeapPool::getBudgetBytes);
+		}
+
 		/* setup binlog */
 		this.binlogLifecycleListener = new BinlogConnectorLifecycleListener(this);
 
-		this.client = new BinaryLogClient(mysqlConfig.host, mysqlConfig.port, mysqlConfig.user, mysqlConfig.password);
+		/* with binlogFiles we replay local files instead of streaming from the server */
+		if ( binlogFiles != null )
+			this.client = new BinlogFileClient(binlogFiles);
+		else
+			this.client = new BinaryLogClient(mysqlConfig.host, mysqlConfig.port, mysqlConfig.user, mysqlConfig.password);
 
 		this.client.setSSLMode(mysqlConfig.sslMode);
 
@@ -152,13 +261,14 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		}
 
 		EventDeserializer eventDeserializer = new EventDeserializer();
+		new TableFilteringDeserializers(filter).register(eventDeserializer);
 		eventDeserializer.setCompatibilityMode(
 			EventDeserializer.CompatibilityMode.DATE_AND_TIME_AS_LONG_MICRO,
 			EventDeserializer.CompatibilityMode.CHAR_AND_BINARY_AS_BYTE_ARRAY,
 			EventDeserializer.CompatibilityMode.INVALID_DATE_AND_TIME_AS_MIN_VALUE
 		);
 		this.client.setEventDeserializer(eventDeserializer);
-		this.binlogEventListener = new BinlogConnectorEventListener(client, queue, metrics, outputConfig);
+		this.binlogEventListener = new BinlogConnectorEventListener(client, queue, metrics, outputConfig, startBinlog.getGtidSetStr());
 		this.client.setBlocking(!stopOnEOF);
 		this.client.registerEventListener(binlogEventListener);
 		this.client.registerLifecycleListener(binlogLifecycleListener);
@@ -166,22 +276,78 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 	}
 
 	/**
-	 * get a single row from the replicator and pass it to the producer or bootstrapper.
+	 * get a batch of rows from the replicator and pass them to the producer or bootstrapper.
 	 *
 	 * This is the top-level function in the run-loop.
 	 */
 	public void work() throws Exception {
-		RowMap row = getRow();
+		List<RowMap> rows = getRows(ROW_BATCH_SIZE);
 
-		if ( row == null )
+		if ( pipeline != null )
+			pipeline.checkError();
+
+		if ( rows.isEmpty() ) {
+			// nothing more is coming; only happens when we're replaying binlog files
+			if ( stopOnEOF && hitEOF ) {
+				if ( pipeline != null )
+					pipeline.drain();
+				this.taskState.requestStop();
+			}
 			return;
+		}
+
+		rowCounter.inc(rows.size());
+		rowMeter.mark(rows.size());
+
+		if ( pipeline != null ) {
+			for ( RowMap row : rows ) {
+				if ( isBootstrapRow(row) )
+					processBootstrapRow(row);
+				else
+					pipeline.submit(row);
+			}
+			return;
+		}
+
+		if ( scripting != null ) {
+			for ( RowMap row : rows )
+				scripting.invoke(row);
+		}
 
-		rowCounter.inc();
-		rowMeter.mark();
+		processRows(rows);
+
+		// the producer has rendered them by now
+		for ( RowMap row : rows )
+			stageLatency.serialized(row);
+	}
+
+	/**
+	 * the pipeline's publish stage.  Once we've been asked to stop (or hit
+	 * our final heartbeat) the rows still in the pipeline are dropped; we
+	 * haven't stored a position past them.
+	 */
+	private void publishRow(RowMap row) throws Exception {
+		if ( !this.taskState.isRunning() )
+			return;
+
+		if ( row instanceof DDLMap )
+			producer.push(row);
+		else
+			processRow(row);
+	}
+
+	/**
+	 * the bootstrapper reads our current schema and schema id, which are
+	 * only right for a bootstrap row on this thread, before we've read any
+	 * further DDL.  So it waits here for the pipeline to empty out.
+	 */
+	private void processBootstrapRow(RowMap row) throws Exception {
+		pipeline.drain();
+		if ( !this.taskState.isRunning() )
+			return;
 
 		if ( scripting != null )
 			scripting.invoke(row);
-
 		processRow(row);
 	}
 
@@ -194,12 +360,24 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 	@Override
 	protected void beforeStart() throws Exception {
 		startReplicator();
+		if ( pipeline != null )
+			pipeline.start();
 	}
 
 	@Override
 	protected void beforeStop() throws Exception {
 		this.binlogEventListener.stop();
 		this.client.disconnect();
+		if ( this.rowDecoder != null )
+			this.rowDecoder.shutdown();
+		if ( this.pipeline != null )
+			this.pipeline.shutdown();
+		if ( this.rowBuffer != null ) {
+			this.rowBuffer.close();
+			this.rowBuffer = null;
+		}
+		if ( this.bootstrapper != null )
+			this.bootstrapper.shutdown();
 	}
 
 	/**
@@ -232,32 +410,69 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		stopAtHeartbeat = heartbeat;
 	}
 
+	/**
+	 * Stop pulling events from the server.  A replicator that stops on EOF
+	 * hands out whatever it had already read, then getRow() returns null.
+	 */
+	public void stopReading() throws IOException {
+		this.binlogEventListener.mustStop.set(true);
+		this.client.disconnect();
+	}
+
 	/**
 	 * Checks if any communications errors in the last update loop.
-	 * @throws ServerException with the details of the communication error.
+	 * @throws ServerException with the details of the communication error,
+	 *         or the IOException that stopped us reading binlog files.
 	 */
-	private void checkCommErrors() throws ServerException {
+	private void checkCommErrors() throws IOException {
 		if (lastCommError != null) {
 			LOGGER.error("Shutting down due to communication errors to Mysql", lastCommError);
 			throw lastCommError;
 		}
+
+		if ( client instanceof BinlogFileClient )
+			((BinlogFileClient) client).checkError();
 	}
 
 	protected void processRow(RowMap row) throws Exception {
-		if ( row instanceof HeartbeatRowMap) {
-			producer.push(row);
-			if (stopAtHeartbeat != null) {
-				long thisHeartbeat = row.getPosition().getLastHeartbeatRead();
-				if (thisHeartbeat >= stopAtHeartbeat) {
-					LOGGER.info("received final heartbeat " + thisHeartbeat + "; stopping replicator");
-					// terminate runLoop
-					this.taskState.stopped();
+		processRows(Collections.singletonList(row));
+	}
+
+	/**
+	 * hand runs of rows to the producer as one batch, breaking the run
+	 * wherever a row belongs to the bootstrapper instead.
+	 */
+	protected void processRows(List<RowMap> rows) throws Exception {
+		List<RowMap> batch = new ArrayList<>(rows.size());
+
+		for ( RowMap row : rows ) {
+			if ( row instanceof HeartbeatRowMap ) {
+				batch.add(row);
+				if ( stopAtHeartbeat != null ) {
+					long thisHeartbeat = row.getPosition().getLastHeartbeatRead();
+					if ( thisHeartbeat >= stopAtHeartbeat ) {
+						producer.pushBatch(batch);
+						LOGGER.info("received final heartbeat " + thisHeartbeat + "; stopping replicator");
+						// terminate runLoop
+						this.taskState.stopped();
+						return;
+					}
 				}
+			} else if ( row instanceof TransactionCommitRowMap ) {
+				batch.add(row);
+			} else if ( !bootstrapper.shouldSkip(row) && !isMaxwellRow(row) ) {
+				batch.add(row);
+			} else {
+				if ( !batch.isEmpty() ) {
+					producer.pushBatch(batch);
+					batch = new ArrayList<>();
+				}
+				bootstrapper.work(row, producer, this);
 			}
-		} else if (!bootstrapper.shouldSkip(row) && !isMaxwellRow(row))
-			producer.push(row);
-		else
-			bootstrapper.work(row, producer, this);
+		}
+
+		if ( !batch.isEmpty() )
+			producer.pushBatch(batch);
 	}
 
 
@@ -298,6 +513,12 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 			if (change.shouldOutput(filter)) {
 				DDLMap ddl = new DDLMap(change, timestamp, sql, position, nextPosition, schemaId);
 
+				if ( pipeline != null ) {
+					// behind the rows that are still in the pipeline
+					pipeline.submit(ddl);
+					continue;
+				}
+
 				if ( scripting != null )
 					scripting.invoke(ddl);
 
@@ -305,7 +526,7 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 			}
 		}
 
-		tableCache.clear();
+		tableCache.invalidate(changes, schemaId);
 	}
 
 	private void processQueryEvent(BinlogConnectorEvent event) throws Exception {
@@ -374,8 +595,22 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		return row.getDatabase().equals(this.maxwellSchemaDatabaseName);
 	}
 
+	private boolean isBootstrapRow(RowMap row) {
+		return !(row instanceof TransactionCommitRowMap)
+			&& this.maxwellSchemaDatabaseName.equals(row.getDatabase())
+			&& "bootstrap".equals(row.getTable());
+	}
+
 	private void ensureReplicatorThread() throws Exception {
 		checkCommErrors();
+		if ( client instanceof BinlogFileClient ) {
+			if ( !client.isConnected() && queue.size() == 0 && pendingEvents.isEmpty() ) {
+				LOGGER.warn("binlog files end in the middle of a transaction; dropping it");
+				throw new ClientReconnectedException();
+			}
+			return;
+		}
+
 		if ( !client.isConnected() && !stopOnEOF ) {
 			if (this.gtidPositioning) {
 				// When using gtid positioning, reconnecting should take us to the top
@@ -408,13 +643,43 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 	 * and turn them into RowMap objects.  We do this because mysql attaches the
 	 * transaction-id (xid) to the COMMIT event (at the end of the transaction),
 	 * so we process the entire transaction in order to assign each row the same xid.
+	 *
+	 * The exception is a transaction that outgrows `transactionStreamThreshold`; we
+	 * hand back its rows as soon as we have them and finish with a TransactionCommitRowMap.
+	 * See `shouldStreamRows`.
 
 	 * @return A RowMapBuffer of rows; either in-memory or on disk.
 	 */
 
 	private RowMapBuffer getTransactionRows(BinlogConnectorEvent beginEvent) throws Exception {
+		return getTransactionRows(beginEvent, new RowMapBuffer(MAX_TX_ELEMENTS, diskBufferConfig));
+	}
+
+	/**
+	 * Read more rows of a transaction we've started streaming.
+	 */
+	private RowMapBuffer continueTransaction() throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(MAX_TX_ELEMENTS, diskBufferConfig);
+		buffer.continueFrom(rowBuffer);
+		return getTransactionRows(streamingTransaction, buffer);
+	}
+
+	private RowMapBuffer getTransactionRows(BinlogConnectorEvent beginEvent, RowMapBuffer buffer) throws Exception {
+		try {
+			return readTransactionRows(beginEvent, buffer);
+		} catch ( Exception e ) {
+			if ( rowDecoder != null )
+				rowDecoder.cancel();
+			buffer.close();
+			// after a GTID reconnect we'll see the transaction again from its BEGIN
+			streamingTransaction = null;
+			lastStreamedRow = null;
+			throw e;
+		}
+	}
+
+	private RowMapBuffer readTransactionRows(BinlogConnectorEvent beginEvent, RowMapBuffer buffer) throws Exception {
 		BinlogConnectorEvent event;
-		RowMapBuffer buffer = new RowMapBuffer(MAX_TX_ELEMENTS);
 
 		String currentQuery = null;
 
@@ -428,6 +693,12 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 
 			EventType eventType = event.getEvent().getHeader().getEventType();
 			if (event.isCommitEvent()) {
+				drainDecodedRows(buffer, true);
+				if ( streamingTransaction != null ) {
+					finishStreamedTransaction(beginEvent, event, buffer);
+					return buffer;
+				}
+
 				if (!buffer.isEmpty()) {
 					buffer.getLast().setTXCommit();
 					long timeSpent = buffer.getLast().getTimestampMillis() - beginEvent.getEvent().getHeader().getTimestamp();
@@ -450,16 +721,28 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 					Table table = tableCache.getTable(event.getTableID());
 
 					if ( table != null && shouldOutputEvent(table.getDatabase(), table.getName(), filter, table.getColumnNames()) ) {
-						for ( RowMap r : event.jsonMaps(table, getLastHeartbeatRead(), currentQuery) )
-							if (shouldOutputRowMap(table.getDatabase(), table.getName(), r, filter)) {
-								buffer.add(r);
-							}
+						if ( rowDecoder == null ) {
+							addRows(buffer, decodeRows(event, table, getLastHeartbeatRead(), currentQuery));
+						} else {
+							final BinlogConnectorEvent rowsEvent = event;
+							final long lastHeartbeatRead = getLastHeartbeatRead();
+							final String rowQuery = currentQuery;
+
+							addRows(buffer, rowDecoder.submit(() -> decodeRows(rowsEvent, table, lastHeartbeatRead, rowQuery)));
+							drainDecodedRows(buffer, false);
+						}
 					}
 					currentQuery = null;
+
+					if ( shouldStreamRows(buffer) ) {
+						streamingTransaction = beginEvent;
+						lastStreamedRow = buffer.getLast();
+						return buffer;
+					}
 					break;
 				case TABLE_MAP:
 					TableMapEventData data = event.tableMapData();
-					tableCache.processEvent(getSchema(), this.filter, data.getTableId(), data.getDatabase(), data.getTable());
+					tableCache.processEvent(getSchema(), getSchemaId(), this.filter, data.getTableId(), data.getDatabase(), data.getTable());
 					break;
 				case ROWS_QUERY:
 					RowsQueryEventData rqed = event.getEvent().getData();
@@ -497,6 +780,99 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		}
 	}
 
+	/**
+	 * Should we hand the rows we've buffered so far to the producer without waiting for COMMIT?
+	 *
+	 * Once a transaction passes `transactionStreamThreshold` rows, it and every later batch
+	 * of its rows go out as soon as they're decoded.  None of these rows are flagged as commits,
+	 * so producers won't store a position until the TransactionCommitRowMap that follows
+	 * the transaction; if we die half-way through, we replay the whole transaction.
+	 */
+	private boolean shouldStreamRows(RowMapBuffer buffer) {
+		if ( transactionStreamThreshold <= 0 || buffer.isEmpty() )
+			return false;
+
+		return streamingTransaction != null || buffer.size() >= transactionStreamThreshold;
+	}
+
+	/**
+	 * We've hit the COMMIT of a streamed transaction.  The last of its rows are in `buffer`;
+	 * queue up a commit marker, carrying the xid, to go out after them.
+	 */
+	private void finishStreamedTransaction(BinlogConnectorEvent beginEvent, BinlogConnectorEvent commitEvent, RowMapBuffer buffer) throws Exception {
+		if ( !buffer.isEmpty() )
+			lastStreamedRow = buffer.getLast();
+
+		Long xid = null;
+		if ( commitEvent.getType() == EventType.XID )
+			xid = commitEvent.xidData().getXid();
+
+		long timestamp = commitEvent.getEvent().getHeader().getTimestamp();
+		RowMap commit = new TransactionCommitRowMap(
+			lastStreamedRow.getDatabase(),
+			lastStreamedRow.getTable(),
+			timestamp,
+			Position.valueOf(commitEvent.getPosition(), getLastHeartbeatRead()),
+			Position.valueOf(commitEvent.getNextPosition(), getLastHeartbeatRead()),
+			xid
+		);
+		commit.setServerId(buffer.getServerId());
+		commit.setThreadId(buffer.getThreadId());
+		commit.setSchemaId(buffer.getSchemaId());
+		pendingCommit = commit;
+
+		transactionExecutionTime.update(timestamp - beginEvent.getEvent().getHeader().getTimestamp());
+		transactionRowCount.update(buffer.getXoffset() + buffer.size());
+
+		streamingTransaction = null;
+		lastStreamedRow = null;
+	}
+
+	/**
+	 * Convert a rows-event into RowMaps, dropping any rows that the filter rejects.
+	 *
+	 * This may be called from a decoder thread, so it must not touch any replicator state.
+	 */
+	private List<RowMap> decodeRows(BinlogConnectorEvent event, Table table, long lastHeartbeatRead, String rowQuery) {
+		List<RowMap> rows = event.jsonMaps(table, lastHeartbeatRead, rowQuery);
+		rows.removeIf(r -> !shouldOutputRowMap(table.getDatabase(), table.getName(), r, filter));
+
+		long decodedAt = System.nanoTime();
+		for ( RowMap r : rows ) {
+			r.setDecodedAtNanos(decodedAt);
+			stageLatency.decoded(r);
+		}
+		return rows;
+	}
+
+	private void addRows(RowMapBuffer buffer, List<RowMap> rows) throws IOException {
+		if ( rows == null )
+			return;
+
+		for ( RowMap r : rows )
+			buffer.add(r);
+	}
+
+	/**
+	 * Move decoded rows from the decoder pool into the transaction buffer, preserving binlog order.
+	 *
+	 * @param buffer the transaction buffer
+	 * @param waitForAll if true, block until every outstanding event is decoded;
+	 *                   otherwise only take the events that have already finished.
+	 */
+	private void drainDecodedRows(RowMapBuffer buffer, boolean waitForAll) throws Exception {
+		if ( rowDecoder == null )
+			return;
+
+		while ( !rowDecoder.isEmpty() ) {
+			List<RowMap> rows = waitForAll ? rowDecoder.take() : rowDecoder.poll();
+			if ( rows == null )
+				return;
+
+			addRows(buffer, rows);
+		}
+	}
+
 	/**
 	 * The main entry point into the event reading loop.
 	 *
@@ -527,14 +903,32 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 					return row;
 			}
 
+			if ( pendingCommit != null ) {
+				RowMap commit = pendingCommit;
+				pendingCommit = null;
+				return commit;
+			}
+
+			if ( streamingTransaction != null ) {
+				try {
+					rowBuffer = continueTransaction();
+				} catch ( ClientReconnectedException e ) {
+					rowBuffer = null;
+				}
+				continue;
+			}
+
 			event = pollEvent();
 
 			if (event == null) {
 				if ( stopOnEOF ) {
-					if ( client.isConnected() )
+					checkCommErrors();
+					// the client may have queued its last events just before disconnecting
+					if ( client.isConnected() || queue.size() > 0 )
 						continue;
-					else
-						return null;
+
+					hitEOF = true;
+					return null;
 				} else {
 					try {
 						ensureReplicatorThread();
@@ -553,12 +947,12 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 					LOGGER.warn("Started replication stream inside a transaction.  This shouldn't normally happen.");
 					LOGGER.warn("Assuming new transaction at unexpected event:" + event);
 
-					queue.offerFirst(event);
+					pendingEvents.addFirst(event);
 					rowBuffer = getTransactionRows(event);
 					break;
 				case TABLE_MAP:
 					TableMapEventData data = event.tableMapData();
-					tableCache.processEvent(getSchema(), this.filter, data.getTableId(), data.getDatabase(), data.getTable());
+					tableCache.processEvent(getSchema(), getSchemaId(), this.filter, data.getTableId(), data.getDatabase(), data.getTable());
 					break;
 				case QUERY:
 					QueryEventData qe = event.queryData();
@@ -580,8 +974,8 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 					}
 					break;
 				case ROTATE:
-					tableCache.clear();
-					if ( stopOnEOF && event.getPosition().getOffset() > 0 ) {
+					// a replay runs on through every file; only a live client stops at the next binlog
+					if ( stopOnEOF && event.getOffset() > 0 && !(client instanceof BinlogFileClient) ) {
 						this.binlogEventListener.mustStop.set(true);
 						this.client.disconnect();
 						this.hitEOF = true;
@@ -595,8 +989,44 @@ public class BinlogConnectorReplicator extends RunLoopProcess implements Replica
 		}
 	}
 
+	/**
+	 * Get up to `max` rows: the next row, plus whatever else is already
+	 * buffered from the same transaction.  Never waits on the binlog for
+	 * more than the first row.
+	 *
+	 * @return the rows, or an empty list when getRow() would have returned null
+	 */
+	public List<RowMap> getRows(int max) throws Exception {
+		List<RowMap> rows = new ArrayList<>();
+
+		for ( RowMap row = getRow(); row != null; row = getRow() ) {
+			rows.add(row);
+			if ( rows.size() >= max || !hasBufferedRows() )
+				break;
+		}
+		return rows;
+	}
+
+	private boolean hasBufferedRows() {
+		return ( rowBuffer != null && !rowBuffer.isEmpty() ) || pendingCommit != null;
+	}
+
+	/**
+	 * Take the next event handed over by the binlog listener.
+	 *
+	 * Events are pulled off the ring buffer in batches so that we only touch
+	 * the shared indexes once per batch instead of once per event.
+	 */
 	protected BinlogConnectorEvent pollEvent() throws InterruptedException {
-		return queue.poll(100, TimeUnit.MILLISECONDS);
+		BinlogConnectorEvent event;
+		if ( pendingEvents.isEmpty() && queue.drainTo(pendingEvents, EVENT_BATCH_SIZE) == 0 )
+			event = queue.poll(100, TimeUnit.MILLISECONDS);
+		else
+			event = pendingEvents.poll();
+
+		if ( event != null )
+			event.setDequeuedAtNanos(System.nanoTime());
+		return event;
 	}
 
 	public Schema getSchema() throws SchemaStoreException {
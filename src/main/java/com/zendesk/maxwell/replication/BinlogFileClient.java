@@ -0,0 +1,179 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.BinaryLogClient;
+import com.github.shyiko.mysql.binlog.BinaryLogFileReader;
+import com.github.shyiko.mysql.binlog.GtidSet;
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.GtidEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+   a BinaryLogClient that reads local binlog files instead of talking to a server.
+
+   the replicator configures it and registers its listeners exactly as it would
+   a live client; connect() starts a thread that feeds every event of every
+   file, in order, to those listeners, and "disconnects" once it runs out of
+   files.  Events go out as fast as the replicator takes them.
+
+   we start at the client's binlog file and position if that file is one of
+   ours, otherwise at the top of the first file.  With a gtid set, we read
+   everything and skip transactions the set already contains.
+ */
+public class BinlogFileClient extends BinaryLogClient {
+	static final Logger LOGGER = LoggerFactory.getLogger(BinlogFileClient.class);
+	private static final Pattern BINLOG_FILE_PATTERN = Pattern.compile("^.+\\.\\d+$");
+
+	private final File path;
+	private EventDeserializer eventDeserializer = new EventDeserializer();
+	private volatile boolean connected = false;
+	private volatile IOException error;
+	private Thread reader;
+
+	/**
+	 * @param path a binlog file, or a directory of them (mysql-bin.000001, mysql-bin.000002...)
+	 */
+	public BinlogFileClient(File path) {
+		super("", "");
+		this.path = path;
+	}
+
+	static List<File> listBinlogFiles(File path) throws IOException {
+		if ( path.isFile() )
+			return Arrays.asList(path);
+
+		File[] found = path.listFiles((dir, name) -> BINLOG_FILE_PATTERN.matcher(name).matches());
+		if ( found == null || found.length == 0 )
+			throw new IOException("no binlog files found in " + path);
+
+		// binlog suffixes are zero-padded, so name order is binlog order
+		Arrays.sort(found, (a, b) -> a.getName().compareTo(b.getName()));
+		return Arrays.asList(found);
+	}
+
+	@Override
+	public void setEventDeserializer(EventDeserializer eventDeserializer) {
+		super.setEventDeserializer(eventDeserializer);
+		this.eventDeserializer = eventDeserializer;
+	}
+
+	@Override
+	public void connect() throws IOException {
+		if ( connected )
+			throw new IllegalStateException("BinlogFileClient is already connected");
+
+		final List<File> toRead = filesToRead(listBinlogFiles(path));
+		final long startPosition = toRead.get(0).getName().equals(getBinlogFilename()) ? getBinlogPosition() : 0L;
+		final GtidSet startGtidSet = getGtidSet() == null ? null : new GtidSet(getGtidSet());
+
+		connected = true;
+		for ( LifecycleListener l : getLifecycleListeners() )
+			l.onConnect(this);
+
+		reader = new Thread(() -> {
+			try {
+				readFiles(toRead, startPosition, startGtidSet);
+			} catch ( IOException e ) {
+				LOGGER.error("error reading binlog file " + getBinlogFilename(), e);
+				error = e;
+			} finally {
+				connected = false;
+				for ( LifecycleListener l : getLifecycleListeners() )
+					l.onDisconnect(this);
+			}
+		}, "binlog-file-reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	@Override
+	public void connect(long timeout) throws IOException {
+		connect();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return connected;
+	}
+
+	@Override
+	public void disconnect() throws IOException {
+		connected = false;
+		if ( reader != null && reader != Thread.currentThread() ) {
+			reader.interrupt();
+			try {
+				reader.join(5000);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Rethrow whatever stopped the reader thread, if anything did.
+	 */
+	public void checkError() throws IOException {
+		if ( error != null )
+			throw error;
+	}
+
+	private List<File> filesToRead(List<File> files) {
+		String startFile = getBinlogFilename();
+		for ( int i = 0; i < files.size(); i++ ) {
+			if ( files.get(i).getName().equals(startFile) )
+				return new ArrayList<>(files.subList(i, files.size()));
+		}
+
+		if ( startFile != null && !startFile.isEmpty() )
+			LOGGER.warn("binlog file " + startFile + " isn't one of the files to replay; starting at " + files.get(0));
+		return files;
+	}
+
+	private void readFiles(List<File> toRead, long startPosition, GtidSet startGtidSet) throws IOException {
+		boolean skippingTransaction = false;
+
+		for ( File file : toRead ) {
+			LOGGER.info("replaying binlog file " + file);
+			setBinlogFilename(file.getName());
+			setBinlogPosition(4L);
+
+			try ( BinaryLogFileReader fileReader = new BinaryLogFileReader(file, eventDeserializer) ) {
+				Event event;
+				while ( connected && (event = fileReader.readEvent()) != null ) {
+					EventHeaderV4 header = event.getHeader();
+
+					// every event gets deserialized, so that the format description and table maps are seen
+					if ( header.getPosition() < startPosition )
+						continue;
+
+					if ( startGtidSet != null && header.getEventType() == EventType.GTID ) {
+						String gtid = ((GtidEventData) event.getData()).getGtid();
+						skippingTransaction = new GtidSet(gtid).isContainedWithin(startGtidSet);
+					}
+
+					if ( skippingTransaction )
+						continue;
+
+					setBinlogPosition(header.getNextPosition());
+					for ( EventListener l : getEventListeners() )
+						l.onEvent(event);
+				}
+			}
+
+			startPosition = 0L;
+			if ( !connected )
+				return;
+		}
+		LOGGER.info("finished replaying binlog files at " + getBinlogFilename() + ":" + getBinlogPosition());
+	}
+}
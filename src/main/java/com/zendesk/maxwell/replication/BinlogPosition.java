@@ -5,6 +5,8 @@ import com.github.shyiko.mysql.binlog.GtidSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -17,7 +19,9 @@ public class BinlogPosition implements Serializable {
 	private static final String POSITION_COLUMN = "Position";
 	private static final String GTID_COLUMN = "Executed_Gtid_Set";
 
-	private final String gtidSetStr;
+	// set one way or the other; the snapshot is turned into a string the first time anyone needs it.
+	private volatile String gtidSetStr;
+	private transient volatile GtidSetSnapshot gtidSnapshot;
 	private final String gtid;
 	private final long offset;
 	private final String file;
@@ -29,8 +33,16 @@ public class BinlogPosition implements Serializable {
 		this.file = file;
 	}
 
+	public BinlogPosition(GtidSetSnapshot gtidSnapshot, String gtid, long l, String file) {
+		this((String) null, gtid, l, file);
+		if ( gtidSnapshot != null && gtidSnapshot.isMaterialized() )
+			this.gtidSetStr = gtidSnapshot.toString();
+		else
+			this.gtidSnapshot = gtidSnapshot;
+	}
+
 	public BinlogPosition(long l, String file) {
-		this(null, null, l, file);
+		this((String) null, null, l, file);
 	}
 
 	public static BinlogPosition capture(Connection c, boolean gtidMode) throws SQLException {
@@ -47,7 +59,7 @@ public class BinlogPosition implements Serializable {
 	}
 
 	public static BinlogPosition at(BinlogPosition position) {
-		return new BinlogPosition(position.gtidSetStr, position.gtid, position.offset, position.file);
+		return new BinlogPosition(position.getGtidSetStr(), position.gtid, position.offset, position.file);
 	}
 
 	public static BinlogPosition at(String gtidSetStr, long offset, String file) {
@@ -55,7 +67,7 @@ public class BinlogPosition implements Serializable {
 	}
 
 	public static BinlogPosition at(long offset, String file) {
-		return new BinlogPosition(null, null, offset, file);
+		return new BinlogPosition((String) null, null, offset, file);
 	}
 
 	public long getOffset() {
@@ -71,24 +83,35 @@ public class BinlogPosition implements Serializable {
 	}
 
 	public String getGtidSetStr() {
+		if ( gtidSetStr == null ) {
+			GtidSetSnapshot snapshot = gtidSnapshot;
+			if ( snapshot != null ) {
+				gtidSetStr = snapshot.toString();
+				gtidSnapshot = null;
+			}
+		}
 		return gtidSetStr;
 	}
 
+	public boolean hasGtidSet() {
+		return gtidSetStr != null || gtidSnapshot != null;
+	}
+
 	public GtidSet getGtidSet() {
-		return new GtidSet(gtidSetStr);
+		return new GtidSet(getGtidSetStr());
 	}
 
 	@Override
 	public String toString() {
 		return "BinlogPosition["
-			+ (gtidSetStr == null ? file + ":" + offset : gtidSetStr)
+			+ (hasGtidSet() ? getGtidSetStr() : file + ":" + offset)
 			+ "]";
 	}
 
 	public String fullPosition() {
 		String pos = file + ":" + offset;
-		if ( gtidSetStr != null )
-			pos += "[" + gtidSetStr + "]";
+		if ( hasGtidSet() )
+			pos += "[" + getGtidSetStr() + "]";
 		return pos;
 	}
 
@@ -96,7 +119,7 @@ public class BinlogPosition implements Serializable {
 		if ( other == null )
 			return true;
 
-		if (gtidSetStr != null) {
+		if (hasGtidSet()) {
 			return !getGtidSet().isContainedWithin(other.getGtidSet());
 		}
 
@@ -116,20 +139,27 @@ public class BinlogPosition implements Serializable {
 			return false;
 		BinlogPosition otherPosition = (BinlogPosition) other;
 
+		String gtidSetStr = getGtidSetStr();
 		return this.file.equals(otherPosition.file)
 			&& this.offset == otherPosition.offset
 			&& (gtidSetStr == null
-					? otherPosition.gtidSetStr == null
-					: gtidSetStr.equals(otherPosition.gtidSetStr)
+					? otherPosition.getGtidSetStr() == null
+					: gtidSetStr.equals(otherPosition.getGtidSetStr())
 				);
 	}
 
 	@Override
 	public int hashCode() {
+		String gtidSetStr = getGtidSetStr();
 		if (gtidSetStr != null) {
 			return gtidSetStr.hashCode();
 		} else {
 			return Long.valueOf(offset).hashCode();
 		}
 	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getGtidSetStr();
+		out.defaultWriteObject();
+	}
 }
@@ -0,0 +1,85 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.GtidSet;
+
+import java.util.ArrayDeque;
+
+/*
+   the executed gtid set as of some point in the binlog.
+
+   a snapshot is its parent plus one gtid.  The string form -- kilobytes on a
+   server with a long gtid history -- is only built when someone asks for it,
+   by replaying the added gtids onto the nearest ancestor that already has its
+   string.  Once built, the string is kept and the link to the parent dropped.
+
+   immutable from the outside and safe to share between threads; the worst a
+   race can do is build the same string twice.
+ */
+public class GtidSetSnapshot {
+	// build the string every so often anyway, so an unread chain can't grow forever
+	static final int MAX_CHAIN_LENGTH = 1024;
+
+	private final String addedGtid;
+	private final int chainLength;
+	private volatile GtidSetSnapshot parent;
+	private volatile String gtidSetStr;
+
+	public GtidSetSnapshot(String gtidSetStr) {
+		this.addedGtid = null;
+		this.chainLength = 0;
+		this.parent = null;
+		this.gtidSetStr = gtidSetStr;
+	}
+
+	private GtidSetSnapshot(GtidSetSnapshot parent, String gtid) {
+		this.addedGtid = gtid;
+		this.chainLength = parent.gtidSetStr != null ? 1 : parent.chainLength + 1;
+		this.parent = parent;
+		this.gtidSetStr = null;
+	}
+
+	/**
+	 * @return a snapshot of this set with `gtid` added.  Doesn't touch this snapshot.
+	 */
+	public GtidSetSnapshot add(String gtid) {
+		GtidSetSnapshot next = new GtidSetSnapshot(this, gtid);
+		if ( next.chainLength >= MAX_CHAIN_LENGTH )
+			next.toString();
+		return next;
+	}
+
+	public boolean isMaterialized() {
+		return gtidSetStr != null;
+	}
+
+	@Override
+	public String toString() {
+		String s = gtidSetStr;
+		if ( s != null )
+			return s;
+
+		ArrayDeque<String> added = new ArrayDeque<>();
+		GtidSetSnapshot node = this;
+		String base = null;
+		while ( base == null ) {
+			GtidSetSnapshot p = node.parent;
+			if ( p == null ) {
+				// someone built `node`'s string while we were walking
+				base = node.gtidSetStr;
+				break;
+			}
+			added.push(node.addedGtid);
+			node = p;
+			base = node.gtidSetStr;
+		}
+
+		GtidSet set = new GtidSet(base);
+		for ( String gtid : added )
+			set.add(gtid);
+
+		s = set.toString();
+		gtidSetStr = s;
+		parent = null;
+		return s;
+	}
+}
@@ -0,0 +1,74 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.GtidSet;
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.GtidEventData;
+import com.github.shyiko.mysql.binlog.event.QueryEventData;
+
+/*
+   follows the executed gtid set through the event stream, so we don't have to
+   ask BinaryLogClient#getGtidSet() -- which builds the whole string -- for
+   every event.
+
+   does the same bookkeeping as the client: a GTID event names the next
+   transaction, and its gtid joins the set when that transaction commits (XID,
+   COMMIT/ROLLBACK, or any statement outside of BEGIN...COMMIT).  All events
+   between two commits share a single snapshot.
+ */
+class GtidSetTracker {
+	private GtidSetSnapshot executed;
+	private String gtid;
+	private boolean gtidPending = false;
+	private boolean inTransaction = false;
+
+	/**
+	 * @param gtidSetStr the set we start replicating from, or null if we're not using gtids.
+	 */
+	GtidSetTracker(String gtidSetStr) {
+		// normalize the way the client would, so the first positions match what it used to report
+		this.executed = gtidSetStr == null ? null : new GtidSetSnapshot(new GtidSet(gtidSetStr).toString());
+	}
+
+	void update(Event event) {
+		switch ( event.getHeader().getEventType() ) {
+			case GTID:
+				gtid = ((GtidEventData) event.getData()).getGtid();
+				gtidPending = true;
+				break;
+			case XID:
+				commit();
+				break;
+			case QUERY:
+				String sql = ((QueryEventData) event.getData()).getSql();
+				if ( sql == null )
+					break;
+
+				if ( BinlogConnectorEvent.BEGIN.equals(sql) )
+					inTransaction = true;
+				else if ( BinlogConnectorEvent.COMMIT.equals(sql) || "ROLLBACK".equals(sql) || !inTransaction )
+					commit();
+				break;
+		}
+	}
+
+	private void commit() {
+		if ( executed != null && gtidPending )
+			executed = executed.add(gtid);
+		gtidPending = false;
+		inTransaction = false;
+	}
+
+	/**
+	 * @return the executed set as of the last event passed to update(), or null if we're not using gtids.
+	 */
+	GtidSetSnapshot getExecuted() {
+		return executed;
+	}
+
+	/**
+	 * @return the gtid of the transaction we're in (or just left)
+	 */
+	String getGtid() {
+		return gtid;
+	}
+}
@@ -0,0 +1,127 @@
+package com.zendesk.maxwell.replication;
+
+import com.zendesk.maxwell.row.RowMap;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+   fans rows-events out to a pool of worker threads for conversion into RowMaps,
+   handing the results back to the replicator thread in the order they were submitted.
+
+   the number of outstanding events is bounded so that a slow consumer
+   applies back-pressure to the binlog reader instead of piling up decoded rows.
+ */
+public class ParallelRowDecoder {
+	private static final int PENDING_EVENTS_PER_THREAD = 4;
+
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final ArrayDeque<Future<List<RowMap>>> pending;
+	private final int maxPending;
+
+	public ParallelRowDecoder(int numThreads) {
+		this(newExecutor(numThreads), numThreads, true);
+	}
+
+	/**
+	 * Decode on a pool shared with other replicators; shutdown() leaves it running.
+	 */
+	public ParallelRowDecoder(ExecutorService executor, int numThreads) {
+		this(executor, numThreads, false);
+	}
+
+	private ParallelRowDecoder(ExecutorService executor, int numThreads, boolean ownsExecutor) {
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.maxPending = numThreads * PENDING_EVENTS_PER_THREAD;
+		this.pending = new ArrayDeque<>(maxPending);
+	}
+
+	public static ExecutorService newExecutor(int numThreads) {
+		final AtomicInteger threadCounter = new AtomicInteger(0);
+		return Executors.newFixedThreadPool(numThreads, r -> {
+			Thread t = new Thread(r, "maxwell-row-decoder-" + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Queue up a decode task.  If too many tasks are outstanding, block until
+	 * the oldest one finishes and return its rows so the caller can consume them;
+	 * otherwise return null.
+	 */
+	public List<RowMap> submit(Callable<List<RowMap>> task) throws Exception {
+		List<RowMap> rows = null;
+		if ( pending.size() >= maxPending )
+			rows = take();
+
+		pending.add(executor.submit(task));
+		return rows;
+	}
+
+	/**
+	 * @return the rows from the oldest outstanding task if it has finished, otherwise null.
+	 */
+	public List<RowMap> poll() throws Exception {
+		Future<List<RowMap>> head = pending.peek();
+		if ( head == null || !head.isDone() )
+			return null;
+
+		return take();
+	}
+
+	/**
+	 * Wait for the oldest outstanding task and return its rows.
+	 */
+	public List<RowMap> take() throws Exception {
+		Future<List<RowMap>> head = pending.poll();
+		if ( head == null )
+			return null;
+
+		try {
+			return head.get();
+		} catch ( ExecutionException e ) {
+			cancel();
+			if ( e.getCause() instanceof Exception )
+				throw (Exception) e.getCause();
+			else
+				throw e;
+		}
+	}
+
+	public boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/* read by the metrics reporter; a slightly stale answer is fine */
+	public int size() {
+		return pending.size();
+	}
+
+	public int capacity() {
+		return maxPending;
+	}
+
+	/**
+	 * throw away all outstanding work, eg. after the replicator reconnects mid-transaction
+	 */
+	public void cancel() {
+		for ( Future<List<RowMap>> f : pending )
+			f.cancel(false);
+		pending.clear();
+	}
+
+	public void shutdown() {
+		cancel();
+		if ( ownsExecutor )
+			executor.shutdownNow();
+	}
+}
@@ -0,0 +1,17 @@
+package com.zendesk.maxwell.replication;
+
+/*
+   whether, and how wide, the replicator runs the stages after decoding
+   (transform -> serialize -> publish) on their own threads.
+ */
+public class PipelineConfig {
+	public boolean enabled;
+	public int queueSize;
+	public int serializeThreads;
+
+	public PipelineConfig() {
+		this.enabled = false;
+		this.queueSize = 256;
+		this.serializeThreads = 1;
+	}
+}
@@ -6,12 +6,15 @@ import com.zendesk.maxwell.schema.SchemaStoreException;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.util.StoppableTask;
 
+import java.util.List;
+
 /**
  * Created by ben on 10/23/16.
  */
 public interface Replicator extends StoppableTask {
 	void startReplicator() throws Exception;
 	RowMap getRow() throws Exception;
+	List<RowMap> getRows(int max) throws Exception;
 	Long getLastHeartbeatRead();
 	Schema getSchema() throws SchemaStoreException;
 	Long getSchemaId() throws SchemaStoreException;
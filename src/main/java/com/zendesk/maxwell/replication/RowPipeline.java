@@ -0,0 +1,126 @@
+package com.zendesk.maxwell.replication;
+
+import com.zendesk.maxwell.monitoring.Metrics;
+import com.zendesk.maxwell.monitoring.StageLatency;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.scripting.Scripting;
+import com.zendesk.maxwell.util.PipelineStage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+   the stages a row goes through after the replicator has read, decoded and
+   filtered it:
+
+     transform -- run the javascript filter, if any.  One thread: a nashorn
+                  engine can't be shared.
+     serialize -- render the row's JSON ahead of the producer, on
+                  `serializeThreads` threads.
+     publish   -- hand the row to the producer (or bootstrapper), in binlog order.
+
+   each stage has its own bounded queue and metrics (see PipelineStage), so
+   a backed-up stage shows up as a full queue and a utilization near 1 on the
+   stage itself, and a full queue on the stage before it.
+ */
+public class RowPipeline {
+	public interface Publisher {
+		void publish(RowMap row) throws Exception;
+	}
+
+	private final AtomicReference<Exception> error = new AtomicReference<>();
+	private final List<PipelineStage<RowMap, RowMap>> stages = new ArrayList<>();
+	private final PipelineStage<RowMap, RowMap> head;
+
+	public RowPipeline(PipelineConfig config, Metrics metrics, Scripting scripting, MaxwellOutputConfig outputConfig, Publisher publisher) {
+		String prefix = "replication.stage";
+		StageLatency latency = new StageLatency(metrics);
+
+		PipelineStage<RowMap, RowMap> publish = addStage(new PipelineStage<>(
+			"publish", 1, config.queueSize, metrics, prefix, error,
+			row -> {
+				publisher.publish(row);
+				return row;
+			},
+			null
+		));
+
+		PipelineStage<RowMap, RowMap> serialize = addStage(new PipelineStage<>(
+			"serialize", config.serializeThreads, config.queueSize, metrics, prefix, error,
+			row -> {
+				if ( row.shouldOutput(outputConfig) ) {
+					row.prerender(outputConfig);
+					latency.serialized(row);
+				}
+				return row;
+			},
+			publish::submit
+		));
+
+		if ( scripting != null ) {
+			this.head = addStage(new PipelineStage<>(
+				"transform", 1, config.queueSize, metrics, prefix, error,
+				row -> {
+					scripting.invoke(row);
+					return row;
+				},
+				serialize::submit
+			));
+		} else {
+			this.head = serialize;
+		}
+	}
+
+	private PipelineStage<RowMap, RowMap> addStage(PipelineStage<RowMap, RowMap> stage) {
+		stages.add(stage);
+		return stage;
+	}
+
+	public void start() {
+		for ( PipelineStage<RowMap, RowMap> stage : stages )
+			stage.start();
+	}
+
+	/**
+	 * Feed a row into the first stage, blocking while it's full.
+	 */
+	public void submit(RowMap row) throws Exception {
+		checkError();
+		head.submit(row);
+	}
+
+	/**
+	 * rethrow the first failure from any stage.
+	 */
+	public void checkError() throws Exception {
+		Exception e = error.get();
+		if ( e != null )
+			throw e;
+	}
+
+	/**
+	 * Wait for every row submitted so far to be published.
+	 */
+	public void drain() throws Exception {
+		while ( !isEmpty() ) {
+			checkError();
+			Thread.sleep(10);
+		}
+		checkError();
+	}
+
+	private boolean isEmpty() {
+		for ( PipelineStage<RowMap, RowMap> stage : stages ) {
+			if ( !stage.isEmpty() )
+				return false;
+		}
+		return true;
+	}
+
+	public void shutdown() {
+		for ( PipelineStage<RowMap, RowMap> stage : stages )
+			stage.shutdown();
+	}
+}
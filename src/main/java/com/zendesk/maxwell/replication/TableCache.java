@@ -1,57 +1,131 @@
 package com.zendesk.maxwell.replication;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 
 import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.schema.Database;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableAlter;
 
+/*
+   maps the table ids in TABLE_MAP events to our Tables.
+
+   entries are good for (tableId, schemaId): a DDL only invalidates the tables
+   it touches, and the survivors carry over to the new schema id.  If we're
+   ever asked about a schema id we didn't see coming, we start over.
+
+   mysql hands out table ids per server run, so after a restart an old id can
+   name a different table.  Every TABLE_MAP checks that the cached entry is
+   for the same db.table it names, so we don't need to flush on ROTATE.
+ */
 public class TableCache {
+	private static class Entry {
+		final String database;
+		final String table;
+		final Table resolved; // null when the table is blacklisted
+
+		Entry(String database, String table, Table resolved) {
+			this.database = database;
+			this.table = table;
+			this.resolved = resolved;
+		}
+
+		boolean isFor(String database, String table) {
+			return Objects.equals(this.database, database) && Objects.equals(this.table, table);
+		}
+
+		boolean touchedBy(String database, String table) {
+			if ( database == null || !database.equalsIgnoreCase(this.database) )
+				return false;
+			return table == null || table.equalsIgnoreCase(this.table);
+		}
+	}
+
 	private final String maxwellDB;
+	private final HashMap<Long, Entry> tableMapCache = new HashMap<>();
+	private Long schemaId;
 
 	public TableCache(String maxwellDB) {
 		this.maxwellDB = maxwellDB;
 	}
-	private final HashMap<Long, Table> tableMapCache = new HashMap<>();
-	private final HashMap<Long, String> blacklistedTableCache = new HashMap<>();
 
-	public void processEvent(Schema schema, Filter filter, Long tableId, String dbName, String tblName) {
-		if ( !tableMapCache.containsKey(tableId) ) {
-			if ( filter.isTableBlacklisted(dbName, tblName) ) {
-				blacklistedTableCache.put(tableId, tblName);
-				return;
-			}
+	public void processEvent(Schema schema, Long schemaId, Filter filter, Long tableId, String dbName, String tblName) {
+		if ( !Objects.equals(this.schemaId, schemaId) ) {
+			clear();
+			this.schemaId = schemaId;
+		}
+
+		Entry entry = tableMapCache.get(tableId);
+		if ( entry != null && entry.isFor(dbName, tblName) )
+			return;
+
+		if ( filter.isTableBlacklisted(dbName, tblName) ) {
+			tableMapCache.put(tableId, new Entry(dbName, tblName, null));
+			return;
+		}
+
+		Database db = schema.findDatabase(dbName);
+		if ( db == null )
+			throw new RuntimeException("Couldn't find database " + dbName);
+		else {
+			Table tbl = db.findTable(tblName);
 
-			Database db = schema.findDatabase(dbName);
-			if ( db == null )
-				throw new RuntimeException("Couldn't find database " + dbName);
-			else {
-				Table tbl = db.findTable(tblName);
+			if (tbl == null)
+				throw new RuntimeException("Couldn't find table " + tblName + " in database " + dbName);
+			else
+				tableMapCache.put(tableId, new Entry(dbName, tblName, tbl));
+		}
+	}
+
+	/**
+	 * Drop the tables a DDL touched, and move everything else over to the schema the DDL produced.
+	 *
+	 * @param changes the changes the schema store applied
+	 * @param schemaId the schema id after applying them
+	 */
+	public void invalidate(List<ResolvedSchemaChange> changes, Long schemaId) {
+		for ( ResolvedSchemaChange change : changes ) {
+			// database-level changes have no table name, and take out the whole database
+			invalidate(change.databaseName(), change.tableName());
 
-				if (tbl == null)
-					throw new RuntimeException("Couldn't find table " + tblName + " in database " + dbName);
-				else
-					tableMapCache.put(tableId, tbl);
+			if ( change instanceof ResolvedTableAlter ) {
+				Table newTable = ((ResolvedTableAlter) change).newTable;
+				if ( newTable != null )
+					invalidate(newTable.getDatabase(), newTable.getName());
 			}
 		}
+		this.schemaId = schemaId;
+	}
 
+	private void invalidate(String database, String table) {
+		Iterator<Entry> iterator = tableMapCache.values().iterator();
+		while ( iterator.hasNext() ) {
+			if ( iterator.next().touchedBy(database, table) )
+				iterator.remove();
+		}
 	}
 
 	public Table getTable(Long tableId) {
-		return tableMapCache.get(tableId);
+		Entry entry = tableMapCache.get(tableId);
+		return entry == null ? null : entry.resolved;
 	}
 
 	public boolean isTableBlacklisted(Long tableId) {
-		return blacklistedTableCache.containsKey(tableId);
+		Entry entry = tableMapCache.get(tableId);
+		return entry != null && entry.resolved == null;
 	}
 
 	public String getBlacklistedTableName(Long tableId) {
-		return blacklistedTableCache.get(tableId);
+		Entry entry = tableMapCache.get(tableId);
+		return entry == null || entry.resolved != null ? null : entry.table;
 	}
 
 	public void clear() {
 		tableMapCache.clear();
-		blacklistedTableCache.clear();
 	}
 }
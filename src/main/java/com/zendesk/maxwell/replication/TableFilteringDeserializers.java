@@ -0,0 +1,190 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.DeleteRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.TableMapEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.UpdateRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.WriteRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.io.ByteArrayInputStream;
+import com.zendesk.maxwell.filtering.Filter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+   binlog-connector deserializers that skip the row images of tables our filter
+   can never output, instead of decoding every column into a Serializable[] only
+   for the replicator to throw it away.
+
+   The rows-event itself (table id, column bitmaps) is still produced, so the
+   replicator sees the same event stream as before -- the event just has no rows.
+
+   These run on the binlog client's thread, ahead of the replicator, so the skip
+   decision is made from the TABLE_MAP's database/table names alone.
+ */
+public class TableFilteringDeserializers {
+	private final Filter filter;
+	private final Map<Long, TableMapEventData> tableMapEventByTableId = new HashMap<>();
+	private final Map<Long, Boolean> rejectedTables = new HashMap<>();
+
+	public TableFilteringDeserializers(Filter filter) {
+		this.filter = filter;
+	}
+
+	public void register(EventDeserializer eventDeserializer) {
+		eventDeserializer.setEventDataDeserializer(EventType.TABLE_MAP, new TableMapDeserializer());
+
+		eventDeserializer.setEventDataDeserializer(EventType.WRITE_ROWS, new WriteRowsDeserializer(false));
+		eventDeserializer.setEventDataDeserializer(EventType.EXT_WRITE_ROWS, new WriteRowsDeserializer(true));
+		eventDeserializer.setEventDataDeserializer(EventType.UPDATE_ROWS, new UpdateRowsDeserializer(false));
+		eventDeserializer.setEventDataDeserializer(EventType.EXT_UPDATE_ROWS, new UpdateRowsDeserializer(true));
+		eventDeserializer.setEventDataDeserializer(EventType.DELETE_ROWS, new DeleteRowsDeserializer(false));
+		eventDeserializer.setEventDataDeserializer(EventType.EXT_DELETE_ROWS, new DeleteRowsDeserializer(true));
+	}
+
+	boolean shouldSkipRows(long tableId) {
+		Boolean rejected = rejectedTables.get(tableId);
+		if ( rejected == null ) {
+			TableMapEventData tableMap = tableMapEventByTableId.get(tableId);
+			if ( tableMap == null )
+				return false;
+
+			rejected = Filter.rejectsTable(filter, tableMap.getDatabase(), tableMap.getTable());
+			rejectedTables.put(tableId, rejected);
+		}
+		return rejected;
+	}
+
+	/*
+		the common header of all rows-events; after this comes one or two row images per row.
+	 */
+	private static long readRowsHeader(ByteArrayInputStream inputStream, boolean mayContainExtraInformation) throws IOException {
+		long tableId = inputStream.readLong(6);
+		inputStream.skip(2); // reserved
+		if ( mayContainExtraInformation ) {
+			int extraInfoLength = inputStream.readInteger(2);
+			inputStream.skip(extraInfoLength - 2);
+		}
+		return tableId;
+	}
+
+	private static void skipRows(ByteArrayInputStream inputStream) throws IOException {
+		inputStream.skip(inputStream.available());
+	}
+
+	private class TableMapDeserializer extends TableMapEventDataDeserializer {
+		@Override
+		public TableMapEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			TableMapEventData data = super.deserialize(inputStream);
+			tableMapEventByTableId.put(data.getTableId(), data);
+			rejectedTables.remove(data.getTableId());
+			return data;
+		}
+	}
+
+	private class WriteRowsDeserializer extends WriteRowsEventDataDeserializer {
+		private final boolean mayContainExtraInformation;
+
+		WriteRowsDeserializer(boolean mayContainExtraInformation) {
+			super(tableMapEventByTableId);
+			this.mayContainExtraInformation = mayContainExtraInformation;
+			setMayContainExtraInformation(mayContainExtraInformation);
+		}
+
+		@Override
+		public WriteRowsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			WriteRowsEventData eventData = new WriteRowsEventData();
+			eventData.setTableId(readRowsHeader(inputStream, mayContainExtraInformation));
+
+			int numberOfColumns = inputStream.readPackedInteger();
+			BitSet includedColumns = inputStream.readBitSet(numberOfColumns, true);
+			eventData.setIncludedColumns(includedColumns);
+
+			List<Serializable[]> rows = new ArrayList<>();
+			if ( shouldSkipRows(eventData.getTableId()) ) {
+				skipRows(inputStream);
+			} else {
+				while ( inputStream.available() > 0 )
+					rows.add(deserializeRow(eventData.getTableId(), includedColumns, inputStream));
+			}
+			eventData.setRows(rows);
+			return eventData;
+		}
+	}
+
+	private class UpdateRowsDeserializer extends UpdateRowsEventDataDeserializer {
+		private final boolean mayContainExtraInformation;
+
+		UpdateRowsDeserializer(boolean mayContainExtraInformation) {
+			super(tableMapEventByTableId);
+			this.mayContainExtraInformation = mayContainExtraInformation;
+			setMayContainExtraInformation(mayContainExtraInformation);
+		}
+
+		@Override
+		public UpdateRowsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			UpdateRowsEventData eventData = new UpdateRowsEventData();
+			eventData.setTableId(readRowsHeader(inputStream, mayContainExtraInformation));
+
+			int numberOfColumns = inputStream.readPackedInteger();
+			BitSet includedColumnsBeforeUpdate = inputStream.readBitSet(numberOfColumns, true);
+			BitSet includedColumns = inputStream.readBitSet(numberOfColumns, true);
+			eventData.setIncludedColumnsBeforeUpdate(includedColumnsBeforeUpdate);
+			eventData.setIncludedColumns(includedColumns);
+
+			List<Map.Entry<Serializable[], Serializable[]>> rows = new ArrayList<>();
+			if ( shouldSkipRows(eventData.getTableId()) ) {
+				skipRows(inputStream);
+			} else {
+				while ( inputStream.available() > 0 ) {
+					Serializable[] before = deserializeRow(eventData.getTableId(), includedColumnsBeforeUpdate, inputStream);
+					Serializable[] after = deserializeRow(eventData.getTableId(), includedColumns, inputStream);
+					rows.add(new AbstractMap.SimpleEntry<>(before, after));
+				}
+			}
+			eventData.setRows(rows);
+			return eventData;
+		}
+	}
+
+	private class DeleteRowsDeserializer extends DeleteRowsEventDataDeserializer {
+		private final boolean mayContainExtraInformation;
+
+		DeleteRowsDeserializer(boolean mayContainExtraInformation) {
+			super(tableMapEventByTableId);
+			this.mayContainExtraInformation = mayContainExtraInformation;
+			setMayContainExtraInformation(mayContainExtraInformation);
+		}
+
+		@Override
+		public DeleteRowsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			DeleteRowsEventData eventData = new DeleteRowsEventData();
+			eventData.setTableId(readRowsHeader(inputStream, mayContainExtraInformation));
+
+			int numberOfColumns = inputStream.readPackedInteger();
+			BitSet includedColumns = inputStream.readBitSet(numberOfColumns, true);
+			eventData.setIncludedColumns(includedColumns);
+
+			List<Serializable[]> rows = new ArrayList<>();
+			if ( shouldSkipRows(eventData.getTableId()) ) {
+				skipRows(inputStream);
+			} else {
+				while ( inputStream.available() > 0 )
+					rows.add(deserializeRow(eventData.getTableId(), includedColumns, inputStream));
+			}
+			eventData.setRows(rows);
+			return eventData;
+		}
+	}
+}
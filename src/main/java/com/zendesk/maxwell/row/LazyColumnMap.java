@@ -0,0 +1,221 @@
+package com.zendesk.maxwell.row;
+
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/*
+   the column -> value map behind RowMap.data.  Values may be stored as the raw
+   binlog value plus the column definition, and are only run through
+   ColumnDef#asJSON the first time someone reads them.  Columns that get dropped
+   by exclude_columns, a filter or a script before output are never converted.
+
+   anything that can hand out values (get, iteration, equals, serialization...)
+   converts first, so callers never see an unconverted value.
+ */
+public class LazyColumnMap extends LinkedHashMap<String, Object> {
+	private static final class Pending {
+		private final ColumnDef columnDef;
+		private final Serializable raw;
+		private final MaxwellOutputConfig outputConfig;
+
+		private Pending(ColumnDef columnDef, Serializable raw, MaxwellOutputConfig outputConfig) {
+			this.columnDef = columnDef;
+			this.raw = raw;
+			this.outputConfig = outputConfig;
+		}
+
+		private Object convert() {
+			return columnDef.asJSON(raw, outputConfig);
+		}
+	}
+
+	private boolean hasPending = false;
+
+	public void putRaw(ColumnDef columnDef, Serializable raw, MaxwellOutputConfig outputConfig) {
+		if ( raw == null ) {
+			super.put(columnDef.getName(), null);
+		} else {
+			super.put(columnDef.getName(), new Pending(columnDef, raw, outputConfig));
+			hasPending = true;
+		}
+	}
+
+	/**
+	 * @return true if `key` is still unconverted and was built from a raw value equal to `raw`.
+	 *         false means "don't know", not "different".
+	 */
+	public boolean holdsRaw(String key, Serializable raw) {
+		Object value = super.get(key);
+		if ( value instanceof Pending )
+			return Objects.deepEquals(((Pending) value).raw, raw);
+		else
+			return value == null && raw == null && super.containsKey(key);
+	}
+
+	boolean isPending(String key) {
+		return super.get(key) instanceof Pending;
+	}
+
+	private Object materialize(Object key, Object value) {
+		if ( !(value instanceof Pending) )
+			return value;
+
+		Object converted = ((Pending) value).convert();
+		super.put((String) key, converted);
+		return converted;
+	}
+
+	private void materializeAll() {
+		if ( !hasPending )
+			return;
+
+		for ( Map.Entry<String, Object> e : super.entrySet() ) {
+			if ( e.getValue() instanceof Pending )
+				e.setValue(((Pending) e.getValue()).convert());
+		}
+		hasPending = false;
+	}
+
+	@Override
+	public Object get(Object key) {
+		return materialize(key, super.get(key));
+	}
+
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		if ( !super.containsKey(key) )
+			return defaultValue;
+		return get(key);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		Object old = super.put(key, value);
+		return old instanceof Pending ? ((Pending) old).convert() : old;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		Object old = super.remove(key);
+		return old instanceof Pending ? ((Pending) old).convert() : old;
+	}
+
+	/**
+	 * drop `key` without converting its value, for columns that are never output.
+	 */
+	void discard(String key) {
+		super.remove(key);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		get(key);
+		return super.remove(key, value);
+	}
+
+	@Override
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		get(key);
+		return super.replace(key, oldValue, newValue);
+	}
+
+	@Override
+	public Object replace(String key, Object value) {
+		get(key);
+		return super.replace(key, value);
+	}
+
+	@Override
+	public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+		get(key);
+		return super.computeIfAbsent(key, mappingFunction);
+	}
+
+	@Override
+	public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+		get(key);
+		return super.computeIfPresent(key, remappingFunction);
+	}
+
+	@Override
+	public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+		get(key);
+		return super.compute(key, remappingFunction);
+	}
+
+	@Override
+	public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+		get(key);
+		return super.merge(key, value, remappingFunction);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		materializeAll();
+		return super.containsValue(value);
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		materializeAll();
+		return super.entrySet();
+	}
+
+	@Override
+	public Collection<Object> values() {
+		materializeAll();
+		return super.values();
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super String, ? super Object> action) {
+		materializeAll();
+		super.forEach(action);
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+		materializeAll();
+		super.replaceAll(function);
+	}
+
+	@Override
+	public Object clone() {
+		materializeAll();
+		return super.clone();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		materializeAll();
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		materializeAll();
+		return super.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		materializeAll();
+		return super.toString();
+	}
+
+	// HashMap serializes its entries directly, so convert everything before it gets the chance.
+	private Object writeReplace() {
+		materializeAll();
+		return this;
+	}
+}
@@ -5,6 +5,7 @@ import com.zendesk.maxwell.producer.EncryptionMode;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +43,7 @@ public class RowMap implements Serializable {
 	private Long threadId;
 	private Long schemaId;
 
-	private final LinkedHashMap<String, Object> data;
+	private final LazyColumnMap data;
 	private final LinkedHashMap<String, Object> oldData;
 
 	private final LinkedHashMap<String, Object> extraAttributes;
@@ -52,6 +53,16 @@ public class RowMap implements Serializable {
 
 	private long approximateSize;
 
+	/* System.nanoTime() as the row passes each stage, for the latency.* metrics; 0 if it never did */
+	private long receivedAtNanos;
+	private long dequeuedAtNanos;
+	private long decodedAtNanos;
+	private long serializedAtNanos;
+
+	/* set by prerender(); any change to the row throws it away */
+	private transient String renderedJSON;
+	private transient MaxwellOutputConfig renderedConfig;
+
 	public RowMap(String type, String database, String table, Long timestampMillis, List<String> pkColumns,
 			Position position, Position nextPosition, String rowQuery) {
 		this.rowQuery = rowQuery;
@@ -60,7 +71,7 @@ public class RowMap implements Serializable {
 		this.table = table;
 		this.timestampMillis = timestampMillis;
 		this.timestampSeconds = timestampMillis / 1000;
-		this.data = new LinkedHashMap<>();
+		this.data = new LazyColumnMap();
 		this.oldData = new LinkedHashMap<>();
 		this.extraAttributes = new LinkedHashMap<>();
 		this.position = position;
@@ -92,6 +103,10 @@ public class RowMap implements Serializable {
 		return rowIdentity;
 	}
 
+	List<String> getPKColumns() {
+		return pkColumns;
+	}
+
 	public String pkToJson(KeyFormat format) throws IOException {
 		return getRowIdentity().toKeyJson(format);
 	}
@@ -130,7 +145,32 @@ public class RowMap implements Serializable {
 		return toJSON(new MaxwellOutputConfig());
 	}
 
+	/**
+	 * Serialize the row now, so that a later toJSON() with the same output config
+	 * is free.  Meant for rows that are done changing.
+	 */
+	public void prerender(MaxwellOutputConfig outputConfig) throws Exception {
+		if ( renderedJSON != null && renderedConfig == outputConfig )
+			return;
+
+		String json = renderJSON(outputConfig);
+		this.renderedJSON = json;
+		this.renderedConfig = outputConfig;
+	}
+
+	protected void invalidateRendering() {
+		this.renderedJSON = null;
+		this.renderedConfig = null;
+	}
+
 	public String toJSON(MaxwellOutputConfig outputConfig) throws Exception {
+		if ( renderedJSON != null && renderedConfig == outputConfig )
+			return renderedJSON;
+
+		return renderJSON(outputConfig);
+	}
+
+	private String renderJSON(MaxwellOutputConfig outputConfig) throws Exception {
 		MaxwellJson json = MaxwellJson.getInstance();
 		JsonGenerator g = json.reset();
 
@@ -189,7 +229,7 @@ public class RowMap implements Serializable {
 			for ( Pattern p : outputConfig.excludeColumns ) {
 				for ( String key : keys ) {
 					if ( p.matcher(key).matches() ) {
-						this.data.remove(key);
+						this.data.discard(key);
 						this.oldData.remove(key);
 					}
 				}
@@ -220,6 +260,9 @@ public class RowMap implements Serializable {
 			json.getEncryptingGenerator().writeEncryptedObject(plaintext, encryptionContext);
 		}
 
+		if ( serializedAtNanos == 0 )
+			serializedAtNanos = System.nanoTime();
+
 		return json.consume();
 	}
 
@@ -242,6 +285,8 @@ public class RowMap implements Serializable {
 
 		if ( value instanceof String ) {
 			length += ((String) value).length() * 2;
+		} else if ( value instanceof byte[] ) {
+			length += ((byte[]) value).length;
 		} else {
 			length += 64;
 		}
@@ -250,17 +295,37 @@ public class RowMap implements Serializable {
 	}
 
 	public void putData(String key, Object value) {
+		invalidateRendering();
 		this.data.put(key, value);
 
 		this.approximateSize += approximateKVSize(key, value);
 	}
 
+	/**
+	 * Store a raw binlog value for `columnDef`; it's converted with ColumnDef#asJSON
+	 * the first time the column is read.
+	 */
+	public void putRawData(ColumnDef columnDef, Serializable raw, MaxwellOutputConfig outputConfig) {
+		invalidateRendering();
+		this.data.putRaw(columnDef, raw, outputConfig);
+
+		this.approximateSize += approximateKVSize(columnDef.getName(), raw);
+	}
+
+	/**
+	 * @return true if column `key` has not been converted yet and was stored from a raw value equal to `raw`
+	 */
+	public boolean dataHoldsRaw(String key, Serializable raw) {
+		return this.data.holdsRaw(key, raw);
+	}
+
 	public void putExtraAttribute(String key, Object value) {
 		if (FieldNames.isProtected(key)) {
 			throw new ProtectedAttributeNameException("Extra attribute key name '" + key + "' is " +
 					"a protected name. Must not be any of: " +
 					String.join(", ", FieldNames.getFieldnames()));
 		}
+		invalidateRendering();
 		this.extraAttributes.put(key, value);
 
 		this.approximateSize += approximateKVSize(key, value);
@@ -271,6 +336,7 @@ public class RowMap implements Serializable {
 	}
 
 	public void putOldData(String key, Object value) {
+		invalidateRendering();
 		this.oldData.put(key, value);
 
 		this.approximateSize += approximateKVSize(key, value);
@@ -284,6 +350,7 @@ public class RowMap implements Serializable {
 	}
 
 	public void setXid(Long xid) {
+		invalidateRendering();
 		this.xid = xid;
 	}
 
@@ -292,10 +359,12 @@ public class RowMap implements Serializable {
 	}
 
 	public void setXoffset(Long xoffset) {
+		invalidateRendering();
 		this.xoffset = xoffset;
 	}
 
 	public void setTXCommit() {
+		invalidateRendering();
 		this.txCommit = true;
 	}
 
@@ -308,6 +377,7 @@ public class RowMap implements Serializable {
 	}
 
 	public void setServerId(Long serverId) {
+		invalidateRendering();
 		this.serverId = serverId;
 	}
 
@@ -316,6 +386,7 @@ public class RowMap implements Serializable {
 	}
 
 	public void setThreadId(Long threadId) {
+		invalidateRendering();
 		this.threadId = threadId;
 	}
 
@@ -324,6 +395,7 @@ public class RowMap implements Serializable {
 	}
 
 	public void setSchemaId(Long schemaId) {
+		invalidateRendering();
 		this.schemaId = schemaId;
 	}
 
@@ -352,6 +424,7 @@ public class RowMap implements Serializable {
 	}
 
 	public void setRowQuery(String query) {
+		invalidateRendering();
 		this.rowQuery = query;
 	}
 
@@ -385,6 +458,34 @@ public class RowMap implements Serializable {
 		this.suppressed = true;
 	}
 
+	public long getReceivedAtNanos() {
+		return receivedAtNanos;
+	}
+
+	public void setReceivedAtNanos(long receivedAtNanos) {
+		this.receivedAtNanos = receivedAtNanos;
+	}
+
+	public long getDequeuedAtNanos() {
+		return dequeuedAtNanos;
+	}
+
+	public void setDequeuedAtNanos(long dequeuedAtNanos) {
+		this.dequeuedAtNanos = dequeuedAtNanos;
+	}
+
+	public long getDecodedAtNanos() {
+		return decodedAtNanos;
+	}
+
+	public void setDecodedAtNanos(long decodedAtNanos) {
+		this.decodedAtNanos = decodedAtNanos;
+	}
+
+	public long getSerializedAtNanos() {
+		return serializedAtNanos;
+	}
+
 	public String getKafkaTopic() {
 		return this.kafkaTopic;
 	}
@@ -1,28 +1,36 @@
 package com.zendesk.maxwell.row;
 
+import com.zendesk.maxwell.util.DiskBufferConfig;
 import com.zendesk.maxwell.util.ListWithDiskBuffer;
 
 import java.io.IOException;
 
 public class RowMapBuffer extends ListWithDiskBuffer<RowMap> {
-	private static long FlushOutputStreamBytes = 10000000;
 	private Long xid;
 	private Long xoffset = 0L;
 	private Long serverId;
 	private Long threadId;
 	private Long schemaId;
 	private long memorySize = 0;
-	private long outputStreamCacheSize = 0;
 	private final long maxMemory;
+	private final boolean offHeap;
 
 	public RowMapBuffer(long maxInMemoryElements) {
-		super(maxInMemoryElements);
-		this.maxMemory = (long) (Runtime.getRuntime().maxMemory() * 0.25);
+		this(maxInMemoryElements, new DiskBufferConfig());
+	}
+
+	public RowMapBuffer(long maxInMemoryElements, DiskBufferConfig config) {
+		this(maxInMemoryElements, (long) (Runtime.getRuntime().maxMemory() * 0.25), config);
 	}
 
 	public RowMapBuffer(long maxInMemoryElements, long maxMemory) {
-		super(maxInMemoryElements);
+		this(maxInMemoryElements, maxMemory, new DiskBufferConfig());
+	}
+
+	public RowMapBuffer(long maxInMemoryElements, long maxMemory, DiskBufferConfig config) {
+		super(maxInMemoryElements, new RowMapCodec(), config);
 		this.maxMemory = maxMemory;
+		this.offHeap = config.offHeapPool != null;
 	}
 
 	@Override
@@ -31,8 +39,15 @@ public class RowMapBuffer extends ListWithDiskBuffer<RowMap> {
 		super.add(rowMap);
 	}
 
+	/*
+	   with an off-heap pool to spill into, we hold at most `maxInMemoryElements`
+	   rows on the heap; otherwise we keep them until they take up `maxMemory`.
+	 */
 	@Override
 	protected boolean shouldBuffer() {
+		if ( offHeap && super.shouldBuffer() )
+			return true;
+
 		return memorySize > maxMemory;
 	}
 
@@ -40,16 +55,6 @@ public class RowMapBuffer extends ListWithDiskBuffer<RowMap> {
 	protected RowMap evict() throws IOException {
 		RowMap r = super.evict();
 		this.memorySize -= r.getApproximateSize();
-
-		/* For performance reasons, the output stream will hold on to cached objects.
-		 * There's probably a smarter thing to do (write our own serdes, maybe?), but
-		 * for now we forcibly flush its cache when it gets too big. */
-		this.outputStreamCacheSize += r.getApproximateSize();
-		if ( this.outputStreamCacheSize > FlushOutputStreamBytes ) {
-			resetOutputStreamCaches();
-			this.outputStreamCacheSize = 0;
-		}
-
 		return r;
 	}
 
@@ -64,6 +69,33 @@ public class RowMapBuffer extends ListWithDiskBuffer<RowMap> {
 		return r;
 	}
 
+	/**
+	 * Pick up where `previous` left off in the same transaction, so that
+	 * rows in this buffer continue its xoffset sequence.
+	 */
+	public void continueFrom(RowMapBuffer previous) {
+		this.xoffset = previous.xoffset;
+		this.serverId = previous.serverId;
+		this.threadId = previous.threadId;
+		this.schemaId = previous.schemaId;
+	}
+
+	public Long getXoffset() {
+		return xoffset;
+	}
+
+	public Long getServerId() {
+		return serverId;
+	}
+
+	public Long getThreadId() {
+		return threadId;
+	}
+
+	public Long getSchemaId() {
+		return schemaId;
+	}
+
 	public void setXid(Long xid) {
 		this.xid = xid;
 	}
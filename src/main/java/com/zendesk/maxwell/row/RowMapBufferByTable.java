@@ -1,20 +1,32 @@
 package com.zendesk.maxwell.row;
 
+import com.zendesk.maxwell.util.DiskBufferConfig;
+
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 
-public class RowMapBufferByTable {
+public class RowMapBufferByTable implements Closeable {
 
 	private final long MAX_TX_ELEMENTS = 10000;
 
 	private class Buffer extends RowMapBuffer {
 		public Buffer() throws IOException {
-			super(MAX_TX_ELEMENTS);
+			super(MAX_TX_ELEMENTS, config);
 		}
 	}
 
 	private HashMap<String, Buffer> buffers = new LinkedHashMap<>();
+	private final DiskBufferConfig config;
+
+	public RowMapBufferByTable() {
+		this(new DiskBufferConfig());
+	}
+
+	public RowMapBufferByTable(DiskBufferConfig config) {
+		this.config = config;
+	}
 
 	public void add(RowMap row) throws IOException {
 		getBuffer(row).add(row);
@@ -32,6 +44,22 @@ public class RowMapBufferByTable {
 		getBuffer(databaseName, tableName).flushToDisk();
 	}
 
+	/*
+	   drop a table's buffer along with any spill files it still has.
+	 */
+	public void close(String databaseName, String tableName) throws IOException {
+		Buffer buffer = buffers.remove(getKey(databaseName, tableName));
+		if ( buffer != null )
+			buffer.close();
+	}
+
+	@Override
+	public void close() throws IOException {
+		for ( Buffer buffer : buffers.values() )
+			buffer.close();
+		buffers.clear();
+	}
+
 	private Buffer getBuffer(RowMap row) throws IOException {
 		return getBuffer(getKey(row));
 	}
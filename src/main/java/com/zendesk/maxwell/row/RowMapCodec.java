@@ -0,0 +1,332 @@
+package com.zendesk.maxwell.row;
+
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.util.SpillCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+   binary encoding of RowMaps for spilling a RowMapBuffer to disk.
+
+   plain RowMaps are written field by field, with a one-byte tag in front of
+   every column value; the value types ColumnDef#asJSON produces all have their
+   own tag.  Anything else -- RowMap subclasses, odd values a script stuck in
+   a row -- falls back to java serialization.
+ */
+public class RowMapCodec implements SpillCodec<RowMap> {
+	private static final byte ROW = 1;
+	private static final byte SERIALIZED_ROW = 2;
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte LONG = 2;
+	private static final byte INTEGER = 3;
+	private static final byte SHORT = 4;
+	private static final byte DOUBLE = 5;
+	private static final byte FLOAT = 6;
+	private static final byte BOOLEAN = 7;
+	private static final byte BIG_DECIMAL = 8;
+	private static final byte BIG_INTEGER = 9;
+	private static final byte RAW_JSON = 10;
+	private static final byte LIST = 11;
+	private static final byte BYTES = 12;
+	private static final byte SERIALIZED = 13;
+
+	@Override
+	public void write(RowMap row, DataOutput out) throws IOException {
+		if ( row.getClass() != RowMap.class ) {
+			out.writeByte(SERIALIZED_ROW);
+			writeSerialized(row, out);
+			return;
+		}
+
+		out.writeByte(ROW);
+		writeString(row.getRowType(), out);
+		writeString(row.getDatabase(), out);
+		writeString(row.getTable(), out);
+		out.writeLong(row.getTimestampMillis());
+		writePosition(row.getPosition(), out);
+		writePosition(row.getNextPosition(), out);
+		writeString(row.getRowQuery(), out);
+		writeString(row.getKafkaTopic(), out);
+		out.writeBoolean(row.suppressed);
+		out.writeBoolean(row.isTXCommit());
+
+		writeLong(row.getXid(), out);
+		writeLong(row.getXoffset(), out);
+		writeLong(row.getServerId(), out);
+		writeLong(row.getThreadId(), out);
+		writeLong(row.getSchemaId(), out);
+
+		// latency marks; nanoTime is only good within this jvm, but so is a spill file
+		out.writeLong(row.getReceivedAtNanos());
+		out.writeLong(row.getDequeuedAtNanos());
+		out.writeLong(row.getDecodedAtNanos());
+
+		List<String> pkColumns = row.getPKColumns();
+		out.writeInt(pkColumns.size());
+		for ( String pk : pkColumns )
+			writeString(pk, out);
+
+		writeMap(row.getData(), out);
+		writeMap(row.getOldData(), out);
+		writeMap(row.getExtraAttributes(), out);
+	}
+
+	@Override
+	public RowMap read(DataInput in) throws IOException {
+		byte kind = in.readByte();
+		if ( kind == SERIALIZED_ROW )
+			return (RowMap) readSerialized(in);
+		else if ( kind != ROW )
+			throw new IOException("corrupt spill data: unknown row tag " + kind);
+
+		String type = readString(in);
+		String database = readString(in);
+		String table = readString(in);
+		long timestampMillis = in.readLong();
+		Position position = readPosition(in);
+		Position nextPosition = readPosition(in);
+		String rowQuery = readString(in);
+		String kafkaTopic = readString(in);
+		boolean suppressed = in.readBoolean();
+		boolean txCommit = in.readBoolean();
+
+		Long xid = readLong(in);
+		Long xoffset = readLong(in);
+		Long serverId = readLong(in);
+		Long threadId = readLong(in);
+		Long schemaId = readLong(in);
+
+		long receivedAtNanos = in.readLong();
+		long dequeuedAtNanos = in.readLong();
+		long decodedAtNanos = in.readLong();
+
+		int nPK = in.readInt();
+		List<String> pkColumns = new ArrayList<>(nPK);
+		for ( int i = 0; i < nPK; i++ )
+			pkColumns.add(readString(in));
+
+		RowMap row = new RowMap(type, database, table, timestampMillis, pkColumns, position, nextPosition, rowQuery);
+		row.setKafkaTopic(kafkaTopic);
+		row.suppressed = suppressed;
+		if ( txCommit )
+			row.setTXCommit();
+		row.setXid(xid);
+		row.setXoffset(xoffset);
+		row.setServerId(serverId);
+		row.setThreadId(threadId);
+		row.setSchemaId(schemaId);
+		row.setReceivedAtNanos(receivedAtNanos);
+		row.setDequeuedAtNanos(dequeuedAtNanos);
+		row.setDecodedAtNanos(decodedAtNanos);
+
+		int n = in.readInt();
+		for ( int i = 0; i < n; i++ )
+			row.putData(readString(in), readValue(in));
+
+		n = in.readInt();
+		for ( int i = 0; i < n; i++ )
+			row.putOldData(readString(in), readValue(in));
+
+		n = in.readInt();
+		for ( int i = 0; i < n; i++ )
+			row.putExtraAttribute(readString(in), readValue(in));
+
+		return row;
+	}
+
+	private static void writeString(String s, DataOutput out) throws IOException {
+		if ( s == null ) {
+			out.writeInt(-1);
+		} else {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if ( length < 0 )
+			return null;
+
+		byte[] b = new byte[length];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private static void writeLong(Long l, DataOutput out) throws IOException {
+		out.writeBoolean(l != null);
+		if ( l != null )
+			out.writeLong(l);
+	}
+
+	private static Long readLong(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readLong() : null;
+	}
+
+	private static void writePosition(Position p, DataOutput out) throws IOException {
+		out.writeBoolean(p != null);
+		if ( p == null )
+			return;
+
+		BinlogPosition b = p.getBinlogPosition();
+		writeString(b.getGtidSetStr(), out);
+		writeString(b.getGtid(), out);
+		out.writeLong(b.getOffset());
+		writeString(b.getFile(), out);
+		out.writeLong(p.getLastHeartbeatRead());
+	}
+
+	private static Position readPosition(DataInput in) throws IOException {
+		if ( !in.readBoolean() )
+			return null;
+
+		String gtidSetStr = readString(in);
+		String gtid = readString(in);
+		long offset = in.readLong();
+		String file = readString(in);
+		long lastHeartbeatRead = in.readLong();
+		return new Position(new BinlogPosition(gtidSetStr, gtid, offset, file), lastHeartbeatRead);
+	}
+
+	private static void writeMap(Map<String, Object> map, DataOutput out) throws IOException {
+		out.writeInt(map.size());
+		for ( Map.Entry<String, Object> e : map.entrySet() ) {
+			writeString(e.getKey(), out);
+			writeValue(e.getValue(), out);
+		}
+	}
+
+	private static void writeValue(Object value, DataOutput out) throws IOException {
+		if ( value == null ) {
+			out.writeByte(NULL);
+		} else if ( value instanceof String ) {
+			out.writeByte(STRING);
+			writeString((String) value, out);
+		} else if ( value instanceof Long ) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if ( value instanceof Integer ) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		} else if ( value instanceof Short ) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		} else if ( value instanceof Double ) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if ( value instanceof Float ) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if ( value instanceof Boolean ) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if ( value instanceof BigDecimal ) {
+			out.writeByte(BIG_DECIMAL);
+			BigDecimal d = (BigDecimal) value;
+			out.writeInt(d.scale());
+			writeBytes(d.unscaledValue().toByteArray(), out);
+		} else if ( value instanceof BigInteger ) {
+			out.writeByte(BIG_INTEGER);
+			writeBytes(((BigInteger) value).toByteArray(), out);
+		} else if ( value instanceof RawJSONString ) {
+			out.writeByte(RAW_JSON);
+			writeString(((RawJSONString) value).json, out);
+		} else if ( value instanceof byte[] ) {
+			out.writeByte(BYTES);
+			writeBytes((byte[]) value, out);
+		} else if ( value instanceof ArrayList ) {
+			out.writeByte(LIST);
+			List<?> list = (List<?>) value;
+			out.writeInt(list.size());
+			for ( Object o : list )
+				writeValue(o, out);
+		} else {
+			out.writeByte(SERIALIZED);
+			writeSerialized(value, out);
+		}
+	}
+
+	private static Object readValue(DataInput in) throws IOException {
+		byte tag = in.readByte();
+		switch ( tag ) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(in);
+			case LONG:
+				return in.readLong();
+			case INTEGER:
+				return in.readInt();
+			case SHORT:
+				return in.readShort();
+			case DOUBLE:
+				return in.readDouble();
+			case FLOAT:
+				return in.readFloat();
+			case BOOLEAN:
+				return in.readBoolean();
+			case BIG_DECIMAL:
+				int scale = in.readInt();
+				return new BigDecimal(new BigInteger(readBytes(in)), scale);
+			case BIG_INTEGER:
+				return new BigInteger(readBytes(in));
+			case RAW_JSON:
+				return new RawJSONString(readString(in));
+			case BYTES:
+				return readBytes(in);
+			case LIST:
+				int size = in.readInt();
+				ArrayList<Object> list = new ArrayList<>(size);
+				for ( int i = 0; i < size; i++ )
+					list.add(readValue(in));
+				return list;
+			case SERIALIZED:
+				return readSerialized(in);
+			default:
+				throw new IOException("corrupt spill data: unknown value tag " + tag);
+		}
+	}
+
+	private static void writeBytes(byte[] b, DataOutput out) throws IOException {
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return b;
+	}
+
+	private static void writeSerialized(Object o, DataOutput out) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try ( ObjectOutputStream os = new ObjectOutputStream(bytes) ) {
+			os.writeObject(o);
+		}
+		writeBytes(bytes.toByteArray(), out);
+	}
+
+	private static Object readSerialized(DataInput in) throws IOException {
+		try ( ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(readBytes(in))) ) {
+			return is.readObject();
+		} catch ( ClassNotFoundException e ) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.zendesk.maxwell.row;
+
+import com.zendesk.maxwell.replication.Position;
+
+import java.util.ArrayList;
+
+/**
+ * Closes out a transaction whose rows were streamed to the producer before
+ * its COMMIT was read.  None of the streamed rows are flagged as commits,
+ * so this is the row that carries the xid and lets the producer store a position.
+ */
+public class TransactionCommitRowMap extends RowMap {
+	public TransactionCommitRowMap(String database, String table, Long timestampMillis, Position position, Position nextPosition, Long xid) {
+		super("commit", database, table, timestampMillis, new ArrayList<String>(), position, nextPosition, null);
+		setXid(xid);
+		setTXCommit();
+	}
+}
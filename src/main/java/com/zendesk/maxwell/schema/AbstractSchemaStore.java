@@ -1,9 +1,10 @@
 package com.zendesk.maxwell.schema;
 
-import java.sql.SQLException;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.function.Supplier;
 
 import com.zendesk.maxwell.CaseSensitivity;
 import com.zendesk.maxwell.filtering.Filter;
@@ -14,6 +15,7 @@ import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.schema.ddl.SchemaChange;
 import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
 import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import com.zendesk.maxwell.schema.ddl.TableCreate;
 import snaq.db.ConnectionPool;
 
 public abstract class AbstractSchemaStore {
@@ -21,7 +23,9 @@ public abstract class AbstractSchemaStore {
 	protected final ConnectionPool replicationConnectionPool;
 	protected final ConnectionPool schemaConnectionPool;
 	protected final CaseSensitivity caseSensitivity;
-	private final Filter filter;
+	protected final Filter filter;
+	// how many connections capture the schema at once
+	protected int captureThreads = 1;
 
 	protected AbstractSchemaStore(ConnectionPool replicationConnectionPool,
 								  ConnectionPool schemaConnectionPool,
@@ -38,24 +42,38 @@ public abstract class AbstractSchemaStore {
 	}
 
 	protected Schema captureSchema() throws SQLException {
-		try(Connection connection = schemaConnectionPool.getConnection()) {
-			LOGGER.info("Maxwell is capturing initial schema");
-			SchemaCapturer capturer = new SchemaCapturer(connection, caseSensitivity);
-			return capturer.capture();
-		}
+		return captureSchema(filter);
+	}
+
+	/**
+	 * @param filter leave out the tables this blacklists.  May be null.
+	 */
+	protected Schema captureSchema(Filter filter) throws SQLException {
+		LOGGER.info("Maxwell is capturing initial schema");
+		SchemaCapturer capturer = new SchemaCapturer(schemaConnectionPool, caseSensitivity, captureThreads, filter);
+		return capturer.capture();
 	}
 
-	protected List<ResolvedSchemaChange> resolveSQL(Schema schema, String sql, String currentDatabase) throws InvalidSchemaError {
+	/**
+	 * @param schemaToChange the schema the changes in `sql` are applied to.  Only
+	 *                       asked for once `sql` turns out to hold a schema change,
+	 *                       so it can hand out a fresh copy; see {@link CopyOnChange}.
+	 */
+	protected List<ResolvedSchemaChange> resolveSQL(Supplier<Schema> schemaToChange, String sql, String currentDatabase) throws SchemaStoreException, InvalidSchemaError {
 		List<SchemaChange> changes = SchemaChange.parse(currentDatabase, sql);
 
 		if ( changes == null || changes.size() == 0 )
 			return new ArrayList<>();
 
 		ArrayList<ResolvedSchemaChange> resolvedSchemaChanges = new ArrayList<>();
+		Schema schema = null;
 
 		for ( SchemaChange change : changes ) {
 			if ( !change.isBlacklisted(this.filter) ) {
-				ResolvedSchemaChange resolved = change.resolve(schema);
+				if ( schema == null )
+					schema = schemaToChange.get();
+
+				ResolvedSchemaChange resolved = resolveChange(schema, change);
 				if ( resolved != null ) {
 					resolved.apply(schema);
 
@@ -67,6 +85,54 @@ public abstract class AbstractSchemaStore {
 		}
 		return resolvedSchemaChanges;
 	}
-}
 
+	/*
+	   copies a schema the first time it's asked for.  Most QUERY events aren't
+	   DDL, and they shouldn't pay for copying the whole schema.
+	 */
+	protected static class CopyOnChange implements Supplier<Schema> {
+		private final Schema original;
+		private Schema copy;
 
+		public CopyOnChange(Schema original) {
+			this.original = original;
+		}
+
+		@Override
+		public Schema get() {
+			if ( copy == null )
+				copy = original.copy();
+			return copy;
+		}
+	}
+
+	private ResolvedSchemaChange resolveChange(Schema schema, SchemaChange change) throws SchemaStoreException, InvalidSchemaError {
+		if ( change instanceof TableCreate ) {
+			TableCreate create = (TableCreate) change;
+			if ( create.isLikeBlacklisted(this.filter) )
+				return create.resolve(schema, captureBlacklistedTable(create.likeDB, create.likeTable));
+		}
+		return change.resolve(schema);
+	}
+
+	/*
+	   blacklisted tables aren't in our schema, but a table we do track can be
+	   created LIKE one.  We never followed the source's DDL, so the server's
+	   current definition is the best we have.
+	 */
+	private Table captureBlacklistedTable(String database, String table) throws SchemaStoreException, InvalidSchemaError {
+		LOGGER.info("capturing blacklisted table " + database + "." + table + " to copy it");
+		Schema captured;
+		try ( Connection c = schemaConnectionPool.getConnection() ) {
+			captured = new SchemaCapturer(c, caseSensitivity, database, table).capture();
+		} catch ( SQLException e ) {
+			throw new SchemaStoreException(e);
+		}
+
+		Database db = captured.findDatabase(database);
+		Table t = db == null ? null : db.findTable(table);
+		if ( t == null )
+			throw new InvalidSchemaError("Couldn't find blacklisted table " + database + "." + table + " on the server to copy");
+		return t;
+	}
+}
@@ -1,6 +1,8 @@
 package com.zendesk.maxwell.schema;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 import com.zendesk.maxwell.CaseSensitivity;
@@ -10,8 +12,12 @@ import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
 public class Database {
 	private final String name;
 	private final List<Table> tableList;
+	// lookup key (see Schema.nameKey) -> table; kept in step with the list above
+	private final HashMap<String, Table> tableIndex = new HashMap<>();
 	private String charset;
 	private CaseSensitivity sensitivity;
+	// referenced by more than one schema; see Schema.editDatabase
+	private boolean shared = false;
 
 	public Database(String name, List<Table> tables, String charset) {
 		this.name = name;
@@ -20,12 +26,21 @@ public class Database {
 		else
 			this.tableList = tables;
 		this.charset = charset;
+		reindexTables();
 	}
 
 	public Database(String name, String charset) {
 		this(name, null, charset);
 	}
 
+	private Database(Database other) {
+		this.name = other.name;
+		this.tableList = new ArrayList<>(other.tableList);
+		this.tableIndex.putAll(other.tableIndex);
+		this.charset = other.charset;
+		this.sensitivity = other.sensitivity;
+	}
+
 	public List<String> getTableNames() {
 		ArrayList<String> names = new ArrayList<String>();
 		for ( Table t : this.tableList ) {
@@ -34,19 +49,18 @@ public class Database {
 		return names;
 	}
 
-	private boolean compareTableNames(String a, String b) {
-		if ( sensitivity == CaseSensitivity.CASE_SENSITIVE )
-			return a.equals(b);
-		else
-			return a.toLowerCase().equals(b.toLowerCase());
+	private String tableKey(String name) {
+		return Schema.nameKey(name, sensitivity);
+	}
+
+	private void reindexTables() {
+		tableIndex.clear();
+		for ( Table t : this.tableList )
+			tableIndex.putIfAbsent(tableKey(t.getName()), t);
 	}
 
 	public Table findTable(String name) {
-		for ( Table t: this.tableList ) {
-			if ( compareTableNames(name, t.getName()))
-				return t;
-		}
-		return null;
+		return tableIndex.get(tableKey(name));
 	}
 
 	public Table findTableOrThrow(String table) throws InvalidSchemaError {
@@ -62,17 +76,34 @@ public class Database {
 	}
 
 	public void removeTable(String name) {
-		Table t = findTable(name);
-		if ( t != null )
-			tableList.remove(t);
+		String key = tableKey(name);
+		Table t = tableIndex.remove(key);
+		if ( t == null )
+			return;
+
+		tableList.remove(t);
+		// a second table with a clashing name becomes the one we find
+		for ( Table other : this.tableList ) {
+			if ( key.equals(tableKey(other.getName())) ) {
+				tableIndex.put(key, other);
+				break;
+			}
+		}
 	}
 
+	/**
+	 * A copy with its own table list, sharing the tables themselves.
+	 */
 	public Database copy() {
-		Database d = new Database(this.name, this.charset);
-		for ( Table t: this.tableList ) {
-			d.addTable(t.copy());
-		}
-		return d;
+		return new Database(this);
+	}
+
+	void share() {
+		this.shared = true;
+	}
+
+	boolean isShared() {
+		return shared;
 	}
 
 	private void diffTableList(List<String> diffs, Database a, Database b, String nameA, String nameB, boolean recurse) {
@@ -113,12 +144,13 @@ public class Database {
 	}
 
 	public List<Table> getTableList() {
-		return tableList;
+		return Collections.unmodifiableList(tableList);
 	}
 
 	public void addTable(Table table) {
 		table.setDatabase(this.name);
 		this.tableList.add(table);
+		this.tableIndex.putIfAbsent(tableKey(table.getName()), table);
 	}
 
 	public Table buildTable(String name, String charset, List<ColumnDef> list, List<String> pks) {
@@ -130,6 +162,7 @@ public class Database {
 
 		Table t = new Table(this.name, name, charset, list, pks);
 		this.tableList.add(t);
+		this.tableIndex.putIfAbsent(tableKey(name), t);
 		return t;
 	}
 
@@ -139,5 +172,6 @@ public class Database {
 
 	public void setSensitivity(CaseSensitivity sensitivity) {
 		this.sensitivity = sensitivity;
+		reindexTables();
 	}
 }
@@ -0,0 +1,80 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/*
+   MysqlSchemaStore's counterpart for --local_store_dir: schemas are
+   captured from mysql as usual, but saved to and restored from a LocalStore.
+ */
+public class LocalSchemaStore extends AbstractSchemaStore implements SchemaStore {
+	private final LocalStore store;
+	private final Position initialPosition;
+	private final boolean readOnly;
+
+	private Schema schema;
+	private Long schemaID;
+
+	public LocalSchemaStore(MaxwellContext context, LocalStore store, Position initialPosition) throws SQLException {
+		super(context);
+		this.store = store;
+		this.initialPosition = initialPosition;
+		this.readOnly = context.getReplayMode();
+		this.captureThreads = context.getConfig().schemaCaptureThreads;
+	}
+
+	public synchronized Schema getSchema() throws SchemaStoreException {
+		if ( schema == null )
+			restoreOrCaptureSchema();
+		return schema;
+	}
+
+	public synchronized Long getSchemaID() throws SchemaStoreException {
+		getSchema();
+		return schemaID;
+	}
+
+	private void restoreOrCaptureSchema() throws SchemaStoreException {
+		try {
+			LocalStore.StoredSchema stored = store.restoreSchema(initialPosition, filter);
+			if ( stored != null ) {
+				this.schema = stored.schema;
+				this.schemaID = stored.id;
+			} else {
+				captureAndSaveSchema();
+			}
+		} catch ( IOException | SQLException | InvalidSchemaError e ) {
+			throw new SchemaStoreException(e);
+		}
+	}
+
+	public synchronized void captureAndSaveSchema() throws SQLException, IOException {
+		this.schema = captureSchema();
+		this.schemaID = readOnly ? null : store.saveSchema(schema, initialPosition);
+	}
+
+	public synchronized List<ResolvedSchemaChange> processSQL(String sql, String currentDatabase, Position position) throws SchemaStoreException, InvalidSchemaError {
+		// changes go onto a copy, leaving the schema we had intact for anyone still holding it
+		CopyOnChange updatedSchema = new CopyOnChange(getSchema());
+		List<ResolvedSchemaChange> resolvedSchemaChanges = resolveSQL(updatedSchema, sql, currentDatabase);
+
+		if ( resolvedSchemaChanges.size() > 0 ) {
+			this.schema = updatedSchema.get();
+			if ( !readOnly ) {
+				try {
+					this.schemaID = store.saveDeltas(resolvedSchemaChanges, position);
+				} catch ( IOException e ) {
+					throw new SchemaStoreException(e);
+				}
+				LOGGER.info("storing schema @" + position + " after applying \"" + sql.replace('\n', ' ') + "\" to " + currentDatabase + ", new schema id is " + schemaID);
+			}
+		}
+		return resolvedSchemaChanges;
+	}
+}
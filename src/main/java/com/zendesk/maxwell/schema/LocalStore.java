@@ -0,0 +1,521 @@
+package com.zendesk.maxwell.schema;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.MaxwellConfig;
+import com.zendesk.maxwell.errors.DuplicateProcessException;
+import com.zendesk.maxwell.filtering.Filter;
+import com.zendesk.maxwell.recovery.RecoveryInfo;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+   a client's schemas and binlog position kept in a local file instead of
+   the maxwell database, so maxwell needs no writes to mysql at all and can
+   replicate from a read-only replica.  Every position flush is an fsync
+   instead of a round trip.
+
+   the file is a LocalStoreLog of:
+
+     HEADER     server_id the log belongs to
+     SCHEMA     a full snapshot: id, position, the schema (SchemaCacheFile's format)
+     DELTA      id, id of the schema it's derived from, position, the changes as JSON
+     POSITION   a stored binlog position
+     HEARTBEAT  a heartbeat value
+
+   the newest POSITION and HEARTBEAT win.  Schemas form a chain, a SCHEMA
+   followed by DELTAs, restored the way MysqlSavedSchema does it: the newest
+   schema at or before the position we start from.  Deltas past that
+   position were written by a run that crashed before storing its position;
+   the binlog will hand us those DDLs again, so the first delta saved after
+   a restore replaces them.
+
+   once the log has doubled since it was last compacted, we rewrite it as
+   one snapshot of the schema at the stored position, the deltas after
+   that, and the latest position and heartbeat.
+
+   heartbeats aren't written into the binlog, so they can't be used for
+   master recovery; the config doesn't allow the combination.
+ */
+public class LocalStore implements PositionStore, Closeable {
+	static final Logger LOGGER = LoggerFactory.getLogger(LocalStore.class);
+
+	private static final byte HEADER = 1;
+	private static final byte SCHEMA = 2;
+	private static final byte DELTA = 3;
+	private static final byte POSITION = 4;
+	private static final byte HEARTBEAT = 5;
+
+	// by default, don't bother compacting logs smaller than this
+	private static final long MIN_COMPACTION_BYTES = 16 * 1024 * 1024;
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private static final JavaType listOfResolvedSchemaChangeType = mapper.getTypeFactory().constructCollectionType(List.class, ResolvedSchemaChange.class);
+
+	/* a stored schema, as a restore returns it */
+	public static class StoredSchema {
+		public final long id;
+		public final Schema schema;
+
+		StoredSchema(long id, Schema schema) {
+			this.id = id;
+			this.schema = schema;
+		}
+	}
+
+	/* one SCHEMA or DELTA record; the schema and changes are only decoded when needed */
+	private static class ChainEntry {
+		final LocalStoreLog.Record record;
+		final long id;
+		final Position position;
+
+		ChainEntry(LocalStoreLog.Record record, long id, Position position) {
+			this.record = record;
+			this.id = id;
+			this.position = position;
+		}
+	}
+
+	private final LocalStoreLog log;
+	private final long serverID;
+	private final boolean gtidMode;
+	private final CaseSensitivity sensitivity;
+	private final boolean readOnly;
+	private final long minCompactionBytes;
+
+	private Position position;
+	private Long lastHeartbeat;
+	private final List<ChainEntry> chain = new ArrayList<>();
+	private long lastSchemaID = 0;
+	private long compactedSize;
+
+	/**
+	 * @param file the log; a lock file is kept next to it
+	 * @param readOnly read what's stored, but don't store anything (replay mode)
+	 */
+	public LocalStore(File file, Long serverID, boolean gtidMode, CaseSensitivity sensitivity, boolean readOnly) throws IOException, DuplicateProcessException {
+		this(file, serverID, gtidMode, sensitivity, readOnly, MIN_COMPACTION_BYTES);
+	}
+
+	/**
+	 * @param minCompactionBytes don't compact a log smaller than this
+	 */
+	LocalStore(File file, Long serverID, boolean gtidMode, CaseSensitivity sensitivity, boolean readOnly, long minCompactionBytes) throws IOException, DuplicateProcessException {
+		// as in MysqlPositionStore, gtid positions don't belong to a server
+		this.serverID = gtidMode ? 0L : serverID;
+		this.gtidMode = gtidMode;
+		this.sensitivity = sensitivity;
+		this.readOnly = readOnly;
+		this.minCompactionBytes = minCompactionBytes;
+		this.log = new LocalStoreLog(file, readOnly);
+
+		try {
+			replay();
+		} catch ( IOException | RuntimeException e ) {
+			log.close();
+			throw e;
+		}
+	}
+
+	private void replay() throws IOException {
+		long startTime = System.currentTimeMillis();
+		Long logServerID = null;
+		List<LocalStoreLog.Record> records = log.readRecords();
+
+		for ( LocalStoreLog.Record r : records ) {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(r.payload));
+
+			switch ( r.type ) {
+				case HEADER:
+					logServerID = in.readLong();
+					break;
+				case SCHEMA: {
+					long id = in.readLong();
+					chain.clear();
+					chain.add(new ChainEntry(r, id, readPosition(in)));
+					lastSchemaID = Math.max(lastSchemaID, id);
+					break;
+				}
+				case DELTA: {
+					long id = in.readLong();
+					long baseID = in.readLong();
+
+					// anything after our base was left behind by a restore at an earlier position
+					while ( !chain.isEmpty() && last(chain).id != baseID )
+						chain.remove(chain.size() - 1);
+
+					if ( chain.isEmpty() )
+						LOGGER.warn("schema " + id + " in " + log.getFile() + " derives from missing schema " + baseID + ", skipping it");
+					else
+						chain.add(new ChainEntry(r, id, readPosition(in)));
+
+					lastSchemaID = Math.max(lastSchemaID, id);
+					break;
+				}
+				case POSITION:
+					position = readPosition(in);
+					break;
+				case HEARTBEAT:
+					lastHeartbeat = in.readLong();
+					break;
+				default:
+					throw new IOException("unknown record type " + r.type + " in " + log.getFile() + ", written by a newer maxwell?");
+			}
+		}
+
+		if ( logServerID != null && logServerID != serverID ) {
+			LOGGER.warn(log.getFile() + " holds positions on server_id " + logServerID + ", not " + serverID + ".  Starting over.");
+			position = null;
+			lastHeartbeat = null;
+			chain.clear();
+		}
+
+		compactedSize = log.size();
+		if ( !readOnly && (logServerID == null || logServerID != serverID) )
+			compact();
+
+		LOGGER.info("read " + records.size() + " records from " + log.getFile() + " in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+
+	/* position store */
+
+	@Override
+	public void set(Position newPosition) {
+		if ( newPosition == null || readOnly )
+			return;
+
+		long seq;
+		synchronized ( this ) {
+			seq = append(POSITION, encodePosition(newPosition));
+			position = newPosition;
+			maybeCompact();
+		}
+		commit(seq);
+	}
+
+	@Override
+	public synchronized Position get() {
+		if ( position == null )
+			return null;
+
+		if ( gtidMode )
+			return position;
+
+		// like MysqlPositionStore, outside gtid mode the gtid set isn't used
+		BinlogPosition binlog = position.getBinlogPosition();
+		return new Position(new BinlogPosition(binlog.getOffset(), binlog.getFile()), position.getLastHeartbeatRead());
+	}
+
+	/* this file only ever holds one client */
+	@Override
+	public Position getLatestFromAnyClient() {
+		return get();
+	}
+
+	@Override
+	public long heartbeat() {
+		long heartbeatValue = System.currentTimeMillis();
+		heartbeat(heartbeatValue);
+		return heartbeatValue;
+	}
+
+	/* heartbeats ride along with the next position commit */
+	@Override
+	public synchronized void heartbeat(long heartbeatValue) {
+		if ( !readOnly )
+			append(HEARTBEAT, encodeLong(heartbeatValue));
+		lastHeartbeat = heartbeatValue;
+	}
+
+	@Override
+	public synchronized Long getLastHeartbeatSent() {
+		return lastHeartbeat;
+	}
+
+	@Override
+	public RecoveryInfo getRecoveryInfo(MaxwellConfig config) {
+		LOGGER.error("master recovery isn't available with a local store");
+		return null;
+	}
+
+	@Override
+	public void cleanupOldRecoveryInfos() { }
+
+	/* schemas */
+
+	/**
+	 * @return the newest schema stored at or before `target`, or null if there's none
+	 */
+	public StoredSchema restoreSchema(Position target, Filter filter) throws IOException, InvalidSchemaError {
+		List<ChainEntry> entries;
+		synchronized ( this ) {
+			int head = findChainHead(target);
+			if ( head < 0 )
+				return null;
+
+			// whatever comes after the head is superseded by the next delta we save
+			while ( chain.size() > head + 1 )
+				chain.remove(chain.size() - 1);
+
+			entries = new ArrayList<>(chain);
+		}
+
+		long startTime = System.currentTimeMillis();
+		Schema schema = readSnapshot(entries.get(0));
+		removeBlacklistedTables(schema, filter);
+
+		for ( ChainEntry entry : entries.subList(1, entries.size()) ) {
+			for ( ResolvedSchemaChange delta : readDeltas(entry) ) {
+				// the table may have been blacklisted since; then it isn't in the snapshot either
+				if ( filter != null && filter.isTableBlacklisted(delta.databaseName(), delta.tableName()) )
+					continue;
+
+				delta.apply(schema);
+			}
+		}
+
+		long id = last(entries).id;
+		LOGGER.info("restored schema " + id + " from " + log.getFile() + ", playing " + (entries.size() - 1) + " deltas, in " + (System.currentTimeMillis() - startTime) + "ms");
+		return new StoredSchema(id, schema);
+	}
+
+	/**
+	 * store a full snapshot, starting a new chain.
+	 * @return the new schema's id
+	 */
+	public long saveSchema(Schema schema, Position schemaPosition) throws IOException {
+		long id, seq;
+		synchronized ( this ) {
+			id = ++lastSchemaID;
+			LocalStoreLog.Record record = new LocalStoreLog.Record(SCHEMA, encodeSnapshot(id, schemaPosition, schema));
+			seq = append(record);
+
+			chain.clear();
+			chain.add(new ChainEntry(record, id, schemaPosition));
+			maybeCompact();
+		}
+		commit(seq);
+		return id;
+	}
+
+	/**
+	 * store the changes a DDL made to the newest schema.
+	 * @return the new schema's id
+	 */
+	public long saveDeltas(List<ResolvedSchemaChange> deltas, Position deltaPosition) throws IOException {
+		long id, seq;
+		synchronized ( this ) {
+			if ( chain.isEmpty() )
+				throw new IllegalStateException("no schema in " + log.getFile() + " to apply changes to");
+
+			id = ++lastSchemaID;
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeLong(id);
+			out.writeLong(last(chain).id);
+			writePosition(out, deltaPosition);
+			SchemaCacheFile.writeString(out, mapper.writerFor(listOfResolvedSchemaChangeType).writeValueAsString(deltas));
+
+			LocalStoreLog.Record record = new LocalStoreLog.Record(DELTA, bytes.toByteArray());
+			seq = append(record);
+			chain.add(new ChainEntry(record, id, deltaPosition));
+			maybeCompact();
+		}
+		commit(seq);
+		return id;
+	}
+
+	@Override
+	public void close() throws IOException {
+		log.close();
+	}
+
+	/*
+		the last chain entry that applies at `target`.  A snapshot applies at
+		its own position, a delta only after it, as in MysqlSavedSchema.findSchema.
+	 */
+	private int findChainHead(Position target) {
+		int head = -1;
+		for ( int i = 0; i < chain.size(); i++ ) {
+			if ( !appliesAt(chain.get(i), target) )
+				break;
+			head = i;
+		}
+		return head;
+	}
+
+	private static boolean appliesAt(ChainEntry entry, Position target) {
+		if ( target == null )
+			return false;
+
+		BinlogPosition at = entry.position.getBinlogPosition();
+		BinlogPosition t = target.getBinlogPosition();
+
+		if ( entry.record.type == SCHEMA || t.hasGtidSet() )
+			return !at.newerThan(t);
+		else
+			return t.newerThan(at);
+	}
+
+	private void maybeCompact() {
+		if ( log.size() > Math.max(minCompactionBytes, compactedSize * 2) )
+			compact();
+	}
+
+	/*
+		rewrite the log: the schema at the stored position as a snapshot, the
+		deltas after it, and the latest position and heartbeat.
+	 */
+	private void compact() {
+		long startTime = System.currentTimeMillis();
+		long before = log.size();
+
+		try {
+			int head = position == null ? -1 : findChainHead(position);
+			if ( head > 0 ) {
+				List<ChainEntry> folded = new ArrayList<>(chain.subList(0, head + 1));
+				Schema schema = readSnapshot(folded.get(0));
+				for ( ChainEntry entry : folded.subList(1, folded.size()) ) {
+					for ( ResolvedSchemaChange delta : readDeltas(entry) )
+						delta.apply(schema);
+				}
+
+				// it keeps the id of the last delta, which the rest of the chain derives from
+				long id = last(folded).id;
+				ChainEntry snapshot = new ChainEntry(new LocalStoreLog.Record(SCHEMA, encodeSnapshot(id, position, schema)), id, position);
+				chain.subList(0, head + 1).clear();
+				chain.add(0, snapshot);
+			}
+		} catch ( InvalidSchemaError | IOException e ) {
+			LOGGER.warn("couldn't fold schema deltas in " + log.getFile() + ", keeping them as they are", e);
+		}
+
+		List<LocalStoreLog.Record> records = new ArrayList<>();
+		records.add(new LocalStoreLog.Record(HEADER, encodeLong(serverID)));
+		for ( ChainEntry entry : chain )
+			records.add(entry.record);
+		if ( position != null )
+			records.add(new LocalStoreLog.Record(POSITION, encodePosition(position)));
+		if ( lastHeartbeat != null )
+			records.add(new LocalStoreLog.Record(HEARTBEAT, encodeLong(lastHeartbeat)));
+
+		try {
+			log.rewrite(records);
+		} catch ( IOException e ) {
+			throw new UncheckedIOException("couldn't compact " + log.getFile(), e);
+		}
+
+		compactedSize = log.size();
+		LOGGER.info("compacted " + log.getFile() + " from " + before + " to " + compactedSize + " bytes in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+
+	private Schema readSnapshot(ChainEntry entry) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.record.payload));
+		in.readLong();
+		readPosition(in);
+		return SchemaCacheFile.readSchema(in, sensitivity);
+	}
+
+	private List<ResolvedSchemaChange> readDeltas(ChainEntry entry) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.record.payload));
+		in.readLong();
+		in.readLong();
+		readPosition(in);
+		return mapper.readerFor(listOfResolvedSchemaChangeType).readValue(SchemaCacheFile.readString(in));
+	}
+
+	private static void removeBlacklistedTables(Schema schema, Filter filter) throws InvalidSchemaError {
+		if ( filter == null )
+			return;
+
+		for ( Database d : new ArrayList<>(schema.getDatabases()) ) {
+			for ( String table : d.getTableNames() ) {
+				if ( filter.isTableBlacklisted(d.getName(), table) )
+					schema.editDatabase(d.getName()).removeTable(table);
+			}
+		}
+	}
+
+	private long append(byte type, byte[] payload) {
+		return append(new LocalStoreLog.Record(type, payload));
+	}
+
+	private long append(LocalStoreLog.Record record) {
+		try {
+			return log.append(record.type, record.payload);
+		} catch ( IOException e ) {
+			throw new UncheckedIOException("couldn't write to " + log.getFile(), e);
+		}
+	}
+
+	private void commit(long seq) {
+		try {
+			log.commit(seq);
+		} catch ( IOException e ) {
+			throw new UncheckedIOException("couldn't sync " + log.getFile(), e);
+		}
+	}
+
+	private static byte[] encodeSnapshot(long id, Position schemaPosition, Schema schema) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeLong(id);
+		writePosition(out, schemaPosition);
+		SchemaCacheFile.writeSchema(out, schema);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] encodePosition(Position p) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			writePosition(new DataOutputStream(bytes), p);
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e); // not from a ByteArrayOutputStream
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] encodeLong(long value) {
+		byte[] bytes = new byte[8];
+		for ( int i = 7; i >= 0; i-- ) {
+			bytes[i] = (byte) value;
+			value >>>= 8;
+		}
+		return bytes;
+	}
+
+	private static void writePosition(DataOutputStream out, Position p) throws IOException {
+		BinlogPosition binlog = p.getBinlogPosition();
+		SchemaCacheFile.writeString(out, binlog.getGtidSetStr());
+		SchemaCacheFile.writeString(out, binlog.getFile());
+		out.writeLong(binlog.getOffset());
+		out.writeLong(p.getLastHeartbeatRead());
+	}
+
+	private static Position readPosition(DataInputStream in) throws IOException {
+		String gtidSet = SchemaCacheFile.readString(in);
+		String file = SchemaCacheFile.readString(in);
+		long offset = in.readLong();
+		return new Position(new BinlogPosition(gtidSet, null, offset, file), in.readLong());
+	}
+
+	private static <T> T last(List<T> list) {
+		return list.get(list.size() - 1);
+	}
+}
@@ -0,0 +1,252 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.errors.DuplicateProcessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+   an append-only file of checksummed records, the storage under LocalStore.
+
+     record: int length, int crc32, then `length` bytes: a type byte and the payload
+
+   a torn write at the end -- a short record, or one failing its checksum --
+   is cut off when the log is read back.  Appends aren't durable until
+   commit(), which fsyncs everything appended so far, so callers committing
+   at the same time share one fsync.  rewrite() swaps in a whole new log,
+   atomically.
+
+   a lock on <log>.lock keeps a second maxwell from using the same log.  A
+   read-only log takes no lock and leaves the file exactly as it found it.
+
+   writes go through RandomAccessFile rather than a FileChannel: the position
+   thread gets interrupted to stop it, and an interrupt would close a channel.
+ */
+class LocalStoreLog implements Closeable {
+	static final Logger LOGGER = LoggerFactory.getLogger(LocalStoreLog.class);
+
+	private static final int HEADER_SIZE = 8;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	static class Record {
+		final byte type;
+		final byte[] payload;
+
+		Record(byte type, byte[] payload) {
+			this.type = type;
+			this.payload = payload;
+		}
+	}
+
+	private final File file;
+	private final boolean readOnly;
+	private final RandomAccessFile lockFile;
+	private final FileLock lock;
+
+	private RandomAccessFile out;
+	private long size;
+
+	private final Object syncLock = new Object();
+	private volatile long appended = 0;
+	private long synced = 0;
+
+	LocalStoreLog(File file) throws IOException, DuplicateProcessException {
+		this(file, false);
+	}
+
+	LocalStoreLog(File file, boolean readOnly) throws IOException, DuplicateProcessException {
+		this.file = file;
+		this.readOnly = readOnly;
+		if ( readOnly ) {
+			this.lockFile = null;
+			this.lock = null;
+			return;
+		}
+
+		file.getAbsoluteFile().getParentFile().mkdirs();
+
+		this.lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+		FileLock lock;
+		try {
+			lock = lockFile.getChannel().tryLock();
+		} catch ( OverlappingFileLockException e ) {
+			lock = null;
+		}
+
+		if ( lock == null ) {
+			lockFile.close();
+			throw new DuplicateProcessException(file + " is locked.  Is another Maxwell process running with the same client_id?");
+		}
+		this.lock = lock;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * read back every intact record, cut off anything after them and open the log for appending.
+	 * A read-only log just skips what comes after them.
+	 */
+	synchronized List<Record> readRecords() throws IOException {
+		List<Record> records = new ArrayList<>();
+		long length = file.length();
+		long good = 0;
+
+		if ( length > 0 ) {
+			try ( DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) ) {
+				while ( good + HEADER_SIZE <= length ) {
+					int bodyLength = in.readInt();
+					int checksum = in.readInt();
+					if ( bodyLength < 1 || good + HEADER_SIZE + bodyLength > length )
+						break;
+
+					byte[] body = new byte[bodyLength];
+					in.readFully(body);
+					if ( checksum(body, 0, bodyLength) != checksum )
+						break;
+
+					byte[] payload = new byte[bodyLength - 1];
+					System.arraycopy(body, 1, payload, 0, payload.length);
+					records.add(new Record(body[0], payload));
+					good += HEADER_SIZE + bodyLength;
+				}
+			}
+		}
+
+		if ( good < length )
+			LOGGER.warn((readOnly ? "ignoring " : "discarding ") + (length - good) + " bytes of incomplete records at the end of " + file);
+
+		size = good;
+		if ( readOnly )
+			return records;
+
+		out = new RandomAccessFile(file, "rw");
+		out.setLength(good);
+		out.seek(good);
+		return records;
+	}
+
+	/**
+	 * @return a sequence number to commit() with
+	 */
+	synchronized long append(byte type, byte[] payload) throws IOException {
+		checkWritable();
+		byte[] record = encode(type, payload);
+		out.write(record);
+		size += record.length;
+		return ++appended;
+	}
+
+	/**
+	 * block until the record numbered `seq` is on disk.
+	 */
+	void commit(long seq) throws IOException {
+		synchronized ( syncLock ) {
+			if ( synced >= seq )
+				return; // someone else's fsync covered us while we waited
+
+			long upTo = appended;
+			out.getFD().sync();
+			synced = upTo;
+		}
+	}
+
+	synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * replace the whole log with `records`, durably.
+	 */
+	synchronized void rewrite(List<Record> records) throws IOException {
+		checkWritable();
+		File tmp = new File(file.getPath() + ".tmp");
+		long written = 0;
+
+		try ( FileOutputStream fos = new FileOutputStream(tmp) ) {
+			BufferedOutputStream buffered = new BufferedOutputStream(fos, BUFFER_SIZE);
+			for ( Record r : records ) {
+				byte[] record = encode(r.type, r.payload);
+				buffered.write(record);
+				written += record.length;
+			}
+			buffered.flush();
+			fos.getFD().sync();
+		}
+
+		synchronized ( syncLock ) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			syncDirectory();
+
+			out.close();
+			out = new RandomAccessFile(file, "rw");
+			out.seek(written);
+			size = written;
+			synced = appended;
+		}
+	}
+
+	private void checkWritable() {
+		if ( readOnly )
+			throw new IllegalStateException(file + " is open read-only");
+	}
+
+	/* make the rename itself durable.  Not every platform lets us open a directory; there it's best-effort. */
+	private void syncDirectory() {
+		try ( FileChannel dir = FileChannel.open(file.getAbsoluteFile().getParentFile().toPath(), StandardOpenOption.READ) ) {
+			dir.force(true);
+		} catch ( IOException e ) {
+			LOGGER.debug("couldn't fsync the directory of " + file + ": " + e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if ( out != null )
+				out.close();
+		} finally {
+			if ( lock != null ) {
+				lock.release();
+				lockFile.close();
+			}
+		}
+	}
+
+	private static byte[] encode(byte type, byte[] payload) {
+		byte[] record = new byte[HEADER_SIZE + 1 + payload.length];
+		record[HEADER_SIZE] = type;
+		System.arraycopy(payload, 0, record, HEADER_SIZE + 1, payload.length);
+
+		ByteBuffer header = ByteBuffer.wrap(record, 0, HEADER_SIZE);
+		header.putInt(1 + payload.length);
+		header.putInt(checksum(record, HEADER_SIZE, 1 + payload.length));
+		return record;
+	}
+
+	private static int checksum(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+}
@@ -21,7 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import snaq.db.ConnectionPool;
 
-public class MysqlPositionStore {
+public class MysqlPositionStore implements PositionStore {
 	static final Logger LOGGER = LoggerFactory.getLogger(MysqlPositionStore.class);
 	private static final Long DEFAULT_GTID_SERVER_ID = new Long(0);
 	private final Long serverID;
@@ -11,6 +11,7 @@ import com.mysql.jdbc.exceptions.jdbc4.MySQLIntegrityConstraintViolationExceptio
 import com.fasterxml.jackson.databind.JavaType;
 import com.zendesk.maxwell.CaseSensitivity;
 import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.schema.columndef.*;
 
@@ -37,6 +38,10 @@ public class MysqlSavedSchema {
 	private Position position;
 	private Long schemaID;
 	private int schemaVersion;
+	private String positionSHA;
+	private boolean restoredFromCache = false;
+	// how many derived schemas sit between this one and its full snapshot
+	private int chainLength = 0;
 
 	private Long baseSchemaID;
 	private List<ResolvedSchemaChange> deltas;
@@ -46,13 +51,23 @@ public class MysqlSavedSchema {
 
 	static final Logger LOGGER = LoggerFactory.getLogger(MysqlSavedSchema.class);
 
+	private static final int DELETE_BATCH_SIZE = 10000;
+	private static final int BULK_INSERT_ROWS = 5000;
+	private static final int BULK_INSERT_BYTES = 1024 * 1024;
+	// a value's share of the statement besides its own bytes: quotes, escapes, ", ", a number's digits
+	private static final int BULK_INSERT_VALUE_OVERHEAD = 24;
+
 	private final static String columnInsertSQL =
-		"INSERT INTO `columns` (schema_id, table_id, name, charset, coltype, is_signed, enum_values, column_length) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+		"INSERT INTO `columns` (schema_id, table_id, name, charset, coltype, is_signed, enum_values, column_length) VALUES ";
 
 	private final CaseSensitivity sensitivity;
 	private final Long serverID;
 
 	private boolean shouldSnapshotNextSchema = false;
+	// tables this blacklists are left out of a restored schema
+	private Filter filter;
+	// tables were left out of our copy of the schema, so it mustn't be saved as a full snapshot
+	private boolean partial = false;
 
 	private MysqlSavedSchema(Long serverID, CaseSensitivity sensitivity) throws SQLException {
 		this.serverID = serverID;
@@ -78,16 +93,62 @@ public class MysqlSavedSchema {
 	}
 
 	public MysqlSavedSchema createDerivedSchema(Schema newSchema, Position position, List<ResolvedSchemaChange> deltas) throws SQLException {
-		if ( this.shouldSnapshotNextSchema )
+		if ( this.shouldSnapshotNextSchema && !this.partial )
 			return new MysqlSavedSchema(this.serverID, this.sensitivity, newSchema, position);
-		else
-			return new MysqlSavedSchema(this.serverID, this.sensitivity, newSchema, position, this.schemaID, deltas);
+
+		MysqlSavedSchema derived = new MysqlSavedSchema(this.serverID, this.sensitivity, newSchema, position, this.schemaID, deltas);
+		derived.chainLength = this.chainLength + 1;
+		derived.partial = this.partial;
+		return derived;
 	}
 
 	public Long getSchemaID() {
 		return schemaID;
 	}
 
+	/**
+	 * @return whether our copy of the schema is missing tables the filter blacklists.
+	 * What's stored in the `schemas` table is complete either way.
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	/**
+	 * leave the tables `filter` blacklists out of our copy of the schema.  Call
+	 * this after saving: other clients restore the stored rows, and they may
+	 * not blacklist the same tables.
+	 */
+	public void removeBlacklistedTables(Filter filter) throws InvalidSchemaError {
+		this.filter = filter;
+		if ( filter == null )
+			return;
+
+		for ( Database d : new ArrayList<>(schema.getDatabases()) ) {
+			for ( String table : new ArrayList<>(d.getTableNames()) ) {
+				if ( filter.isTableBlacklisted(d.getName(), table) ) {
+					schema.editDatabase(d.getName()).removeTable(table);
+					this.partial = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the position_sha of our `schemas` row, once we've saved or restored it.
+	 */
+	public String getSavedPositionSHA() {
+		return positionSHA;
+	}
+
+	public boolean isRestoredFromCache() {
+		return restoredFromCache;
+	}
+
+	public int getChainLength() {
+		return chainLength;
+	}
+
 	private static Long executeInsert(PreparedStatement preparedStatement,
 			Object... values) throws SQLException {
 		for (int i = 0; i < values.length; i++) {
@@ -108,7 +169,8 @@ public class MysqlSavedSchema {
 			throw new RuntimeException("Uninitialized schema!");
 
 
-		this.schemaID = findSchemaForPositionSHA(connection, getPositionSHA());
+		this.positionSHA = getPositionSHA();
+		this.schemaID = findSchemaForPositionSHA(connection, positionSHA);
 
 		if ( this.schemaID != null )
 			return schemaID;
@@ -180,38 +242,72 @@ public class MysqlSavedSchema {
 		if ( this.baseSchemaID != null )
 			return saveDerivedSchema(conn);
 
-		PreparedStatement schemaInsert, databaseInsert, tableInsert;
-
-		schemaInsert = conn.prepareStatement(
+		PreparedStatement schemaInsert = conn.prepareStatement(
 				"INSERT INTO `schemas` SET binlog_file = ?, binlog_position = ?, server_id = ?, charset = ?, version = ?, position_sha = ?, gtid_set = ?, last_heartbeat_read = ?",
 				Statement.RETURN_GENERATED_KEYS
 		);
 
-		databaseInsert = conn.prepareStatement(
-				"INSERT INTO `databases` SET schema_id = ?, name = ?, charset=?",
-				Statement.RETURN_GENERATED_KEYS
-		);
-
-		tableInsert = conn.prepareStatement(
-				"INSERT INTO `tables` SET schema_id = ?, database_id = ?, name = ?, charset=?, pk=?",
-				Statement.RETURN_GENERATED_KEYS
-		);
-
 		BinlogPosition binlogPosition = position.getBinlogPosition();
 		Long schemaId = executeInsert(schemaInsert, binlogPosition.getFile(),
 				binlogPosition.getOffset(), serverID, schema.getCharset(), SchemaStoreVersion,
 				getPositionSHA(), binlogPosition.getGtidSetStr(), position.getLastHeartbeatRead());
 
-		ArrayList<Object> columnData = new ArrayList<Object>();
+		saveSchemaContents(conn, schemaId, schema);
+		return schemaId;
+	}
 
-		for (Database d : schema.getDatabases()) {
-			Long dbId = executeInsert(databaseInsert, schemaId, d.getName(), d.getCharset());
+	/*
+		write the databases, tables and columns of a full snapshot, each in
+		multi-row inserts.  Rather than trusting a multi-row insert's
+		auto-increment ids to be consecutive (they aren't under
+		innodb_autoinc_lock_mode=2), we read back the ids of the databases
+		and tables we wrote, by name.
+	 */
+	private static void saveSchemaContents(Connection conn, Long schemaId, Schema schema) throws SQLException {
+		long startTime = System.currentTimeMillis();
+		int maxBytes = bulkInsertBytes(conn);
+
+		BulkInsert databaseInsert = new BulkInsert(conn, "INSERT INTO `databases` (schema_id, name, charset) VALUES ", 3, maxBytes);
+		for ( Database d : schema.getDatabases() )
+			databaseInsert.add(schemaId, d.getName(), d.getCharset());
+		databaseInsert.flush();
+
+		HashMap<String, Long> databaseIDs = new HashMap<>();
+		try ( PreparedStatement p = conn.prepareStatement("SELECT id, name FROM `databases` WHERE schema_id = ?") ) {
+			p.setLong(1, schemaId);
+			try ( ResultSet rs = p.executeQuery() ) {
+				while ( rs.next() )
+					databaseIDs.put(rs.getString("name"), rs.getLong("id"));
+			}
+		}
 
-			for (Table t : d.getTableList()) {
-				Long tableId = executeInsert(tableInsert, schemaId, dbId, t.getName(), t.getCharset(), t.getPKString());
+		BulkInsert tableInsert = new BulkInsert(conn, "INSERT INTO `tables` (schema_id, database_id, name, charset, pk) VALUES ", 5, maxBytes);
+		for ( Database d : schema.getDatabases() ) {
+			Long dbId = databaseIDs.get(d.getName());
+			for ( Table t : d.getTableList() )
+				tableInsert.add(schemaId, dbId, t.getName(), t.getCharset(), t.getPKString());
+		}
+		tableInsert.flush();
+
+		HashMap<Long, HashMap<String, Long>> tableIDs = new HashMap<>();
+		try ( PreparedStatement p = conn.prepareStatement("SELECT id, database_id, name FROM `tables` WHERE schema_id = ?") ) {
+			p.setLong(1, schemaId);
+			try ( ResultSet rs = p.executeQuery() ) {
+				while ( rs.next() )
+					tableIDs.computeIfAbsent(rs.getLong("database_id"), k -> new HashMap<>()).put(rs.getString("name"), rs.getLong("id"));
+			}
+		}
+
+		BulkInsert columnInsert = new BulkInsert(conn, columnInsertSQL, 8, maxBytes);
+		int tableCount = 0;
+		for ( Database d : schema.getDatabases() ) {
+			HashMap<String, Long> ids = tableIDs.getOrDefault(databaseIDs.get(d.getName()), new HashMap<>());
 
+			for ( Table t : d.getTableList() ) {
+				Long tableId = ids.get(t.getName());
+				tableCount++;
 
-				for (ColumnDef c : t.getColumnList()) {
+				for ( ColumnDef c : t.getColumnList() ) {
 					String enumValuesSQL = null;
 
 					if ( c instanceof EnumeratedColumnDef ) {
@@ -225,63 +321,169 @@ public class MysqlSavedSchema {
 						}
 					}
 
-					columnData.add(schemaId);
-					columnData.add(tableId);
-					columnData.add(c.getName());
+					String charset = null;
+					if ( c instanceof StringColumnDef )
+						charset = ((StringColumnDef) c).getCharset();
 
-					if ( c instanceof StringColumnDef ) {
-						columnData.add(((StringColumnDef) c).getCharset());
-					} else {
-						columnData.add(null);
-					}
+					int isSigned = 0;
+					if ( c instanceof IntColumnDef )
+						isSigned = ((IntColumnDef) c).isSigned() ? 1 : 0;
+					else if ( c instanceof BigIntColumnDef )
+						isSigned = ((BigIntColumnDef) c).isSigned() ? 1 : 0;
 
-					columnData.add(c.getType());
+					Long columnLength = null;
+					if ( c instanceof ColumnDefWithLength )
+						columnLength = ((ColumnDefWithLength) c).getColumnLength();
 
-					if ( c instanceof IntColumnDef ) {
-						columnData.add(((IntColumnDef) c).isSigned() ? 1 : 0);
-					} else if ( c instanceof BigIntColumnDef ) {
-						columnData.add(((BigIntColumnDef) c).isSigned() ? 1 : 0);
-					} else {
-						columnData.add(0);
-					}
+					columnInsert.add(schemaId, tableId, c.getName(), charset, c.getType(), isSigned, enumValuesSQL, columnLength);
+				}
+			}
+		}
+		columnInsert.flush();
 
-					columnData.add(enumValuesSQL);
+		LOGGER.info("saved " + databaseIDs.size() + " databases and " + tableCount + " tables for schema " + schemaId
+			+ " in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
 
-					if ( c instanceof ColumnDefWithLength ) {
-						Long columnLength = ((ColumnDefWithLength) c).getColumnLength();
-						columnData.add(columnLength);
-					} else {
-						columnData.add(null);
-					}
-				}
+	/*
+		BULK_INSERT_BYTES, or half the server's max_allowed_packet if that's
+		smaller; the other half is slack for our estimate of a row's size.
+	 */
+	private static int bulkInsertBytes(Connection conn) throws SQLException {
+		try ( Statement s = conn.createStatement();
+			  ResultSet rs = s.executeQuery("SELECT @@max_allowed_packet") ) {
+			if ( rs.next() )
+				return (int) Math.min(BULK_INSERT_BYTES, rs.getLong(1) / 2);
+		}
+		return BULK_INSERT_BYTES;
+	}
 
-				if ( columnData.size() > 1000 )
-					executeColumnInsert(conn, columnData);
+	/*
+		accumulates rows for one table and writes them out in multi-row
+		inserts of up to BULK_INSERT_ROWS rows, or about `maxBytes` of
+		statement, whichever comes first -- big enough to make few round
+		trips, small enough to stay under max_allowed_packet.
+	 */
+	private static class BulkInsert {
+		private final Connection conn;
+		private final String sql;
+		private final int width;
+		private final int maxBytes;
+		private final ArrayList<Object> values = new ArrayList<>();
+		private int bytes = 0;
+
+		BulkInsert(Connection conn, String sql, int width, int maxBytes) {
+			this.conn = conn;
+			this.sql = sql;
+			this.width = width;
+			this.maxBytes = maxBytes;
+		}
 
+		void add(Object... row) throws SQLException {
+			int rowBytes = 0;
+			for ( Object o : row ) {
+				rowBytes += BULK_INSERT_VALUE_OVERHEAD;
+				if ( o instanceof String )
+					rowBytes += utf8Length((String) o);
 			}
+
+			// flush first, so that only a row too big on its own can go over
+			if ( !values.isEmpty() && bytes + rowBytes > maxBytes )
+				flush();
+
+			values.addAll(Arrays.asList(row));
+			bytes += rowBytes;
+
+			if ( values.size() / width >= BULK_INSERT_ROWS )
+				flush();
 		}
-		if ( columnData.size() > 0 )
-			executeColumnInsert(conn, columnData);
 
-		return schemaId;
-	}
+		private static int utf8Length(String s) {
+			int length = 0;
+			for ( int i = 0; i < s.length(); i++ ) {
+				char c = s.charAt(i);
+				if ( c < 0x80 )
+					length += 1;
+				else if ( c < 0x800 || Character.isSurrogate(c) )
+					length += 2; // a surrogate pair is 4 bytes between them
+				else
+					length += 3;
+			}
+			return length;
+		}
 
-	private void executeColumnInsert(Connection conn, ArrayList<Object> columnData) throws SQLException {
-		String insertColumnSQL = this.columnInsertSQL;
+		void flush() throws SQLException {
+			if ( values.isEmpty() )
+				return;
 
-		for (int i=1; i < columnData.size() / 8; i++) {
-			insertColumnSQL = insertColumnSQL + ", (?, ?, ?, ?, ?, ?, ?, ?)";
+			String row = "(" + StringUtils.repeat("?", ", ", width) + ")";
+			try ( PreparedStatement p = conn.prepareStatement(sql + StringUtils.repeat(row, ", ", values.size() / width)) ) {
+				int i = 1;
+				for ( Object o : values )
+					p.setObject(i++, o);
+
+				p.execute();
+			}
+			values.clear();
+			bytes = 0;
 		}
+	}
 
-		PreparedStatement columnInsert = conn.prepareStatement(insertColumnSQL);
-		int i = 1;
+	/**
+	 * Turn a derived schema into a full snapshot in place: write out `schema`
+	 * (which must be what the row resolves to) as its databases, tables and
+	 * columns, and drop its link to the base schema.  Rows derived from it
+	 * are untouched, since it still resolves to the same schema.
+	 *
+	 * @return false if the row was already a full snapshot (or is gone)
+	 */
+	static boolean compact(Connection conn, long schemaID, Schema schema) throws SQLException {
+		try {
+			conn.setAutoCommit(false);
 
-		for (Object o : columnData)
-			columnInsert.setObject(i++,  o);
+			// left over from a compaction that died part way through
+			deleteSchemaContents(conn, schemaID);
+			saveSchemaContents(conn, schemaID, schema);
 
-		columnInsert.execute();
-		columnInsert.close();
-		columnData.clear();
+			PreparedStatement p = conn.prepareStatement(
+				"UPDATE `schemas` SET base_schema_id = NULL, deltas = NULL, charset = ?, version = ? "
+				+ "WHERE id = ? AND base_schema_id IS NOT NULL"
+			);
+			p.setString(1, schema.getCharset());
+			p.setInt(2, SchemaStoreVersion);
+			p.setLong(3, schemaID);
+
+			if ( p.executeUpdate() == 0 ) {
+				conn.rollback();
+				return false;
+			}
+
+			conn.commit();
+			return true;
+		} catch ( SQLException e ) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * what `schemaID` resolves to, with nothing left out.
+	 */
+	static Schema restoreUnfiltered(Connection conn, long schemaID, CaseSensitivity sensitivity) throws SQLException, InvalidSchemaError {
+		MysqlSavedSchema saved = new MysqlSavedSchema(null, sensitivity);
+		saved.restoreFromSchemaID(conn, schemaID);
+		return saved.getSchema();
+	}
+
+	static void deleteSchemaContents(Connection conn, long schemaID) throws SQLException {
+		for ( String table : new String[] { "columns", "tables", "databases" } ) {
+			PreparedStatement p = conn.prepareStatement("DELETE FROM `" + table + "` WHERE schema_id = ? LIMIT " + DELETE_BATCH_SIZE);
+			p.setLong(1, schemaID);
+			while ( p.executeUpdate() == DELETE_BATCH_SIZE ) { }
+			p.close();
+		}
 	}
 
 	public static MysqlSavedSchema restore(MaxwellContext context, Position targetPosition) throws SQLException, InvalidSchemaError {
@@ -293,6 +495,21 @@ public class MysqlSavedSchema {
 		Long serverID,
 		CaseSensitivity caseSensitivity,
 		Position targetPosition
+	) throws SQLException, InvalidSchemaError {
+		return restore(pool, serverID, caseSensitivity, targetPosition, null, null);
+	}
+
+	/**
+	 * @param cache a local copy of the schema to use if it's the one we're restoring.  May be null.
+	 * @param filter leave out the tables this blacklists; we never look those up.  May be null.
+	 */
+	public static MysqlSavedSchema restore(
+		ConnectionPool pool,
+		Long serverID,
+		CaseSensitivity caseSensitivity,
+		Position targetPosition,
+		SchemaCacheFile cache,
+		Filter filter
 	) throws SQLException, InvalidSchemaError {
 		try ( Connection conn = pool.getConnection() ) {
 			Long schemaID = findSchema(conn, targetPosition, serverID);
@@ -300,8 +517,9 @@ public class MysqlSavedSchema {
 				return null;
 
 			MysqlSavedSchema savedSchema = new MysqlSavedSchema(serverID, caseSensitivity);
+			savedSchema.filter = filter;
 
-			savedSchema.restoreFromSchemaID(conn, schemaID);
+			savedSchema.restoreFromSchemaID(conn, schemaID, cache);
 			savedSchema.handleVersionUpgrades(conn);
 
 			return savedSchema;
@@ -348,6 +566,22 @@ public class MysqlSavedSchema {
 		return schemas;
 	}
 
+	/* the length of a schema's delta chain, from just the ids */
+	private static int countChain(Connection conn, Long schemaID) throws SQLException {
+		HashMap<Long, Long> bases = new HashMap<>();
+		ResultSet rs = conn.createStatement().executeQuery("SELECT id, base_schema_id from `schemas`");
+		while ( rs.next() ) {
+			long base = rs.getLong("base_schema_id");
+			bases.put(rs.getLong("id"), rs.wasNull() ? null : base);
+		}
+		rs.close();
+
+		int length = 0;
+		for ( Long id = bases.get(schemaID); id != null; id = bases.get(id) )
+			length++;
+		return length;
+	}
+
 	/*
 		builds a linked list of schema_ids in which the head of the list
 		is the fullly-captured inital schema, and the tail is the final
@@ -377,11 +611,14 @@ public class MysqlSavedSchema {
 		LinkedList<Long> schemaChain = buildSchemaChain(schemas, schema_id);
 
 		Long firstSchemaId = schemaChain.removeFirst();
+		this.chainLength = schemaChain.size();
 
 		/* do the "full" restore of the schema snapshot */
 		MysqlSavedSchema firstSchema = new MysqlSavedSchema(serverID, sensitivity);
+		firstSchema.filter = this.filter;
 		firstSchema.restoreFromSchemaID(conn, firstSchemaId);
 		Schema schema = firstSchema.getSchema();
+		this.partial = firstSchema.partial;
 
 		LOGGER.info("beginning to play deltas...");
 		int count = 0;
@@ -391,6 +628,12 @@ public class MysqlSavedSchema {
 		for ( Long id : schemaChain ) {
 			List<ResolvedSchemaChange> deltas = parseDeltas((String) schemas.get(id).get("deltas"));
 			for ( ResolvedSchemaChange delta : deltas ) {
+				// the table may have been blacklisted since; then it isn't in the snapshot either
+				if ( isBlacklisted(delta.databaseName(), delta.tableName()) ) {
+					this.partial = true;
+					continue;
+				}
+
 				delta.apply(schema);
 			}
 			count++;
@@ -402,8 +645,28 @@ public class MysqlSavedSchema {
 	}
 
 	protected void restoreFromSchemaID(Connection conn, Long schemaID) throws SQLException, InvalidSchemaError {
+		restoreFromSchemaID(conn, schemaID, null);
+	}
+
+	private void restoreFromSchemaID(Connection conn, Long schemaID, SchemaCacheFile cache) throws SQLException, InvalidSchemaError {
 		restoreSchemaMetadata(conn, schemaID);
 
+		// schemas from before the current store version may need fixing up against a recapture; always restore those from mysql
+		if ( cache != null && this.schemaVersion >= SchemaStoreVersion ) {
+			long startTime = System.currentTimeMillis();
+			Schema cached = cache.read(schemaID, this.positionSHA, this.sensitivity);
+			if ( cached != null ) {
+				LOGGER.info("restored schema id " + schemaID + " from " + cache.getFile() + " in " + (System.currentTimeMillis() - startTime) + "ms");
+				this.schema = cached;
+				this.restoredFromCache = true;
+				// we wrote the cache from our own copy, which may have been missing tables
+				this.partial = this.filter != null;
+				if ( this.baseSchemaID != null )
+					this.chainLength = countChain(conn, schemaID);
+				return;
+			}
+		}
+
 		if (this.baseSchemaID != null) {
 			LOGGER.debug("Restoring derived schema");
 			restoreDerivedSchema(conn, schemaID);
@@ -438,6 +701,7 @@ public class MysqlSavedSchema {
 
 		this.deltas = parseDeltas(schemaRS.getString("deltas"));
 		this.schemaVersion = schemaRS.getInt("version");
+		this.positionSHA = schemaRS.getString("position_sha");
 		this.schema = new Schema(new ArrayList<Database>(), schemaRS.getString("charset"), this.sensitivity);
 	}
 
@@ -470,6 +734,7 @@ public class MysqlSavedSchema {
 
 		Database currentDatabase = null;
 		Table currentTable = null;
+		String blacklistedTable = null;
 		short columnIndex = 0;
 
 		while (rs.next()) {
@@ -495,12 +760,18 @@ public class MysqlSavedSchema {
 				this.schema.addDatabase(currentDatabase);
 				// make sure two tables named the same in different dbs are picked up.
 				currentTable = null;
+				blacklistedTable = null;
 				LOGGER.debug("Restoring database " + dbName + "...");
 			}
 
 			if (tName == null) {
 				// if tName is null, there are no tables connected to this database
 				continue;
+			} else if (tName.equals(blacklistedTable) || isBlacklisted(dbName, tName)) {
+				blacklistedTable = tName;
+				currentTable = null;
+				this.partial = true;
+				continue;
 			} else if (currentTable == null || !currentTable.getName().equals(tName)) {
 				currentTable = currentDatabase.buildTable(tName, tCharset);
 				if (tPKs != null) {
@@ -552,7 +823,12 @@ public class MysqlSavedSchema {
 		LOGGER.debug("Restored all databases");
 	}
 
-	private static Long findSchema(Connection connection, Position targetPosition, Long serverID)
+	/* tables (never databases) the filter blacklists; we ignore their DDL and rows alike */
+	private boolean isBlacklisted(String database, String table) {
+		return filter != null && table != null && filter.isTableBlacklisted(database, table);
+	}
+
+	static Long findSchema(Connection connection, Position targetPosition, Long serverID)
 			throws SQLException {
 		LOGGER.debug("looking to restore schema at target position " + targetPosition);
 		BinlogPosition targetBinlogPosition = targetPosition.getBinlogPosition();
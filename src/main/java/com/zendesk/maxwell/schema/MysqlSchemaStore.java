@@ -8,6 +8,7 @@ import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
 import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
 import snaq.db.ConnectionPool;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collections;
@@ -19,6 +20,10 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 	private final ConnectionPool maxwellConnectionPool;
 	private final Position initialPosition;
 	private final boolean readOnly;
+	private final SchemaCacheFile schemaCache;
+	private final SchemaCompactor compactor;
+	// the chain length at the last compaction we started
+	private int compactedChainLength = 0;
 	private Long serverID;
 
 	private MysqlSavedSchema savedSchema;
@@ -31,11 +36,30 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 							CaseSensitivity caseSensitivity,
 							Filter filter,
 							boolean readOnly) {
+		this(maxwellConnectionPool, replicationConnectionPool, schemaConnectionPool, serverID, initialPosition, caseSensitivity, filter, readOnly, null, 0);
+	}
+
+	/**
+	 * @param schemaCache a local file to keep a copy of the current schema in, for faster restarts.  May be null.
+	 * @param compactionChainLength snapshot the schema once its delta chain is this long; 0 never does.
+	 */
+	public MysqlSchemaStore(ConnectionPool maxwellConnectionPool,
+							ConnectionPool replicationConnectionPool,
+							ConnectionPool schemaConnectionPool,
+							Long serverID,
+							Position initialPosition,
+							CaseSensitivity caseSensitivity,
+							Filter filter,
+							boolean readOnly,
+							SchemaCacheFile schemaCache,
+							int compactionChainLength) {
 		super(replicationConnectionPool, schemaConnectionPool, caseSensitivity, filter);
 		this.serverID = serverID;
 		this.maxwellConnectionPool = maxwellConnectionPool;
 		this.initialPosition = initialPosition;
 		this.readOnly = readOnly;
+		this.schemaCache = schemaCache;
+		this.compactor = readOnly || compactionChainLength <= 0 ? null : new SchemaCompactor(maxwellConnectionPool, compactionChainLength, caseSensitivity);
 	}
 
 	public MysqlSchemaStore(MaxwellContext context, Position initialPosition) throws SQLException {
@@ -47,8 +71,19 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 			initialPosition,
 			context.getCaseSensitivity(),
 			context.getFilter(),
-			context.getReplayMode()
+			context.getReplayMode(),
+			buildSchemaCache(context),
+			context.getConfig().schemaCompactionChainLength
 		);
+		this.captureThreads = context.getConfig().schemaCaptureThreads;
+	}
+
+	private static SchemaCacheFile buildSchemaCache(MaxwellContext context) {
+		String dir = context.getConfig().schemaCacheDir;
+		if ( dir == null )
+			return null;
+
+		return new SchemaCacheFile(new File(dir, context.getConfig().clientID + ".schema"));
 	}
 
 	public Schema getSchema() throws SchemaStoreException {
@@ -65,12 +100,15 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 	private MysqlSavedSchema restoreOrCaptureSchema() throws SchemaStoreException {
 		try {
 			MysqlSavedSchema savedSchema =
-				restore(maxwellConnectionPool, serverID, caseSensitivity, initialPosition);
+				restore(maxwellConnectionPool, serverID, caseSensitivity, initialPosition, schemaCache, filter);
 
 			if ( savedSchema == null ) {
 				savedSchema = captureAndSaveSchema();
 			}
 
+			if ( !savedSchema.isRestoredFromCache() )
+				writeSchemaCache(savedSchema);
+
 			return savedSchema;
 		} catch (SQLException e) {
 			throw new SchemaStoreException(e);
@@ -79,9 +117,14 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 		}
 	}
 
-	public MysqlSavedSchema captureAndSaveSchema() throws SQLException {
+	/*
+	   the `schemas` table is shared by every client on the server, whatever
+	   it blacklists, so we save the schema in full and only then drop the
+	   blacklisted tables from our copy.
+	 */
+	public MysqlSavedSchema captureAndSaveSchema() throws SQLException, InvalidSchemaError {
 		try ( Connection conn = maxwellConnectionPool.getConnection() ) {
-			MysqlSavedSchema savedSchema = new MysqlSavedSchema(serverID, caseSensitivity, captureSchema(), initialPosition);
+			MysqlSavedSchema savedSchema = new MysqlSavedSchema(serverID, caseSensitivity, captureSchema(null), initialPosition);
 			if (!readOnly)
 				if (conn.isValid(30)) {
 					savedSchema.save(conn);
@@ -92,14 +135,17 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 					savedSchema.save(newConn);
 					newConn.close();
 				}
+			savedSchema.removeBlacklistedTables(filter);
 			return savedSchema;
 		}
 	}
 
 	public List<ResolvedSchemaChange> processSQL(String sql, String currentDatabase, Position position) throws SchemaStoreException, InvalidSchemaError {
 		List<ResolvedSchemaChange> resolvedSchemaChanges;
+		// changes go onto a copy, leaving the schema we had intact for anyone still holding it
+		CopyOnChange updatedSchema = new CopyOnChange(getSchema());
 		try {
-			resolvedSchemaChanges = resolveSQL(getSchema(), sql, currentDatabase);
+			resolvedSchemaChanges = resolveSQL(updatedSchema, sql, currentDatabase);
 		} catch (Exception e) {
 			LOGGER.error("Error on bin log position " + position.toString());
 			e.printStackTrace();
@@ -108,7 +154,7 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 
 		if ( resolvedSchemaChanges.size() > 0 ) {
 			try {
-				Long schemaId = saveSchema(getSchema(), resolvedSchemaChanges, position);
+				Long schemaId = saveSchema(updatedSchema.get(), resolvedSchemaChanges, position);
 				LOGGER.info("storing schema @" + position + " after applying \"" + sql.replace('\n', ' ') + "\" to " + currentDatabase + ", new schema id is " + schemaId);
 			} catch (SQLException e) {
 				throw new SchemaStoreException(e);
@@ -118,15 +164,43 @@ public class MysqlSchemaStore extends AbstractSchemaStore implements SchemaStore
 	}
 
 	private Long saveSchema(Schema updatedSchema, List<ResolvedSchemaChange> changes, Position p) throws SQLException {
+		this.savedSchema = this.savedSchema.createDerivedSchema(updatedSchema, p, changes);
 		if ( readOnly )
 			return null;
 
 		try (Connection c = maxwellConnectionPool.getConnection()) {
-			this.savedSchema = this.savedSchema.createDerivedSchema(updatedSchema, p, changes);
-			return this.savedSchema.save(c);
+			Long schemaId = this.savedSchema.save(c);
+			writeSchemaCache(this.savedSchema);
+			maybeCompact(this.savedSchema);
+			return schemaId;
 		}
 	}
 
+	private void maybeCompact(MysqlSavedSchema saved) {
+		if ( compactor == null || saved.getSchemaID() == null )
+			return;
+
+		int chainLength = saved.getChainLength();
+		if ( chainLength < compactedChainLength )
+			compactedChainLength = 0; // a full snapshot broke the chain
+
+		if ( !compactor.shouldCompact(chainLength - compactedChainLength) )
+			return;
+
+		// later DDL goes onto a copy, so this schema won't change under the compactor.
+		// A copy missing blacklisted tables has the compactor read the schema back in full.
+		if ( compactor.compactAsync(saved.getSchemaID(), saved.isPartial() ? null : saved.getSchema()) )
+			compactedChainLength = chainLength;
+	}
+
+	private void writeSchemaCache(MysqlSavedSchema saved) {
+		if ( schemaCache == null || saved.getSchemaID() == null )
+			return;
+
+		// schemas are copied before they change, so this one stays put while it's written
+		schemaCache.writeAsync(saved.getSchemaID(), saved.getSavedPositionSHA(), saved.getSchema());
+	}
+
 	public void clone(Long serverID, Position position) throws SchemaStoreException {
 		List<ResolvedSchemaChange> empty = Collections.emptyList();
 
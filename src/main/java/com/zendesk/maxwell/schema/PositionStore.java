@@ -0,0 +1,45 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.MaxwellConfig;
+import com.zendesk.maxwell.recovery.RecoveryInfo;
+import com.zendesk.maxwell.replication.Position;
+
+import java.sql.SQLException;
+
+/*
+   where a client's binlog position and heartbeats are kept: the `positions`
+   and `heartbeats` tables (MysqlPositionStore), or a local file (LocalStore).
+ */
+public interface PositionStore {
+	/**
+	 * Store the position we've processed up to
+	 */
+	void set(Position newPosition) throws SQLException;
+
+	/**
+	 * @return the stored position of this client on this server, or null if there isn't one
+	 */
+	Position get() throws SQLException;
+
+	/**
+	 * @return the most recent position any client has stored on this server, or null
+	 */
+	Position getLatestFromAnyClient() throws SQLException;
+
+	/**
+	 * Send a heartbeat stamped with the current time
+	 * @return the heartbeat value sent
+	 */
+	long heartbeat() throws Exception;
+
+	void heartbeat(long heartbeatValue) throws Exception;
+
+	Long getLastHeartbeatSent();
+
+	/**
+	 * @return where to recover from after a master failover, or null if we can't tell
+	 */
+	RecoveryInfo getRecoveryInfo(MaxwellConfig config) throws SQLException;
+
+	void cleanupOldRecoveryInfos() throws SQLException;
+}
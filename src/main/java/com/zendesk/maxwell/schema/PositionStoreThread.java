@@ -14,14 +14,14 @@ public class PositionStoreThread extends RunLoopProcess implements Runnable {
 	static final Logger LOGGER = LoggerFactory.getLogger(PositionStoreThread.class);
 	private Position position; // in memory position
 	private Position storedPosition; // position as flushed to storage
-	private final MysqlPositionStore store;
+	private final PositionStore store;
 	private MaxwellContext context;
 	private Exception exception;
 	private Thread thread;
 	private BinlogPosition lastHeartbeatSentFrom; // last position we sent a heartbeat from
 	private long lastHeartbeatSent;
 
-	public PositionStoreThread(MysqlPositionStore store, MaxwellContext context) {
+	public PositionStoreThread(PositionStore store, MaxwellContext context) {
 		this.store = store;
 		this.context = context;
 		lastHeartbeatSentFrom = null;
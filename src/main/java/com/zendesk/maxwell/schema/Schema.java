@@ -6,11 +6,22 @@ import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
-
+/*
+   schemas are structurally shared: copy() hands back a new Schema pointing
+   at the same Database objects (and they at the same Tables), marking the
+   databases shared.  Changes go through editDatabase(), which copies a
+   shared database -- its table list, not its tables -- before handing it
+   out.  Tables and columns are never changed once they're in a schema;
+   ALTERs build a new Table from a copy of the old one.
+ */
 public class Schema {
 	private final ArrayList<Database> databases;
+	// lookup key (see nameKey) -> database; kept in step with the list above
+	private final HashMap<String, Database> databaseIndex;
 	private final String charset;
 	private final CaseSensitivity sensitivity;
 
@@ -18,12 +29,31 @@ public class Schema {
 		this.sensitivity = sensitivity;
 		this.charset = charset;
 		this.databases = new ArrayList<>();
+		this.databaseIndex = new HashMap<>();
 
 		for ( Database d : databases )
 			addDatabase(d);
 	}
 
-	public List<Database> getDatabases() { return this.databases; }
+	private Schema(Schema other) {
+		this.sensitivity = other.sensitivity;
+		this.charset = other.charset;
+		this.databases = new ArrayList<>(other.databases);
+		this.databaseIndex = new HashMap<>(other.databaseIndex);
+	}
+
+	/**
+	 * The key a database or table name is indexed under: the name itself on a
+	 * case-sensitive server, the lower-cased name otherwise.
+	 */
+	static String nameKey(String name, CaseSensitivity sensitivity) {
+		if ( name == null || sensitivity == CaseSensitivity.CASE_SENSITIVE )
+			return name;
+		else
+			return name.toLowerCase();
+	}
+
+	public List<Database> getDatabases() { return Collections.unmodifiableList(this.databases); }
 
 	public List<String> getDatabaseNames () {
 		ArrayList<String> names = new ArrayList<String>();
@@ -35,15 +65,7 @@ public class Schema {
 	}
 
 	public Database findDatabase(String string) {
-		for ( Database d: this.databases ) {
-			if ( sensitivity == CaseSensitivity.CASE_SENSITIVE ) {
-				if ( d.getName().equals(string) ) return d;
-			} else {
-				if ( d.getName().toLowerCase().equals(string.toLowerCase()) ) return d;
-			}
-		}
-
-		return null;
+		return databaseIndex.get(nameKey(string, sensitivity));
 	}
 
 	public Database findDatabaseOrThrow(String name) throws InvalidSchemaError {
@@ -53,6 +75,21 @@ public class Schema {
 		return d;
 	}
 
+	/**
+	 * find a database in order to change it.  If it's shared with another
+	 * schema we swap in our own copy first, leaving the other schema as it was.
+	 */
+	public Database editDatabase(String name) throws InvalidSchemaError {
+		Database d = findDatabaseOrThrow(name);
+		if ( !d.isShared() )
+			return d;
+
+		Database copy = d.copy();
+		this.databases.set(this.databases.indexOf(d), copy);
+		this.databaseIndex.put(nameKey(d.getName(), sensitivity), copy);
+		return copy;
+	}
+
 	public boolean hasDatabase(String string) {
 		return findDatabase(string) != null;
 	}
@@ -60,6 +97,24 @@ public class Schema {
 	public void addDatabase(Database d) {
 		d.setSensitivity(sensitivity);
 		this.databases.add(d);
+		this.databaseIndex.putIfAbsent(nameKey(d.getName(), sensitivity), d);
+	}
+
+	public void removeDatabase(Database d) {
+		if ( !this.databases.remove(d) )
+			return;
+
+		String key = nameKey(d.getName(), sensitivity);
+		if ( databaseIndex.get(key) == d ) {
+			databaseIndex.remove(key);
+			// a second database with a clashing name becomes the one we find
+			for ( Database other : this.databases ) {
+				if ( key.equals(nameKey(other.getName(), sensitivity)) ) {
+					databaseIndex.put(key, other);
+					break;
+				}
+			}
+		}
 	}
 
 	private void diffDBList(List<String> diff, Schema a, Schema b, String nameA, String nameB, boolean recurse) {
@@ -74,6 +129,15 @@ public class Schema {
 
 	}
 
+	/**
+	 * A copy that shares every database with this schema until one side edits it.
+	 */
+	public Schema copy() {
+		for ( Database d : databases )
+			d.share();
+		return new Schema(this);
+	}
+
 	public List<String> diff(Schema that, String thisName, String thatName) {
 		List<String> diff = new ArrayList<>();
 
@@ -0,0 +1,299 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.schema.columndef.BigIntColumnDef;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import com.zendesk.maxwell.schema.columndef.ColumnDefWithLength;
+import com.zendesk.maxwell.schema.columndef.EnumeratedColumnDef;
+import com.zendesk.maxwell.schema.columndef.IntColumnDef;
+import com.zendesk.maxwell.schema.columndef.StringColumnDef;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+   a local copy of one resolved schema, so that a restart can skip reading
+   the delta chain and the databases/tables/columns rows back over JDBC.
+
+   the file is tagged with the `schemas` row it was written from -- its id
+   and position_sha -- and only used if that's still the row we'd restore.
+   Anything wrong with it (missing, another schema, truncated, an old
+   format) just means we restore from mysql as usual.
+
+   schema stores write it in the background with writeAsync; a burst of DDL
+   only writes the last schema, and a write that never happens just leaves
+   a stale file behind.
+
+   format, through Data{Input,Output}Stream:
+
+     magic, format version, schema id, position sha, charset
+     database count, then per database: name, charset, table count
+       per table: name, charset, pk string, column count
+         per column: name, type, charset, signed, enum value count, enum values, length
+
+   strings are a length (-1 for null) and their utf-8 bytes; a missing
+   length is -1.
+ */
+public class SchemaCacheFile {
+	static final Logger LOGGER = LoggerFactory.getLogger(SchemaCacheFile.class);
+
+	private static final int MAGIC = 0x4d585343; // "MXSC"
+	private static final int FORMAT_VERSION = 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	// the newest schema writeAsync was handed that the writer hasn't picked up yet
+	private final AtomicReference<PendingWrite> pending = new AtomicReference<>();
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "maxwell-schema-cache");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private static class PendingWrite {
+		final long schemaID;
+		final String positionSHA;
+		final Schema schema;
+
+		PendingWrite(long schemaID, String positionSHA, Schema schema) {
+			this.schemaID = schemaID;
+			this.positionSHA = positionSHA;
+			this.schema = schema;
+		}
+	}
+
+	public SchemaCacheFile(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the cached schema, or null if the file doesn't hold schema `schemaID` at `positionSHA`.
+	 */
+	public Schema read(long schemaID, String positionSHA, CaseSensitivity sensitivity) {
+		if ( positionSHA == null )
+			return null;
+
+		try ( DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) ) {
+			if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION )
+				return null;
+
+			if ( in.readLong() != schemaID || !positionSHA.equals(readString(in)) )
+				return null;
+
+			return readSchema(in, sensitivity);
+		} catch ( FileNotFoundException e ) {
+			return null;
+		} catch ( EOFException e ) {
+			LOGGER.warn("schema cache " + file + " is truncated, ignoring it");
+			return null;
+		} catch ( IOException e ) {
+			LOGGER.warn("couldn't read schema cache " + file + ", ignoring it", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Replace the cached schema.  Written to a temporary file and moved
+	 * into place, so a reader never sees half a schema.  Failing to
+	 * write the cache isn't fatal; we'll just restore from mysql next time.
+	 */
+	public void write(long schemaID, String positionSHA, Schema schema) {
+		if ( positionSHA == null )
+			return;
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = new File(dir, file.getName() + ".tmp");
+		long startTime = System.currentTimeMillis();
+
+		try {
+			dir.mkdirs();
+
+			try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE)) ) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(schemaID);
+				writeString(out, positionSHA);
+				writeSchema(out, schema);
+			}
+
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			LOGGER.debug("wrote schema " + schemaID + " to " + file + " in " + (System.currentTimeMillis() - startTime) + "ms");
+		} catch ( IOException e ) {
+			LOGGER.warn("couldn't write schema cache " + file, e);
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * write() on a background thread.  If writes pile up only the newest is written.
+	 *
+	 * @param schema must not be changed afterwards.
+	 */
+	public void writeAsync(long schemaID, String positionSHA, Schema schema) {
+		if ( pending.getAndSet(new PendingWrite(schemaID, positionSHA, schema)) == null )
+			writer.execute(this::writePending);
+	}
+
+	private void writePending() {
+		PendingWrite w = pending.getAndSet(null);
+		if ( w != null )
+			write(w.schemaID, w.positionSHA, w.schema);
+	}
+
+	/**
+	 * wait for every writeAsync so far to hit the disk.
+	 */
+	void awaitWrites() throws InterruptedException {
+		try {
+			writer.submit(() -> { }).get();
+		} catch ( ExecutionException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/* charset, then the databases.  LocalStore keeps its snapshots in this format too. */
+	static void writeSchema(DataOutputStream out, Schema schema) throws IOException {
+		writeString(out, schema.getCharset());
+
+		List<Database> databases = schema.getDatabases();
+		out.writeInt(databases.size());
+		for ( Database d : databases )
+			writeDatabase(out, d);
+	}
+
+	static Schema readSchema(DataInputStream in, CaseSensitivity sensitivity) throws IOException {
+		Schema schema = new Schema(new ArrayList<>(), readString(in), sensitivity);
+
+		int databases = in.readInt();
+		for ( int d = 0; d < databases; d++ )
+			schema.addDatabase(readDatabase(in));
+
+		return schema;
+	}
+
+	private static void writeDatabase(DataOutputStream out, Database d) throws IOException {
+		writeString(out, d.getName());
+		writeString(out, d.getCharset());
+
+		List<Table> tables = d.getTableList();
+		out.writeInt(tables.size());
+		for ( Table t : tables ) {
+			writeString(out, t.getName());
+			writeString(out, t.getCharset());
+			writeString(out, t.getPKString());
+
+			List<ColumnDef> columns = t.getColumnList();
+			out.writeInt(columns.size());
+			for ( ColumnDef c : columns )
+				writeColumn(out, c);
+		}
+	}
+
+	/* the same attributes MysqlSavedSchema stores in `columns` */
+	private static void writeColumn(DataOutputStream out, ColumnDef c) throws IOException {
+		writeString(out, c.getName());
+		writeString(out, c.getType());
+		writeString(out, c instanceof StringColumnDef ? ((StringColumnDef) c).getCharset() : null);
+
+		boolean signed = false;
+		if ( c instanceof IntColumnDef )
+			signed = ((IntColumnDef) c).isSigned();
+		else if ( c instanceof BigIntColumnDef )
+			signed = ((BigIntColumnDef) c).isSigned();
+		out.writeBoolean(signed);
+
+		String[] enumValues = c instanceof EnumeratedColumnDef ? ((EnumeratedColumnDef) c).getEnumValues() : null;
+		if ( enumValues == null ) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(enumValues.length);
+			for ( String value : enumValues )
+				writeString(out, value);
+		}
+
+		Long columnLength = c instanceof ColumnDefWithLength ? ((ColumnDefWithLength) c).getColumnLength() : null;
+		out.writeLong(columnLength == null ? -1L : columnLength);
+	}
+
+	private static Database readDatabase(DataInputStream in) throws IOException {
+		Database database = new Database(readString(in), readString(in));
+
+		int tables = in.readInt();
+		for ( int t = 0; t < tables; t++ ) {
+			Table table = database.buildTable(readString(in), readString(in));
+
+			String pks = readString(in);
+			if ( pks != null )
+				table.setPKList(Arrays.asList(StringUtils.split(pks, ',')));
+
+			int columns = in.readInt();
+			for ( short i = 0; i < columns; i++ )
+				table.addColumn(readColumn(in, i));
+		}
+		return database;
+	}
+
+	private static ColumnDef readColumn(DataInputStream in, short index) throws IOException {
+		String name = readString(in);
+		String type = readString(in);
+		String charset = readString(in);
+		boolean signed = in.readBoolean();
+
+		String[] enumValues = null;
+		int enumCount = in.readInt();
+		if ( enumCount >= 0 ) {
+			enumValues = new String[enumCount];
+			for ( int i = 0; i < enumCount; i++ )
+				enumValues[i] = readString(in);
+		}
+
+		long length = in.readLong();
+		return ColumnDef.build(name, charset, type, index, signed, enumValues, length < 0 ? null : length);
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		if ( s == null ) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if ( length < 0 )
+			return null;
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
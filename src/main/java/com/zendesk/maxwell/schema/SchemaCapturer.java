@@ -1,82 +1,149 @@
 package com.zendesk.maxwell.schema;
 
 import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import snaq.db.ConnectionPool;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/*
+   reads the schema out of information_schema.  Databases are captured in
+   batches of DATABASES_PER_QUERY, one query per batch for each of tables,
+   columns and primary keys; given a connection pool, up to `threads`
+   batches are captured at once, each on its own connection.
+
+   tables the filter blacklists are left out: maxwell ignores their rows
+   and their DDL, so their definitions would only take up heap.
+ */
 public class SchemaCapturer {
-	private final Connection connection;
 	static final Logger LOGGER = LoggerFactory.getLogger(MysqlSavedSchema.class);
 
+	static final int DATABASES_PER_QUERY = 50;
+
 	public static final HashSet<String> IGNORED_DATABASES = new HashSet<String>(
 			Arrays.asList(new String[]{"performance_schema", "information_schema"})
 	);
 
+	private final Connection connection;
+	private final ConnectionPool connectionPool;
+	private final int threads;
+	private final Filter filter;
+
 	private final HashSet<String> includeDatabases;
+	private String includeTable;
 
 	private final CaseSensitivity sensitivity;
 
-	private PreparedStatement tablePreparedStatement;
+	private boolean hasDatetimePrecision;
 
-	private PreparedStatement columnPreparedStatement;
+	public SchemaCapturer(Connection c, CaseSensitivity sensitivity) throws SQLException {
+		this(c, null, 1, sensitivity, null);
+	}
 
-	private PreparedStatement pkPreparedStatement;
+	public SchemaCapturer(Connection c, CaseSensitivity sensitivity, String dbName) throws SQLException {
+		this(c, sensitivity);
+		this.includeDatabases.add(dbName);
+	}
 
-	public SchemaCapturer(Connection c, CaseSensitivity sensitivity) throws SQLException {
+	/**
+	 * capture just `dbName`.`tableName`
+	 */
+	public SchemaCapturer(Connection c, CaseSensitivity sensitivity, String dbName, String tableName) throws SQLException {
+		this(c, sensitivity, dbName);
+		this.includeTable = tableName;
+	}
+
+	/**
+	 * @param threads how many batches of databases to capture at once, each on a connection from `pool`
+	 */
+	public SchemaCapturer(ConnectionPool pool, CaseSensitivity sensitivity, int threads) throws SQLException {
+		this(pool, sensitivity, threads, null);
+	}
+
+	/**
+	 * @param filter leave out the tables this blacklists.  May be null.
+	 */
+	public SchemaCapturer(ConnectionPool pool, CaseSensitivity sensitivity, int threads, Filter filter) throws SQLException {
+		this(null, pool, threads, sensitivity, filter);
+	}
+
+	private SchemaCapturer(Connection c, ConnectionPool pool, int threads, CaseSensitivity sensitivity, Filter filter) {
 		this.includeDatabases = new HashSet<>();
 		this.connection = c;
+		this.connectionPool = pool;
+		this.threads = capThreads(threads, pool);
 		this.sensitivity = sensitivity;
+		this.filter = filter;
+	}
 
-		String tblSql = "SELECT TABLES.TABLE_NAME, CCSA.CHARACTER_SET_NAME "
-				+ "FROM INFORMATION_SCHEMA.TABLES "
-				+ "JOIN information_schema.COLLATION_CHARACTER_SET_APPLICABILITY AS CCSA"
-				+ " ON TABLES.TABLE_COLLATION = CCSA.COLLATION_NAME WHERE TABLES.TABLE_SCHEMA = ?";
-
-		tablePreparedStatement = connection.prepareStatement(tblSql);
-
-		String dateTimePrecision = "";
-		if(isMySQLAtLeast56())
-			dateTimePrecision = "DATETIME_PRECISION, ";
+	/* every thread holds a connection, so there's no point in more of them than the pool has */
+	private static int capThreads(int threads, ConnectionPool pool) {
+		if ( pool != null && pool.getMaxSize() > 0 && threads > pool.getMaxSize() ) {
+			LOGGER.info("capturing the schema on " + pool.getMaxSize() + " connections, the size of the pool, rather than " + threads);
+			threads = pool.getMaxSize();
+		}
+		return Math.max(1, threads);
+	}
 
-		String columnSql = "SELECT " +
-				"TABLE_NAME," +
-				"COLUMN_NAME, " +
-				"DATA_TYPE, " +
-				"CHARACTER_SET_NAME, " +
-				"ORDINAL_POSITION, " +
-				"COLUMN_TYPE, " +
-				dateTimePrecision +
-				"COLUMN_KEY " +
-				"FROM `information_schema`.`COLUMNS` WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME, ORDINAL_POSITION";
+	public Schema capture() throws SQLException {
+		LOGGER.debug("Capturing schemas...");
+		List<Database> databases;
+		String charset;
+
+		if ( connection != null ) {
+			databases = listDatabases(connection);
+			charset = captureDefaultCharset(connection);
+			this.hasDatetimePrecision = isMySQLAtLeast56(connection);
+		} else {
+			// handed back before the batches start, so they can use the whole pool
+			try ( Connection c = connectionPool.getConnection() ) {
+				databases = listDatabases(c);
+				charset = captureDefaultCharset(c);
+				this.hasDatetimePrecision = isMySQLAtLeast56(c);
+			}
+		}
 
-		columnPreparedStatement = connection.prepareStatement(columnSql);
+		List<List<Database>> batches = new ArrayList<>();
+		for ( int i = 0; i < databases.size(); i += DATABASES_PER_QUERY )
+			batches.add(databases.subList(i, Math.min(i + DATABASES_PER_QUERY, databases.size())));
 
-		String pkSql = "SELECT TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION FROM information_schema.KEY_COLUMN_USAGE "
-				+ "WHERE CONSTRAINT_NAME = 'PRIMARY' AND TABLE_SCHEMA = ? ORDER BY TABLE_NAME, ORDINAL_POSITION";
+		int size = databases.size();
+		long startTime = System.currentTimeMillis();
+		LOGGER.debug("Starting schema capture of " + size + " databases...");
 
-		pkPreparedStatement = connection.prepareStatement(pkSql);
+		if ( connection != null ) {
+			int counter = 0;
+			for ( List<Database> batch : batches ) {
+				captureDatabases(connection, batch);
+				counter += batch.size();
+				LOGGER.debug(counter + "/" + size + " databases captured");
+			}
+		} else {
+			captureInParallel(batches);
+		}
+		LOGGER.debug(size + " database schemas captured in " + (System.currentTimeMillis() - startTime) + "ms");
 
+		return new Schema(databases, charset, this.sensitivity);
 	}
 
-	public SchemaCapturer(Connection c, CaseSensitivity sensitivity, String dbName) throws SQLException {
-		this(c, sensitivity);
-		this.includeDatabases.add(dbName);
-	}
-
-	public Schema capture() throws SQLException {
-		LOGGER.debug("Capturing schemas...");
+	private List<Database> listDatabases(Connection c) throws SQLException {
 		ArrayList<Database> databases = new ArrayList<>();
 
-		ResultSet rs = connection.createStatement().executeQuery(
+		ResultSet rs = c.createStatement().executeQuery(
 				"SELECT SCHEMA_NAME, DEFAULT_CHARACTER_SET_NAME FROM INFORMATION_SCHEMA.SCHEMATA ORDER BY SCHEMA_NAME"
 		);
 		while (rs.next()) {
@@ -93,129 +160,215 @@ public class SchemaCapturer {
 			databases.add(db);
 		}
 		rs.close();
+		return databases;
+	}
 
-		int size = databases.size();
-		LOGGER.debug("Starting schema capture of " + size + " databases...");
-		int counter = 1;
-		for (Database db : databases) {
-			LOGGER.debug(counter + "/" + size + " Capturing " + db.getName() + "...");
-			captureDatabase(db);
-			counter++;
+	/*
+		each batch fills in its own Database objects, so the workers share
+		nothing but the pool.
+	 */
+	private void captureInParallel(List<List<Database>> batches) throws SQLException {
+		if ( batches.isEmpty() )
+			return;
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, batches.size()), r -> {
+			Thread t = new Thread(r, "maxwell-schema-capture");
+			t.setDaemon(true);
+			return t;
+		});
+
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for ( List<Database> batch : batches ) {
+				futures.add(executor.submit(() -> {
+					try ( Connection c = connectionPool.getConnection() ) {
+						captureDatabases(c, batch);
+					}
+					return null;
+				}));
+			}
+
+			for ( Future<Void> future : futures )
+				getResult(future);
+		} finally {
+			executor.shutdownNow();
 		}
-		LOGGER.debug(size + " database schemas captured!");
+	}
 
-		return new Schema(databases, captureDefaultCharset(), this.sensitivity);
+	private void getResult(Future<Void> future) throws SQLException {
+		try {
+			future.get();
+		} catch ( ExecutionException e ) {
+			if ( e.getCause() instanceof SQLException )
+				throw (SQLException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
 	}
 
-	private String captureDefaultCharset() throws SQLException {
+	private String captureDefaultCharset(Connection c) throws SQLException {
 		LOGGER.debug("Capturing Default Charset");
-		ResultSet rs = connection.createStatement().executeQuery("select @@character_set_server");
+		ResultSet rs = c.createStatement().executeQuery("select @@character_set_server");
 		rs.next();
 		return rs.getString("@@character_set_server");
 	}
 
+	private static PreparedStatement prepareForDatabases(Connection c, String sql, List<Database> databases) throws SQLException {
+		PreparedStatement p = c.prepareStatement(sql.replace("?", StringUtils.repeat("?", ", ", databases.size())));
+		for ( int i = 0; i < databases.size(); i++ )
+			p.setString(i + 1, databases.get(i).getName());
+		return p;
+	}
 
-	private void captureDatabase(Database db) throws SQLException {
-		tablePreparedStatement.setString(1, db.getName());
-		ResultSet rs = tablePreparedStatement.executeQuery();
+	private void captureDatabases(Connection c, List<Database> databases) throws SQLException {
+		String tblSql = "SELECT TABLES.TABLE_SCHEMA, TABLES.TABLE_NAME, CCSA.CHARACTER_SET_NAME "
+				+ "FROM INFORMATION_SCHEMA.TABLES "
+				+ "JOIN information_schema.COLLATION_CHARACTER_SET_APPLICABILITY AS CCSA"
+				+ " ON TABLES.TABLE_COLLATION = CCSA.COLLATION_NAME WHERE TABLES.TABLE_SCHEMA IN (?)";
 
-		HashMap<String, Table> tables = new HashMap<>();
-		while (rs.next()) {
-			String tableName = rs.getString("TABLE_NAME");
-			String characterSetName = rs.getString("CHARACTER_SET_NAME");
-			Table t = db.buildTable(tableName, characterSetName);
-			tables.put(tableName, t);
+		HashMap<String, Database> databasesByName = new HashMap<>();
+		HashMap<String, HashMap<String, Table>> tables = new HashMap<>();
+		for ( Database db : databases ) {
+			databasesByName.put(db.getName(), db);
+			tables.put(db.getName(), new HashMap<>());
+		}
+
+		try ( PreparedStatement p = prepareForDatabases(c, tblSql, databases) ) {
+			ResultSet rs = p.executeQuery();
+			while (rs.next()) {
+				String dbName = rs.getString("TABLE_SCHEMA");
+				String tableName = rs.getString("TABLE_NAME");
+				String characterSetName = rs.getString("CHARACTER_SET_NAME");
+				if ( filter != null && filter.isTableBlacklisted(dbName, tableName) )
+					continue;
+
+				if ( includeTable != null && !isIncludedTable(tableName) )
+					continue;
+
+				Database db = databasesByName.get(dbName);
+				if ( db == null )
+					continue; // not a database of this batch
+
+				Table t = db.buildTable(tableName, characterSetName);
+				tables.get(dbName).put(tableName, t);
+			}
+			rs.close();
 		}
-		rs.close();
 
-		captureTables(db, tables);
+		captureTables(c, databases, tables);
 	}
 
+	private boolean isIncludedTable(String tableName) {
+		if ( sensitivity == CaseSensitivity.CASE_SENSITIVE )
+			return includeTable.equals(tableName);
+		else
+			return includeTable.equalsIgnoreCase(tableName);
+	}
 
-	private boolean isMySQLAtLeast56() throws SQLException {
-		java.sql.DatabaseMetaData meta = connection.getMetaData();
+	private static boolean isMySQLAtLeast56(Connection c) throws SQLException {
+		java.sql.DatabaseMetaData meta = c.getMetaData();
 		int major = meta.getDatabaseMajorVersion();
 		int minor = meta.getDatabaseMinorVersion();
 		return ((major == 5 && minor >= 6) || major > 5);
 	}
 
 
-	private void captureTables(Database db, HashMap<String, Table> tables) throws SQLException {
+	private void captureTables(Connection c, List<Database> databases, HashMap<String, HashMap<String, Table>> tables) throws SQLException {
+		String dateTimePrecision = "";
+		if(hasDatetimePrecision)
+			dateTimePrecision = "DATETIME_PRECISION, ";
 
-		columnPreparedStatement.setString(1, db.getName());
-		ResultSet r = columnPreparedStatement.executeQuery();
+		String columnSql = "SELECT " +
+				"TABLE_SCHEMA," +
+				"TABLE_NAME," +
+				"COLUMN_NAME, " +
+				"DATA_TYPE, " +
+				"CHARACTER_SET_NAME, " +
+				"ORDINAL_POSITION, " +
+				"COLUMN_TYPE, " +
+				dateTimePrecision +
+				"COLUMN_KEY " +
+				"FROM `information_schema`.`COLUMNS` WHERE TABLE_SCHEMA IN (?) ORDER BY TABLE_SCHEMA, TABLE_NAME, ORDINAL_POSITION";
 
-		boolean hasDatetimePrecision = isMySQLAtLeast56();
+		HashMap<Table, Integer> pkIndexCounters = new HashMap<>();
 
-		HashMap<String, Integer> pkIndexCounters = new HashMap<>();
-		for (String tableName : tables.keySet()) {
-			pkIndexCounters.put(tableName, 0);
-		}
+		try ( PreparedStatement p = prepareForDatabases(c, columnSql, databases) ) {
+			ResultSet r = p.executeQuery();
 
-		while (r.next()) {
-			String[] enumValues = null;
-			String tableName = r.getString("TABLE_NAME");
+			while (r.next()) {
+				String[] enumValues = null;
+				Table t = findTable(tables, r.getString("TABLE_SCHEMA"), r.getString("TABLE_NAME"));
 
-			if (tables.containsKey(tableName)) {
-				Table t = tables.get(tableName);
-				String colName = r.getString("COLUMN_NAME");
-				String colType = r.getString("DATA_TYPE");
-				String colEnc = r.getString("CHARACTER_SET_NAME");
-				short colPos = (short) (r.getInt("ORDINAL_POSITION") - 1);
-				boolean colSigned = !r.getString("COLUMN_TYPE").matches(".* unsigned$");
-				Long columnLength = null;
+				if (t != null) {
+					String colName = r.getString("COLUMN_NAME");
+					String colType = r.getString("DATA_TYPE");
+					String colEnc = r.getString("CHARACTER_SET_NAME");
+					short colPos = (short) (r.getInt("ORDINAL_POSITION") - 1);
+					boolean colSigned = !r.getString("COLUMN_TYPE").matches(".* unsigned$");
+					Long columnLength = null;
 
-				if (hasDatetimePrecision)
-					columnLength = r.getLong("DATETIME_PRECISION");
+					if (hasDatetimePrecision)
+						columnLength = r.getLong("DATETIME_PRECISION");
 
-				if (r.getString("COLUMN_KEY").equals("PRI"))
-					t.pkIndex = pkIndexCounters.get(tableName);
+					int pkIndex = pkIndexCounters.getOrDefault(t, 0);
+					if (r.getString("COLUMN_KEY").equals("PRI"))
+						t.pkIndex = pkIndex;
 
-				if (colType.equals("enum") || colType.equals("set")) {
-					String expandedType = r.getString("COLUMN_TYPE");
+					if (colType.equals("enum") || colType.equals("set")) {
+						String expandedType = r.getString("COLUMN_TYPE");
 
-					enumValues = extractEnumValues(expandedType);
-				}
+						enumValues = extractEnumValues(expandedType);
+					}
 
-				t.addColumn(ColumnDef.build(colName, colEnc, colType, colPos, colSigned, enumValues, columnLength));
+					t.addColumn(ColumnDef.build(colName, colEnc, colType, colPos, colSigned, enumValues, columnLength));
 
-				pkIndexCounters.put(tableName, pkIndexCounters.get(tableName) + 1);
+					pkIndexCounters.put(t, pkIndex + 1);
+				}
 			}
+			r.close();
 		}
-		r.close();
 
-		captureTablesPK(db, tables);
+		captureTablesPK(c, databases, tables);
 	}
 
-	private void captureTablesPK(Database db, HashMap<String, Table> tables) throws SQLException {
-		pkPreparedStatement.setString(1, db.getName());
-		ResultSet rs = pkPreparedStatement.executeQuery();
+	private void captureTablesPK(Connection c, List<Database> databases, HashMap<String, HashMap<String, Table>> tables) throws SQLException {
+		String pkSql = "SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION FROM information_schema.KEY_COLUMN_USAGE "
+				+ "WHERE CONSTRAINT_NAME = 'PRIMARY' AND TABLE_SCHEMA IN (?) ORDER BY TABLE_SCHEMA, TABLE_NAME, ORDINAL_POSITION";
 
-		HashMap<String, ArrayList<String>> tablePKMap = new HashMap<>();
+		HashMap<Table, ArrayList<String>> tablePKMap = new HashMap<>();
 
-		for (String tableName : tables.keySet()) {
-			tablePKMap.put(tableName, new ArrayList<String>());
+		for (HashMap<String, Table> dbTables : tables.values()) {
+			for (Table table : dbTables.values())
+				tablePKMap.put(table, new ArrayList<String>());
 		}
 
-		while (rs.next()) {
-			int ordinalPosition = rs.getInt("ORDINAL_POSITION");
-			String tableName = rs.getString("TABLE_NAME");
-			String columnName = rs.getString("COLUMN_NAME");
+		try ( PreparedStatement p = prepareForDatabases(c, pkSql, databases) ) {
+			ResultSet rs = p.executeQuery();
 
-			ArrayList<String> pkList = tablePKMap.get(tableName);
-			if ( pkList != null )
-				pkList.add(ordinalPosition - 1, columnName);
-		}
-		rs.close();
+			while (rs.next()) {
+				int ordinalPosition = rs.getInt("ORDINAL_POSITION");
+				Table table = findTable(tables, rs.getString("TABLE_SCHEMA"), rs.getString("TABLE_NAME"));
+				String columnName = rs.getString("COLUMN_NAME");
 
-		for (Map.Entry<String, Table> entry : tables.entrySet()) {
-			String key = entry.getKey();
-			Table table = entry.getValue();
+				ArrayList<String> pkList = tablePKMap.get(table);
+				if ( pkList != null )
+					pkList.add(ordinalPosition - 1, columnName);
+			}
+			rs.close();
+		}
 
-			table.setPKList(tablePKMap.get(key));
+		for (Map.Entry<Table, ArrayList<String>> entry : tablePKMap.entrySet()) {
+			entry.getKey().setPKList(entry.getValue());
 		}
 	}
 
+	private static Table findTable(HashMap<String, HashMap<String, Table>> tables, String dbName, String tableName) {
+		HashMap<String, Table> dbTables = tables.get(dbName);
+		return dbTables == null ? null : dbTables.get(tableName);
+	}
+
 	static String[] extractEnumValues(String expandedType) {
 		Matcher matcher = Pattern.compile("(enum|set)\\((.*)\\)").matcher(expandedType);
 		matcher.matches(); // why do you tease me so.
@@ -0,0 +1,205 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import snaq.db.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+   keeps delta chains short.  Every DDL adds a `schemas` row holding only
+   its deltas, and restoring one means replaying the whole chain back to
+   the last full snapshot; once a chain gets `maxChainLength` long we turn
+   its newest row into a full snapshot, in the background.
+
+   then we garbage-collect: a schema row is only needed if some client
+   could still restore it -- the row each client's stored position resolves
+   to, anything newer, and every row those are derived from.  Everything
+   else goes, along with its databases, tables and columns.  That includes
+   schemas only an `--init_position` older than every stored position
+   would need; such a restart can't find a schema any more.
+
+   compactions take a mysql named lock, so that several maxwells sharing a
+   schema database don't compact the same rows at once.
+ */
+public class SchemaCompactor {
+	static final Logger LOGGER = LoggerFactory.getLogger(SchemaCompactor.class);
+
+	private final ConnectionPool connectionPool;
+	private final int maxChainLength;
+	private final CaseSensitivity sensitivity;
+	private final AtomicBoolean running = new AtomicBoolean(false);
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "maxwell-schema-compactor");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * @param connectionPool connections to the maxwell database
+	 * @param maxChainLength compact a schema once this many derived schemas sit on its full snapshot
+	 */
+	public SchemaCompactor(ConnectionPool connectionPool, int maxChainLength, CaseSensitivity sensitivity) {
+		this.connectionPool = connectionPool;
+		this.maxChainLength = maxChainLength;
+		this.sensitivity = sensitivity;
+	}
+
+	public boolean shouldCompact(int chainLength) {
+		return maxChainLength > 0 && chainLength >= maxChainLength;
+	}
+
+	/**
+	 * compact `schemaID` in the background, unless a compaction is already running.
+	 *
+	 * @param schema what `schemaID` resolves to.  Must not be changed afterwards.
+	 *               null to read it back from the schema database, for a copy that's missing tables.
+	 * @return whether the compaction was started
+	 */
+	public boolean compactAsync(long schemaID, Schema schema) {
+		if ( !running.compareAndSet(false, true) )
+			return false;
+
+		executor.execute(() -> {
+			try {
+				compact(schemaID, schema);
+			} catch ( Exception e ) {
+				LOGGER.warn("couldn't compact schema " + schemaID, e);
+			} finally {
+				running.set(false);
+			}
+		});
+		return true;
+	}
+
+	public void compact(long schemaID, Schema schema) throws SQLException, InvalidSchemaError {
+		try ( Connection conn = connectionPool.getConnection() ) {
+			String lockName = "maxwell_schema_compaction_" + conn.getCatalog();
+			if ( !getLock(conn, lockName) ) {
+				LOGGER.info("another maxwell is compacting schemas, skipping");
+				return;
+			}
+
+			try {
+				long startTime = System.currentTimeMillis();
+				if ( schema == null )
+					schema = MysqlSavedSchema.restoreUnfiltered(conn, schemaID, sensitivity);
+
+				if ( MysqlSavedSchema.compact(conn, schemaID, schema) )
+					LOGGER.info("compacted schema " + schemaID + " into a full snapshot in " + (System.currentTimeMillis() - startTime) + "ms");
+
+				collectGarbage(conn);
+			} finally {
+				releaseLock(conn, lockName);
+			}
+		}
+	}
+
+	/**
+	 * delete every schema row that no client can restore any more.
+	 */
+	void collectGarbage(Connection conn) throws SQLException {
+		Map<Long, Long> bases = new HashMap<>();
+		Set<Long> deleted = new HashSet<>();
+
+		ResultSet rs = conn.createStatement().executeQuery("SELECT id, base_schema_id, deleted from `schemas`");
+		while ( rs.next() ) {
+			long id = rs.getLong("id");
+			long base = rs.getLong("base_schema_id");
+			bases.put(id, rs.wasNull() ? null : base);
+			if ( rs.getInt("deleted") != 0 )
+				deleted.add(id);
+		}
+		rs.close();
+
+		Long oldestRoot = findOldestRoot(conn);
+		if ( oldestRoot == null )
+			return;
+
+		Set<Long> keep = new HashSet<>();
+		for ( Long id : bases.keySet() ) {
+			if ( id < oldestRoot || deleted.contains(id) )
+				continue;
+
+			for ( Long k = id; k != null && keep.add(k); k = bases.get(k) ) { }
+		}
+
+		List<Long> garbage = new ArrayList<>();
+		for ( Long id : bases.keySet() ) {
+			if ( !keep.contains(id) )
+				garbage.add(id);
+		}
+
+		if ( garbage.isEmpty() )
+			return;
+
+		long startTime = System.currentTimeMillis();
+		PreparedStatement deleteSchema = conn.prepareStatement("DELETE FROM `schemas` WHERE id = ?");
+		for ( Long id : garbage ) {
+			MysqlSavedSchema.deleteSchemaContents(conn, id);
+			deleteSchema.setLong(1, id);
+			deleteSchema.executeUpdate();
+		}
+		deleteSchema.close();
+
+		LOGGER.info("garbage-collected " + garbage.size() + " unreachable schemas in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+
+	/*
+		the oldest schema any client would restore at its stored position.
+		null if we can't tell, in which case we leave everything alone.
+	 */
+	private Long findOldestRoot(Connection conn) throws SQLException {
+		Long oldest = null;
+
+		ResultSet rs = conn.createStatement().executeQuery("SELECT * from `positions`");
+		while ( rs.next() ) {
+			String file = rs.getString("binlog_file");
+			if ( file == null )
+				return null;
+
+			Position position = new Position(
+				new BinlogPosition(rs.getString("gtid_set"), null, rs.getLong("binlog_position"), file),
+				rs.getLong("last_heartbeat_read")
+			);
+
+			Long root = MysqlSavedSchema.findSchema(conn, position, rs.getLong("server_id"));
+			if ( root == null )
+				return null;
+
+			if ( oldest == null || root < oldest )
+				oldest = root;
+		}
+		rs.close();
+		return oldest;
+	}
+
+	private static boolean getLock(Connection conn, String name) throws SQLException {
+		PreparedStatement p = conn.prepareStatement("SELECT GET_LOCK(?, 0)");
+		p.setString(1, name);
+		ResultSet rs = p.executeQuery();
+		return rs.next() && rs.getInt(1) == 1;
+	}
+
+	private static void releaseLock(Connection conn, String name) throws SQLException {
+		PreparedStatement p = conn.prepareStatement("SELECT RELEASE_LOCK(?)");
+		p.setString(1, name);
+		p.execute();
+	}
+}
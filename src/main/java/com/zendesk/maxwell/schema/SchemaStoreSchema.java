@@ -69,6 +69,7 @@ public class SchemaStoreSchema {
 		executeSQLInputStream(connection, SchemaStoreSchema.class.getResourceAsStream("/sql/maxwell_schema.sql"), schemaDatabaseName);
 		executeSQLInputStream(connection, SchemaStoreSchema.class.getResourceAsStream("/sql/maxwell_schema_bootstrap.sql"), schemaDatabaseName);
 		executeSQLInputStream(connection, SchemaStoreSchema.class.getResourceAsStream("/sql/maxwell_schema_heartbeats.sql"), schemaDatabaseName);
+		executeSQLInputStream(connection, SchemaStoreSchema.class.getResourceAsStream("/sql/maxwell_schema_heartbeat_index.sql"), schemaDatabaseName);
 	}
 
 	private static HashMap<String, String> getTableColumns(String table, Connection c) throws SQLException {
@@ -179,6 +180,12 @@ public class SchemaStoreSchema {
 		if ( !getTableColumns("bootstrap", c).containsKey("client_id") ) {
 			performAlter(c, "alter table `bootstrap` add column `client_id` varchar(255) charset 'latin1' not null default 'maxwell'");
 		}
+
+		if ( !maxwellTables.contains("heartbeat_index") )  {
+			LOGGER.info("adding heartbeat_index table to the maxwell schema.");
+			InputStream is = MysqlSavedSchema.class.getResourceAsStream("/sql/maxwell_schema_heartbeat_index.sql");
+			executeSQLInputStream(c, is, null);
+		}
 	}
 
 	private static void backfillPositionSHAs(Connection c) throws SQLException {
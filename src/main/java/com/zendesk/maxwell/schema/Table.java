@@ -220,12 +220,41 @@ public class Table {
 		diffColumnList(diffs, other, this, nameB, nameA);
 	}
 
+	/*
+		column definitions may be shared with the table we were copied from,
+		so charset changes go onto a clone of the column.
+	 */
 	public void setDefaultColumnCharsets() {
-		for ( StringColumnDef c : getStringColumns() ) {
-			c.setDefaultCharset(this.getCharset());
+		for ( int i = 0; i < columns.size(); i++ ) {
+			ColumnDef c = columns.get(i);
+			if ( c instanceof StringColumnDef && ((StringColumnDef) c).getCharset() == null ) {
+				StringColumnDef clone = (StringColumnDef) c.clone();
+				clone.setDefaultCharset(this.getCharset());
+				replaceColumn(i, clone);
+			}
+		}
+	}
+
+	public void convertColumnCharsets(String charset) {
+		for ( int i = 0; i < columns.size(); i++ ) {
+			ColumnDef c = columns.get(i);
+			if ( !(c instanceof StringColumnDef) )
+				continue;
+
+			String current = ((StringColumnDef) c).getCharset();
+			if ( current == null || !current.toLowerCase().equals("binary") ) {
+				StringColumnDef clone = (StringColumnDef) c.clone();
+				clone.setCharset(charset);
+				replaceColumn(i, clone);
+			}
 		}
 	}
 
+	private void replaceColumn(int idx, ColumnDef definition) {
+		columns.remove(idx);
+		columns.add(idx, definition);
+	}
+
 	public void addColumn(int index, ColumnDef definition) {
 		columns.add(index, definition);
 	}
@@ -8,6 +8,8 @@ import com.zendesk.maxwell.schema.columndef.ColumnDef;
 public class TableColumnList implements Iterable<ColumnDef> {
 	private final List<ColumnDef> columns;
 	private Set<String> columnNames;
+	// lower-cased name -> position, built on first lookup and dropped when the columns change
+	private HashMap<String, Integer> columnIndex;
 
 	public TableColumnList(List<ColumnDef> columns) {
 		this.columns = columns;
@@ -32,13 +34,14 @@ public class TableColumnList implements Iterable<ColumnDef> {
 	}
 
 	public synchronized int indexOf(String name) {
-		String lcName = name.toLowerCase();
-
-		for ( int i = 0 ; i < columns.size(); i++ ) {
-			if ( columns.get(i).getName().toLowerCase().equals(lcName) )
-				return i;
+		if ( columnIndex == null ) {
+			columnIndex = new HashMap<>(columns.size() * 2);
+			for ( int i = 0 ; i < columns.size(); i++ )
+				columnIndex.putIfAbsent(columns.get(i).getName().toLowerCase(), i);
 		}
-		return -1;
+
+		Integer index = columnIndex.get(name.toLowerCase());
+		return index == null ? -1 : index;
 	}
 
 	public ColumnDef findByName(String name) {
@@ -51,6 +54,7 @@ public class TableColumnList implements Iterable<ColumnDef> {
 
 	public synchronized void add(int index, ColumnDef definition) {
 		columns.add(index, definition);
+		columnIndex = null;
 
 		if ( columnNames != null )
 			columnNames.add(definition.getName().toLowerCase());
@@ -60,6 +64,7 @@ public class TableColumnList implements Iterable<ColumnDef> {
 
 	public synchronized ColumnDef remove(int index) {
 		ColumnDef c = columns.remove(index);
+		columnIndex = null;
 
 		if ( columnNames != null )
 			columnNames.remove(c.getName().toLowerCase());
@@ -75,10 +80,15 @@ public class TableColumnList implements Iterable<ColumnDef> {
 		return columns.size();
 	}
 
+	// a column whose position moves is cloned, as other tables may share it
 	private void renumberColumns() {
-		short i = 0 ;
-		for ( ColumnDef c : columns ) {
-			c.setPos(i++);
+		for ( int i = 0; i < columns.size(); i++ ) {
+			ColumnDef c = columns.get(i);
+			if ( c.getPos() != i ) {
+				c = c.clone();
+				c.setPos((short) i);
+				columns.set(i, c);
+			}
 		}
 	}
 }
@@ -0,0 +1,175 @@
+package com.zendesk.maxwell.schema.ddl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+   decides from a statement's first few keywords whether it could be a
+   schema change, in one pass over the start of the string -- no regexes,
+   no ANTLR.  Comments are skipped, except that the body of a version
+   comment (/*!50003 ... *\/) is read as SQL, the way mysql runs it.
+
+   IGNORE covers the statements SchemaChange used to reject with its
+   SQL_BLACKLIST regexes: transaction control, grants, users and roles,
+   events, routines, triggers, indexes, temporary tables and so on.
+   Everything else goes to the parser, which knows the rest (CREATE VIEW,
+   for instance, it abandons by itself).
+ */
+class DDLClassifier {
+	enum Result {
+		PARSE,
+		IGNORE,
+		// DELETE FROM, which only turns up here from MEMORY tables or a statement-based binlog
+		IGNORE_DELETE
+	}
+
+	private static final int MAX_KEYWORDS = 4;
+
+	private DDLClassifier() { }
+
+	static Result classify(String sql) {
+		List<String> words = leadingKeywords(sql);
+		if ( words.isEmpty() )
+			return Result.PARSE;
+
+		switch ( words.get(0) ) {
+			case "BEGIN":
+			case "COMMIT":
+			case "FLUSH":
+			case "GRANT":
+			case "REVOKE":
+			case "SAVEPOINT":
+			case "TRUNCATE":
+			case "OPTIMIZE":
+			case "REPAIR":
+				return Result.IGNORE;
+			case "ANALYZE":
+				return is(words, 1, "TABLE") ? Result.IGNORE : Result.PARSE;
+			case "DELETE":
+				return is(words, 1, "FROM") ? Result.IGNORE_DELETE : Result.PARSE;
+			case "SET":
+				if ( is(words, 1, "PASSWORD") || is(words, 1, "ROLE") || (is(words, 1, "DEFAULT") && is(words, 2, "ROLE")) )
+					return Result.IGNORE;
+				return Result.PARSE;
+			case "RENAME":
+				return is(words, 1, "USER") ? Result.IGNORE : Result.PARSE;
+			case "ALTER":
+			case "CREATE":
+			case "DROP":
+				return classifyObject(words);
+			default:
+				return Result.PARSE;
+		}
+	}
+
+	/* ALTER, CREATE or DROP: it depends what of */
+	private static Result classifyObject(List<String> words) {
+		String verb = words.get(0);
+		boolean alter = verb.equals("ALTER");
+		int i = 1;
+
+		while ( i < words.size() && isIndexModifier(words.get(i)) )
+			i++;
+
+		if ( is(words, i, "INDEX") )
+			return Result.IGNORE;
+
+		if ( i > 1 )
+			return Result.PARSE; // ALTER ONLINE TABLE and friends
+
+		switch ( i < words.size() ? words.get(i) : "" ) {
+			case "USER":
+			case "EVENT":
+			case "FUNCTION":
+			case "TRIGGER":
+			case "PROCEDURE":
+				return Result.IGNORE;
+			case "AGGREGATE":
+				return verb.equals("CREATE") && is(words, 2, "FUNCTION") ? Result.IGNORE : Result.PARSE;
+			case "TEMPORARY":
+				return is(words, 2, "TABLE") ? Result.IGNORE : Result.PARSE;
+			case "ROLE":
+				return alter ? Result.PARSE : Result.IGNORE;
+			case "DEFAULT":
+				return !alter && is(words, 2, "ROLE") ? Result.IGNORE : Result.PARSE;
+			case "VIEW":
+				return verb.equals("DROP") ? Result.IGNORE : Result.PARSE;
+			default:
+				return Result.PARSE;
+		}
+	}
+
+	private static boolean isIndexModifier(String word) {
+		switch ( word ) {
+			case "ONLINE":
+			case "OFFLINE":
+			case "UNIQUE":
+			case "FULLTEXT":
+			case "SPATIAL":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean is(List<String> words, int i, String word) {
+		return i < words.size() && words.get(i).equals(word);
+	}
+
+	/*
+		the upper-cased words the statement starts with, up to MAX_KEYWORDS,
+		stopping at the first thing that isn't a word (a quote, a paren...).
+		DEFINER=... clauses are dropped.
+	 */
+	static List<String> leadingKeywords(String sql) {
+		List<String> words = new ArrayList<>(MAX_KEYWORDS);
+		int len = sql.length();
+		boolean inVersionComment = false;
+		int i = 0;
+
+		while ( i < len && words.size() < MAX_KEYWORDS ) {
+			char c = sql.charAt(i);
+
+			if ( Character.isWhitespace(c) ) {
+				i++;
+			} else if ( sql.startsWith("/*!", i) ) {
+				i += 3;
+				while ( i < len && Character.isDigit(sql.charAt(i)) )
+					i++;
+				inVersionComment = true;
+			} else if ( inVersionComment && sql.startsWith("*/", i) ) {
+				i += 2;
+				inVersionComment = false;
+			} else if ( sql.startsWith("/*", i) ) {
+				int end = sql.indexOf("*/", i + 2);
+				if ( end == -1 )
+					break;
+				i = end + 2;
+			} else if ( c == '#' || sql.startsWith("--", i) ) {
+				int end = sql.indexOf('\n', i);
+				if ( end == -1 )
+					break;
+				i = end + 1;
+			} else if ( isWordChar(c) ) {
+				int start = i;
+				while ( i < len && isWordChar(sql.charAt(i)) )
+					i++;
+
+				String word = sql.substring(start, i).toUpperCase();
+				if ( word.equals("DEFINER") && i < len && sql.charAt(i) == '=' ) {
+					while ( i < len && !Character.isWhitespace(sql.charAt(i)) && !(inVersionComment && sql.startsWith("*/", i)) )
+						i++;
+				} else {
+					words.add(word);
+				}
+			} else {
+				break;
+			}
+		}
+		return words;
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+}
@@ -75,6 +75,11 @@ public class DDLMap extends RowMap {
 		return outputConfig.outputDDL && !this.suppressed;
 	}
 
+	@Override
+	public void prerender(MaxwellOutputConfig outputConfig) {
+		// toJSON() above renders DDL on demand
+	}
+
 	public String getSql() {
 		return sql;
 	}
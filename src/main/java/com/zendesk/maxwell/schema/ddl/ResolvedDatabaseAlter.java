@@ -18,10 +18,8 @@ public class ResolvedDatabaseAlter extends ResolvedSchemaChange {
 		if ( charset == null )
 			return;
 
-		Database d = schema.findDatabaseOrThrow(database);
-
-		if ( !d.getCharset().equals(charset) )
-			d.setCharset(charset);
+		if ( !schema.findDatabaseOrThrow(database).getCharset().equals(charset) )
+			schema.editDatabase(database).setCharset(charset);
 	}
 
 	@Override
@@ -19,7 +19,7 @@ public class ResolvedTableCreate extends ResolvedSchemaChange {
 
 	@Override
 	public void apply(Schema schema) throws InvalidSchemaError {
-		Database d = schema.findDatabaseOrThrow(this.database);
+		Database d = schema.editDatabase(this.database);
 
 		if ( d.hasTable(this.table) )
 			throw new InvalidSchemaError("Unexpectedly asked to create existing table " + this.table);
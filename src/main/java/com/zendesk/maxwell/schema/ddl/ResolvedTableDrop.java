@@ -15,7 +15,7 @@ public class ResolvedTableDrop extends ResolvedSchemaChange {
 
 	@Override
 	public void apply(Schema schema) throws InvalidSchemaError {
-		Database d = schema.findDatabaseOrThrow(this.database);
+		Database d = schema.editDatabase(this.database);
 		d.findTableOrThrow(this.table);
 
 		d.removeTable(this.table);
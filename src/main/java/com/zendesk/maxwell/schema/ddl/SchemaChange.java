@@ -1,12 +1,14 @@
 package com.zendesk.maxwell.schema.ddl;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import com.zendesk.maxwell.filtering.Filter;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
@@ -19,83 +21,77 @@ public abstract class SchemaChange {
     final static Logger LOGGER = LoggerFactory.getLogger(SchemaChange.class);
 	public abstract ResolvedSchemaChange resolve(Schema schema) throws InvalidSchemaError;
 
-	private static final Set<Pattern> SQL_BLACKLIST = new HashSet<Pattern>();
-
-	static {
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*BEGIN", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*COMMIT", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*FLUSH", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*GRANT", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*REVOKE\\s+", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*SAVEPOINT", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*CREATE\\s+(AGGREGATE)?\\s+FUNCTION", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*(ALTER|CREATE)\\s+(DEFINER=[^\\s]+\\s+)?(EVENT|FUNCTION|TRIGGER|PROCEDURE)", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*DROP\\s+(EVENT|FUNCTION|TRIGGER|PROCEDURE|VIEW)", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*(ALTER|CREATE|DROP)\\s+((ONLINE|OFFLINE|UNIQUE|FULLTEXT|SPATIAL)\\s+)*(INDEX)", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*ANALYZE\\s+TABLE", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*SET\\s+PASSWORD", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*(ALTER|CREATE|DROP|RENAME)\\s+USER", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*(ALTER|CREATE|DROP)\\s+TEMPORARY\\s+TABLE", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*(SET|DROP|CREATE)\\s+(DEFAULT\\s+)?ROLE", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*TRUNCATE\\s+", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*OPTIMIZE\\s+", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-
-		SQL_BLACKLIST.add(Pattern.compile("\\A\\s*REPAIR\\s+", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE));
-	}
-
-	private static final Pattern DELETE_BLACKLIST = Pattern.compile("^\\s*DELETE\\s*FROM", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-
-	private static boolean matchesBlacklist(String sql) {
-		// first *include* /*50032 CREATE EVENT */ style sql
-		sql = sql.replaceAll("/\\*!\\d+\\s*(.*)\\*/", "$1");
-
-		// now strip out comments
-		sql = sql.replaceAll("/\\*.*?\\*/", "");
-		sql = sql.replaceAll("\\-\\-.*", "");
-
-		for (Pattern p : SQL_BLACKLIST) {
-			if (p.matcher(sql).find())
-				return true;
+	private static final int PARSE_CACHE_SIZE = 1000;
+
+	// stands in for "not a schema change" in PARSE_CACHE
+	private static final List<SchemaChange> NOT_A_SCHEMA_CHANGE = new ArrayList<>(0);
+
+	/*
+		(database, sql) -> what the parser made of it.  The same DDL tends to
+		come round again and again -- migrations run against every shard,
+		recovery replays the binlog a second time -- and parsing is the
+		expensive part.  Resolving a SchemaChange doesn't change it, so the
+		cached ones can be handed out again.
+	 */
+	private static final Map<String, List<SchemaChange>> PARSE_CACHE = Collections.synchronizedMap(
+		new LinkedHashMap<String, List<SchemaChange>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<SchemaChange>> eldest) {
+				return size() > PARSE_CACHE_SIZE;
+			}
 		}
+	);
 
-		if ( DELETE_BLACKLIST.matcher(sql).find() ) {
-			LOGGER.info("Ignoring DELETE statement: " + sql);
-			LOGGER.info("You may ignore this warning if this is a MEMORY table.");
-			LOGGER.info("Otherwise you should make sure your binlog_format setting is correct, and that your clients have all reconnected.");
-			return true;
-		}
+	/* a lexer and parser per thread, reset for each statement */
+	private static class SQLParser {
+		final mysqlLexer lexer = new mysqlLexer(new ANTLRInputStream(""));
+		final mysqlParser parser = new mysqlParser(new CommonTokenStream(lexer));
 
-		return false;
+		SQLParser() {
+			lexer.removeErrorListeners();
+			parser.removeErrorListeners();
+		}
 	}
 
+	private static final ThreadLocal<SQLParser> SQL_PARSER = ThreadLocal.withInitial(SQLParser::new);
+
+	/*
+		try the cheap SLL prediction first; it gets almost every statement
+		right, and when it can't tell we go again with full LL, which reports
+		errors the way the parser always has.
+	 */
 	private static List<SchemaChange> parseSQL(String currentDB, String sql) {
-		ANTLRInputStream input = new ANTLRInputStream(sql);
-		mysqlLexer lexer = new mysqlLexer(input);
-		lexer.removeErrorListeners();
+		SQLParser p = SQL_PARSER.get();
+		mysqlParser parser = p.parser;
 
-		TokenStream tokens = new CommonTokenStream(lexer);
+		p.lexer.setInputStream(new ANTLRInputStream(sql));
+		CommonTokenStream tokens = new CommonTokenStream(p.lexer);
 
 		LOGGER.debug("SQL_PARSE <- \"" + sql + "\"");
-		mysqlParser parser = new mysqlParser(tokens);
-		parser.removeErrorListeners();
+		parser.setTokenStream(tokens);
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+		ParseTree tree;
+		try {
+			tree = parser.parse();
+		} catch ( ParseCancellationException e ) {
+			tokens.seek(0);
+			parser.reset();
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			tree = parser.parse();
+		}
 
 		MysqlParserListener listener = new MysqlParserListener(currentDB, tokens);
-
-		ParseTree tree = parser.parse();
-
 		ParseTreeWalker.DEFAULT.walk(listener, tree);
-		LOGGER.debug("SQL_PARSE ->   " + tree.toStringTree(parser));
+
+		if ( LOGGER.isDebugEnabled() )
+			LOGGER.debug("SQL_PARSE ->   " + tree.toStringTree(parser));
 		return listener.getSchemaChanges();
 	}
 
-	public static List<SchemaChange> parse(String currentDB, String sql) {
-		if ( matchesBlacklist(sql) ) {
-			return null;
-		}
-
+	private static List<SchemaChange> parseUncached(String currentDB, String sql) {
 		while ( true ) {
 			try {
 				return parseSQL(currentDB, sql);
@@ -113,5 +109,34 @@ public abstract class SchemaChange {
 		}
 	}
 
+	public static List<SchemaChange> parse(String currentDB, String sql) {
+		switch ( DDLClassifier.classify(sql) ) {
+			case IGNORE:
+				return null;
+			case IGNORE_DELETE:
+				LOGGER.info("Ignoring DELETE statement: " + sql);
+				LOGGER.info("You may ignore this warning if this is a MEMORY table.");
+				LOGGER.info("Otherwise you should make sure your binlog_format setting is correct, and that your clients have all reconnected.");
+				return null;
+		}
+
+		String key = currentDB + "\0" + sql;
+		List<SchemaChange> changes = PARSE_CACHE.get(key);
+		if ( changes == null ) {
+			changes = parseUncached(currentDB, sql);
+			if ( changes == null )
+				changes = NOT_A_SCHEMA_CHANGE;
+			PARSE_CACHE.put(key, changes);
+		}
+
+		if ( changes == NOT_A_SCHEMA_CHANGE )
+			return null;
+		return new ArrayList<>(changes);
+	}
+
+	static void clearParseCache() {
+		PARSE_CACHE.clear();
+	}
+
 	public abstract boolean isBlacklisted(Filter filter);
 }
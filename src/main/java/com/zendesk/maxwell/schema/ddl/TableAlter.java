@@ -6,7 +6,6 @@ import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.schema.Database;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.Table;
-import com.zendesk.maxwell.schema.columndef.StringColumnDef;
 import com.zendesk.maxwell.CaseSensitivity;
 
 public class TableAlter extends SchemaChange {
@@ -41,10 +40,11 @@ public class TableAlter extends SchemaChange {
 		if ( newTableName != null && newDatabase != null ) {
 			schema.findDatabaseOrThrow(this.newDatabase);
 
+			String newName = newTableName;
 			if ( schema.getCaseSensitivity() == CaseSensitivity.CONVERT_TO_LOWER )
-				newTableName = newTableName.toLowerCase();
+				newName = newName.toLowerCase();
 
-			table.name = newTableName;
+			table.name = newName;
 			table.database = newDatabase;
 		}
 
@@ -52,12 +52,8 @@ public class TableAlter extends SchemaChange {
 			mod.apply(table);
 		}
 
-		if ( convertCharset != null ) {
-			for ( StringColumnDef sc : table.getStringColumns() ) {
-				if (sc.getCharset() == null || !sc.getCharset().toLowerCase().equals("binary") )
-					sc.setCharset(convertCharset);
-			}
-		}
+		if ( convertCharset != null )
+			table.convertColumnCharsets(convertCharset);
 
 		if ( this.pks != null ) {
 			table.setPKList(this.pks);
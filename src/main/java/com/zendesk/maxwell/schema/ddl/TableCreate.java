@@ -30,6 +30,13 @@ public class TableCreate extends SchemaChange {
 
 	@Override
 	public ResolvedTableCreate resolve(Schema schema) throws InvalidSchemaError {
+		return resolve(schema, null);
+	}
+
+	/**
+	 * @param likeSource the table we're copying, when it isn't in `schema`.  May be null.
+	 */
+	public ResolvedTableCreate resolve(Schema schema, Table likeSource) throws InvalidSchemaError {
 		Database d = schema.findDatabaseOrThrow(this.database);
 
 		if ( ifNotExists && d.hasTable(table) )
@@ -37,9 +44,10 @@ public class TableCreate extends SchemaChange {
 
 		Table table = null;
 		if ( likeDB != null && likeTable != null ) {
-			table = resolveLikeTable(schema);
+			table = resolveLikeTable(schema, likeSource);
 		} else {
-			table = new Table(this.database, this.table, this.charset, this.columns, this.pks);
+			// our own lists: parsed statements are cached and may be resolved again
+			table = new Table(this.database, this.table, this.charset, new ArrayList<>(this.columns), new ArrayList<>(this.pks));
 			resolveCharsets(d.getCharset(), table);
 		}
 
@@ -49,9 +57,11 @@ public class TableCreate extends SchemaChange {
 		return new ResolvedTableCreate(table);
 	}
 
-	private Table resolveLikeTable(Schema schema) throws InvalidSchemaError {
-		Database sourceDB = schema.findDatabaseOrThrow(likeDB);
-		Table sourceTable = sourceDB.findTableOrThrow(likeTable);
+	private Table resolveLikeTable(Schema schema, Table sourceTable) throws InvalidSchemaError {
+		if ( sourceTable == null ) {
+			Database sourceDB = schema.findDatabaseOrThrow(likeDB);
+			sourceTable = sourceDB.findTableOrThrow(likeTable);
+		}
 
 		Table copiedTable = sourceTable.copy();
 		copiedTable.database = this.database;
@@ -79,4 +89,12 @@ public class TableCreate extends SchemaChange {
 		}
 	}
 
+	/**
+	 * true when we're copying a table the filter blacklists.  Those aren't
+	 * kept in our schema, so the source has to be looked up on the server.
+	 */
+	public boolean isLikeBlacklisted(Filter filter) {
+		return filter != null && likeTable != null && filter.isTableBlacklisted(likeDB, likeTable);
+	}
+
 }
@@ -0,0 +1,35 @@
+package com.zendesk.maxwell.util;
+
+/*
+   how a ListWithDiskBuffer lays out and reads back its spill files.
+ */
+public class DiskBufferConfig {
+	public enum ReadMode {
+		STREAM, MMAP;
+
+		public static ReadMode fromString(String s) {
+			switch ( s.toLowerCase() ) {
+				case "stream":
+					return STREAM;
+				case "mmap":
+					return MMAP;
+				default:
+					throw new IllegalArgumentException("Unknown spill read mode: " + s);
+			}
+		}
+	}
+
+	public boolean compress;
+	public ReadMode readMode;
+	public int blockBytes;
+	public long segmentBytes;
+	public OffHeapBufferPool offHeapPool;
+
+	public DiskBufferConfig() {
+		this.compress = false;
+		this.readMode = ReadMode.STREAM;
+		this.blockBytes = 64 * 1024;
+		this.segmentBytes = 64L * 1024 * 1024;
+		this.offHeapPool = null;
+	}
+}
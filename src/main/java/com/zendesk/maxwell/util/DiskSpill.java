@@ -0,0 +1,413 @@
+package com.zendesk.maxwell.util;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+/*
+   the on-disk half of a ListWithDiskBuffer: a FIFO of elements kept in
+   append-only segment files.
+
+   elements are encoded by a SpillCodec into a block buffer; full blocks are
+   (optionally lz4-compressed and) appended to the current segment as
+
+     [int elementCount][int rawLength][int storedLength][storedLength bytes]
+
+   where storedLength == rawLength means the block went uncompressed.  Once a
+   segment passes `segmentBytes` it's sealed and a new one started.  Readers
+   only ever see sealed segments; if the reader catches up with the writer,
+   the writer's segment is sealed early.  A segment's file is deleted as soon
+   as its last block has been read, and close() deletes whatever is left.
+
+   if the config has an OffHeapBufferPool, blocks go into chunks of direct
+   memory taken from the pool instead, and only go to disk once the pool's
+   budget is used up.  Chunks are handed back as soon as they've been read.
+ */
+public class DiskSpill<T> implements Closeable {
+	static final Logger LOGGER = LoggerFactory.getLogger(DiskSpill.class);
+	private static final int BLOCK_HEADER_BYTES = 12;
+
+	private final SpillCodec<T> codec;
+	private final DiskBufferConfig config;
+	private final LZ4Compressor compressor;
+	private final LZ4FastDecompressor decompressor;
+
+	private final BlockBuffer block;
+	private final DataOutputStream blockOut;
+	private int blockElements = 0;
+	private byte[] compressed = new byte[0];
+
+	private Segment writing;
+	private boolean spilledToFile = false;
+	private final ArrayDeque<Segment> sealed = new ArrayDeque<>();
+
+	private Segment reading;
+	private byte[] readBuffer = new byte[0];
+	private byte[] storedBuffer = new byte[0];
+	private DataInputStream blockIn;
+	private int blockElementsLeft = 0;
+
+	public DiskSpill(SpillCodec<T> codec, DiskBufferConfig config) {
+		this.codec = codec;
+		this.config = config;
+		if ( config.compress ) {
+			LZ4Factory factory = LZ4Factory.fastestInstance();
+			this.compressor = factory.fastCompressor();
+			this.decompressor = factory.fastDecompressor();
+		} else {
+			this.compressor = null;
+			this.decompressor = null;
+		}
+		this.block = new BlockBuffer(config.blockBytes);
+		this.blockOut = new DataOutputStream(block);
+	}
+
+	public void write(T element) throws IOException {
+		codec.write(element, blockOut);
+		blockElements++;
+
+		if ( block.size() >= config.blockBytes )
+			writeBlock();
+	}
+
+	public T read() throws IOException {
+		while ( blockElementsLeft == 0 )
+			nextBlock();
+
+		blockElementsLeft--;
+		T element = codec.read(blockIn);
+
+		// don't leave a fully-read segment lying around until the next read
+		if ( blockElementsLeft == 0 && reading.remaining() == 0 ) {
+			reading.delete();
+			reading = null;
+		}
+
+		return element;
+	}
+
+	/**
+	 * Push the partially filled block out to the current segment.
+	 */
+	public void flush() throws IOException {
+		writeBlock();
+		if ( writing != null )
+			writing.flush();
+	}
+
+	private void writeBlock() throws IOException {
+		if ( blockElements == 0 )
+			return;
+
+		byte[] stored = block.array();
+		int rawLength = block.size();
+		int storedLength = rawLength;
+
+		if ( compressor != null ) {
+			int maxLength = compressor.maxCompressedLength(rawLength);
+			if ( compressed.length < maxLength )
+				compressed = new byte[maxLength];
+
+			int compressedLength = compressor.compress(stored, 0, rawLength, compressed, 0, maxLength);
+			if ( compressedLength < rawLength ) {
+				stored = compressed;
+				storedLength = compressedLength;
+			}
+		}
+
+		int blockLength = BLOCK_HEADER_BYTES + storedLength;
+		if ( writing != null && !writing.hasRoom(blockLength) )
+			sealWriting();
+
+		if ( writing == null )
+			writing = newSegment(blockLength);
+
+		writing.append(blockElements, rawLength, stored, storedLength);
+
+		block.reset();
+		blockElements = 0;
+
+		if ( writing.length >= config.segmentBytes )
+			sealWriting();
+	}
+
+	private Segment newSegment(int blockLength) throws IOException {
+		OffHeapBufferPool pool = config.offHeapPool;
+		if ( pool != null && blockLength <= pool.getChunkBytes() ) {
+			ByteBuffer chunk = pool.acquire();
+			if ( chunk != null )
+				return new MemorySegment(pool, chunk);
+		}
+
+		FileSegment segment = FileSegment.create();
+		if ( !spilledToFile ) {
+			LOGGER.info("Overflowed in-memory buffer, spilling over into " + segment.file);
+			spilledToFile = true;
+		}
+		return segment;
+	}
+
+	private void seal() throws IOException {
+		writeBlock();
+		sealWriting();
+	}
+
+	private void sealWriting() throws IOException {
+		if ( writing != null ) {
+			writing.seal();
+			sealed.add(writing);
+			writing = null;
+		}
+	}
+
+	private void nextBlock() throws IOException {
+		if ( reading == null ) {
+			if ( sealed.isEmpty() )
+				seal(); // the reader has caught up with the writer
+
+			if ( sealed.isEmpty() )
+				throw new EOFException("no spilled elements left to read");
+
+			reading = sealed.poll();
+			reading.openForRead(config.readMode);
+		}
+
+		int elements = reading.readInt();
+		int rawLength = reading.readInt();
+		int storedLength = reading.readInt();
+
+		if ( readBuffer.length < rawLength )
+			readBuffer = new byte[rawLength];
+
+		if ( storedLength == rawLength ) {
+			reading.readFully(readBuffer, storedLength);
+		} else {
+			if ( storedBuffer.length < storedLength )
+				storedBuffer = new byte[storedLength];
+			reading.readFully(storedBuffer, storedLength);
+			decompressor.decompress(storedBuffer, 0, readBuffer, 0, rawLength);
+		}
+
+		blockIn = new DataInputStream(new ByteArrayInputStream(readBuffer, 0, rawLength));
+		blockElementsLeft = elements;
+	}
+
+	/**
+	 * Delete every spill file, read or not.
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( writing != null ) {
+			writing.delete();
+			writing = null;
+		}
+
+		if ( reading != null ) {
+			reading.delete();
+			reading = null;
+		}
+
+		for ( Segment s : sealed )
+			s.delete();
+		sealed.clear();
+
+		block.reset();
+		blockElements = 0;
+		blockElementsLeft = 0;
+		blockIn = null;
+	}
+
+	private static class BlockBuffer extends ByteArrayOutputStream {
+		BlockBuffer(int size) {
+			super(size);
+		}
+
+		byte[] array() {
+			return buf;
+		}
+	}
+
+	private static abstract class Segment {
+		protected long length = 0;
+		protected long readOffset = 0;
+
+		abstract boolean hasRoom(int blockLength);
+		abstract void append(int elements, int rawLength, byte[] stored, int storedLength) throws IOException;
+		abstract void flush() throws IOException;
+		abstract void seal() throws IOException;
+		abstract void openForRead(DiskBufferConfig.ReadMode mode) throws IOException;
+		abstract int readInt() throws IOException;
+		abstract void readFully(byte[] b, int len) throws IOException;
+		abstract void delete() throws IOException;
+
+		long remaining() {
+			return length - readOffset;
+		}
+	}
+
+	private static class MemorySegment extends Segment {
+		private final OffHeapBufferPool pool;
+		private ByteBuffer chunk;
+
+		MemorySegment(OffHeapBufferPool pool, ByteBuffer chunk) {
+			this.pool = pool;
+			this.chunk = chunk;
+		}
+
+		@Override
+		boolean hasRoom(int blockLength) {
+			return chunk.remaining() >= blockLength;
+		}
+
+		@Override
+		void append(int elements, int rawLength, byte[] stored, int storedLength) {
+			chunk.putInt(elements);
+			chunk.putInt(rawLength);
+			chunk.putInt(storedLength);
+			chunk.put(stored, 0, storedLength);
+			length += BLOCK_HEADER_BYTES + storedLength;
+		}
+
+		@Override
+		void flush() { }
+
+		@Override
+		void seal() {
+			chunk.flip();
+		}
+
+		@Override
+		void openForRead(DiskBufferConfig.ReadMode mode) { }
+
+		@Override
+		int readInt() {
+			readOffset += 4;
+			return chunk.getInt();
+		}
+
+		@Override
+		void readFully(byte[] b, int len) {
+			readOffset += len;
+			chunk.get(b, 0, len);
+		}
+
+		@Override
+		void delete() {
+			if ( chunk != null ) {
+				pool.release(chunk);
+				chunk = null;
+			}
+		}
+	}
+
+	private static class FileSegment extends Segment {
+		private final File file;
+		private DataOutputStream out;
+
+		private DataInputStream in;
+		private MappedByteBuffer mapped;
+
+		private FileSegment(File file) throws IOException {
+			this.file = file;
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		}
+
+		static FileSegment create() throws IOException {
+			File file = File.createTempFile("maxwell", "events");
+			// close() deletes us; this only catches buffers nobody closed
+			file.deleteOnExit();
+			return new FileSegment(file);
+		}
+
+		@Override
+		boolean hasRoom(int blockLength) {
+			return true;
+		}
+
+		@Override
+		void append(int elements, int rawLength, byte[] stored, int storedLength) throws IOException {
+			out.writeInt(elements);
+			out.writeInt(rawLength);
+			out.writeInt(storedLength);
+			out.write(stored, 0, storedLength);
+			length += BLOCK_HEADER_BYTES + storedLength;
+		}
+
+		@Override
+		void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		void seal() throws IOException {
+			out.close();
+			out = null;
+		}
+
+		@Override
+		void openForRead(DiskBufferConfig.ReadMode mode) throws IOException {
+			if ( mode == DiskBufferConfig.ReadMode.MMAP && length <= Integer.MAX_VALUE ) {
+				try ( RandomAccessFile raf = new RandomAccessFile(file, "r") ) {
+					mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+				}
+			} else {
+				in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			}
+		}
+
+		@Override
+		int readInt() throws IOException {
+			readOffset += 4;
+			return mapped != null ? mapped.getInt() : in.readInt();
+		}
+
+		@Override
+		void readFully(byte[] b, int len) throws IOException {
+			readOffset += len;
+			if ( mapped != null )
+				mapped.get(b, 0, len);
+			else
+				in.readFully(b, 0, len);
+		}
+
+		/*
+		   a mapping outlives the deleted file until the buffer is collected,
+		   but the directory entry is gone right away.
+		 */
+		@Override
+		void delete() throws IOException {
+			try {
+				if ( out != null )
+					out.close();
+				if ( in != null )
+					in.close();
+			} finally {
+				out = null;
+				in = null;
+				mapped = null;
+				if ( !file.delete() )
+					LOGGER.warn("couldn't delete spill file " + file);
+			}
+		}
+	}
+}
@@ -1,26 +1,31 @@
 package com.zendesk.maxwell.util;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.io.*;
 import java.util.*;
 
 /*
    a wrapper class for a linked list that will keep N tail elements
    in memory, spilling its head onto disk as needed.
+
+   spilled elements go through a SpillCodec into a DiskSpill; call close()
+   when throwing away a list that may still have elements on disk.
  */
-public class ListWithDiskBuffer<T> {
-	static final Logger LOGGER = LoggerFactory.getLogger(ListWithDiskBuffer.class);
+public class ListWithDiskBuffer<T> implements Closeable {
 	private final long maxInMemoryElements;
 	private final LinkedList<T> list;
 	private long elementsInFile = 0;
-	private File file;
-	private ObjectInputStream is;
-	private ObjectOutputStream os;
+	private final SpillCodec<T> codec;
+	private final DiskBufferConfig config;
+	private DiskSpill<T> spill;
 
 	public ListWithDiskBuffer(long maxInMemoryElements) {
+		this(maxInMemoryElements, new JavaSerializationCodec<T>(), new DiskBufferConfig());
+	}
+
+	public ListWithDiskBuffer(long maxInMemoryElements, SpillCodec<T> codec, DiskBufferConfig config) {
 		this.maxInMemoryElements = maxInMemoryElements;
+		this.codec = codec;
+		this.config = config;
 		list = new LinkedList<>();
 	}
 
@@ -35,13 +40,9 @@ public class ListWithDiskBuffer<T> {
 		return this.list.size() > maxInMemoryElements;
 	}
 
-	protected void resetOutputStreamCaches() throws IOException {
-		os.reset();
-	}
-
 	public void flushToDisk() throws IOException {
-		if ( os != null )
-			os.flush();
+		if ( spill != null )
+			spill.flush();
 	}
 
 	public boolean isEmpty() {
@@ -54,13 +55,7 @@ public class ListWithDiskBuffer<T> {
 
 	public T removeFirst(Class<T> clazz) throws IOException, ClassNotFoundException {
 		if ( elementsInFile > 0 ) {
-			if ( is == null ) {
-				os.flush();
-				is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
-			}
-
-			Object object = is.readObject();
-			T element = clazz.cast(object);
+			T element = clazz.cast(spill.read());
 			elementsInFile--;
 
 			return element;
@@ -78,34 +73,52 @@ public class ListWithDiskBuffer<T> {
 	}
 
 	@Override
-	protected void finalize() throws Throwable {
-		try {
-			if ( file != null )
-				file.delete();
-		} finally {
-			super.finalize();
+	public void close() throws IOException {
+		if ( spill != null ) {
+			spill.close();
+			spill = null;
 		}
+		elementsInFile = 0;
+		list.clear();
 	}
 
 	protected T evict() throws IOException {
-		if ( file == null ) {
-			file = File.createTempFile("maxwell", "events");
-			file.deleteOnExit();
-			os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
-		}
-
-		if ( elementsInFile == 0 )
-			LOGGER.info("Overflowed in-memory buffer, spilling over into " + file);
+		if ( spill == null )
+			spill = new DiskSpill<>(codec, config);
 
 		T evicted = this.list.removeFirst();
-		os.writeObject(evicted);
+		spill.write(evicted);
 
 		elementsInFile++;
 
-		if ( elementsInFile % maxInMemoryElements == 0 )
-			resetOutputStreamCaches();
-
 		return evicted;
 	}
 
+	/*
+	   fallback codec for lists that don't have a purpose-built one.
+	   each element gets its own object stream, so there's no handle cache to reset.
+	 */
+	public static class JavaSerializationCodec<T> implements SpillCodec<T> {
+		@Override
+		public void write(T element, DataOutput out) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try ( ObjectOutputStream os = new ObjectOutputStream(bytes) ) {
+				os.writeObject(element);
+			}
+			out.writeInt(bytes.size());
+			out.write(bytes.toByteArray());
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public T read(DataInput in) throws IOException {
+			byte[] b = new byte[in.readInt()];
+			in.readFully(b);
+			try ( ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(b)) ) {
+				return (T) is.readObject();
+			} catch ( ClassNotFoundException e ) {
+				throw new IOException(e);
+			}
+		}
+	}
 }
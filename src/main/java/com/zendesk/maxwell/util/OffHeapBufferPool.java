@@ -0,0 +1,65 @@
+package com.zendesk.maxwell.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/*
+   a fixed budget of direct memory, handed out in equal-sized chunks.
+
+   chunks are allocated on first use and then recycled, never dropped, so the
+   direct memory we use is bounded by `budgetBytes` and doesn't wait on the GC
+   to be freed.  Shared by every buffer in the process; thread-safe.
+ */
+public class OffHeapBufferPool {
+	public static final int DEFAULT_CHUNK_BYTES = 1024 * 1024;
+
+	private final int chunkBytes;
+	private final long maxChunks;
+	private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+	private long allocatedChunks = 0;
+	private long usedChunks = 0;
+
+	public OffHeapBufferPool(long budgetBytes) {
+		this(budgetBytes, DEFAULT_CHUNK_BYTES);
+	}
+
+	public OffHeapBufferPool(long budgetBytes, int chunkBytes) {
+		this.chunkBytes = chunkBytes;
+		this.maxChunks = budgetBytes / chunkBytes;
+	}
+
+	/**
+	 * @return an empty chunk, or null if the budget is used up.
+	 */
+	public synchronized ByteBuffer acquire() {
+		ByteBuffer chunk = free.poll();
+		if ( chunk == null ) {
+			if ( allocatedChunks >= maxChunks )
+				return null;
+
+			chunk = ByteBuffer.allocateDirect(chunkBytes);
+			allocatedChunks++;
+		}
+
+		usedChunks++;
+		chunk.clear();
+		return chunk;
+	}
+
+	public synchronized void release(ByteBuffer chunk) {
+		usedChunks--;
+		free.push(chunk);
+	}
+
+	public int getChunkBytes() {
+		return chunkBytes;
+	}
+
+	public synchronized long getUsedBytes() {
+		return usedChunks * chunkBytes;
+	}
+
+	public long getBudgetBytes() {
+		return maxChunks * chunkBytes;
+	}
+}
@@ -0,0 +1,169 @@
+package com.zendesk.maxwell.util;
+
+import com.codahale.metrics.Gauge;
+import com.zendesk.maxwell.monitoring.Metrics;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+   one stage of a pipeline: a bounded queue, a pool of worker threads, and a
+   dispatcher thread that hands the results on to the next stage in the order
+   they were submitted.
+
+   submit() blocks while `capacity` items are in the stage, so a slow stage
+   backs up into the one before it.  A failure anywhere is kept in the
+   pipeline-wide `error`, for whoever drives the pipeline to rethrow.
+
+   metrics, under <prefix>.<name>:
+     queue.size, queue.capacity -- items in the stage, and how many it can hold
+     threads                    -- number of workers
+     utilization                -- fraction of worker time spent working since the last read
+ */
+public class PipelineStage<I, O> {
+	public interface Handler<I, O> {
+		O process(I input) throws Exception;
+	}
+
+	public interface Sink<O> {
+		void accept(O output) throws Exception;
+	}
+
+	private static final long POLL_MS = 100;
+
+	private final String name;
+	private final int threads;
+	private final Handler<I, O> handler;
+	private final Sink<O> next;
+	private final int capacity;
+	private final Semaphore room;
+	private final LinkedBlockingQueue<Future<O>> queue = new LinkedBlockingQueue<>();
+	private final ExecutorService workers;
+	private final Thread dispatcher;
+	private final AtomicReference<Exception> error;
+	private volatile boolean running = true;
+
+	private final AtomicLong busyNanos = new AtomicLong(0);
+	private long lastBusyNanos = 0;
+	private long lastSampledAt = System.nanoTime();
+
+	public PipelineStage(String name, int threads, int capacity, Metrics metrics, String metricsPrefix,
+						 AtomicReference<Exception> error, Handler<I, O> handler, Sink<O> next) {
+		this.name = name;
+		this.threads = threads;
+		this.handler = handler;
+		this.next = next;
+		this.error = error;
+		this.capacity = capacity;
+		this.room = new Semaphore(capacity);
+
+		final AtomicInteger threadCounter = new AtomicInteger(0);
+		this.workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "maxwell-" + name + "-" + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+
+		this.dispatcher = new Thread(this::dispatch, "maxwell-" + name + "-dispatch");
+		this.dispatcher.setDaemon(true);
+
+		metrics.register(metrics.metricName(metricsPrefix, name, "queue", "size"), (Gauge<Integer>) this::size);
+		metrics.register(metrics.metricName(metricsPrefix, name, "queue", "capacity"), (Gauge<Integer>) () -> capacity);
+		metrics.register(metrics.metricName(metricsPrefix, name, "threads"), (Gauge<Integer>) () -> threads);
+		metrics.register(metrics.metricName(metricsPrefix, name, "utilization"), (Gauge<Double>) this::sampleUtilization);
+	}
+
+	public void start() {
+		dispatcher.start();
+	}
+
+	/**
+	 * Queue up an item, waiting for room if the stage is full.
+	 */
+	public void submit(I input) throws InterruptedException {
+		while ( !room.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS) ) {
+			if ( !running || error.get() != null )
+				return;
+		}
+
+		FutureTask<O> task = new FutureTask<>(() -> process(input));
+		queue.add(task);
+		workers.execute(task);
+	}
+
+	private O process(I input) throws Exception {
+		long startedAt = System.nanoTime();
+		try {
+			return handler.process(input);
+		} finally {
+			busyNanos.addAndGet(System.nanoTime() - startedAt);
+		}
+	}
+
+	private void dispatch() {
+		try {
+			while ( running ) {
+				Future<O> head = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+				if ( head == null )
+					continue;
+
+				O output;
+				try {
+					output = head.get();
+				} catch ( ExecutionException e ) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+
+				if ( next != null )
+					next.accept(output);
+				room.release();
+			}
+		} catch ( InterruptedException e ) {
+			// shutting down
+		} catch ( Exception e ) {
+			error.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * @return whether every item submitted so far has been handed on.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int size() {
+		return capacity - room.availablePermits();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private synchronized double sampleUtilization() {
+		long now = System.nanoTime();
+		long busy = busyNanos.get();
+		long elapsed = now - lastSampledAt;
+
+		double utilization = elapsed > 0 ? (double) (busy - lastBusyNanos) / ((double) elapsed * threads) : 0.0;
+		lastBusyNanos = busy;
+		lastSampledAt = now;
+		return Math.min(1.0, utilization);
+	}
+
+	public void shutdown() {
+		running = false;
+		dispatcher.interrupt();
+		workers.shutdownNow();
+		queue.clear();
+	}
+}
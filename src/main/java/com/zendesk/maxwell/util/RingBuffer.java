@@ -0,0 +1,214 @@
+package com.zendesk.maxwell.util;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+   a bounded, lock-free queue for exactly one producer thread and one consumer thread.
+
+   the producer publishes a slot by advancing `tail` with an ordered store, the consumer
+   frees it by advancing `head`; each side keeps a cached copy of the other's index so
+   it only touches the shared counter when the buffer looks full (or empty).
+
+   with the PARK strategy a thread that has to wait parks itself and the other side
+   unparks it when it publishes (or frees) a slot.  the wakeup can be missed in a narrow
+   race, since publishing is an ordered store rather than a full fence, so parks are
+   capped at MAX_PARK_NANOS.
+ */
+public class RingBuffer<T> {
+	public enum WaitStrategy {
+		SPIN, YIELD, PARK;
+
+		public static WaitStrategy fromString(String s) {
+			switch ( s.toLowerCase() ) {
+				case "spin":
+					return SPIN;
+				case "yield":
+					return YIELD;
+				case "park":
+					return PARK;
+				default:
+					throw new IllegalArgumentException("Unknown wait strategy: " + s);
+			}
+		}
+	}
+
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Object[] buffer;
+	private final int mask;
+	private final WaitStrategy waitStrategy;
+
+	private final AtomicLong head = new AtomicLong(0);
+	private final AtomicLong tail = new AtomicLong(0);
+
+	// only touched by the producer
+	private long producerHeadCache = 0;
+	// only touched by the consumer
+	private long consumerTailCache = 0;
+
+	// set while a thread is parked waiting on the other side
+	private volatile Thread waitingProducer;
+	private volatile Thread waitingConsumer;
+
+	public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+		if ( capacity < 1 )
+			throw new IllegalArgumentException("RingBuffer capacity must be positive, got " + capacity);
+
+		int size = 1;
+		while ( size < capacity )
+			size <<= 1;
+
+		this.buffer = new Object[size];
+		this.mask = size - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	public boolean offer(T element) {
+		if ( element == null )
+			throw new NullPointerException();
+
+		long t = tail.get();
+		if ( t - producerHeadCache >= buffer.length ) {
+			producerHeadCache = head.get();
+			if ( t - producerHeadCache >= buffer.length )
+				return false;
+		}
+
+		buffer[(int) t & mask] = element;
+		tail.lazySet(t + 1);
+		wake(waitingConsumer);
+		return true;
+	}
+
+	public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+		if ( offer(element) )
+			return true;
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if ( waitStrategy == WaitStrategy.PARK )
+			waitingProducer = Thread.currentThread();
+
+		try {
+			// check again once we're registered, so a slot freed in between still wakes us
+			while ( !offer(element) ) {
+				long remaining = deadline - System.nanoTime();
+				if ( remaining <= 0 )
+					return false;
+				idle(remaining);
+			}
+			return true;
+		} finally {
+			waitingProducer = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		long h = head.get();
+		if ( h >= consumerTailCache ) {
+			consumerTailCache = tail.get();
+			if ( h >= consumerTailCache )
+				return null;
+		}
+
+		int index = (int) h & mask;
+		T element = (T) buffer[index];
+		buffer[index] = null;
+		head.lazySet(h + 1);
+		wake(waitingProducer);
+		return element;
+	}
+
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		T element = poll();
+		if ( element != null )
+			return element;
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if ( waitStrategy == WaitStrategy.PARK )
+			waitingConsumer = Thread.currentThread();
+
+		try {
+			while ( (element = poll()) == null ) {
+				long remaining = deadline - System.nanoTime();
+				if ( remaining <= 0 )
+					return null;
+				idle(remaining);
+			}
+			return element;
+		} finally {
+			waitingConsumer = null;
+		}
+	}
+
+	/**
+	 * Move up to `maxElements` elements into `target` in a single pass, publishing the freed
+	 * slots back to the producer once at the end.
+	 *
+	 * @return the number of elements transferred
+	 */
+	@SuppressWarnings("unchecked")
+	public int drainTo(Collection<? super T> target, int maxElements) {
+		long h = head.get();
+		long available = consumerTailCache - h;
+		if ( available <= 0 ) {
+			consumerTailCache = tail.get();
+			available = consumerTailCache - h;
+			if ( available <= 0 )
+				return 0;
+		}
+
+		int n = (int) Math.min(available, maxElements);
+		for ( int i = 0; i < n; i++ ) {
+			int index = (int) (h + i) & mask;
+			target.add((T) buffer[index]);
+			buffer[index] = null;
+		}
+
+		head.lazySet(h + n);
+		wake(waitingProducer);
+		return n;
+	}
+
+	/**
+	 * @return an estimate of the number of elements in the buffer; exact only when
+	 *         called from the producer or consumer thread with the other side idle.
+	 */
+	public int size() {
+		long h = head.get();
+		long t = tail.get();
+		return (int) Math.max(0, Math.min(t - h, buffer.length));
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	private static void wake(Thread waiting) {
+		if ( waiting != null )
+			LockSupport.unpark(waiting);
+	}
+
+	private void idle(long remainingNanos) throws InterruptedException {
+		switch ( waitStrategy ) {
+			case SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			case PARK:
+				LockSupport.parkNanos(this, Math.min(remainingNanos, MAX_PARK_NANOS));
+				break;
+		}
+
+		if ( Thread.interrupted() )
+			throw new InterruptedException();
+	}
+}
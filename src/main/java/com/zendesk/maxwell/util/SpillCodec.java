@@ -0,0 +1,14 @@
+package com.zendesk.maxwell.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+   turns elements of a ListWithDiskBuffer into bytes and back.
+   `read` must consume exactly what `write` produced.
+ */
+public interface SpillCodec<T> {
+	void write(T element, DataOutput out) throws IOException;
+	T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS `heartbeat_index` (
+  server_id int unsigned not null,
+  client_id varchar(255) charset latin1 not null default 'maxwell',
+  heartbeat bigint not null,
+  binlog_file varchar(255),
+  binlog_position int unsigned,
+  next_binlog_file varchar(255),
+  next_binlog_position int unsigned,
+  primary key(server_id, client_id, heartbeat)
+);
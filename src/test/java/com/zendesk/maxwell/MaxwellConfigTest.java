@@ -8,6 +8,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
 
+import java.io.File;
 import java.nio.file.Paths;
 
 import static org.junit.Assert.*;
@@ -82,6 +83,34 @@ public class MaxwellConfigTest
 		assertEquals("100", config.kafkaProperties.getProperty("retries"));
 	}
 	
+	@Test
+	public void testSourcesLayerOverMainConfig() {
+		String sources = getTestConfigDir() + "source-shard-1.properties," + getTestConfigDir() + "source-shard-2.properties";
+		config = new MaxwellConfig(new String[] { "--sources=" + sources, "--host=maxwell.db", "--kafka_topic=all_shards" });
+
+		assertEquals(2, config.sources.size());
+
+		MaxwellConfig shard1 = config.sources.get(0);
+		assertEquals("shard_1", shard1.clientID);
+		assertEquals("shard-1.db", shard1.replicationMysql.host);
+		assertEquals("maxwell.db", shard1.maxwellMysql.host);
+		assertSame(config.metricRegistry, shard1.metricRegistry);
+
+		// command line options apply to every source
+		assertEquals("all_shards", config.sources.get(1).kafkaTopic);
+		assertEquals("shard-2.db", config.sources.get(1).replicationMysql.host);
+	}
+
+	@Test
+	public void testBinlogFilesImpliesReplay() throws Exception {
+		File binlog = File.createTempFile("mysql-bin", ".000001");
+		binlog.deleteOnExit();
+
+		config = new MaxwellConfig(new String[] { "--binlog_files=" + binlog.getPath() });
+		config.validate();
+		assertTrue(config.replayMode);
+	}
+
 	private String getTestConfigDir() {
 		return System.getProperty("user.dir") + "/src/test/resources/config/";
 	}
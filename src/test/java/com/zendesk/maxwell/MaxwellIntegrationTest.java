@@ -5,6 +5,7 @@ import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.producer.EncryptionMode;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.row.TransactionCommitRowMap;
 import com.zendesk.maxwell.schema.SchemaStoreSchema;
 import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Before;
@@ -389,6 +390,26 @@ public class MaxwellIntegrationTest extends MaxwellTestWithIsolatedServer {
 		assertThat(rows.size(), is(0));
 	}
 
+	@Test
+	public void testCreateLikeBlacklistedTable() throws Exception {
+		server.execute("drop database if exists nodatabase");
+		Filter filter = new Filter();
+		filter.addRule("blacklist: *.noseeum");
+
+		String sql[] = {
+			"CREATE DATABASE nodatabase",
+			"CREATE TABLE nodatabase.noseeum (i int, s varchar(10))",
+			"CREATE TABLE nodatabase.seeum LIKE nodatabase.noseeum",
+			"insert into nodatabase.noseeum set i = 1",
+			"insert into nodatabase.seeum set i = 2, s = 'hi'"
+		};
+
+		List<RowMap> rows = getRowsForSQL(filter, sql);
+		assertThat(rows.size(), is(1));
+		assertThat(rows.get(0).getTable(), is("seeum"));
+		assertThat(rows.get(0).getData("s"), is("hi"));
+	}
+
 	String testAlterSQL[] = {
 			"insert into minimal set account_id = 1, text_field='hello'",
 			"ALTER table minimal drop column text_field",
@@ -462,6 +483,30 @@ public class MaxwellIntegrationTest extends MaxwellTestWithIsolatedServer {
 		assertTrue(list.get(3).isTXCommit());
 	}
 
+	@Test
+	public void testStreamedTransactions() throws Exception {
+		List<RowMap> list;
+
+		list = getRowsForSQLTransactional(testTransactions, (c) -> c.transactionStreamThreshold = 1);
+
+		assertEquals(6, list.size());
+		for ( int i : new int[] { 0, 1, 3, 4 } ) {
+			assertEquals("insert", list.get(i).getRowType());
+			assertNull(list.get(i).getXid());
+			assertFalse(list.get(i).isTXCommit());
+		}
+
+		assertEquals(Long.valueOf(0), list.get(3).getXoffset());
+		assertEquals(Long.valueOf(1), list.get(4).getXoffset());
+
+		for ( int i : new int[] { 2, 5 } ) {
+			assertTrue(list.get(i) instanceof TransactionCommitRowMap);
+			assertEquals("minimal", list.get(i).getTable());
+			assertNotNull(list.get(i).getXid());
+			assertTrue(list.get(i).isTXCommit());
+		}
+	}
+
 	@Test
 	public void testHeartbeatsWithBlacklist() throws Exception {
 		Filter filter = new Filter("blacklist: maxwell.*");
@@ -68,6 +68,26 @@ public class MysqlSavedSchemaTest extends MaxwellTestWithIsolatedServer {
 		assertThat(StringUtils.join(diff, "\n"), diff.size(), is(0));
 	}
 
+	@Test
+	public void testSaveManyTables() throws Exception {
+		Schema big = new Schema(new ArrayList<Database>(), "utf8", caseSensitivity);
+		for ( int d = 0; d < 3; d++ ) {
+			Database db = new Database("bulk_" + d, "utf8");
+			for ( int t = 0; t < 2000; t++ ) {
+				Table table = db.buildTable("t" + t, "utf8");
+				table.addColumn(ColumnDef.build("id", null, "int", (short) 0, true, null, null));
+				table.addColumn(ColumnDef.build("name", "utf8", "varchar", (short) 1, false, null, null));
+			}
+			big.addDatabase(db);
+		}
+
+		new MysqlSavedSchema(this.context, big, position).save(context.getMaxwellConnection());
+
+		MysqlSavedSchema restoredSchema = MysqlSavedSchema.restore(context, context.getInitialPosition());
+		List<String> diff = big.diff(restoredSchema.getSchema(), "saved schema", "restored schema");
+		assertThat(StringUtils.join(diff, "\n"), diff.size(), is(0));
+	}
+
 	@Test
 	public void testRestorePK() throws Exception {
 		this.savedSchema.save(context.getMaxwellConnection());
@@ -0,0 +1,144 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.MaxwellMysqlConfig;
+import com.zendesk.maxwell.filtering.Filter;
+import com.zendesk.maxwell.monitoring.NoOpMetrics;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.BinlogConnectorReplicator;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.HeartbeatNotifier;
+import com.zendesk.maxwell.replication.PipelineConfig;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.schema.AbstractSchemaStore;
+import com.zendesk.maxwell.schema.Schema;
+import com.zendesk.maxwell.schema.SchemaStore;
+import com.zendesk.maxwell.schema.SchemaStoreException;
+import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import com.zendesk.maxwell.util.DiskBufferConfig;
+import com.zendesk.maxwell.util.RingBuffer;
+import joptsimple.BuiltinHelpFormatter;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+   replays local binlog files through the replicator -- decoding, filtering,
+   json -- and reports rows per second.  No mysql involved: the schema is built
+   from the DDL in the binlogs themselves, plus an optional file of CREATE
+   statements for tables that existed before the first binlog.
+
+     java -cp <test classpath> com.zendesk.maxwell.benchmark.BinlogReplayBenchmark \
+       --binlog_files=/path/to/binlogs [--schema=schema.sql] [--decode_threads=4]
+ */
+public class BinlogReplayBenchmark {
+	/* a schema that lives in memory and only ever changes by the DDL we replay */
+	static class ReplaySchemaStore extends AbstractSchemaStore implements SchemaStore {
+		private final Schema schema = new Schema(new ArrayList<>(), "utf8", CaseSensitivity.CASE_SENSITIVE);
+
+		ReplaySchemaStore() {
+			super(null, null, CaseSensitivity.CASE_SENSITIVE, null);
+		}
+
+		@Override
+		public Schema getSchema() {
+			return schema;
+		}
+
+		@Override
+		public List<ResolvedSchemaChange> processSQL(String sql, String currentDatabase, Position position) throws SchemaStoreException, InvalidSchemaError {
+			return resolveSQL(() -> schema, sql, currentDatabase);
+		}
+
+		@Override
+		public Long getSchemaID() {
+			return 0L;
+		}
+	}
+
+	private static OptionParser buildOptionParser() {
+		final OptionParser parser = new OptionParser();
+		parser.accepts("binlog_files", "a binlog file, or a directory of them").withRequiredArg();
+		parser.accepts("schema", "file of ;-separated CREATE DATABASE/TABLE statements to apply first").withRequiredArg();
+		parser.accepts("init_position", "start at BINLOG_FILE:POSITION").withRequiredArg();
+		parser.accepts("decode_threads", "threads used to convert rows to json").withRequiredArg();
+		parser.accepts("help", "display help");
+		parser.formatHelpWith(new BuiltinHelpFormatter(120, 5));
+		return parser;
+	}
+
+	public static void main(String args[]) throws Exception {
+		OptionParser p = buildOptionParser();
+		OptionSet options = p.parse(args);
+		if ( options.has("help") || !options.has("binlog_files") ) {
+			p.printHelpOn(System.out);
+			System.exit(1);
+		}
+
+		ReplaySchemaStore schemaStore = new ReplaySchemaStore();
+		if ( options.has("schema") ) {
+			String sql = new String(Files.readAllBytes(new File((String) options.valueOf("schema")).toPath()), StandardCharsets.UTF_8);
+			for ( String statement : sql.split(";") ) {
+				if ( !statement.trim().isEmpty() )
+					schemaStore.processSQL(statement, null, null);
+			}
+		}
+
+		BinlogPosition start = new BinlogPosition(4L, "");
+		if ( options.has("init_position") ) {
+			String[] split = ((String) options.valueOf("init_position")).split(":");
+			start = new BinlogPosition(Long.parseLong(split[1]), split[0]);
+		}
+
+		int decodeThreads = options.has("decode_threads") ? Integer.parseInt((String) options.valueOf("decode_threads")) : 1;
+		MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+
+		BinlogConnectorReplicator replicator = new BinlogConnectorReplicator(
+			schemaStore,
+			null,
+			null,
+			new MaxwellMysqlConfig(),
+			0L,
+			"maxwell",
+			new NoOpMetrics(),
+			new Position(start, 0L),
+			true,
+			"benchmark",
+			new HeartbeatNotifier(),
+			null,
+			new Filter(),
+			outputConfig,
+			decodeThreads,
+			null,
+			BinlogConnectorReplicator.DEFAULT_EVENT_QUEUE_SIZE,
+			RingBuffer.WaitStrategy.PARK,
+			0L,
+			new DiskBufferConfig(),
+			new File((String) options.valueOf("binlog_files")),
+			new PipelineConfig()
+		);
+
+		long rows = 0, bytes = 0;
+		long startedAt = System.nanoTime();
+
+		replicator.startReplicator();
+		for ( RowMap row = replicator.getRow(); row != null; row = replicator.getRow() ) {
+			String json = row.toJSON(outputConfig);
+			if ( json != null )
+				bytes += json.length();
+			rows++;
+		}
+
+		double seconds = (System.nanoTime() - startedAt) / 1e9;
+		System.out.printf("replayed %d rows (%.1f MB of json) in %.2f seconds%n", rows, bytes / (1024.0 * 1024.0), seconds);
+		System.out.printf("%.0f rows per second%n", rows / seconds);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,162 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.github.shyiko.mysql.binlog.event.*;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.BinlogConnectorEvent;
+import com.zendesk.maxwell.replication.GtidSetSnapshot;
+import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import joptsimple.BuiltinHelpFormatter;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/*
+   bytes allocated per binlog event on the way from the client thread to RowMaps.
+
+   replays a canned transaction -- GTID, BEGIN, TABLE_MAP, a rows event, XID --
+   through BinlogConnectorEvent the way the replicator does, once building both
+   BinlogPositions for every event (as we used to) and once only building them
+   for events that turn into rows.  With --filtered, the rows events are for a
+   table the filter rejects and never become RowMaps at all.
+
+     java -cp <test classpath> com.zendesk.maxwell.benchmark.EventEnvelopeBenchmark --rows=10
+ */
+public class EventEnvelopeBenchmark {
+	private static final MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+	private static final String FILENAME = "mysql.000001";
+
+	private static Event event(EventType type, long position, EventData data) {
+		EventHeaderV4 header = new EventHeaderV4();
+		header.setEventType(type);
+		header.setTimestamp(1500000000000L);
+		header.setNextPosition(position + 100);
+		header.setEventLength(100);
+		return new Event(header, data);
+	}
+
+	private static Event[] transaction(int rowsPerEvent) {
+		GtidEventData gtid = new GtidEventData();
+		gtid.setGtid("de278ad0-2106-11e4-9f8e-6edd0ca20947:1");
+
+		QueryEventData begin = new QueryEventData();
+		begin.setSql(BinlogConnectorEvent.BEGIN);
+
+		TableMapEventData tableMap = new TableMapEventData();
+		tableMap.setTableId(1);
+		tableMap.setDatabase("shard_1");
+		tableMap.setTable("sharded");
+
+		WriteRowsEventData rows = new WriteRowsEventData();
+		BitSet included = new BitSet();
+		included.set(0, 3);
+		List<Serializable[]> rowList = new ArrayList<>();
+		for ( int i = 0; i < rowsPerEvent; i++ )
+			rowList.add(new Serializable[] { (long) i, i * 7, "row " + i });
+		rows.setTableId(1);
+		rows.setIncludedColumns(included);
+		rows.setRows(rowList);
+
+		XidEventData xid = new XidEventData();
+		xid.setXid(1);
+
+		return new Event[] {
+			event(EventType.GTID, 4, gtid),
+			event(EventType.QUERY, 104, begin),
+			event(EventType.TABLE_MAP, 204, tableMap),
+			event(EventType.EXT_WRITE_ROWS, 304, rows),
+			event(EventType.XID, 404, xid)
+		};
+	}
+
+	private static Table table() {
+		List<ColumnDef> columns = Arrays.asList(
+			ColumnDef.build("id", null, "bigint", (short) 0, true, null, null),
+			ColumnDef.build("account_id", null, "int", (short) 1, true, null, null),
+			ColumnDef.build("text_field", "utf8", "varchar", (short) 2, false, null, null)
+		);
+		return new Table("shard_1", "sharded", "utf8", columns, Arrays.asList("id"));
+	}
+
+	private static long run(Event[] tx, Table table, GtidSetSnapshot gtidSet, int nTransactions, boolean eager, boolean filtered) {
+		long checksum = 0;
+		for ( int i = 0; i < nTransactions; i++ ) {
+			for ( Event e : tx ) {
+				BinlogConnectorEvent ev = new BinlogConnectorEvent(e, FILENAME, gtidSet, null, outputConfig);
+				if ( eager ) {
+					ev.getPosition();
+					ev.getNextPosition();
+				}
+
+				if ( !filtered && ev.getType() == EventType.EXT_WRITE_ROWS ) {
+					for ( RowMap r : ev.jsonMaps(table, 0L, null) )
+						checksum += r.getData().size();
+				}
+			}
+		}
+		return checksum;
+	}
+
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void measure(String name, Event[] tx, Table table, GtidSetSnapshot gtidSet, int nTransactions, boolean eager, boolean filtered) {
+		long events = (long) nTransactions * tx.length;
+		long bytes = allocatedBytes(), start = System.nanoTime();
+		run(tx, table, gtidSet, nTransactions, eager, filtered);
+		long nanos = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+
+		System.out.printf(
+			"%-8s %8.1f bytes/event  %8.1f ns/event%n",
+			name,
+			(double) bytes / events,
+			(double) nanos / events
+		);
+	}
+
+	private static OptionParser buildOptionParser() {
+		final OptionParser parser = new OptionParser();
+		parser.accepts("transactions", "number of transactions to replay").withRequiredArg();
+		parser.accepts("rows", "rows per rows-event").withRequiredArg();
+		parser.accepts("filtered", "drop the rows events the way a rejecting filter would");
+		parser.accepts("help", "display help");
+		parser.formatHelpWith(new BuiltinHelpFormatter(120, 5));
+		return parser;
+	}
+
+	public static void main(String args[]) throws Exception {
+		OptionParser p = buildOptionParser();
+		OptionSet options = p.parse(args);
+		if ( options.has("help") ) {
+			p.printHelpOn(System.out);
+			System.exit(1);
+		}
+
+		int nTransactions = options.has("transactions") ? Integer.parseInt((String) options.valueOf("transactions")) : 200000;
+		int rowsPerEvent = options.has("rows") ? Integer.parseInt((String) options.valueOf("rows")) : 1;
+		boolean filtered = options.has("filtered");
+
+		Event[] tx = transaction(rowsPerEvent);
+		Table table = table();
+		GtidSetSnapshot gtidSet = new GtidSetSnapshot("de278ad0-2106-11e4-9f8e-6edd0ca20947:1-1000");
+
+		// warm up
+		for ( int i = 0; i < 3; i++ ) {
+			run(tx, table, gtidSet, nTransactions / 10, true, filtered);
+			run(tx, table, gtidSet, nTransactions / 10, false, filtered);
+		}
+
+		measure("eager", tx, table, gtidSet, nTransactions, true, filtered);
+		measure("lazy", tx, table, gtidSet, nTransactions, false, filtered);
+	}
+}
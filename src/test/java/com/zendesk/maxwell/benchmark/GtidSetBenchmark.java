@@ -0,0 +1,151 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.github.shyiko.mysql.binlog.GtidSet;
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.BinlogConnectorEvent;
+import com.zendesk.maxwell.replication.GtidSetSnapshot;
+import joptsimple.BuiltinHelpFormatter;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/*
+   measures how much we allocate wrapping binlog events in BinlogConnectorEvent
+   on a server with a long gtid history: once the old way, building the full
+   gtid set string for every event, and once tracking the set incrementally
+   and only building the string when a position gets stored.
+
+   runs from the test classpath, no mysql needed:
+
+     java -cp <test classpath> com.zendesk.maxwell.benchmark.GtidSetBenchmark --uuids=2000
+ */
+public class GtidSetBenchmark {
+	private static final MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+
+	private static String buildHistory(int nUUIDs) {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < nUUIDs; i++ ) {
+			if ( i > 0 )
+				sb.append(",");
+			sb.append(UUID.randomUUID()).append(":1-").append(1000 + i);
+		}
+		return sb.toString();
+	}
+
+	private static Event rowEvent(long position) {
+		EventHeaderV4 header = new EventHeaderV4();
+		header.setEventType(EventType.EXT_WRITE_ROWS);
+		header.setTimestamp(System.currentTimeMillis());
+		header.setNextPosition(position + 100);
+		header.setEventLength(100);
+		return new Event(header, null);
+	}
+
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/* what we used to do: client.getGtidSet() builds the string for every event */
+	private static long runEager(String history, String uuid, int nTransactions, int eventsPerTX, int storeEvery) {
+		GtidSet set = new GtidSet(history);
+		long checksum = 0;
+
+		for ( int tx = 1; tx <= nTransactions; tx++ ) {
+			String gtid = uuid + ":" + tx;
+			for ( int e = 0; e < eventsPerTX; e++ ) {
+				if ( e == eventsPerTX - 1 )
+					set.add(gtid);
+
+				GtidSetSnapshot snapshot = new GtidSetSnapshot(set.toString());
+				BinlogConnectorEvent ev = new BinlogConnectorEvent(rowEvent(tx * 1000L + e * 100), "mysql.000001", snapshot, gtid, outputConfig);
+				if ( e == eventsPerTX - 1 && tx % storeEvery == 0 )
+					checksum += ev.getNextPosition().getGtidSetStr().length();
+			}
+		}
+		return checksum;
+	}
+
+	private static long runIncremental(String history, String uuid, int nTransactions, int eventsPerTX, int storeEvery) {
+		GtidSetSnapshot snapshot = new GtidSetSnapshot(new GtidSet(history).toString());
+		long checksum = 0;
+
+		for ( int tx = 1; tx <= nTransactions; tx++ ) {
+			String gtid = uuid + ":" + tx;
+			for ( int e = 0; e < eventsPerTX; e++ ) {
+				if ( e == eventsPerTX - 1 )
+					snapshot = snapshot.add(gtid);
+
+				BinlogConnectorEvent ev = new BinlogConnectorEvent(rowEvent(tx * 1000L + e * 100), "mysql.000001", snapshot, gtid, outputConfig);
+				if ( e == eventsPerTX - 1 && tx % storeEvery == 0 )
+					checksum += ev.getNextPosition().getGtidSetStr().length();
+			}
+		}
+		return checksum;
+	}
+
+	private static void report(String name, long bytes, long nanos, long events) {
+		System.out.printf(
+			"%-12s %10.1f MB allocated  %8.1f bytes/event  %8.1f ms%n",
+			name,
+			bytes / (1024.0 * 1024.0),
+			(double) bytes / events,
+			nanos / 1000000.0
+		);
+	}
+
+	private static OptionParser buildOptionParser() {
+		final OptionParser parser = new OptionParser();
+		parser.accepts("uuids", "number of server uuids in the gtid history").withRequiredArg();
+		parser.accepts("transactions", "number of transactions to replay").withRequiredArg();
+		parser.accepts("events", "events per transaction").withRequiredArg();
+		parser.accepts("store_every", "build the gtid string (as a position store would) every N transactions").withRequiredArg();
+		parser.accepts("help", "display help");
+		parser.formatHelpWith(new BuiltinHelpFormatter(120, 5));
+		return parser;
+	}
+
+	private static int intOption(OptionSet options, String name, int defaultValue) {
+		return options.has(name) ? Integer.parseInt((String) options.valueOf(name)) : defaultValue;
+	}
+
+	public static void main(String args[]) throws Exception {
+		OptionParser p = buildOptionParser();
+		OptionSet options = p.parse(args);
+		if ( options.has("help") ) {
+			p.printHelpOn(System.out);
+			System.exit(1);
+		}
+
+		int nUUIDs = intOption(options, "uuids", 1000);
+		int nTransactions = intOption(options, "transactions", 20000);
+		int eventsPerTX = intOption(options, "events", 5);
+		int storeEvery = intOption(options, "store_every", 100);
+
+		String history = buildHistory(nUUIDs);
+		String uuid = UUID.randomUUID().toString();
+		long events = (long) nTransactions * eventsPerTX;
+		System.out.println("gtid history: " + history.length() + " chars, " + events + " events");
+
+		// warm up both paths before measuring
+		runEager(history, uuid, nTransactions / 10, eventsPerTX, storeEvery);
+		runIncremental(history, uuid, nTransactions / 10, eventsPerTX, storeEvery);
+
+		long bytes = allocatedBytes(), start = System.nanoTime();
+		long eager = runEager(history, uuid, nTransactions, eventsPerTX, storeEvery);
+		report("eager", allocatedBytes() - bytes, System.nanoTime() - start, events);
+
+		bytes = allocatedBytes();
+		start = System.nanoTime();
+		long incremental = runIncremental(history, uuid, nTransactions, eventsPerTX, storeEvery);
+		report("incremental", allocatedBytes() - bytes, System.nanoTime() - start, events);
+
+		if ( eager != incremental )
+			throw new IllegalStateException("gtid sets differ between runs: " + eager + " != " + incremental);
+	}
+}
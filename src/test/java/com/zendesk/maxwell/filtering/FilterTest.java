@@ -171,5 +171,17 @@ public class FilterTest {
 		assertEquals("exclude: *.*.foo=*", rules.get(0).toString());
 		assertEquals("include: *.*.foo=bar", rules.get(1).toString());
 	}
-}
 
+	@Test
+	public void TestRejectsTable() throws Exception {
+		Filter f = new Filter("maxwell", "exclude: *.*, include: foo.*, include: bar.baz.col=1, blacklist: secret.*");
+
+		assertFalse(Filter.rejectsTable(f, "foo", "anything"));
+		assertFalse(Filter.rejectsTable(f, "bar", "baz"));
+		assertTrue(Filter.rejectsTable(f, "bar", "other"));
+		assertTrue(Filter.rejectsTable(f, "secret", "tbl"));
+		assertTrue(Filter.rejectsTable(f, "mysql", "ha_health_check"));
+		assertFalse(Filter.rejectsTable(f, "maxwell", "heartbeats"));
+		assertFalse(Filter.rejectsTable(null, "bar", "other"));
+	}
+}
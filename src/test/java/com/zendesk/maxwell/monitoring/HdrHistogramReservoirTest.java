@@ -0,0 +1,41 @@
+package com.zendesk.maxwell.monitoring;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HdrHistogramReservoirTest {
+	@Test
+	public void testPercentiles() {
+		HdrHistogramReservoir reservoir = new HdrHistogramReservoir();
+		for ( long i = 1; i <= 10000; i++ )
+			reservoir.update(i);
+
+		Snapshot snapshot = reservoir.getSnapshot();
+		assertEquals(10000, snapshot.size());
+		assertEquals(1, snapshot.getMin());
+		assertEquals(5000, snapshot.getMedian(), 5);
+		assertEquals(9990, snapshot.get999thPercentile(), 10);
+		assertEquals(10000, snapshot.getMax(), 10);
+	}
+
+	@Test
+	public void testSnapshotsKeepThePreviousWindow() throws Exception {
+		HdrHistogramReservoir reservoir = new HdrHistogramReservoir(TimeUnit.MILLISECONDS.toNanos(50));
+		reservoir.update(100);
+		Thread.sleep(60);
+		assertEquals(1, reservoir.getSnapshot().size());
+
+		reservoir.update(200);
+		assertEquals(2, reservoir.getSnapshot().size());
+
+		Thread.sleep(60);
+		assertEquals(1, reservoir.getSnapshot().size());
+
+		Thread.sleep(60);
+		assertEquals(0, reservoir.getSnapshot().size());
+	}
+}
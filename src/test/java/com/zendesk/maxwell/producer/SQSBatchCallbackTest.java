@@ -0,0 +1,53 @@
+package com.zendesk.maxwell.producer;
+
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.zendesk.maxwell.MaxwellConfig;
+import com.zendesk.maxwell.MaxwellContext;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+public class SQSBatchCallbackTest {
+
+	@Test
+	public void shouldCompleteEachSuccessfulEntry() {
+		MaxwellContext context = mock(MaxwellContext.class);
+		when(context.getConfig()).thenReturn(new MaxwellConfig());
+		AbstractAsyncProducer.CallbackCompleter first = mock(AbstractAsyncProducer.CallbackCompleter.class);
+		AbstractAsyncProducer.CallbackCompleter second = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		SQSBatchCallback callback = new SQSBatchCallback(Arrays.asList(first, second), context);
+		SendMessageBatchResult result = new SendMessageBatchResult().withSuccessful(
+			new SendMessageBatchResultEntry().withId("1"),
+			new SendMessageBatchResultEntry().withId("0")
+		);
+		callback.onSuccess(new SendMessageBatchRequest(), result);
+
+		verify(first).markCompleted();
+		verify(second).markCompleted();
+	}
+
+	@Test
+	public void shouldTerminateOnFailedEntryWhenNotIgnoreProducerError() {
+		MaxwellContext context = mock(MaxwellContext.class);
+		MaxwellConfig config = new MaxwellConfig();
+		config.ignoreProducerError = false;
+		when(context.getConfig()).thenReturn(config);
+		AbstractAsyncProducer.CallbackCompleter first = mock(AbstractAsyncProducer.CallbackCompleter.class);
+		AbstractAsyncProducer.CallbackCompleter second = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		SQSBatchCallback callback = new SQSBatchCallback(Arrays.asList(first, second), context);
+		SendMessageBatchResult result = new SendMessageBatchResult()
+			.withSuccessful(new SendMessageBatchResultEntry().withId("0"))
+			.withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError"));
+		callback.onSuccess(new SendMessageBatchRequest(), result);
+
+		verify(context).terminate(any(RuntimeException.class));
+		verifyZeroInteractions(first, second);
+	}
+}
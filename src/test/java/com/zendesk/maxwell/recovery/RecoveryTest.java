@@ -5,7 +5,7 @@ import com.zendesk.maxwell.*;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.HeartbeatRowMap;
 import com.zendesk.maxwell.row.RowMap;
-import com.zendesk.maxwell.schema.MysqlPositionStore;
+import com.zendesk.maxwell.schema.PositionStore;
 import com.zendesk.maxwell.schema.MysqlSavedSchema;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.SchemaCapturer;
@@ -159,8 +159,62 @@ public class RecoveryTest extends TestWithNameLogging {
 		assertEquals(null, recovery.recover());
 	}
 
+	@Test
+	public void testHeartbeatIndex() throws Exception {
+		if (MaxwellTestSupport.inGtidMode()) {
+			LOGGER.info("No need to test recovery under gtid-mode");
+			return;
+		}
+
+		MaxwellContext slaveContext = getContext(slaveServer.getPort(), true);
+
+		String[] input = generateMasterData();
+		MaxwellTestSupport.getRowsWithReplicator(masterServer, input, null, null);
+
+		generateNewMasterData(false, DATA_SIZE);
+		slaveServer.waitForSlaveToBeCurrent(masterServer);
+
+		RecoveryInfo recoveryInfo = slaveContext.getRecoveryInfo();
+		assertThat(recoveryInfo, notNullValue());
+		String clientID = recoveryInfo.clientID;
+
+		MaxwellConfig slaveConfig = getConfig(slaveServer.getPort(), true);
+		HeartbeatIndex index = new HeartbeatIndex(slaveContext.getMaxwellConnectionPool());
+
+		/* another client's failed scan records our heartbeats on its way through */
+		recoveryInfo.clientID = "another_client";
+		Recovery scan = new Recovery(
+			slaveConfig.maxwellMysql,
+			slaveConfig.databaseName,
+			slaveContext.getReplicationConnectionPool(),
+			slaveContext.getCaseSensitivity(),
+			recoveryInfo,
+			2,
+			index
+		);
+		assertEquals(null, scan.recover());
+
+		HeartbeatRowMap indexed = index.find("maxwell", 12345, clientID, recoveryInfo.getHeartbeat());
+		assertThat(indexed, notNullValue());
+
+		recoveryInfo.clientID = clientID;
+		Recovery lookup = new Recovery(
+			slaveConfig.maxwellMysql,
+			slaveConfig.databaseName,
+			slaveContext.getReplicationConnectionPool(),
+			slaveContext.getCaseSensitivity(),
+			recoveryInfo,
+			2,
+			index
+		);
+		assertEquals(indexed.getNextPosition(), lookup.recover().getNextPosition());
+
+		// and once we've recovered, we forget
+		assertEquals(null, index.find("maxwell", 12345, clientID, recoveryInfo.getHeartbeat()));
+	}
+
 	private void drainReplication(BufferedMaxwell maxwell, List<RowMap> rows) throws Exception {
-		MysqlPositionStore positionStore = maxwell.getContext().getPositionStore();
+		PositionStore positionStore = maxwell.getContext().getPositionStore();
 
 		// Wait for position store to send initial heartbeat, to ensure we
 		// don't accidentally send the same value
@@ -0,0 +1,55 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.event.*;
+import com.zendesk.maxwell.TestWithNameLogging;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BinlogConnectorEventTest extends TestWithNameLogging {
+	private static Event writeRowsEvent() {
+		EventHeaderV4 header = new EventHeaderV4();
+		header.setEventType(EventType.EXT_WRITE_ROWS);
+		header.setNextPosition(500);
+		header.setEventLength(100);
+
+		BitSet included = new BitSet();
+		included.set(0);
+
+		WriteRowsEventData data = new WriteRowsEventData();
+		data.setTableId(1);
+		data.setIncludedColumns(included);
+		data.setRows(Arrays.asList(new Serializable[] { 1 }, new Serializable[] { 2 }, new Serializable[] { 3 }));
+		return new Event(header, data);
+	}
+
+	@Test
+	public void testRowsShareOnePosition() {
+		Table table = new Table("db", "tbl", "utf8", Arrays.asList(ColumnDef.build("id", null, "int", (short) 0, true, null, null)), Arrays.asList("id"));
+		BinlogConnectorEvent event = new BinlogConnectorEvent(writeRowsEvent(), "mysql.000001", null, null, new MaxwellOutputConfig());
+
+		assertEquals(400L, event.getOffset());
+
+		List<RowMap> rows = event.jsonMaps(table, 12L, null);
+		assertEquals(3, rows.size());
+		for ( RowMap r : rows ) {
+			assertSame(rows.get(0).getPosition(), r.getPosition());
+			assertSame(rows.get(0).getNextPosition(), r.getNextPosition());
+		}
+
+		Position position = rows.get(0).getPosition();
+		assertEquals(new Position(new BinlogPosition(400L, "mysql.000001"), 12L), position);
+		assertEquals(500L, rows.get(0).getNextPosition().getBinlogPosition().getOffset());
+		assertSame(event.getPosition(), position.getBinlogPosition());
+	}
+}
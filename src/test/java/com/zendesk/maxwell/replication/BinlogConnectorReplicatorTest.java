@@ -17,11 +17,16 @@ import com.zendesk.maxwell.producer.BufferedProducer;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.schema.MysqlSchemaStore;
+import com.zendesk.maxwell.util.DiskBufferConfig;
+import com.zendesk.maxwell.util.RingBuffer;
 import org.junit.Test;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -131,4 +136,60 @@ public class BinlogConnectorReplicatorTest extends TestWithNameLogging {
 		assertEquals(333L, replicator.getRow().getData().get("i"));
 		assertEquals(null, replicator.getRow());
 	}
+
+	@Test
+	public void testReplaysBinlogFiles() throws Exception {
+		MysqlIsolatedServer server = MaxwellTestSupport.setupServer();
+		MaxwellTestSupport.setupSchema(server, false);
+		server.execute("create table test.replayed ( i int )");
+
+		Position position = Position.capture(server.getConnection(), false);
+		MaxwellContext context = MaxwellTestSupport.buildContext(server.getPort(), position, null);
+
+		server.execute("insert into test.replayed set i = 1");
+		server.execute("insert into test.replayed set i = 2");
+		server.execute("FLUSH LOGS");
+		server.execute("insert into test.replayed set i = 3");
+		server.execute("FLUSH LOGS");
+
+		ResultSet rs = server.query("SELECT @@datadir");
+		rs.next();
+		File datadir = new File(rs.getString(1));
+
+		BinlogConnectorReplicator replicator = new BinlogConnectorReplicator(
+			new MysqlSchemaStore(context, position),
+			new BufferedProducer(context, 1),
+			new SynchronousBootstrapper(context),
+			context.getConfig().maxwellMysql,
+			333098L,
+			"maxwell",
+			new NoOpMetrics(),
+			position,
+			true,
+			"maxwell-client",
+			new HeartbeatNotifier(),
+			null,
+			context.getFilter(),
+			new MaxwellOutputConfig(),
+			1,
+			null,
+			BinlogConnectorReplicator.DEFAULT_EVENT_QUEUE_SIZE,
+			RingBuffer.WaitStrategy.PARK,
+			0L,
+			new DiskBufferConfig(),
+			datadir,
+			new PipelineConfig()
+		);
+
+		replicator.startReplicator();
+		List<Long> replayed = new ArrayList<>();
+		for ( RowMap row = replicator.getRow(); row != null; row = replicator.getRow() ) {
+			if ( "replayed".equals(row.getTable()) )
+				replayed.add((Long) row.getData("i"));
+		}
+
+		assertEquals(3, replayed.size());
+		for ( int i = 0; i < 3; i++ )
+			assertEquals(Long.valueOf(i + 1), replayed.get(i));
+	}
 }
@@ -0,0 +1,97 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.GtidSet;
+import com.github.shyiko.mysql.binlog.event.*;
+import com.zendesk.maxwell.TestWithNameLogging;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GtidSetTrackerTest extends TestWithNameLogging {
+	private static final String UUID = "de278ad0-2106-11e4-9f8e-6edd0ca20947";
+
+	private static Event event(EventType type, EventData data) {
+		EventHeaderV4 header = new EventHeaderV4();
+		header.setEventType(type);
+		return new Event(header, data);
+	}
+
+	private static Event gtidEvent(long n) {
+		GtidEventData data = new GtidEventData();
+		data.setGtid(UUID + ":" + n);
+		return event(EventType.GTID, data);
+	}
+
+	private static Event queryEvent(String sql) {
+		QueryEventData data = new QueryEventData();
+		data.setSql(sql);
+		return event(EventType.QUERY, data);
+	}
+
+	private static Event xidEvent() {
+		return event(EventType.XID, new XidEventData());
+	}
+
+	@Test
+	public void testAddsGtidOnCommit() {
+		GtidSetTracker tracker = new GtidSetTracker(UUID + ":1-10");
+
+		tracker.update(gtidEvent(11));
+		tracker.update(queryEvent("BEGIN"));
+		GtidSetSnapshot inTransaction = tracker.getExecuted();
+		tracker.update(event(EventType.EXT_WRITE_ROWS, null));
+
+		assertSame(inTransaction, tracker.getExecuted());
+		assertEquals(UUID + ":1-10", inTransaction.toString());
+		assertEquals(UUID + ":11", tracker.getGtid());
+
+		tracker.update(xidEvent());
+		assertEquals(UUID + ":1-11", tracker.getExecuted().toString());
+
+		// DDL runs outside of BEGIN/COMMIT and commits on its own
+		tracker.update(gtidEvent(12));
+		tracker.update(queryEvent("ALTER TABLE foo ADD COLUMN bar int"));
+		assertEquals(UUID + ":1-12", tracker.getExecuted().toString());
+
+		// older snapshots don't change
+		assertEquals(UUID + ":1-10", inTransaction.toString());
+	}
+
+	@Test
+	public void testNoGtidMode() {
+		GtidSetTracker tracker = new GtidSetTracker(null);
+		tracker.update(queryEvent("BEGIN"));
+		tracker.update(xidEvent());
+		assertNull(tracker.getExecuted());
+	}
+
+	@Test
+	public void testSnapshotsBuildStringLazily() {
+		GtidSetSnapshot snapshot = new GtidSetSnapshot(UUID + ":1-10");
+		GtidSetSnapshot[] snapshots = new GtidSetSnapshot[GtidSetSnapshot.MAX_CHAIN_LENGTH * 2];
+		for ( int i = 0; i < snapshots.length; i++ ) {
+			snapshot = snapshot.add(UUID + ":" + (11 + i));
+			snapshots[i] = snapshot;
+		}
+
+		assertFalse(snapshots[10].isMaterialized());
+		assertTrue(snapshots[GtidSetSnapshot.MAX_CHAIN_LENGTH - 1].isMaterialized());
+
+		for ( int i = snapshots.length - 1; i >= 0; i -= 97 ) {
+			GtidSet expected = new GtidSet(UUID + ":1-" + (11 + i));
+			assertEquals(expected.toString(), snapshots[i].toString());
+		}
+	}
+
+	@Test
+	public void testPositionsShareSnapshotString() {
+		GtidSetSnapshot snapshot = new GtidSetSnapshot(UUID + ":1-10").add(UUID + ":11");
+		BinlogPosition a = new BinlogPosition(snapshot, UUID + ":11", 100L, "mysql.000001");
+		BinlogPosition b = new BinlogPosition(snapshot, UUID + ":11", 200L, "mysql.000001");
+
+		assertTrue(a.hasGtidSet());
+		assertFalse(snapshot.isMaterialized());
+		assertEquals(UUID + ":1-11", a.getGtidSetStr());
+		assertSame(a.getGtidSetStr(), b.getGtidSetStr());
+	}
+}
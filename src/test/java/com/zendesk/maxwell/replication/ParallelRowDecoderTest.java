@@ -0,0 +1,66 @@
+package com.zendesk.maxwell.replication;
+
+import com.zendesk.maxwell.TestWithNameLogging;
+import com.zendesk.maxwell.row.RowMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelRowDecoderTest extends TestWithNameLogging {
+	private List<RowMap> rowsAt(long ts) {
+		RowMap r = new RowMap("insert", "db", "tbl", ts, new ArrayList<>(), new Position(new BinlogPosition(4, "mysql.1"), 0L));
+		return new ArrayList<>(Collections.singletonList(r));
+	}
+
+	@Test
+	public void testPreservesSubmitOrder() throws Exception {
+		ParallelRowDecoder decoder = new ParallelRowDecoder(4);
+		List<Long> seen = new ArrayList<>();
+
+		for ( long i = 0; i < 100; i++ ) {
+			final long ts = i * 1000;
+			final long sleep = (100 - i) % 7;
+			List<RowMap> rows = decoder.submit(() -> {
+				Thread.sleep(sleep);
+				return rowsAt(ts);
+			});
+
+			if ( rows != null )
+				seen.add(rows.get(0).getTimestampMillis());
+		}
+
+		while ( !decoder.isEmpty() )
+			seen.add(decoder.take().get(0).getTimestampMillis());
+
+		decoder.shutdown();
+
+		assertEquals(100, seen.size());
+		for ( int i = 0; i < 100; i++ )
+			assertEquals(Long.valueOf(i * 1000L), seen.get(i));
+	}
+
+	@Test
+	public void testPropagatesDecodeErrors() throws Exception {
+		ParallelRowDecoder decoder = new ParallelRowDecoder(2);
+		decoder.submit(() -> rowsAt(1000L));
+		decoder.submit(() -> { throw new IllegalStateException("bad row"); });
+		decoder.submit(() -> rowsAt(3000L));
+
+		assertEquals(Long.valueOf(1000L), decoder.take().get(0).getTimestampMillis());
+		try {
+			decoder.take();
+			fail("expected exception");
+		} catch ( IllegalStateException e ) {
+			assertEquals("bad row", e.getMessage());
+		}
+
+		assertTrue(decoder.isEmpty());
+		decoder.shutdown();
+	}
+}
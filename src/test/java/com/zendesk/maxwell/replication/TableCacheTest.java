@@ -1,17 +1,118 @@
 package com.zendesk.maxwell.replication;
 
+import com.zendesk.maxwell.CaseSensitivity;
 import com.zendesk.maxwell.MaxwellTestWithIsolatedServer;
 import com.zendesk.maxwell.filtering.Filter;
+import com.zendesk.maxwell.schema.Database;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.SchemaCapturer;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.ddl.ResolvedDatabaseDrop;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableAlter;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableDrop;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
 public class TableCacheTest extends MaxwellTestWithIsolatedServer {
 	@Test
 	public void testHaTables() throws Exception {
 		Schema schema = new SchemaCapturer(server.getConnection(), buildContext().getCaseSensitivity()).capture();
 		TableCache cache = new TableCache("maxwell");
 		// ensure we don't crash on not-really-existant alibaba tables
-		cache.processEvent(schema, new Filter(), 1L, "mysql", "ha_health_check");
+		cache.processEvent(schema, 1L, new Filter(), 1L, "mysql", "ha_health_check");
+	}
+
+	private Table table(String db, String name) {
+		return new Table(db, name, "utf8", new ArrayList<>(), new ArrayList<>());
+	}
+
+	private Schema buildSchema() {
+		Schema schema = new Schema(new ArrayList<>(), "utf8", CaseSensitivity.CASE_SENSITIVE);
+		Database shard = new Database("shard_1", "utf8");
+		shard.addTable(table("shard_1", "a"));
+		shard.addTable(table("shard_1", "b"));
+		Database other = new Database("other", "utf8");
+		other.addTable(table("other", "c"));
+		schema.addDatabase(shard);
+		schema.addDatabase(other);
+		return schema;
+	}
+
+	private TableCache populatedCache(Schema schema) {
+		TableCache cache = new TableCache("maxwell");
+		cache.processEvent(schema, 1L, new Filter(), 1L, "shard_1", "a");
+		cache.processEvent(schema, 1L, new Filter(), 2L, "shard_1", "b");
+		cache.processEvent(schema, 1L, new Filter(), 3L, "other", "c");
+		return cache;
+	}
+
+	@Test
+	public void testDDLOnlyInvalidatesTouchedTables() throws Exception {
+		Schema schema = buildSchema();
+		TableCache cache = populatedCache(schema);
+
+		ResolvedSchemaChange drop = new ResolvedTableDrop("shard_1", "a");
+		cache.invalidate(Collections.singletonList(drop), 2L);
+
+		assertNull(cache.getTable(1L));
+		assertNotNull(cache.getTable(2L));
+		assertNotNull(cache.getTable(3L));
+
+		// the survivors belong to schema 2 now
+		Table b = cache.getTable(2L);
+		cache.processEvent(schema, 2L, new Filter(), 2L, "shard_1", "b");
+		assertSame(b, cache.getTable(2L));
+	}
+
+	@Test
+	public void testRenameInvalidatesBothNames() throws Exception {
+		Schema schema = buildSchema();
+		TableCache cache = populatedCache(schema);
+
+		Table oldTable = schema.findDatabase("shard_1").findTable("a");
+		ResolvedSchemaChange rename = new ResolvedTableAlter("shard_1", "a", oldTable, table("other", "c"));
+		cache.invalidate(Arrays.asList(rename), 2L);
+
+		assertNull(cache.getTable(1L));
+		assertNotNull(cache.getTable(2L));
+		assertNull(cache.getTable(3L));
+	}
+
+	@Test
+	public void testDatabaseDropInvalidatesItsTables() throws Exception {
+		Schema schema = buildSchema();
+		TableCache cache = populatedCache(schema);
+
+		cache.invalidate(Collections.singletonList(new ResolvedDatabaseDrop("shard_1")), 2L);
+
+		assertNull(cache.getTable(1L));
+		assertNull(cache.getTable(2L));
+		assertNotNull(cache.getTable(3L));
+	}
+
+	@Test
+	public void testUnexpectedSchemaIdClearsCache() throws Exception {
+		Schema schema = buildSchema();
+		TableCache cache = populatedCache(schema);
+
+		cache.processEvent(schema, 5L, new Filter(), 3L, "other", "c");
+		assertNull(cache.getTable(1L));
+		assertNotNull(cache.getTable(3L));
+	}
+
+	@Test
+	public void testReusedTableIdIsResolvedAgain() throws Exception {
+		Schema schema = buildSchema();
+		TableCache cache = populatedCache(schema);
+
+		// after a server restart, table id 1 may well name some other table
+		cache.processEvent(schema, 1L, new Filter(), 1L, "other", "c");
+		assertEquals("c", cache.getTable(1L).getName());
 	}
 }
@@ -3,10 +3,14 @@ package com.zendesk.maxwell.row;
 import com.zendesk.maxwell.TestWithNameLogging;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.util.DiskBufferConfig;
+import com.zendesk.maxwell.util.OffHeapBufferPool;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -68,4 +72,81 @@ public class RowMapBufferTest extends TestWithNameLogging {
 		assertThat(buffer.removeFirst().getTimestamp(), is(2L));
 		assertThat(buffer.removeFirst().getTimestamp(), is(3L));
 	}
+
+	private void assertSpillRoundTrip(DiskBufferConfig config) throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(2, 250, config);
+
+		RowMap r = new RowMap("update", "foo", "bar", 1000L, Arrays.asList("id"), new Position(new BinlogPosition("gtid-set", "gtid", 3, "mysql.1"), 5L));
+		r.putData("id", 1L);
+		r.putData("name", "\u00e9t\u00e9");
+		r.putData("price", new BigDecimal("12.50"));
+		r.putData("tags", new ArrayList<>(Arrays.asList("a", "b")));
+		r.putData("json", new RawJSONString("{\"a\":1}"));
+		r.putData("nothing", null);
+		r.putOldData("name", "old");
+		r.putExtraAttribute("note", "hi");
+		r.setKafkaTopic("topic");
+		r.setReceivedAtNanos(100L);
+		r.setDequeuedAtNanos(200L);
+		r.setDecodedAtNanos(300L);
+		String expected = r.toJSON();
+
+		buffer.add(r);
+		for ( long i = 2; i <= 50; i++ )
+			buffer.add(new RowMap("insert", "foo", "bar", i * 1000L, new ArrayList<String>(), new Position(new BinlogPosition(3, "mysql.1"), 0L)));
+
+		assertThat(buffer.inMemorySize() < 50L, is(true));
+
+		RowMap out = buffer.removeFirst();
+		assertThat(out.toJSON(), is(expected));
+		assertThat(out.getPosition(), is(r.getPosition()));
+		assertThat(out.getKafkaTopic(), is("topic"));
+		assertThat(out.getRowIdentity().toConcatString(), is("1"));
+		assertThat(out.getReceivedAtNanos(), is(100L));
+		assertThat(out.getDequeuedAtNanos(), is(200L));
+		assertThat(out.getDecodedAtNanos(), is(300L));
+
+		for ( long i = 2; i <= 50; i++ )
+			assertThat(buffer.removeFirst().getTimestamp(), is(i));
+
+		assertThat(buffer.isEmpty(), is(true));
+		buffer.close();
+	}
+
+	@Test
+	public void TestSpillRoundTrip() throws Exception {
+		assertSpillRoundTrip(new DiskBufferConfig());
+	}
+
+	@Test
+	public void TestSpillRoundTripCompressedMmap() throws Exception {
+		DiskBufferConfig config = new DiskBufferConfig();
+		config.compress = true;
+		config.readMode = DiskBufferConfig.ReadMode.MMAP;
+		config.blockBytes = 512;
+		config.segmentBytes = 2048;
+		assertSpillRoundTrip(config);
+	}
+
+	@Test
+	public void TestOffHeapBeforeDisk() throws Exception {
+		DiskBufferConfig config = new DiskBufferConfig();
+		config.blockBytes = 256;
+		config.offHeapPool = new OffHeapBufferPool(2048, 1024);
+		assertSpillRoundTrip(config);
+		assertThat(config.offHeapPool.getUsedBytes(), is(0L));
+
+		RowMapBuffer buffer = new RowMapBuffer(2, Long.MAX_VALUE, config);
+		for ( long i = 1; i <= 200; i++ )
+			buffer.add(new RowMap("insert", "foo", "bar", i * 1000L, new ArrayList<String>(), new Position(new BinlogPosition(3, "mysql.1"), 0L)));
+
+		// the heap holds just 2 rows even though it's allowed unlimited memory
+		assertThat(buffer.inMemorySize(), is(2L));
+		assertThat(config.offHeapPool.getUsedBytes(), is(2048L));
+
+		for ( long i = 1; i <= 200; i++ )
+			assertThat(buffer.removeFirst().getTimestamp(), is(i));
+
+		assertThat(config.offHeapPool.getUsedBytes(), is(0L));
+	}
 }
@@ -5,15 +5,23 @@ import com.zendesk.maxwell.errors.ProtectedAttributeNameException;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
+import static org.mockito.Mockito.*;
+
 public class RowMapTest {
 
 	private static final long TIMESTAMP_MILLISECONDS = 1496712943447L;
@@ -161,6 +169,62 @@ public class RowMapTest {
 				"\"interests\":[\"hiking\",\"programming\"]}}", rowMap.toJSON(outputConfig));
 	}
 
+	@Test
+	public void testLazyColumnConversion() throws Exception {
+		RowMap rowMap = new RowMap("insert", "MyDatabase", "MyTable", TIMESTAMP_MILLISECONDS, Arrays.asList("id"), POSITION);
+		MaxwellOutputConfig outputConfig = getMaxwellOutputConfig(Pattern.compile("^blob$"));
+
+		ColumnDef id = ColumnDef.build("id", "utf8", "varchar", (short) 0, false, null, null);
+		ColumnDef name = ColumnDef.build("name", "utf8", "varchar", (short) 1, false, null, null);
+		ColumnDef blob = ColumnDef.build("blob", "binary", "varchar", (short) 2, false, null, null);
+
+		rowMap.putRawData(id, "9001".getBytes(StandardCharsets.UTF_8), outputConfig);
+		rowMap.putRawData(name, "example".getBytes(StandardCharsets.UTF_8), outputConfig);
+		rowMap.putRawData(blob, new byte[] { 1, 2, 3 }, outputConfig);
+
+		LazyColumnMap data = (LazyColumnMap) rowMap.getData();
+		Assert.assertTrue(data.isPending("id"));
+		Assert.assertTrue(rowMap.dataHoldsRaw("name", "example".getBytes(StandardCharsets.UTF_8)));
+
+		Assert.assertEquals("9001", rowMap.buildPartitionKey(Arrays.asList("id")));
+		Assert.assertFalse(data.isPending("id"));
+		Assert.assertTrue(data.isPending("name"));
+
+		String json = rowMap.toJSON(outputConfig);
+		Assert.assertTrue(json.contains("\"data\":{\"id\":\"9001\",\"name\":\"example\"}"));
+		Assert.assertFalse(rowMap.hasData("blob"));
+	}
+
+	@Test
+	public void testExcludedColumnsAreNeverConverted() throws Exception {
+		RowMap rowMap = new RowMap("insert", "MyDatabase", "MyTable", TIMESTAMP_MILLISECONDS, new ArrayList<String>(), POSITION);
+		MaxwellOutputConfig outputConfig = getMaxwellOutputConfig(Pattern.compile("^blob$"));
+
+		ColumnDef id = ColumnDef.build("id", "utf8", "varchar", (short) 0, false, null, null);
+		ColumnDef blob = mock(ColumnDef.class);
+		when(blob.getName()).thenReturn("blob");
+
+		rowMap.putRawData(id, "9001".getBytes(StandardCharsets.UTF_8), outputConfig);
+		rowMap.putRawData(blob, new byte[] { 1, 2, 3 }, outputConfig);
+
+		String json = rowMap.toJSON(outputConfig);
+		Assert.assertTrue(json.contains("\"data\":{\"id\":\"9001\"}"));
+		verify(blob, never()).asJSON(any(), any());
+	}
+
+	@Test
+	public void testLazyColumnsSerializeConverted() throws Exception {
+		RowMap rowMap = new RowMap("insert", "MyDatabase", "MyTable", TIMESTAMP_MILLISECONDS, new ArrayList<String>(), POSITION);
+		ColumnDef name = ColumnDef.build("name", "utf8", "varchar", (short) 0, false, null, null);
+		rowMap.putRawData(name, "example".getBytes(StandardCharsets.UTF_8), new MaxwellOutputConfig());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ObjectOutputStream(bytes).writeObject(rowMap);
+		RowMap copy = (RowMap) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		Assert.assertEquals("example", copy.getData("name"));
+	}
+
 	private MaxwellOutputConfig getMaxwellOutputConfig(Pattern... patterns) {
 		MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
 
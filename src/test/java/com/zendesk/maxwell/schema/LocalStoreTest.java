@@ -0,0 +1,197 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.errors.DuplicateProcessException;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import com.zendesk.maxwell.schema.ddl.SchemaChange;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LocalStoreTest {
+	private File buildFile() throws Exception {
+		return new File(Files.createTempDirectory("local-store").toFile(), "maxwell.log");
+	}
+
+	private LocalStore open(File file) throws Exception {
+		return new LocalStore(file, 1L, false, CaseSensitivity.CASE_SENSITIVE, false);
+	}
+
+	private Position at(long offset) {
+		return new Position(new BinlogPosition(offset, "mysql-bin.000001"), 0L);
+	}
+
+	private List<ResolvedSchemaChange> resolve(Schema schema, String sql) throws Exception {
+		List<ResolvedSchemaChange> changes = new ArrayList<>();
+		for ( SchemaChange change : SchemaChange.parse("test", sql) ) {
+			ResolvedSchemaChange resolved = change.resolve(schema);
+			resolved.apply(schema);
+			changes.add(resolved);
+		}
+		return changes;
+	}
+
+	@Test
+	public void testPositionsSurviveARestart() throws Exception {
+		File file = buildFile();
+		LocalStore store = open(file);
+		assertNull(store.get());
+
+		store.set(at(4));
+		store.heartbeat(12345L);
+		store.set(at(100));
+		store.close();
+
+		store = open(file);
+		assertEquals(at(100), store.get());
+		assertEquals(Long.valueOf(12345L), store.getLastHeartbeatSent());
+		store.close();
+	}
+
+	@Test(expected = DuplicateProcessException.class)
+	public void testRefusesASecondOpen() throws Exception {
+		File file = buildFile();
+		open(file);
+		open(file);
+	}
+
+	@Test
+	public void testDiscardsATornWrite() throws Exception {
+		File file = buildFile();
+		LocalStore store = open(file);
+		store.set(at(100));
+		store.close();
+
+		try ( FileOutputStream out = new FileOutputStream(file, true) ) {
+			out.write(new byte[] { 0, 0, 0, 40, 1, 2 });
+		}
+
+		store = open(file);
+		assertEquals(at(100), store.get());
+		store.set(at(200));
+		store.close();
+
+		store = open(file);
+		assertEquals(at(200), store.get());
+		store.close();
+	}
+
+	@Test
+	public void testRestoresTheSchemaAtAPosition() throws Exception {
+		File file = buildFile();
+		LocalStore store = open(file);
+
+		Schema schema = new Schema(Arrays.asList(new Database("test", "utf8")), "utf8", CaseSensitivity.CASE_SENSITIVE);
+		long snapshotID = store.saveSchema(schema, at(100));
+
+		Schema withFoo = schema.copy();
+		long fooID = store.saveDeltas(resolve(withFoo, "CREATE TABLE foo (id int)"), at(200));
+		assertTrue(fooID > snapshotID);
+		store.close();
+
+		store = open(file);
+		assertNull(store.restoreSchema(at(50), null));
+
+		LocalStore.StoredSchema restored = store.restoreSchema(at(300), null);
+		assertEquals(fooID, restored.id);
+		assertTrue(restored.schema.findDatabase("test").hasTable("foo"));
+		store.close();
+
+		// a delta applies after its position, a snapshot at it
+		store = open(file);
+		restored = store.restoreSchema(at(200), null);
+		assertEquals(snapshotID, restored.id);
+		assertFalse(restored.schema.findDatabase("test").hasTable("foo"));
+		store.close();
+	}
+
+	@Test
+	public void testADeltaAfterAnEarlierRestoreSupersedesLaterOnes() throws Exception {
+		File file = buildFile();
+		LocalStore store = open(file);
+
+		Schema schema = new Schema(Arrays.asList(new Database("test", "utf8")), "utf8", CaseSensitivity.CASE_SENSITIVE);
+		store.saveSchema(schema, at(100));
+		store.saveDeltas(resolve(schema.copy(), "CREATE TABLE foo (id int)"), at(200));
+		store.close();
+
+		// we crashed before storing a position past 200, and come back at 150
+		store = open(file);
+		Schema restored = store.restoreSchema(at(150), null).schema.copy();
+		store.saveDeltas(resolve(restored, "CREATE TABLE bar (id int)"), at(200));
+		store.close();
+
+		store = open(file);
+		Schema latest = store.restoreSchema(at(300), null).schema;
+		assertTrue(latest.findDatabase("test").hasTable("bar"));
+		assertFalse(latest.findDatabase("test").hasTable("foo"));
+		store.close();
+	}
+
+	@Test
+	public void testReadOnlyOpensLeaveTheLogAlone() throws Exception {
+		File file = buildFile();
+		LocalStore store = open(file);
+		store.set(at(100));
+
+		try ( FileOutputStream out = new FileOutputStream(file, true) ) {
+			out.write(new byte[] { 0, 0, 0, 40, 1, 2 });
+		}
+		long length = file.length();
+
+		// alongside the writer, which holds the lock
+		LocalStore readOnly = new LocalStore(file, 1L, false, CaseSensitivity.CASE_SENSITIVE, true);
+		assertEquals(at(100), readOnly.get());
+		readOnly.set(at(200));
+		readOnly.close();
+
+		assertEquals(length, file.length());
+		store.close();
+	}
+
+	@Test
+	public void testCompactionFoldsTheChainAtTheStoredPosition() throws Exception {
+		File file = buildFile();
+		LocalStore store = new LocalStore(file, 1L, false, CaseSensitivity.CASE_SENSITIVE, false, 1L);
+
+		Schema schema = new Schema(Arrays.asList(new Database("test", "utf8")), "utf8", CaseSensitivity.CASE_SENSITIVE);
+		store.saveSchema(schema, at(100));
+		long fooID = store.saveDeltas(resolve(schema.copy(), "CREATE TABLE foo (id int)"), at(200));
+
+		// grow the log until it's compacted with the position at 300
+		for ( int i = 0; i < 100; i++ )
+			store.set(at(300));
+		store.close();
+
+		store = open(file);
+		assertEquals(at(300), store.get());
+		// the snapshot at 100 and the delta at 200 are now one snapshot at 300
+		assertNull(store.restoreSchema(at(250), null));
+		store.close();
+
+		store = open(file);
+		LocalStore.StoredSchema restored = store.restoreSchema(at(300), null);
+		assertEquals(fooID, restored.id);
+		assertTrue(restored.schema.findDatabase("test").hasTable("foo"));
+
+		long barID = store.saveDeltas(resolve(restored.schema.copy(), "CREATE TABLE bar (id int)"), at(400));
+		assertTrue(barID > fooID);
+		store.close();
+
+		store = open(file);
+		restored = store.restoreSchema(at(500), null);
+		assertEquals(barID, restored.id);
+		assertTrue(restored.schema.findDatabase("test").hasTable("foo"));
+		assertTrue(restored.schema.findDatabase("test").hasTable("bar"));
+		store.close();
+	}
+}
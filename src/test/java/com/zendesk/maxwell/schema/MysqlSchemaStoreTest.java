@@ -12,6 +12,7 @@ import java.util.List;
 import com.zendesk.maxwell.recovery.RecoveryInfo;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.errors.DuplicateProcessException;
+import com.zendesk.maxwell.filtering.Filter;
 import com.zendesk.maxwell.replication.Position;
 import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
@@ -31,4 +32,57 @@ public class MysqlSchemaStoreTest extends MaxwellTestWithIsolatedServer {
         schemaStore.processSQL(sql, db, pos2);
         assertThat(schemaStore.getSchemaID(), is(2L));
     }
+
+    @Test
+    public void testOnlySchemaChangesCopyTheSchema() throws Exception {
+        Position pos = new Position(new BinlogPosition(0, "mysql.1234"), 1);
+        MysqlSchemaStore schemaStore = new MysqlSchemaStore(buildContext(), pos);
+        Schema before = schemaStore.getSchema();
+
+        Position pos2 = new Position(new BinlogPosition(1, "mysql.1234"), 1);
+        assertTrue(schemaStore.processSQL("INSERT INTO shard_1.ints SET id = 1", "shard_1", pos2).isEmpty());
+        assertSame(before, schemaStore.getSchema());
+
+        Position pos3 = new Position(new BinlogPosition(2, "mysql.1234"), 1);
+        schemaStore.processSQL("CREATE TABLE shard_1.copied (id int)", "shard_1", pos3);
+        assertNotSame(before, schemaStore.getSchema());
+        assertFalse(before.findDatabase("shard_1").hasTable("copied"));
+        assertTrue(schemaStore.getSchema().findDatabase("shard_1").hasTable("copied"));
+    }
+
+    private MysqlSchemaStore buildStore(MaxwellContext context, Position position, Filter filter) throws Exception {
+        return new MysqlSchemaStore(
+            context.getMaxwellConnectionPool(),
+            context.getReplicationConnectionPool(),
+            context.getSchemaConnectionPool(),
+            context.getServerID(),
+            position,
+            context.getCaseSensitivity(),
+            filter,
+            false
+        );
+    }
+
+    @Test
+    public void testClientsWithDifferentBlacklistsShareSchemas() throws Exception {
+        Position start = new Position(new BinlogPosition(0, "mysql.1234"), 1);
+        MaxwellContext context = buildContext(start);
+
+        // the first client captures and saves the schema, blacklisting a table
+        MysqlSchemaStore blacklisting = buildStore(context, start, new Filter("blacklist: shard_1.ints"));
+        assertFalse(blacklisting.getSchema().findDatabase("shard_1").hasTable("ints"));
+
+        Position last = new Position(new BinlogPosition(1, "mysql.1234"), 1);
+        blacklisting.processSQL("CREATE TABLE shard_1.new_table (id int)", "shard_1", last);
+        Long schemaID = blacklisting.getSchemaID();
+
+        // even compacted into a full snapshot, the stored schema keeps the blacklisted table
+        new SchemaCompactor(context.getMaxwellConnectionPool(), 1, context.getCaseSensitivity()).compact(schemaID, null);
+
+        // a second client on the same server, blacklisting nothing, restores the same rows
+        MysqlSchemaStore other = buildStore(context, last, null);
+        assertThat(other.getSchemaID(), is(schemaID));
+        assertTrue(other.getSchema().findDatabase("shard_1").hasTable("ints"));
+        assertTrue(other.getSchema().findDatabase("shard_1").hasTable("new_table"));
+    }
 }
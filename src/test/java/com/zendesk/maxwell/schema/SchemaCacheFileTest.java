@@ -0,0 +1,66 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.MaxwellTestWithIsolatedServer;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class SchemaCacheFileTest extends MaxwellTestWithIsolatedServer {
+	@Test
+	public void testRoundTrip() throws Exception {
+		server.getConnection().createStatement().executeUpdate("CREATE DATABASE if not exists test");
+		server.getConnection().createStatement().executeUpdate(
+			"CREATE TABLE if not exists test.cached ("
+			+ "id bigint unsigned not null auto_increment, "
+			+ "name varchar(255) charset latin1, "
+			+ "e enum('a', 'b,c'), "
+			+ "t datetime(3), "
+			+ "primary key(id, name))"
+		);
+
+		Schema schema = new SchemaCapturer(server.getConnection(), CaseSensitivity.CASE_SENSITIVE).capture();
+
+		File dir = Files.createTempDirectory("schema-cache").toFile();
+		SchemaCacheFile cache = new SchemaCacheFile(new File(dir, "maxwell.schema"));
+		cache.write(12L, "abcdef", schema);
+
+		Schema restored = cache.read(12L, "abcdef", CaseSensitivity.CASE_SENSITIVE);
+		assertNotNull(restored);
+		assertTrue(schema.diff(restored, "captured", "cached").isEmpty());
+		assertEquals(schema.findDatabase("test").findTable("cached").getPKString(),
+			restored.findDatabase("test").findTable("cached").getPKString());
+	}
+
+	@Test
+	public void testIgnoresOtherSchemas() throws Exception {
+		Schema schema = new SchemaCapturer(server.getConnection(), CaseSensitivity.CASE_SENSITIVE).capture();
+
+		File dir = Files.createTempDirectory("schema-cache").toFile();
+		SchemaCacheFile cache = new SchemaCacheFile(new File(dir, "maxwell.schema"));
+		assertNull(cache.read(12L, "abcdef", CaseSensitivity.CASE_SENSITIVE));
+
+		cache.write(12L, "abcdef", schema);
+		assertNull(cache.read(13L, "abcdef", CaseSensitivity.CASE_SENSITIVE));
+		assertNull(cache.read(12L, "fedcba", CaseSensitivity.CASE_SENSITIVE));
+	}
+
+	@Test
+	public void testWriteAsyncKeepsTheNewest() throws Exception {
+		Schema schema = new SchemaCapturer(server.getConnection(), CaseSensitivity.CASE_SENSITIVE).capture();
+
+		File dir = Files.createTempDirectory("schema-cache").toFile();
+		SchemaCacheFile cache = new SchemaCacheFile(new File(dir, "maxwell.schema"));
+		for ( long id = 1; id <= 3; id++ )
+			cache.writeAsync(id, "sha" + id, schema);
+		cache.awaitWrites();
+
+		assertNull(cache.read(2L, "sha2", CaseSensitivity.CASE_SENSITIVE));
+		Schema restored = cache.read(3L, "sha3", CaseSensitivity.CASE_SENSITIVE);
+		assertNotNull(restored);
+		assertTrue(schema.diff(restored, "captured", "cached").isEmpty());
+	}
+}
@@ -13,6 +13,7 @@ import java.util.List;
 
 import com.zendesk.maxwell.CaseSensitivity;
 import com.zendesk.maxwell.MaxwellTestWithIsolatedServer;
+import com.zendesk.maxwell.filtering.Filter;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -57,6 +58,25 @@ public class SchemaCaptureTest extends MaxwellTestWithIsolatedServer {
 		assertEquals("shard_1", dbs);
 	}
 
+	@Test
+	public void testParallelCaptureMatches() throws Exception {
+		Schema sequential = capturer.capture();
+		Schema parallel = new SchemaCapturer(buildContext().getReplicationConnectionPool(), CaseSensitivity.CASE_SENSITIVE, 3).capture();
+
+		List<String> diff = sequential.diff(parallel, "sequential", "parallel");
+		assertTrue(StringUtils.join(diff, "\n"), diff.isEmpty());
+		assertEquals(sequential.getDatabaseNames(), parallel.getDatabaseNames());
+	}
+
+	@Test
+	public void testLeavesOutBlacklistedTables() throws Exception {
+		Filter filter = new Filter("blacklist: shard_1.ints, blacklist: shard_2.*");
+		Schema s = new SchemaCapturer(buildContext().getReplicationConnectionPool(), CaseSensitivity.CASE_SENSITIVE, 2, filter).capture();
+
+		assertEquals("mediumints:minimal:sharded", StringUtils.join(s.findDatabase("shard_1").getTableNames().iterator(), ":"));
+		assertTrue(s.findDatabase("shard_2").getTableList().isEmpty());
+	}
+
 	@Test
 	public void testTables() throws SQLException, InvalidSchemaError {
 		Schema s = capturer.capture();
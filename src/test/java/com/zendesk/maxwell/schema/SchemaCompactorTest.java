@@ -0,0 +1,184 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.MaxwellTestSupport;
+import com.zendesk.maxwell.MaxwellTestWithIsolatedServer;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class SchemaCompactorTest extends MaxwellTestWithIsolatedServer {
+	@Test
+	public void testCompactsIntoAFullSnapshot() throws Exception {
+		Position start = new Position(new BinlogPosition(0, "mysql.1234"), 1);
+		MaxwellContext context = buildContext(start);
+		MysqlSchemaStore schemaStore = new MysqlSchemaStore(context, start);
+		schemaStore.getSchema();
+
+		Position last = null;
+		String[] sql = {
+			"CREATE DATABASE `compact_me`",
+			"CREATE TABLE `compact_me`.`a` (id int(11) unsigned, name varchar(255), primary key(id))",
+			"ALTER TABLE `compact_me`.`a` ADD COLUMN e enum('x', 'y')"
+		};
+		for ( int i = 0; i < sql.length; i++ ) {
+			last = new Position(new BinlogPosition(i + 1, "mysql.1234"), 1);
+			schemaStore.processSQL(sql[i], null, last);
+		}
+
+		Long schemaID = schemaStore.getSchemaID();
+		Schema schema = schemaStore.getSchema().copy();
+		new SchemaCompactor(context.getMaxwellConnectionPool(), 2, context.getCaseSensitivity()).compact(schemaID, schema);
+
+		ResultSet rs = context.getMaxwellConnection().createStatement().executeQuery(
+			"SELECT base_schema_id, deltas from `schemas` where id = " + schemaID
+		);
+		assertTrue(rs.next());
+		assertNull(rs.getObject("base_schema_id"));
+		assertNull(rs.getObject("deltas"));
+
+		MysqlSavedSchema restored = MysqlSavedSchema.restore(context, last);
+		assertEquals(schemaID, restored.getSchemaID());
+		assertEquals(0, restored.getChainLength());
+		assertTrue(schema.diff(restored.getSchema(), "compacted", "restored").isEmpty());
+	}
+
+	/* garbage collection works off binlog positions; in gtid mode findSchema ignores them */
+	private Connection startGarbageTest() throws Exception {
+		assumeFalse(MaxwellTestSupport.inGtidMode());
+		Connection conn = buildContext().getMaxwellConnection();
+		for ( String table : new String[] { "schemas", "databases", "tables", "columns", "positions" } )
+			conn.createStatement().execute("DELETE FROM `" + table + "`");
+		return conn;
+	}
+
+	private long insertSchema(Connection conn, long serverID, String file, long offset, Long baseID, boolean deleted) throws Exception {
+		PreparedStatement s = conn.prepareStatement(
+			"INSERT INTO `schemas` SET server_id = ?, binlog_file = ?, binlog_position = ?, base_schema_id = ?, deleted = ?",
+			Statement.RETURN_GENERATED_KEYS
+		);
+		s.setLong(1, serverID);
+		s.setString(2, file);
+		s.setLong(3, offset);
+		if ( baseID == null )
+			s.setNull(4, Types.INTEGER);
+		else
+			s.setLong(4, baseID);
+		s.setInt(5, deleted ? 1 : 0);
+		s.executeUpdate();
+
+		ResultSet rs = s.getGeneratedKeys();
+		rs.next();
+		return rs.getLong(1);
+	}
+
+	private void insertPosition(Connection conn, long serverID, String clientID, String file, long offset) throws Exception {
+		PreparedStatement s = conn.prepareStatement(
+			"INSERT INTO `positions` SET server_id = ?, client_id = ?, binlog_file = ?, binlog_position = ?, last_heartbeat_read = 0"
+		);
+		s.setLong(1, serverID);
+		s.setString(2, clientID);
+		s.setString(3, file);
+		if ( file == null )
+			s.setNull(4, Types.INTEGER);
+		else
+			s.setLong(4, offset);
+		s.executeUpdate();
+	}
+
+	private void collectGarbage(Connection conn) throws Exception {
+		MaxwellContext context = buildContext();
+		new SchemaCompactor(context.getMaxwellConnectionPool(), 2, context.getCaseSensitivity()).collectGarbage(conn);
+	}
+
+	private Set<Long> schemaIDs(Connection conn) throws Exception {
+		Set<Long> ids = new HashSet<>();
+		ResultSet rs = conn.createStatement().executeQuery("SELECT id from `schemas`");
+		while ( rs.next() )
+			ids.add(rs.getLong("id"));
+		return ids;
+	}
+
+	private Set<Long> ids(Long... ids) {
+		return new HashSet<>(Arrays.asList(ids));
+	}
+
+	@Test
+	public void testGarbageCollectionKeepsWhatAnotherClientNeeds() throws Exception {
+		Connection conn = startGarbageTest();
+		long ancient = insertSchema(conn, 1, "mysql.000001", 4, null, false);
+		long old = insertSchema(conn, 1, "mysql.000002", 4, null, false);
+		long oldDerived = insertSchema(conn, 1, "mysql.000002", 100, old, false);
+		long current = insertSchema(conn, 1, "mysql.000003", 4, null, false);
+		long currentDerived = insertSchema(conn, 1, "mysql.000003", 100, current, false);
+
+		insertPosition(conn, 1, "fast", "mysql.000003", 200);
+		insertPosition(conn, 1, "slow", "mysql.000002", 200);
+
+		collectGarbage(conn);
+		assertEquals(ids(old, oldDerived, current, currentDerived), schemaIDs(conn));
+
+		conn.createStatement().execute("DELETE FROM `positions` WHERE client_id = 'slow'");
+		collectGarbage(conn);
+		assertEquals(ids(current, currentDerived), schemaIDs(conn));
+	}
+
+	@Test
+	public void testGarbageCollectionAcrossServers() throws Exception {
+		Connection conn = startGarbageTest();
+		long otherServer = insertSchema(conn, 2, "mysql.000001", 4, null, false);
+		long old = insertSchema(conn, 1, "mysql.000001", 4, null, false);
+		long current = insertSchema(conn, 1, "mysql.000002", 4, null, false);
+
+		insertPosition(conn, 1, "maxwell", "mysql.000002", 100);
+		insertPosition(conn, 2, "maxwell", "mysql.000001", 100);
+
+		// server 2's schema is older than anything server 1 needs, but a client still sits on server 2
+		collectGarbage(conn);
+		assertEquals(ids(otherServer, old, current), schemaIDs(conn));
+
+		conn.createStatement().execute("DELETE FROM `positions` WHERE server_id = 2");
+		collectGarbage(conn);
+		assertEquals(ids(current), schemaIDs(conn));
+	}
+
+	@Test
+	public void testGarbageCollectionOfDeletedSchemas() throws Exception {
+		Connection conn = startGarbageTest();
+		long deletedBase = insertSchema(conn, 1, "mysql.000001", 4, null, true);
+		long derived = insertSchema(conn, 1, "mysql.000001", 50, deletedBase, false);
+		insertSchema(conn, 1, "mysql.000001", 60, null, true);
+
+		insertPosition(conn, 1, "maxwell", "mysql.000001", 100);
+
+		// a deleted row nothing derives from goes, even if it's newer than the oldest position;
+		// one that a live schema is built on stays.
+		collectGarbage(conn);
+		assertEquals(ids(deletedBase, derived), schemaIDs(conn));
+	}
+
+	@Test
+	public void testGarbageCollectionStopsAtAnUnknownPosition() throws Exception {
+		Connection conn = startGarbageTest();
+		long old = insertSchema(conn, 1, "mysql.000001", 4, null, false);
+		long current = insertSchema(conn, 1, "mysql.000002", 4, null, false);
+
+		insertPosition(conn, 1, "maxwell", "mysql.000002", 100);
+		insertPosition(conn, 1, "gtid_client", null, 0);
+
+		collectGarbage(conn);
+		assertEquals(ids(old, current), schemaIDs(conn));
+	}
+}
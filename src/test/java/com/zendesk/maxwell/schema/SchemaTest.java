@@ -0,0 +1,113 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import com.zendesk.maxwell.schema.columndef.StringColumnDef;
+import com.zendesk.maxwell.schema.ddl.SchemaChange;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SchemaTest {
+	private Schema buildSchema(CaseSensitivity sensitivity) {
+		Database db = new Database("Shard_1", "utf8");
+		db.buildTable("Sharded", "utf8");
+		db.buildTable("other", "utf8");
+		return new Schema(Arrays.asList(db), "utf8", sensitivity);
+	}
+
+	@Test
+	public void testCaseSensitiveLookups() {
+		Schema schema = buildSchema(CaseSensitivity.CASE_SENSITIVE);
+
+		assertNotNull(schema.findDatabase("Shard_1"));
+		assertNull(schema.findDatabase("shard_1"));
+		assertNotNull(schema.findDatabase("Shard_1").findTable("Sharded"));
+		assertNull(schema.findDatabase("Shard_1").findTable("sharded"));
+	}
+
+	@Test
+	public void testCaseInsensitiveLookups() {
+		Schema schema = buildSchema(CaseSensitivity.CONVERT_ON_COMPARE);
+
+		Database db = schema.findDatabase("SHARD_1");
+		assertNotNull(db);
+		assertEquals("Sharded", db.findTable("sharded").getName());
+		assertNull(schema.findDatabase(null));
+	}
+
+	@Test
+	public void testIndexesFollowMutations() {
+		Schema schema = buildSchema(CaseSensitivity.CONVERT_ON_COMPARE);
+		Database db = schema.findDatabase("shard_1");
+
+		db.removeTable("SHARDED");
+		assertNull(db.findTable("sharded"));
+		assertEquals(1, db.getTableList().size());
+
+		db.addTable(new Table("shard_1", "Sharded", "utf8", new ArrayList<>(), null));
+		assertNotNull(db.findTable("SHARDED"));
+
+		schema.removeDatabase(db);
+		assertNull(schema.findDatabase("shard_1"));
+		assertTrue(schema.getDatabases().isEmpty());
+	}
+
+	@Test
+	public void testColumnIndexFollowsMutations() {
+		TableColumnList columns = new TableColumnList(new ArrayList<>(Arrays.asList(
+			ColumnDef.build("id", null, "int", (short) 0, true, null, null),
+			ColumnDef.build("Name", "utf8", "varchar", (short) 1, false, null, null)
+		)));
+
+		assertEquals(1, columns.indexOf("NAME"));
+
+		columns.add(0, ColumnDef.build("first", null, "int", (short) 0, true, null, null));
+		assertEquals(2, columns.indexOf("name"));
+
+		columns.remove(2);
+		assertEquals(-1, columns.indexOf("name"));
+		assertEquals(1, columns.indexOf("id"));
+	}
+
+	@Test
+	public void testCopiesShareUntilEdited() throws Exception {
+		Schema schema = buildSchema(CaseSensitivity.CASE_SENSITIVE);
+		Schema copy = schema.copy();
+
+		assertSame(schema.findDatabase("Shard_1"), copy.findDatabase("Shard_1"));
+
+		Database edited = copy.editDatabase("Shard_1");
+		assertNotSame(schema.findDatabase("Shard_1"), edited);
+		assertSame(schema.findDatabase("Shard_1").findTable("other"), edited.findTable("other"));
+
+		edited.removeTable("other");
+		assertNull(copy.findDatabase("Shard_1").findTable("other"));
+		assertNotNull(schema.findDatabase("Shard_1").findTable("other"));
+	}
+
+	@Test
+	public void testAlterLeavesTheOriginalSchemaAlone() throws Exception {
+		Schema schema = buildSchema(CaseSensitivity.CASE_SENSITIVE);
+		Table original = schema.findDatabase("Shard_1").findTable("Sharded");
+		original.addColumn(ColumnDef.build("id", null, "int", (short) 0, true, null, null));
+		original.addColumn(ColumnDef.build("name", "utf8", "varchar", (short) 1, false, null, null));
+
+		Schema copy = schema.copy();
+		for ( SchemaChange change : SchemaChange.parse("Shard_1", "ALTER TABLE Sharded ADD COLUMN first int FIRST, CONVERT TO CHARACTER SET latin1") )
+			change.resolve(copy).apply(copy);
+
+		Table altered = copy.findDatabase("Shard_1").findTable("Sharded");
+		assertEquals(3, altered.getColumnList().size());
+		assertEquals(2, altered.findColumn("name").getPos());
+		assertEquals("latin1", ((StringColumnDef) altered.findColumn("name")).getCharset());
+
+		assertSame(original, schema.findDatabase("Shard_1").findTable("Sharded"));
+		assertEquals(2, original.getColumnList().size());
+		assertEquals(1, original.findColumn("name").getPos());
+		assertEquals("utf8", ((StringColumnDef) original.findColumn("name")).getCharset());
+	}
+}
@@ -258,6 +258,48 @@ public class DDLParserTest {
 		}
 	}
 
+	@Test
+	public void testClassifierLooksPastComments() {
+		String ignored[] = {
+			"# hi bob\n  grant all on *.* to 'bob'",
+			"/* a */ /*!40101 CREATE DEFINER=`dba`@`%` */ /*!50003 PROCEDURE foo() BEGIN END */",
+			"create online unique index foo on bar (baz)",
+			"create aggregate function foo returns string soname 'foo.so'",
+			"rename user bob to alice"
+		};
+
+		for ( String s : ignored )
+			assertThat(s, DDLClassifier.classify(s), is(DDLClassifier.Result.IGNORE));
+
+		String parsed[] = {
+			"CREATE TABLE user (id int)",
+			"/* begin */ ALTER TABLE `grant` ADD column `index` int",
+			"ALTER ONLINE TABLE foo ADD column bar int",
+			"CREATE OR REPLACE VIEW foo AS SELECT 1",
+			"drop table `function`"
+		};
+
+		for ( String s : parsed )
+			assertThat(s, DDLClassifier.classify(s), is(DDLClassifier.Result.PARSE));
+	}
+
+	@Test
+	public void testParseCacheHandsOutFreshLists() {
+		String sql = "CREATE TABLE cached_foo (id int, name varchar(255), primary key(id))";
+
+		SchemaChange.clearParseCache();
+		List<SchemaChange> first = parse(sql);
+		List<SchemaChange> second = parse(sql);
+
+		assertThat(second, is(not(sameInstance(first))));
+		assertThat(second, is(first));
+
+		first.clear();
+		assertThat(parse(sql).size(), is(1));
+		assertThat(parse("CREATE VIEW foo"), is(nullValue()));
+		assertThat(parse("CREATE VIEW foo"), is(nullValue()));
+	}
+
 	@Test
 	public void testChangeColumn() {
 		TableAlter a = parseAlter("alter table c CHANGE column `foo` bar int(20) unsigned default 'foo' not null");
@@ -0,0 +1,107 @@
+package com.zendesk.maxwell.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.zendesk.maxwell.monitoring.NoOpMetrics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PipelineStageTest {
+	@Test
+	public void testOutputKeepsSubmissionOrder() throws Exception {
+		AtomicReference<Exception> error = new AtomicReference<>();
+		List<Integer> output = Collections.synchronizedList(new ArrayList<>());
+		Random random = new Random();
+
+		PipelineStage<Integer, Integer> sink = new PipelineStage<>(
+			"sink", 1, 4, new NoOpMetrics(), "test", error, i -> i, output::add
+		);
+		PipelineStage<Integer, Integer> square = new PipelineStage<>(
+			"square", 4, 4, new NoOpMetrics(), "test", error,
+			i -> {
+				Thread.sleep(random.nextInt(3));
+				return i * i;
+			},
+			sink::submit
+		);
+		sink.start();
+		square.start();
+
+		for ( int i = 0; i < 100; i++ )
+			square.submit(i);
+
+		while ( !square.isEmpty() || !sink.isEmpty() )
+			Thread.sleep(5);
+
+		assertNull(error.get());
+		assertEquals(100, output.size());
+		for ( int i = 0; i < 100; i++ )
+			assertEquals(Integer.valueOf(i * i), output.get(i));
+
+		square.shutdown();
+		sink.shutdown();
+	}
+
+	@Test
+	public void testFailureIsRecorded() throws Exception {
+		AtomicReference<Exception> error = new AtomicReference<>();
+		PipelineStage<Integer, Integer> stage = new PipelineStage<>(
+			"failing", 2, 2, new NoOpMetrics(), "test", error,
+			i -> {
+				throw new IllegalStateException("boom " + i);
+			},
+			null
+		);
+		stage.start();
+		stage.submit(1);
+
+		for ( int i = 0; i < 100 && error.get() == null; i++ )
+			Thread.sleep(10);
+
+		assertTrue(error.get() instanceof IllegalStateException);
+
+		// a broken pipeline doesn't block its feeder
+		stage.submit(2);
+		stage.submit(3);
+		stage.submit(4);
+		stage.shutdown();
+	}
+
+	@Test
+	public void testUtilization() throws Exception {
+		NoOpMetrics metrics = new NoOpMetrics() {
+			@Override
+			public <T extends Metric> void register(String name, T metric) {
+				getRegistry().register(name, metric);
+			}
+		};
+		AtomicReference<Exception> error = new AtomicReference<>();
+		PipelineStage<Integer, Integer> stage = new PipelineStage<>(
+			"busy", 1, 2, metrics, "test", error,
+			i -> {
+				Thread.sleep(50);
+				return i;
+			},
+			null
+		);
+		Gauge<?> utilization = metrics.getRegistry().getGauges().get(metrics.metricName("test", "busy", "utilization"));
+		assertNotNull(utilization);
+		utilization.getValue();
+
+		stage.start();
+		stage.submit(1);
+		stage.submit(2);
+		while ( !stage.isEmpty() )
+			Thread.sleep(5);
+
+		assertTrue((Double) utilization.getValue() > 0.5);
+		stage.shutdown();
+	}
+}
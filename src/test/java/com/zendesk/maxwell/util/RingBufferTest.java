@@ -0,0 +1,126 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RingBufferTest {
+	@Test
+	public void testCapacityRoundsUpToPowerOfTwo() {
+		assertEquals(32, new RingBuffer<Integer>(20, RingBuffer.WaitStrategy.PARK).capacity());
+		assertEquals(1, new RingBuffer<Integer>(1, RingBuffer.WaitStrategy.PARK).capacity());
+	}
+
+	@Test
+	public void testOfferAndPoll() throws Exception {
+		RingBuffer<Integer> buffer = new RingBuffer<>(2, RingBuffer.WaitStrategy.PARK);
+
+		assertTrue(buffer.offer(1));
+		assertTrue(buffer.offer(2));
+		assertFalse(buffer.offer(3));
+		assertFalse(buffer.offer(3, 5, TimeUnit.MILLISECONDS));
+		assertEquals(2, buffer.size());
+
+		assertEquals(Integer.valueOf(1), buffer.poll());
+		assertTrue(buffer.offer(3));
+		assertEquals(Integer.valueOf(2), buffer.poll());
+		assertEquals(Integer.valueOf(3), buffer.poll());
+		assertNull(buffer.poll());
+		assertNull(buffer.poll(5, TimeUnit.MILLISECONDS));
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testDrainTo() {
+		RingBuffer<Integer> buffer = new RingBuffer<>(8, RingBuffer.WaitStrategy.SPIN);
+		for ( int i = 0; i < 5; i++ )
+			buffer.offer(i);
+
+		List<Integer> out = new ArrayList<>();
+		assertEquals(3, buffer.drainTo(out, 3));
+		assertEquals(2, buffer.drainTo(out, 10));
+		assertEquals(0, buffer.drainTo(out, 10));
+
+		for ( int i = 0; i < 5; i++ )
+			assertEquals(Integer.valueOf(i), out.get(i));
+	}
+
+	private void runProducerConsumer(RingBuffer.WaitStrategy strategy) throws Exception {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(16, strategy);
+		final int count = 100000;
+
+		Thread producer = new Thread(() -> {
+			try {
+				for ( int i = 0; i < count; i++ ) {
+					while ( !buffer.offer(i, 100, TimeUnit.MILLISECONDS) ) { }
+				}
+			} catch ( InterruptedException e ) { }
+		});
+		producer.start();
+
+		List<Integer> batch = new ArrayList<>();
+		int expected = 0;
+		while ( expected < count ) {
+			batch.clear();
+			if ( buffer.drainTo(batch, 8) == 0 ) {
+				Integer i = buffer.poll(100, TimeUnit.MILLISECONDS);
+				if ( i != null )
+					batch.add(i);
+			}
+
+			for ( Integer i : batch )
+				assertEquals(Integer.valueOf(expected++), i);
+		}
+
+		producer.join();
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testParkedConsumerWakesOnOffer() throws Exception {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(4, RingBuffer.WaitStrategy.PARK);
+
+		Thread producer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch ( InterruptedException e ) { }
+			buffer.offer(1);
+		});
+		producer.start();
+
+		assertEquals(Integer.valueOf(1), buffer.poll(10, TimeUnit.SECONDS));
+		producer.join();
+	}
+
+	@Test
+	public void testParkedProducerWakesOnPoll() throws Exception {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(1, RingBuffer.WaitStrategy.PARK);
+		buffer.offer(1);
+
+		Thread consumer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch ( InterruptedException e ) { }
+			buffer.poll();
+		});
+		consumer.start();
+
+		assertTrue(buffer.offer(2, 10, TimeUnit.SECONDS));
+		consumer.join();
+		assertEquals(Integer.valueOf(2), buffer.poll());
+	}
+
+	@Test
+	public void testProducerConsumerPark() throws Exception {
+		runProducerConsumer(RingBuffer.WaitStrategy.PARK);
+	}
+
+	@Test
+	public void testProducerConsumerYield() throws Exception {
+		runProducerConsumer(RingBuffer.WaitStrategy.YIELD);
+	}
+}